@@ -21,34 +21,63 @@ import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
+import com.javadeobfuscator.deobfuscator.events.ConsoleListener;
+import com.javadeobfuscator.deobfuscator.events.DeobfuscatorListener;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassVisitor;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassWriter;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.commons.JSRInlinerAdapter;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.commons.RemappingClassAdapter;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.AbstractInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.util.CheckClassAdapter;
+import com.javadeobfuscator.deobfuscator.transformers.StreamingTransformer;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.transformers.normalizer.CustomRemapper;
+import com.javadeobfuscator.deobfuscator.utils.ClassHierachy;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
+import com.javadeobfuscator.deobfuscator.utils.ClassPartFilter;
 import com.javadeobfuscator.deobfuscator.utils.ClassTree;
+import com.javadeobfuscator.deobfuscator.utils.ClasspathSnapshot;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
+import com.javadeobfuscator.deobfuscator.utils.LazyClassMap;
+import com.javadeobfuscator.deobfuscator.utils.RawZipFile;
+import com.javadeobfuscator.deobfuscator.utils.RawZipWriter;
 import com.javadeobfuscator.deobfuscator.utils.Utils;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 public class Deobfuscator {
+    private static final String SOURCE = "[Deobfuscator]";
 
     private List<Class<? extends Transformer>> transformers = new ArrayList<>();
     private List<File> classpathFiles = new ArrayList<>();
-    private Map<String, WrappedClassNode> classpath = new HashMap<>();
-    private Map<String, WrappedClassNode> classes = new HashMap<>();
-    private Map<String, ClassTree> hierachy = new HashMap<>();
+    private List<Map<String, WrappedClassNode>> libraries = new ArrayList<>();
+    private LazyClassMap.Deferred deferred = new LazyClassMap.Deferred(this::parse);
+    private LazyClassMap classpath = new LazyClassMap(deferred);
+    private LazyClassMap classes = new LazyClassMap(deferred);
+    private ClassHierachy hierachy = new ClassHierachy(this::resolve);
+    private CustomRemapper remapper = new CustomRemapper(this::resolve);
+    private Map<String, String> unmapped = Collections.emptyMap();
     private File input;
     private File output;
+    private Set<ClassPart> skippedParts = EnumSet.of(ClassPart.FRAMES);
+    private final AtomicInteger inlinedSubroutines = new AtomicInteger();
+    private final EventDispatcher events = new EventDispatcher();
 
     public Deobfuscator withTransformer(Class<? extends Transformer> transformer) {
         this.transformers.add(transformer);
@@ -57,7 +86,7 @@ public class Deobfuscator {
 
     public Deobfuscator withClasspath(File file) {
         if (file.isDirectory()) {
-            File[] files = file.listFiles((dir, name) -> name.endsWith(".jar"));
+            File[] files = file.listFiles((dir, name) -> name.endsWith(".jar") || name.endsWith(ClasspathSnapshot.EXTENSION));
             if (files != null) {
                 classpathFiles.addAll(Arrays.asList(files));
             }
@@ -67,6 +96,23 @@ public class Deobfuscator {
         return this;
     }
 
+    /**
+     * Adds classes which were already loaded with {@link #loadLibrary(File)}. The nodes are only read, so the same
+     * library can be shared by any number of runs.
+     */
+    public Deobfuscator withLibrary(Map<String, WrappedClassNode> library) {
+        this.libraries.add(library);
+        return this;
+    }
+
+    /**
+     * Adds a listener for the events of this run. Without any listener, events are printed to the console.
+     */
+    public Deobfuscator withListener(DeobfuscatorListener listener) {
+        this.events.addListener(listener);
+        return this;
+    }
+
     public Deobfuscator withInput(File input) {
         this.input = input;
         return this;
@@ -78,117 +124,372 @@ public class Deobfuscator {
     }
 
     public void start() throws Throwable {
-        for (File file : classpathFiles) {
-            ZipFile zipIn = new ZipFile(file);
-            Enumeration<? extends ZipEntry> entries = zipIn.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry ent = entries.nextElement();
-                if (ent.getName().endsWith(".class")) {
-                    ClassReader reader = new ClassReader(zipIn.getInputStream(ent));
-                    ClassNode node = new ClassNode();
-                    node.isLibrary = true;
-                    reader.accept(node, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-                    WrappedClassNode wrappedClassNode = new WrappedClassNode(node, reader.getItemCount());
-                    classpath.put(node.name, wrappedClassNode);
-                }
+        if (!events.hasListeners()) {
+            events.addListener(new ConsoleListener());
+        }
+        try {
+            run();
+        } finally {
+            events.close();
+        }
+    }
+
+    private void run() throws Throwable {
+        List<Transformer> instances = new ArrayList<>();
+        ConstantPoolFilter prefilter = transformers.isEmpty() ? null : new ConstantPoolFilter();
+        Set<ClassPart> required = EnumSet.noneOf(ClassPart.class);
+        Set<ClassPart> skipped = EnumSet.of(ClassPart.FRAMES);
+        for (Class<? extends Transformer> transformerClass : transformers) {
+            Transformer transformer = transformerClass.getConstructor(Map.class, Map.class).newInstance(classes, classpath);
+            transformer.setDeobfuscator(this);
+            instances.add(transformer);
+            prefilter = ConstantPoolFilter.union(prefilter, transformer.getPrefilter());
+            required.addAll(transformer.getRequiredParts());
+            if (transformer.getDiscardedParts().contains(ClassPart.CODE)) {
+                throw new IllegalArgumentException(transformerClass.getName() + " cannot discard " + ClassPart.CODE + ", methods are written back with their bodies");
             }
-            zipIn.close();
-        }
-        ZipFile zipIn = new ZipFile(input);
-        ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(output));
-        Enumeration<? extends ZipEntry> e = zipIn.entries();
-        while (e.hasMoreElements()) {
-            ZipEntry next = e.nextElement();
-            if (next.getName().endsWith(".class")) {
-                try {
-                    InputStream in = zipIn.getInputStream(next);
-                    ClassReader reader = new ClassReader(in);
-                    ClassNode node = new ClassNode();
-                    reader.accept(node, ClassReader.SKIP_FRAMES);
-                    for (int i = 0; i < node.methods.size(); i++) {
-                        MethodNode methodNode = node.methods.get(i);
-                        JSRInlinerAdapter adapter = new JSRInlinerAdapter(methodNode, methodNode.access, methodNode.name, methodNode.desc, methodNode.signature, methodNode.exceptions.toArray(new String[0]));
-                        methodNode.accept(adapter);
-                        node.methods.set(i, adapter);
+            skipped.addAll(transformer.getDiscardedParts());
+        }
+        if (!instances.isEmpty() && instances.stream().allMatch(transformer -> transformer instanceof StreamingTransformer)) {
+            stream(instances, prefilter);
+            return;
+        }
+        events.phaseStarted(SOURCE, "reading");
+        skipped.removeAll(required);
+        skippedParts = skipped;
+        if (!skipped.equals(EnumSet.of(ClassPart.FRAMES))) {
+            events.info(SOURCE, "Reading classes without " + skipped);
+        }
+        deferred.setListener(this::loadHierachy);
+
+        for (File file : classpathFiles) {
+            classpath.addLibrary(loadLibrary(file));
+        }
+        for (Map<String, WrappedClassNode> library : libraries) {
+            classpath.addLibrary(library);
+        }
+        try (ZipFile zipIn = new ZipFile(input); RawZipFile rawIn = openRaw(input); RawZipWriter zipOut = new RawZipWriter(output)) {
+            Enumeration<? extends ZipEntry> e = zipIn.entries();
+            while (e.hasMoreElements()) {
+                ZipEntry next = e.nextElement();
+                if (next.getName().endsWith(".class")) {
+                    try {
+                        byte[] bytes = Utils.toByteArray(zipIn.getInputStream(next));
+                        if (prefilter != null && !prefilter.matches(bytes)) {
+                            deferred.add(ConstantPoolFilter.getClassName(bytes), next.getName(), bytes);
+                            continue;
+                        }
+                        WrappedClassNode wr = parse(bytes);
+                        wr.entryName = next.getName();
+                        classes.put(wr.classNode.name, wr);
+                    } catch (IllegalArgumentException | IndexOutOfBoundsException x) {
+                        events.warning(SOURCE, "Could not parse " + next.getName() + " (is it a class?)", x);
+                        copy(zipIn, rawIn, next.getName(), next.getName(), zipOut);
                     }
-                    WrappedClassNode wr = new WrappedClassNode(node, reader.getItemCount());
-                    classes.put(node.name, wr);
-                } catch (IllegalArgumentException x) {
-                    System.out.println("Could not parse " + next.getName() + " (is it a class?)");
-                    x.printStackTrace(System.out);
-                    zipOut.putNextEntry(new ZipEntry(next.getName()));
-                    Utils.copy(zipIn.getInputStream(next), zipOut);
-                    zipOut.closeEntry();
+                } else if (!next.isDirectory()) {
+                    copy(zipIn, rawIn, next.getName(), next.getName(), zipOut);
                 }
-            } else if (!next.isDirectory()) {
-                zipOut.putNextEntry(new ZipEntry(next.getName()));
-                Utils.copy(zipIn.getInputStream(next), zipOut);
-                zipOut.closeEntry();
             }
-        }
 
-        classpath.putAll(classes);
-
-        Map<MethodNode, List<Entry<WrappedClassNode, MethodNode>>> callers = new HashMap<>();
-        classes.values().forEach(wrappedClassNode -> {
-            wrappedClassNode.classNode.methods.forEach(methodNode -> {
-                for (int i = 0; i < methodNode.instructions.size(); i++) {
-                    AbstractInsnNode node = methodNode.instructions.get(i);
-                    if (node instanceof MethodInsnNode) {
-                        MethodInsnNode mn = (MethodInsnNode) node;
-                        WrappedClassNode targetNode = classes.get(mn.owner);
-                        if (targetNode != null) {
-                            MethodNode targetMethod = targetNode.classNode.methods.stream().filter(m -> m.name.equals(mn.name) && m.desc.equals(mn.desc)).findFirst().orElse(null);
-                            if (targetMethod != null) {
-                                List<Entry<WrappedClassNode, MethodNode>> caller = callers.get(targetMethod);
-                                if (caller == null) {
-                                    caller = new ArrayList<>();
-                                    callers.put(targetMethod, caller);
+            classes.ownValues().forEach(wrappedClassNode -> classpath.put(wrappedClassNode.classNode.name, wrappedClassNode));
+            if (prefilter != null) {
+                events.info(SOURCE, "Deferred parsing " + deferred.names().size() + " classes which no transformer is interested in");
+            }
+
+            Map<MethodNode, List<Entry<WrappedClassNode, MethodNode>>> callers = new HashMap<>();
+            classes.ownValues().forEach(wrappedClassNode -> {
+                wrappedClassNode.classNode.methods.forEach(methodNode -> {
+                    for (int i = 0; i < methodNode.instructions.size(); i++) {
+                        AbstractInsnNode node = methodNode.instructions.get(i);
+                        if (node instanceof MethodInsnNode) {
+                            MethodInsnNode mn = (MethodInsnNode) node;
+                            WrappedClassNode targetNode = classes.get(mn.owner);
+                            if (targetNode != null) {
+                                MethodNode targetMethod = targetNode.classNode.methods.stream().filter(m -> m.name.equals(mn.name) && m.desc.equals(mn.desc)).findFirst().orElse(null);
+                                if (targetMethod != null) {
+                                    List<Entry<WrappedClassNode, MethodNode>> caller = callers.get(targetMethod);
+                                    if (caller == null) {
+                                        caller = new ArrayList<>();
+                                        callers.put(targetMethod, caller);
+                                    }
+                                    caller.add(new SimpleEntry<>(wrappedClassNode, methodNode));
                                 }
-                                caller.add(new SimpleEntry<>(wrappedClassNode, methodNode));
                             }
                         }
                     }
+                });
+            });
+
+            events.phaseFinished(SOURCE, "reading");
+            events.phaseStarted(SOURCE, "loading hierachy");
+
+            loadHierachy();
+
+            events.phaseFinished(SOURCE, "loading hierachy");
+            events.phaseStarted(SOURCE, "transforming");
+
+            for (Transformer transformer : instances) {
+                events.flush();
+                transformer.transform();
+                if (!transformer.tracksChanges()) {
+                    classes.ownValues().forEach(WrappedClassNode::markDirty);
+                    deferred.materialized().forEach(WrappedClassNode::markDirty);
+                }
+            }
+            events.flush();
+
+            events.phaseFinished(SOURCE, "transforming");
+            events.phaseStarted(SOURCE, "writing");
+
+            boolean remapping = !remapper.isEmpty();
+            if (remapping) {
+                events.info(SOURCE, "Renaming while writing");
+                unmapped = new HashMap<>();
+                for (String name : classes.ownKeySet()) {
+                    unmapped.put(remapper.map(name), name);
+                }
+                for (String name : deferred.names()) {
+                    unmapped.put(remapper.map(name), name);
+                }
+            }
+            int[] unchanged = new int[1];
+            classes.ownValues().forEach(wrappedClassNode -> {
+                ClassNode classNode = wrappedClassNode.classNode;
+                try {
+                    if (!remapping && isUnchanged(wrappedClassNode)) {
+                        copy(zipIn, rawIn, wrappedClassNode.entryName, classNode.name + ".class", zipOut);
+                        unchanged[0]++;
+                        return;
+                    }
+                    byte[] b = toByteArray(classNode);
+                    if (b != null) {
+                        zipOut.write(remapper.map(classNode.name) + ".class", b);
+                    }
+                } catch (Throwable t) {
+                    events.warning(SOURCE, "Uncaught error while writing " + classNode.name, t);
                 }
             });
+            for (String name : deferred.names()) {
+                if (!classes.isDeferred(name)) {
+                    continue;
+                }
+                WrappedClassNode wrappedClassNode = remapping ? classes.get(name) : deferred.getMaterialized(name);
+                try {
+                    if (!remapping && (wrappedClassNode == null || isUnchanged(wrappedClassNode))) {
+                        copy(zipIn, rawIn, deferred.getEntryName(name), name + ".class", zipOut);
+                        unchanged[0]++;
+                        continue;
+                    }
+                    byte[] b = toByteArray(wrappedClassNode.classNode);
+                    if (b != null) {
+                        zipOut.write(remapper.map(wrappedClassNode.classNode.name) + ".class", b);
+                    }
+                } catch (Throwable t) {
+                    events.warning(SOURCE, "Uncaught error while writing " + name, t);
+                }
+            }
+            events.info(SOURCE, "Copied " + unchanged[0] + " unchanged classes");
+            if (inlinedSubroutines.get() > 0) {
+                events.info(SOURCE, "Inlined JSR/RET subroutines of " + inlinedSubroutines.get() + " methods");
+            }
+        } catch (Throwable t) {
+            output.delete();
+            throw t;
+        }
+        events.phaseFinished(SOURCE, "writing");
+    }
+
+    /**
+     * Runs transformers which are all {@link StreamingTransformer}s. Each class is read, transformed and written on
+     * its own, so no trees are built and the classpath is never loaded. Classes are transformed in parallel, but only
+     * a bounded window of them is held in memory, and they are written in the order of the input.
+     */
+    private void stream(List<Transformer> instances, ConstantPoolFilter prefilter) throws IOException {
+        events.phaseStarted(SOURCE, "streaming");
+        int workers = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "Deobfuscator streaming");
+            thread.setDaemon(true);
+            return thread;
         });
+        Deque<Entry<String, Future<byte[]>>> window = new ArrayDeque<>();
+        int[] counts = new int[2];
+        try (ZipFile zipIn = new ZipFile(input); RawZipFile rawIn = openRaw(input); RawZipWriter zipOut = new RawZipWriter(output)) {
+            Enumeration<? extends ZipEntry> e = zipIn.entries();
+            while (e.hasMoreElements()) {
+                ZipEntry next = e.nextElement();
+                if (next.getName().endsWith(".class")) {
+                    window.add(new SimpleEntry<>(next.getName(), executor.submit(() -> stream(zipIn, next, instances, prefilter))));
+                } else if (!next.isDirectory()) {
+                    window.add(new SimpleEntry<>(next.getName(), CompletableFuture.completedFuture(null)));
+                }
+                while (window.size() > workers * 4) {
+                    write(window.poll(), zipIn, rawIn, zipOut, counts);
+                }
+            }
+            while (!window.isEmpty()) {
+                write(window.poll(), zipIn, rawIn, zipOut, counts);
+            }
+        } catch (Throwable t) {
+            output.delete();
+            throw t;
+        } finally {
+            executor.shutdownNow();
+        }
+        events.info(SOURCE, "Streamed " + counts[0] + " classes, copied " + counts[1] + " unchanged entries");
+        events.phaseFinished(SOURCE, "streaming");
+    }
 
-        System.out.println();
-        System.out.println("Reading complete. Loading hierachy");
-        System.out.println();
+    /**
+     * @return the transformed class, or null if the entry should be copied as it is
+     */
+    private byte[] stream(ZipFile zipIn, ZipEntry entry, List<Transformer> instances, ConstantPoolFilter prefilter) throws IOException {
+        byte[] bytes;
+        try (InputStream in = zipIn.getInputStream(entry)) {
+            bytes = Utils.toByteArray(in);
+        }
+        if (prefilter != null && !prefilter.matches(bytes)) {
+            return null;
+        }
+        try {
+            ClassReader reader = new ClassReader(bytes);
+            ClassWriter writer = new ClassWriter(reader, 0);
+            ClassVisitor visitor = new ClassVisitor(Opcodes.ASM5, writer) {
+                @Override
+                public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                    if (innerName != null && innerName.indexOf('/') != -1) {
+                        innerName = innerName.substring(innerName.lastIndexOf('/') + 1); //Stringer
+                    }
+                    super.visitInnerClass(name, outerName, innerName, access);
+                }
+            };
+            for (int i = instances.size() - 1; i >= 0; i--) {
+                visitor = ((StreamingTransformer) instances.get(i)).visitor(visitor);
+            }
+            reader.accept(visitor, 0);
+            return writer.toByteArray();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException x) {
+            events.warning(SOURCE, "Could not parse " + entry.getName() + " (is it a class?)", x);
+            return null;
+        }
+    }
 
-        loadHierachy();
+    private void write(Entry<String, Future<byte[]>> entry, ZipFile zipIn, RawZipFile rawIn, RawZipWriter zipOut, int[] counts) throws IOException {
+        byte[] transformed;
+        try {
+            transformed = entry.getValue().get();
+        } catch (ExecutionException e) {
+            throw new IOException("Could not stream " + entry.getKey(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while streaming " + entry.getKey(), e);
+        }
+        if (transformed != null) {
+            zipOut.write(entry.getKey(), transformed);
+            counts[0]++;
+        } else {
+            copy(zipIn, rawIn, entry.getKey(), entry.getKey(), zipOut);
+            counts[1]++;
+        }
+    }
 
-        System.out.println();
-        System.out.println("Transforming");
-        System.out.println();
+    /**
+     * @return the raw entries of the input, or null if they can't be read, in which case entries are recompressed
+     */
+    private RawZipFile openRaw(File input) throws IOException {
+        try {
+            return RawZipFile.open(input);
+        } catch (ZipException x) {
+            events.warning(SOURCE, "Could not read raw entries of " + input + ", resources will be recompressed: " + x.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Copies an entry of the input, without recompressing it when the raw entry is available.
+     */
+    private void copy(ZipFile zipIn, RawZipFile rawIn, String entryName, String outputName, RawZipWriter zipOut) throws IOException {
+        RawZipFile.Entry raw = rawIn == null ? null : rawIn.getEntry(entryName);
+        if (raw != null) {
+            zipOut.copy(rawIn, raw, outputName);
+        } else {
+            try (InputStream in = zipIn.getInputStream(zipIn.getEntry(entryName))) {
+                zipOut.write(outputName, in);
+            }
+        }
+    }
 
-        for (Class<? extends Transformer> transformerClass : transformers) {
-            Transformer transformer = transformerClass.getConstructor(Map.class, Map.class).newInstance(classes, classpath);
-            transformer.setDeobfuscator(this);
-            transformer.transform();
+    /**
+     * Reads the signatures of every class in a library jar, skipping their code. Snapshots written by
+     * {@link ClasspathSnapshot#write(Collection, File)} are mapped instead, and their classes built on demand.
+     */
+    public static Map<String, WrappedClassNode> loadLibrary(File file) throws IOException {
+        if (ClasspathSnapshot.isSnapshot(file)) {
+            return ClasspathSnapshot.open(file);
+        }
+        Map<String, WrappedClassNode> library = new HashMap<>();
+        try (ZipFile zipIn = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zipIn.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry ent = entries.nextElement();
+                if (ent.getName().endsWith(".class")) {
+                    ClassReader reader = new ClassReader(zipIn.getInputStream(ent));
+                    ClassNode node = new ClassNode();
+                    node.isLibrary = true;
+                    reader.accept(node, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                    WrappedClassNode wrappedClassNode = new WrappedClassNode(node, reader.getItemCount());
+                    library.put(node.name, wrappedClassNode);
+                }
+            }
         }
+        return library;
+    }
 
-        System.out.println();
-        System.out.println("Transforming complete. Writing to file");
-        System.out.println();
+    /**
+     * Reads an input class, leaving out the parts no transformer needs. A class which lost anything besides frames
+     * is marked dirty, as its original bytes no longer match what the transformers saw.
+     */
+    private WrappedClassNode parse(byte[] bytes) {
+        Set<ClassPart> skipped = skippedParts;
+        ClassReader reader = new ClassReader(bytes);
+        ClassNode node = new ClassNode();
+        int flags = 0;
+        if (skipped.contains(ClassPart.FRAMES)) {
+            flags |= ClassReader.SKIP_FRAMES;
+        }
+        ClassPartFilter filter = null;
+        if (skipped.contains(ClassPart.LINE_NUMBERS) || skipped.contains(ClassPart.LOCAL_VARIABLES) || skipped.contains(ClassPart.SOURCE) || skipped.contains(ClassPart.ANNOTATIONS)) {
+            filter = new ClassPartFilter(node, skipped);
+            reader.accept(filter, flags);
+        } else {
+            reader.accept(node, flags);
+        }
+        for (int i = 0; i < node.methods.size(); i++) {
+            MethodNode methodNode = node.methods.get(i);
+            if (hasSubroutines(methodNode)) {
+                JSRInlinerAdapter adapter = new JSRInlinerAdapter(null, methodNode.access, methodNode.name, methodNode.desc, methodNode.signature, methodNode.exceptions.toArray(new String[0]));
+                methodNode.accept(adapter);
+                node.methods.set(i, adapter);
+                inlinedSubroutines.incrementAndGet();
+            }
+        }
+        WrappedClassNode wrappedClassNode = new WrappedClassNode(node, reader.getItemCount());
+        if (filter != null && filter.isStripped()) {
+            wrappedClassNode.markDirty();
+        }
+        return wrappedClassNode;
+    }
 
-        classes.values().stream().map(wrappedClassNode -> wrappedClassNode.classNode).forEach(classNode -> {
-            try {
-                byte[] b = toByteArray(classNode);
-                if (b != null) {
-                    zipOut.putNextEntry(new ZipEntry(classNode.name + ".class"));
-                    zipOut.write(b);
-                    zipOut.closeEntry();
-                }
-            } catch (Throwable t) {
-                System.out.println("Uncaught error");
-                t.printStackTrace(System.out);
+    /**
+     * Only old compilers emit JSR/RET, so most methods can skip being copied through a {@link JSRInlinerAdapter}.
+     */
+    private static boolean hasSubroutines(MethodNode methodNode) {
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOpcode() == Opcodes.JSR || insn.getOpcode() == Opcodes.RET) {
+                return true;
             }
-        });
-        zipOut.close();
-        zipIn.close();
+        }
+        return false;
     }
 
     public ClassNode assureLoaded(String ref) {
@@ -199,62 +500,49 @@ public class Deobfuscator {
         return clazz.classNode;
     }
 
+    /**
+     * @return the class, or null if it isn't in the classpath
+     */
+    private ClassNode resolve(String ref) {
+        WrappedClassNode clazz = classpath.get(ref);
+        return clazz == null ? null : clazz.classNode;
+    }
+
     public void loadHierachy() {
-        Set<String> processed = new HashSet<>();
-        LinkedList<ClassNode> toLoad = new LinkedList<>();
-        toLoad.addAll(this.classes.values().stream().map(wrappedClassNode -> wrappedClassNode.classNode).collect(Collectors.toList()));
-        while (!toLoad.isEmpty()) {
-            for (ClassNode toProcess : loadHierachy(toLoad.poll())) {
-                if (processed.add(toProcess.name)) {
-                    toLoad.add(toProcess);
-                }
-            }
-        }
+        loadHierachy(this.classes.ownValues());
     }
 
-    public void resetHierachy() {
-        this.hierachy.clear();
+    /**
+     * Adds a class which was parsed late, such as a deferred one, to the hierachy.
+     */
+    private void loadHierachy(WrappedClassNode wrappedClassNode) {
+        loadHierachy(Collections.singleton(wrappedClassNode));
     }
 
-    public List<ClassNode> loadHierachy(ClassNode specificNode) {
-        if (specificNode.name.equals("java/lang/Object")) {
-            return Collections.emptyList();
-        }
-        if ((specificNode.access & Opcodes.ACC_INTERFACE) != 0) {
-            getClassTree(specificNode.name).parentClasses.add("java/lang/Object");
-            return Collections.emptyList();
-        }
-        List<ClassNode> toProcess = new ArrayList<>();
+    private void loadHierachy(Collection<WrappedClassNode> classes) {
+        checkHierachy(hierachy.load(classes.stream().map(wrappedClassNode -> wrappedClassNode.classNode).collect(Collectors.toList())));
+    }
 
-        ClassTree thisTree = getClassTree(specificNode.name);
-        ClassNode superClass = assureLoaded(specificNode.superName);
-        if (superClass == null) {
-            throw new IllegalArgumentException("Could not load " + specificNode.name);
+    private void checkHierachy(Set<String> missing) {
+        if (!missing.isEmpty()) {
+            throw new NoClassInPathException(missing.iterator().next());
         }
-        ClassTree superTree = getClassTree(superClass.name);
-        superTree.subClasses.add(specificNode.name);
-        thisTree.parentClasses.add(superClass.name);
-        toProcess.add(superClass);
+    }
 
-        for (String interfaceReference : specificNode.interfaces) {
-            ClassNode interfaceNode = assureLoaded(interfaceReference);
-            if (interfaceNode == null) {
-                throw new IllegalArgumentException("Could not load " + interfaceReference);
-            }
-            ClassTree interfaceTree = getClassTree(interfaceReference);
-            interfaceTree.subClasses.add(specificNode.name);
-            thisTree.parentClasses.add(interfaceReference);
-            toProcess.add(interfaceNode);
-        }
-        return toProcess;
+    public void resetHierachy() {
+        this.hierachy.clear();
     }
 
+    /**
+     * Classes deferred by the prefilter are missing from the hierachy until they are looked up, so this can miss
+     * subclasses which are still deferred. See {@link Transformer#getPrefilter()}.
+     */
     public boolean isSubclass(String possibleParent, String possibleChild) {
         if (possibleParent.equals(possibleChild)) {
             return true;
         }
-        ClassTree parentTree = hierachy.get(possibleParent);
-        if (parentTree != null && hierachy.get(possibleChild) != null) {
+        ClassTree parentTree = hierachy.getIfPresent(possibleParent);
+        if (parentTree != null && hierachy.getIfPresent(possibleChild) != null) {
             List<String> layer = new ArrayList<>();
             layer.add(possibleParent);
             layer.addAll(parentTree.subClasses);
@@ -266,7 +554,7 @@ public class Deobfuscator {
                 clone.addAll(layer);
                 layer.clear();
                 for (String r : clone) {
-                    ClassTree tree = hierachy.get(r);
+                    ClassTree tree = hierachy.getIfPresent(r);
                     if (tree != null)
                         layer.addAll(tree.subClasses);
                 }
@@ -275,16 +563,28 @@ public class Deobfuscator {
         return false;
     }
 
+    /**
+     * @return the tree of the class, whose subclasses lack any which are still deferred
+     */
     public ClassTree getClassTree(String classNode) {
-        ClassTree tree = hierachy.get(classNode);
-        if (tree == null) {
-            tree = new ClassTree();
-            tree.thisClass = classNode;
-            hierachy.put(classNode, tree);
+        return hierachy.get(classNode);
+    }
+
+    /**
+     * Unchanged classes are copied from the input as-is, unless {@link #toByteArray(ClassNode)} would have fixed
+     * their inner class names.
+     */
+    private boolean isUnchanged(WrappedClassNode wrappedClassNode) {
+        ClassNode node = wrappedClassNode.classNode;
+        if (node.innerClasses != null && node.innerClasses.stream().anyMatch(in -> in.innerName != null && in.innerName.indexOf('/') != -1)) {
+            return false;
         }
-        return tree;
+        return wrappedClassNode.isUnchanged();
     }
 
+    /**
+     * Writes a class, applying the renames of the normalizers if there are any.
+     */
     public byte[] toByteArray(ClassNode node) {
         if (node.innerClasses != null) {
             node.innerClasses.stream().filter(in -> in.innerName != null).forEach(in -> {
@@ -296,18 +596,18 @@ public class Deobfuscator {
         ClassWriter writer = new CustomClassWriter(ClassWriter.COMPUTE_FRAMES);
         try {
             try {
-                node.accept(writer);
+                node.accept(remap(writer));
             } catch (RuntimeException e) {
                 if (e instanceof NoClassInPathException) {
                     NoClassInPathException ex = (NoClassInPathException) e;
-                    System.out.println("Error: " + ex.className + " could not be found while writing " + node.name + ". Using COMPUTE_MAXS");
+                    events.warning(SOURCE, ex.className + " could not be found while writing " + node.name + ". Using COMPUTE_MAXS");
                     writer = new CustomClassWriter(ClassWriter.COMPUTE_MAXS);
-                    node.accept(writer);
+                    node.accept(remap(writer));
                 } else if (e.getMessage() != null) {
                     if (e.getMessage().contains("JSR/RET")) {
-                        System.out.println("ClassNode contained JSR/RET so COMPUTE_MAXS instead");
+                        events.warning(SOURCE, node.name + " contained JSR/RET so COMPUTE_MAXS instead");
                         writer = new CustomClassWriter(ClassWriter.COMPUTE_MAXS);
-                        node.accept(writer);
+                        node.accept(remap(writer));
                     } else {
                         throw e;
                     }
@@ -321,17 +621,38 @@ public class Deobfuscator {
             try {
                 cr.accept(new CheckClassAdapter(new ClassWriter(0)), 0);
             } catch (Throwable t) {
-                System.out.println("Error: " + node.name + " failed verification");
+                events.warning(SOURCE, node.name + " failed verification");
                 //t.printStackTrace(System.out);
             }
             return classBytes;
         } catch (Throwable t) {
-            System.out.println("Error while writing " + node.name);
-            t.printStackTrace(System.out);
+            events.warning(SOURCE, "Error while writing " + node.name, t);
         }
         return null;
     }
 
+    private ClassVisitor remap(ClassVisitor writer) {
+        return remapper.isEmpty() ? writer : new RemappingClassAdapter(writer, remapper);
+    }
+
+    /**
+     * @return the renames which the normalizers contribute to, and which are applied when the classes are written
+     */
+    public CustomRemapper getRemapper() {
+        return remapper;
+    }
+
+    /**
+     * @return how many methods contained JSR/RET subroutines which had to be inlined
+     */
+    public int getInlinedSubroutines() {
+        return inlinedSubroutines.get();
+    }
+
+    public EventDispatcher getEvents() {
+        return events;
+    }
+
     public File getFile() {
         return input;
     }
@@ -343,8 +664,8 @@ public class Deobfuscator {
 
         @Override
         protected String getCommonSuperClass(String type1, String type2) {
-            String a = getCommonSuperClass1(type1, type2);
-            return a;
+            String a = getCommonSuperClass1(unmapped.getOrDefault(type1, type1), unmapped.getOrDefault(type2, type2));
+            return remapper.map(a);
         }
 
         private String getCommonSuperClass1(String type1, String type2) {
@@ -361,7 +682,7 @@ public class Deobfuscator {
             }
             ClassNode first = assureLoaded(type1);
             ClassNode second = assureLoaded(type2);
-            return getCommonSuperClass(first.superName, second.superName);
+            return getCommonSuperClass1(first.superName, second.superName);
         }
 
         private String getCommonSuperClass0(String type1, String type2) {
@@ -16,12 +16,29 @@
 
 package com.javadeobfuscator.deobfuscator;
 
+import com.javadeobfuscator.deobfuscator.batch.BatchResult;
+import com.javadeobfuscator.deobfuscator.batch.DeobfuscatorBatch;
+import com.javadeobfuscator.deobfuscator.daemon.DeobfuscatorDaemon;
+import com.javadeobfuscator.deobfuscator.fingerprint.Fingerprint;
+import com.javadeobfuscator.deobfuscator.fingerprint.Fingerprinter;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClasspathSnapshot;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 import org.apache.commons.cli.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class DeobfuscatorMain {
+    private static final String TRANSFORMER_PACKAGE = "com.javadeobfuscator.deobfuscator.transformers.";
+
     public static void main(String[] args) {
         System.exit(run(args));
     }
@@ -32,12 +49,31 @@ public class DeobfuscatorMain {
         options.addOption("path", true, "A JAR to be placed in the classpath");
         options.addOption("input", true, "The input file");
         options.addOption("output", true, "The output file");
+        options.addOption("detect", false, "Detect the obfuscators used on the input, and use the recommended transformers if none are given");
+        options.addOption("daemon", true, "Run as a daemon accepting jobs on the given local port");
+        options.addOption("workers", true, "The number of jobs the daemon or a batch runs at once");
+        options.addOption("queue", true, "The number of jobs the daemon queues before rejecting new ones");
+        options.addOption("batch", true, "A file listing the input jars, one per line, each optionally followed by a tab and its output");
+        options.addOption("snapshot", true, "Write the classpath given with -path to a snapshot file, which can be used with -path instead");
 
         CommandLineParser parser = new DefaultParser();
         try {
             Deobfuscator deobfuscator = new Deobfuscator();
             CommandLine cmd = parser.parse(options, args);
 
+            if (cmd.hasOption("daemon")) {
+                return daemon(cmd);
+            }
+
+            if (cmd.hasOption("snapshot")) {
+                return snapshot(cmd);
+            }
+
+            String[] inputs = cmd.getOptionValues("input");
+            if (cmd.hasOption("batch") || (inputs != null && inputs.length > 1)) {
+                return batch(cmd);
+            }
+
             if (!cmd.hasOption("input")) {
                 System.out.println("No input jar specified");
                 return 3;
@@ -62,27 +98,20 @@ public class DeobfuscatorMain {
             deobfuscator.withInput(input).withOutput(output);
 
             String[] transformers = cmd.getOptionValues("transformer");
+            if (cmd.hasOption("detect")) {
+                List<String> recommended = detect(input);
+                if (transformers == null || transformers.length == 0) {
+                    transformers = recommended.toArray(new String[0]);
+                }
+            }
             if (transformers == null || transformers.length == 0) {
                 System.out.println("No transformers specified");
                 return 2;
             }
             for (String transformer : transformers) {
-                Class<?> clazz = null;
-                try {
-                    clazz = Class.forName("com.javadeobfuscator.deobfuscator.transformers." + transformer);
-                } catch (ClassNotFoundException exception) {
-                    try {
-                        clazz = Class.forName(transformer);
-                    } catch (ClassNotFoundException exception1) {
-                        System.out.println("Could not locate transformer " + transformer);
-                    }
-                }
+                Class<? extends Transformer> clazz = findTransformer(transformer);
                 if (clazz != null) {
-                    if (Transformer.class.isAssignableFrom(clazz)) {
-                        deobfuscator.withTransformer(clazz.asSubclass(Transformer.class));
-                    } else {
-                        System.out.println(clazz.getCanonicalName() + " does not extend com.javadeobfuscator.deobfuscator.transformers.Transformer");
-                    }
+                    deobfuscator.withTransformer(clazz);
                 }
             }
 
@@ -114,6 +143,188 @@ public class DeobfuscatorMain {
             }
         } catch (ParseException e) {
             return 1;
+        } catch (IOException e) {
+            System.out.println("Could not read input file");
+            e.printStackTrace(System.out);
+            return 5;
+        }
+    }
+
+    private static int daemon(CommandLine cmd) throws IOException {
+        int workers = Integer.parseInt(cmd.getOptionValue("workers", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int queue = Integer.parseInt(cmd.getOptionValue("queue", "64"));
+        DeobfuscatorDaemon daemon = new DeobfuscatorDaemon(Integer.parseInt(cmd.getOptionValue("daemon")), workers, queue);
+        String[] paths = cmd.getOptionValues("path");
+        if (paths != null) {
+            for (String path : paths) {
+                File file = new File(path);
+                if (!file.exists()) {
+                    System.out.println("Could not locate dependency " + path);
+                    continue;
+                }
+                daemon.preload(file);
+            }
+        }
+        daemon.run();
+        return 0;
+    }
+
+    private static int batch(CommandLine cmd) throws IOException {
+        DeobfuscatorBatch batch = new DeobfuscatorBatch();
+        File outputDirectory = cmd.hasOption("output") ? new File(cmd.getOptionValue("output")) : null;
+        List<String[]> jobs = new ArrayList<>();
+        String[] inputs = cmd.getOptionValues("input");
+        if (inputs != null) {
+            for (String input : inputs) {
+                jobs.add(new String[]{input});
+            }
+        }
+        if (cmd.hasOption("batch")) {
+            for (String line : Files.readAllLines(Paths.get(cmd.getOptionValue("batch")), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                    jobs.add(line.split("\t", 2));
+                }
+            }
+        }
+        if (jobs.isEmpty()) {
+            System.out.println("No input jar specified");
+            return 3;
+        }
+        for (String[] job : jobs) {
+            File input = new File(job[0].trim());
+            if (!input.exists()) {
+                System.out.println("Input file " + input + " does not exist");
+                return 5;
+            }
+            File output;
+            if (job.length > 1) {
+                output = new File(job[1].trim());
+            } else if (outputDirectory != null) {
+                output = new File(outputDirectory, input.getName());
+            } else {
+                System.out.println("No output directory specified for " + input);
+                return 4;
+            }
+            batch.withJob(input, output);
+        }
+        if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            System.out.println("Could not create output directory " + outputDirectory);
+            return 4;
+        }
+
+        String[] transformers = cmd.getOptionValues("transformer");
+        if (transformers == null || transformers.length == 0) {
+            System.out.println("No transformers specified");
+            return 2;
+        }
+        for (String transformer : transformers) {
+            Class<? extends Transformer> clazz = findTransformer(transformer);
+            if (clazz != null) {
+                batch.withTransformer(clazz);
+            }
+        }
+        String[] paths = cmd.getOptionValues("path");
+        if (paths != null) {
+            for (String path : paths) {
+                File file = new File(path);
+                if (file.exists()) {
+                    batch.withClasspath(file);
+                } else {
+                    System.out.println("Could not find classpath file " + path);
+                }
+            }
+        }
+        if (cmd.hasOption("workers")) {
+            batch.withWorkers(Integer.parseInt(cmd.getOptionValue("workers")));
+        }
+
+        long start = System.currentTimeMillis();
+        List<BatchResult> results = batch.run();
+        int failed = 0;
+        System.out.println();
+        for (BatchResult result : results) {
+            System.out.println(result);
+            if (!result.isSuccess()) {
+                failed++;
+            }
+        }
+        System.out.println("Processed " + results.size() + " jars, " + failed + " failed, in " + (System.currentTimeMillis() - start) + "ms");
+        return failed == 0 ? 0 : -1;
+    }
+
+    private static int snapshot(CommandLine cmd) throws IOException {
+        String[] paths = cmd.getOptionValues("path");
+        if (paths == null) {
+            System.out.println("No classpath specified");
+            return 2;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, WrappedClassNode> classes = new LinkedHashMap<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (!file.exists()) {
+                System.out.println("Could not locate dependency " + path);
+                continue;
+            }
+            File[] files = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".jar")) : new File[]{file};
+            if (files != null) {
+                for (File jar : files) {
+                    classes.putAll(Deobfuscator.loadLibrary(jar));
+                }
+            }
+        }
+        File output = new File(cmd.getOptionValue("snapshot"));
+        ClasspathSnapshot.write(classes.values(), output);
+        System.out.println("Wrote " + classes.size() + " classes to " + output + " in " + (System.currentTimeMillis() - start) + "ms");
+        return 0;
+    }
+
+    /**
+     * Looks up a transformer by its canonical name, with or without the default package.
+     *
+     * @return the transformer, or null after reporting why it can't be used
+     */
+    public static Class<? extends Transformer> findTransformer(String transformer) {
+        Class<?> clazz = null;
+        try {
+            clazz = Class.forName(TRANSFORMER_PACKAGE + transformer);
+        } catch (ClassNotFoundException exception) {
+            try {
+                clazz = Class.forName(transformer);
+            } catch (ClassNotFoundException exception1) {
+                System.out.println("Could not locate transformer " + transformer);
+            }
+        }
+        if (clazz != null) {
+            if (Transformer.class.isAssignableFrom(clazz)) {
+                return clazz.asSubclass(Transformer.class);
+            }
+            System.out.println(clazz.getCanonicalName() + " does not extend com.javadeobfuscator.deobfuscator.transformers.Transformer");
+        }
+        return null;
+    }
+
+    private static List<String> detect(File input) throws IOException {
+        long start = System.currentTimeMillis();
+        Fingerprint fingerprint = new Fingerprinter().scan(input);
+        System.out.println("[Fingerprint] Scanned " + fingerprint.getClassCount() + " classes in " + (System.currentTimeMillis() - start) + "ms");
+        List<String> recommended = new ArrayList<>();
+        for (Map.Entry<Class<? extends Transformer>, Integer> entry : fingerprint.getScores().entrySet()) {
+            String name = entry.getKey().getName().substring(TRANSFORMER_PACKAGE.length());
+            System.out.println("[Fingerprint] " + name + ": " + entry.getValue());
+            if (fingerprint.getRecommendedTransformers().contains(entry.getKey())) {
+                recommended.add(name);
+            }
+        }
+        if (recommended.isEmpty()) {
+            System.out.println("[Fingerprint] No known obfuscation detected");
+        } else {
+            StringBuilder arguments = new StringBuilder();
+            for (String name : recommended) {
+                arguments.append(" -transformer ").append(name);
+            }
+            System.out.println("[Fingerprint] Recommended:" + arguments);
         }
+        return recommended;
     }
 }
@@ -330,629 +330,31 @@ public class MethodAnalyzer {
         Frame currentFrame;
         List<AbstractInsnNode> successors = new ArrayList<>();
         while (true) {
-            switch (now.getOpcode()) {
-                case NOP:
-                    currentFrame = new Frame(NOP);
-                    break;
-                case ACONST_NULL:
-                    currentFrame = new LdcFrame(now.getOpcode(), null);
-                    stack.add(0, new StackObject(Object.class, currentFrame, "java/lang/Object"));
-                    break;
-                case ICONST_M1:
-                case ICONST_0:
-                case ICONST_1:
-                case ICONST_2:
-                case ICONST_3:
-                case ICONST_4:
-                case ICONST_5:
-                    currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 3);
-                    stack.add(0, new StackObject(int.class, currentFrame));
-                    break;
-                case LCONST_0:
-                case LCONST_1:
-                    currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 9);
-                    stack.add(0, new StackObject(long.class, currentFrame));
-                    break;
-                case FCONST_0:
-                case FCONST_1:
-                case FCONST_2:
-                    currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 11);
-                    stack.add(0, new StackObject(float.class, currentFrame));
-                    break;
-                case DCONST_0:
-                case DCONST_1:
-                    currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 14);
-                    stack.add(0, new StackObject(double.class, currentFrame));
-                    break;
-                case BIPUSH: {
-                    IntInsnNode cast = (IntInsnNode) now;
-                    currentFrame = new LdcFrame(now.getOpcode(), (byte) cast.operand);
-                    stack.add(0, new StackObject(byte.class, currentFrame));
-                    break;
-                }
-                case SIPUSH: {
-                    IntInsnNode cast = (IntInsnNode) now;
-                    currentFrame = new LdcFrame(now.getOpcode(), (short) cast.operand);
-                    stack.add(0, new StackObject(short.class, currentFrame));
-                    break;
-                }
-                case LDC: {
-                    LdcInsnNode cast = (LdcInsnNode) now;
-                    currentFrame = new LdcFrame(now.getOpcode(), cast.cst);
-                    Class<?> unwrapped = Primitives.unwrap(cast.cst.getClass());
-                    if (unwrapped == cast.cst.getClass()) {
-                        if (cast.cst instanceof Type) {
-                            unwrapped = Class.class;
-                        } else {
-                            unwrapped = cast.cst.getClass();
-                        }
-                        stack.add(0, new StackObject(Object.class, currentFrame, Type.getType(unwrapped).getInternalName()));
-                    } else {
-                        stack.add(0, new StackObject(unwrapped, currentFrame));
-                    }
-                    break;
-                }
-                case ILOAD:
-                case LLOAD:
-                case FLOAD:
-                case DLOAD:
-                case ALOAD: {
-                    VarInsnNode cast = (VarInsnNode) now;
-                    assureSize(locals, cast.var);
-                    StackObject stackObject = locals.get(cast.var);
-                    currentFrame = new LocalFrame(now.getOpcode(), cast.var, stackObject.value);
-                    stack.add(0, stackObject);
-                    break;
-                }
-                case IALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, int.class);
-                    break;
-                case LALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, long.class);
-                    break;
-                case FALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, float.class);
-                    break;
-                case DALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, double.class);
-                    break;
-                case AALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, Object.class);
-                    break;
-                case BALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, byte.class);
-                    break;
-                case CALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, char.class);
-                    break;
-                case SALOAD:
-                    currentFrame = executeArrayLoad(now.getOpcode(), stack, short.class);
-                    break;
-                case ISTORE:
-                case LSTORE:
-                case FSTORE:
-                case DSTORE:
-                case ASTORE: {
-                    VarInsnNode cast = (VarInsnNode) now;
-                    StackObject stackObject = stack.remove(0);
-                    currentFrame = new LocalFrame(now.getOpcode(), cast.var, stackObject.value);
-                    assureSize(locals, cast.var);
-                    locals.set(cast.var, new StackObject(stackObject.type, currentFrame, stackObject.initType));
-                    break;
-                }
-                case IASTORE:
-                case LASTORE:
-                case FASTORE:
-                case DASTORE:
-                case BASTORE:
-                case CASTORE:
-                case SASTORE:
-                case AASTORE:
-                    currentFrame = executeArrayStore(now.getOpcode(), stack);
-                    break;
-                case POP: {
-                    StackObject stackObject = stack.remove(0);
-                    currentFrame = new PopFrame(now.getOpcode(), stackObject.value);
-                    break;
-                }
-                case POP2: {
-                    StackObject obj = stack.get(0);
-                    if (obj.type == double.class || obj.type == long.class) {
-                        stack.remove(0);
-                        currentFrame = new PopFrame(now.getOpcode(), obj.value);
-                    } else {
-                        stack.remove(0);
-                        StackObject next = stack.remove(0);
-                        currentFrame = new PopFrame(now.getOpcode(), obj.value, next.value);
-                    }
-                    break;
-                }
-                case DUP: {
-                    StackObject stackObject = stack.get(0);
-                    currentFrame = new DupFrame(now.getOpcode(), stackObject.value);
-                    stack.add(0, stackObject);
-                    break;
-                }
-                case DUP_X1: {
-                    StackObject obj = stack.get(0);
-                    if (obj.type == double.class || obj.type == long.class) {
-                        throw new IllegalStateException();
-                    }
-                    if (obj.type == double.class || obj.type == long.class) {
-                        throw new IllegalStateException();
-                    }
-                    stack.add(2, obj);
-                    currentFrame = new DupFrame(now.getOpcode(), obj.value);
-                    break;
-                }
-                case DUP_X2: {
-                    StackObject obj = stack.get(1);
-                    StackObject zeroth = stack.get(0);
-                    currentFrame = new DupFrame(now.getOpcode(), zeroth.value);
-                    if (obj.type == double.class || obj.type == long.class) {
-                        stack.add(2, stack.get(0));
-                    } else {
-                        stack.add(3, stack.get(0));
-                    }
-                    break;
-                }
-                case DUP2: {
-                    StackObject o = stack.get(0);
-                    StackObject obj = stack.get(0);
-                    if (obj.type == double.class || obj.type == long.class) {
-                        stack.add(1, o);
-                        currentFrame = new DupFrame(now.getOpcode(), o.value);
-                    } else {
-                        StackObject o1 = stack.get(1);
-                        stack.add(2, o);
-                        stack.add(3, o1);
-                        currentFrame = new DupFrame(now.getOpcode(), o.value, o1.value);
-                    }
-                    break;
-                }
-                case DUP2_X1: {
-                    StackObject o = stack.get(0);
-                    StackObject obj = stack.get(0);
-                    if (obj.type == double.class || obj.type == long.class) {
-                        stack.add(2, o);
-                        currentFrame = new DupFrame(now.getOpcode(), o.value);
-                    } else {
-                        StackObject o1 = stack.get(1);
-                        stack.add(3, o);
-                        stack.add(4, o1);
-                        currentFrame = new DupFrame(now.getOpcode(), o.value, o1.value);
-                    }
-                    break;
-                }
-                case DUP2_X2: {
-                    StackObject o = stack.get(0);
-                    StackObject obj = stack.get(0);
-                    if (obj.type == double.class || obj.type == long.class) {
-                        obj = stack.get(1);
-                        currentFrame = new DupFrame(now.getOpcode(), o.value);
-                        if (obj.type == double.class || obj.type == long.class) {
-                            stack.add(2, o);
-                        } else {
-                            stack.add(3, o);
-                        }
-                    } else {
-                        StackObject o1 = stack.get(1);
-                        obj = stack.get(2);
-                        currentFrame = new DupFrame(now.getOpcode(), o.value, o1.value);
-                        if (obj.type == double.class || obj.type == long.class) {
-                            stack.add(3, o);
-                            stack.add(4, o1);
-                        } else {
-                            stack.add(4, o);
-                            stack.add(5, o1);
-                        }
-                    }
-                    break;
-                }
-                case SWAP: {
-                    StackObject a = stack.remove(0);
-                    StackObject b = stack.remove(0);
-                    currentFrame = new SwapFrame(a.value, b.value);
-                    stack.add(0, a);
-                    stack.add(0, b);
-                    break;
-                }
-                case IADD:
-                case ISUB:
-                case IMUL:
-                case IDIV:
-                case IREM:
-                case ISHL:
-                case ISHR:
-                case IUSHR:
-                case IAND:
-                case IOR:
-                case IXOR:
-                case LCMP:
-                case FCMPL:
-                case FCMPG:
-                case DCMPL:
-                case DCMPG:
-                    currentFrame = doBinaryMath(now.getOpcode(), stack, int.class);
-                    break;
-                case LADD:
-                case LSUB:
-                case LMUL:
-                case LDIV:
-                case LREM:
-                case LSHL:
-                case LSHR:
-                case LUSHR:
-                case LAND:
-                case LOR:
-                case LXOR:
-                    currentFrame = doBinaryMath(now.getOpcode(), stack, long.class);
-                    break;
-                case FADD:
-                case FSUB:
-                case FMUL:
-                case FDIV:
-                case FREM:
-                    currentFrame = doBinaryMath(now.getOpcode(), stack, float.class);
-                    break;
-                case DADD:
-                case DSUB:
-                case DMUL:
-                case DDIV:
-                case DREM:
-                    currentFrame = doBinaryMath(now.getOpcode(), stack, double.class);
-                    break;
-                case INEG:
-                    currentFrame = doUnaryMath(now.getOpcode(), stack, int.class);
-                    break;
-                case LNEG:
-                    currentFrame = doUnaryMath(now.getOpcode(), stack, long.class);
-                    break;
-                case FNEG:
-                    currentFrame = doUnaryMath(now.getOpcode(), stack, float.class);
-                    break;
-                case DNEG:
-                    currentFrame = doUnaryMath(now.getOpcode(), stack, double.class);
-                    break;
-                case IINC: {
-                    IincInsnNode cast = (IincInsnNode) now;
-                    assureSize(locals, cast.var);
-                    StackObject obj = locals.get(cast.var);
-                    currentFrame = new LocalFrame(now.getOpcode(), cast.var, obj.value);
-                    break;
-                }
-                case I2L:
-                case F2L:
-                case D2L: {
-                    currentFrame = doCast(now.getOpcode(), stack, long.class);
-                    break;
-                }
-                case I2F:
-                case L2F:
-                case D2F: {
-                    currentFrame = doCast(now.getOpcode(), stack, float.class);
-                    break;
-                }
-                case I2D:
-                case L2D:
-                case F2D: {
-                    currentFrame = doCast(now.getOpcode(), stack, double.class);
-                    break;
-                }
-                case L2I:
-                case D2I:
-                case F2I: {
-                    currentFrame = doCast(now.getOpcode(), stack, int.class);
-                    break;
-                }
-                case I2B: {
-                    currentFrame = doCast(now.getOpcode(), stack, byte.class);
-                    break;
-                }
-                case I2C: {
-                    currentFrame = doCast(now.getOpcode(), stack, char.class);
-                    break;
-                }
-                case I2S: {
-                    currentFrame = doCast(now.getOpcode(), stack, short.class);
-                    break;
-                }
-                case IFEQ:
-                case IFNE:
-                case IFLT:
-                case IFGE:
-                case IFGT:
-                case IFLE:
-                case IFNULL:
-                case IFNONNULL: {
-                    JumpInsnNode cast = (JumpInsnNode) now;
-                    Frame o = stack.remove(0).value;
-                    successors.add(cast.label);
-                    successors.add(now.getNext());
-                    currentFrame = new JumpFrame(now.getOpcode(), Collections.singletonList(o), cast.label, now.getNext());
-                    break;
-                }
-                case IF_ICMPEQ:
-                case IF_ICMPNE:
-                case IF_ICMPLT:
-                case IF_ICMPGT:
-                case IF_ICMPGE:
-                case IF_ICMPLE:
-                case IF_ACMPNE:
-                case IF_ACMPEQ: {
-                    JumpInsnNode cast = (JumpInsnNode) now;
-                    Frame o = stack.remove(0).value;
-                    Frame o1 = stack.remove(0).value;
-                    successors.add(cast.label);
-                    successors.add(now.getNext());
-                    currentFrame = new JumpFrame(now.getOpcode(), Arrays.asList(o, o1), cast.label, now.getNext());
-                    break;
-                }
-                case GOTO: {
-                    JumpInsnNode cast = (JumpInsnNode) now;
-                    successors.add(cast.label);
-                    currentFrame = new JumpFrame(now.getOpcode(), Collections.emptyList(), cast.label);
-                    break;
-                }
-                case JSR: {
-                    //                    JumpInsnNode cast = (JumpInsnNode) now;
-                    //                    stack.add(0, new StackObject(Object.class, now));
-                    //                    now = cast.label;
-                    //                    break;
-                    throw new UnsupportedOperationException();
-                }
-                case RET: {
-                    //                    VarInsnNode cast = (VarInsnNode) now;
-                    //                    StackObject ret = locals.get(cast.var);
-                    //                    if (ret.value instanceof AbstractInsnNode) {
-                    //                        now = (AbstractInsnNode) ret.value;
-                    //                        break;
-                    //                    }
-                    //                    throw new IllegalArgumentException();
-                    throw new UnsupportedOperationException();
-                }
-                case TABLESWITCH: {
-                    Frame frame = stack.remove(0).value;
-                    TableSwitchInsnNode cast = (TableSwitchInsnNode) now;
-                    currentFrame = new SwitchFrame(now.getOpcode(), frame, cast.labels, cast.dflt);
-                    successors.addAll(cast.labels);
-                    successors.add(cast.dflt);
-                    break;
-                }
-                case LOOKUPSWITCH: {
-                    Frame frame = stack.remove(0).value;
-                    LookupSwitchInsnNode cast = (LookupSwitchInsnNode) now;
-                    currentFrame = new SwitchFrame(now.getOpcode(), frame, cast.labels, cast.dflt);
-                    successors.addAll(cast.labels);
-                    successors.add(cast.dflt);
-                    break;
-                }
-                case IRETURN:
-                case LRETURN:
-                case FRETURN:
-                case DRETURN:
-                case ARETURN: {
-                    currentFrame = new ReturnFrame(now.getOpcode(), stack.remove(0).value);
-                    done = true;
-                    break;
-                }
-                case RETURN: {
-                    currentFrame = new ReturnFrame(now.getOpcode(), null);
-                    done = true;
-                    break;
-                }
-                case GETSTATIC: {
-                    FieldInsnNode cast = (FieldInsnNode) now;
-                    Type type = Type.getType(cast.desc);
-                    Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                    currentFrame = new FieldFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, null, null);
-                    if (clazz == null) {
-                        stack.add(0, new StackObject(Object.class, currentFrame, type.getInternalName()));
-                    } else {
-                        stack.add(0, new StackObject(clazz, currentFrame));
-                    }
-                    break;
-                }
-                case PUTSTATIC: {
-                    FieldInsnNode cast = (FieldInsnNode) now;
-                    currentFrame = new FieldFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, null, stack.remove(0).value);
-                    break;
-                }
-                case GETFIELD: {
-                    FieldInsnNode cast = (FieldInsnNode) now;
-                    Type type = Type.getType(cast.desc);
-                    Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                    currentFrame = new FieldFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, stack.remove(0).value, null);
-
-                    if (clazz == null) {
-                        stack.add(0, new StackObject(Object.class, currentFrame, type.getInternalName()));
-                    } else {
-                        stack.add(0, new StackObject(clazz, currentFrame));
-                    }
-                    break;
-                }
-                case PUTFIELD: {
-                    FieldInsnNode cast = (FieldInsnNode) now;
-                    Frame obj = stack.remove(0).value;
-                    Frame instance = stack.remove(0).value;
-                    currentFrame = new FieldFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, instance, obj);
-                    break;
-                }
-                case INVOKEVIRTUAL: {
-                    MethodInsnNode cast = (MethodInsnNode) now;
-                    Type type = Type.getReturnType(cast.desc);
-                    Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                    List<Frame> args = new ArrayList<>();
-                    for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                        args.add(0, stack.remove(0).value);
-                    }
-                    currentFrame = new MethodFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, stack.remove(0).value, args);
-                    if (type.getReturnType().getSort() != Type.VOID) {
-                        if (clazz == null) {
-                            stack.add(0, new StackObject(Object.class, currentFrame, type.getReturnType().getInternalName()));
-                        } else {
-                            stack.add(0, new StackObject(clazz, currentFrame));
-                        }
-                    }
-                    break;
-                }
-                case INVOKESPECIAL: {
-                    MethodInsnNode cast = (MethodInsnNode) now;
-                    Type type = Type.getReturnType(cast.desc);
-                    Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                    List<Frame> args = new ArrayList<>();
-                    for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                        args.add(0, stack.remove(0).value);
-                    }
-                    StackObject instance = stack.remove(0);
-                    //                if (instance.isInitialized && cast.name.equals("<init>"))
-                    //                    throw new IllegalArgumentException("Already initialized");
-                    instance.initialize();
-                    currentFrame = new MethodFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, instance.value, args);
-                    if (type.getReturnType().getSort() != Type.VOID) {
-                        if (clazz == null) {
-                            stack.add(0, new StackObject(Object.class, currentFrame, type.getReturnType().getInternalName()));
-                        } else {
-                            stack.add(0, new StackObject(clazz, currentFrame));
-                        }
-                    }
-                    break;
-                }
-                case INVOKESTATIC: {
-                    MethodInsnNode cast = (MethodInsnNode) now;
-                    Type type = Type.getReturnType(cast.desc);
-                    Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                    List<Frame> args = new ArrayList<>();
-                    for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                        args.add(0, stack.remove(0).value);
-                    }
-                    currentFrame = new MethodFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, null, args);
-                    if (type.getReturnType().getSort() != Type.VOID) {
-                        if (clazz == null) {
-                            stack.add(0, new StackObject(Object.class, currentFrame, type.getReturnType().getInternalName()));
-                        } else {
-                            stack.add(0, new StackObject(clazz, currentFrame));
-                        }
-                    }
-                    break;
-                }
-                case INVOKEINTERFACE: {
-                    MethodInsnNode cast = (MethodInsnNode) now;
-                    Type type = Type.getReturnType(cast.desc);
-                    Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                    List<Frame> args = new ArrayList<>();
-                    for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                        args.add(0, stack.remove(0).value);
-                    }
-                    currentFrame = new MethodFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, stack.remove(0).value, args);
-                    if (type.getReturnType().getSort() != Type.VOID) {
-                        if (clazz == null) {
-                            stack.add(0, new StackObject(Object.class, currentFrame, type.getReturnType().getInternalName()));
-                        } else {
-                            stack.add(0, new StackObject(clazz, currentFrame));
-                        }
-                    }
-                    break;
-                }
-                case INVOKEDYNAMIC: {
-                    InvokeDynamicInsnNode cast = (InvokeDynamicInsnNode) now;
-                    Type type = Type.getReturnType(cast.desc);
-                    Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                    List<Frame> args = new ArrayList<>();
-                    for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                        args.add(0, stack.remove(0).value);
-                    }
-                    currentFrame = new MethodFrame(now.getOpcode(), "", cast.name, cast.desc, null, args);
-                    if (type.getReturnType().getSort() != Type.VOID) {
-                        if (clazz == null) {
-                            stack.add(0, new StackObject(Object.class, currentFrame, type.getReturnType().getInternalName()));
-                        } else {
-                            stack.add(0, new StackObject(clazz, currentFrame));
-                        }
-                    }
-                    break;
-                    //                    throw new UnsupportedOperationException();
-                }
-                case NEW: {
-                    TypeInsnNode cast = (TypeInsnNode) now;
-                    currentFrame = new NewFrame(cast.desc);
-                    stack.add(0, new StackObject((NewFrame) currentFrame));
-                    break;
-                }
-                case NEWARRAY: {
-                    Frame len = stack.remove(0).value;
-                    IntInsnNode cast = (IntInsnNode) now;
-                    currentFrame = new NewArrayFrame(now.getOpcode(), PrimitiveUtils.getPrimitiveByNewArrayId(cast.operand).getSimpleName(), len);
-                    String desc = "[" + Type.getType(PrimitiveUtils.getPrimitiveByNewArrayId(cast.operand)).getDescriptor();
-                    stack.add(0, new StackObject(Object.class, currentFrame, desc));
-                    break;
-                }
-                case ANEWARRAY: {
-                    Frame len = stack.remove(0).value;
-                    TypeInsnNode cast = (TypeInsnNode) now;
-                    currentFrame = new NewArrayFrame(now.getOpcode(), cast.desc, len);
-                    String desc = null;
-                    Type type = Type.getType(cast.desc);
-                    if (type.getSort() == Type.ARRAY) {
-                        desc = type.getDescriptor();
-                    } else {
-                        desc = "[" + type.getDescriptor() + ";";
-                    }
-                    stack.add(0, new StackObject(Object.class, currentFrame, desc));
-                    break;
-                }
-                case ARRAYLENGTH: {
-                    Frame obj = stack.remove(0).value;
-                    currentFrame = new ArrayLengthFrame(obj);
-                    stack.add(0, new StackObject(int.class, currentFrame));
-                    break;
-                }
-                case ATHROW: {
-                    Frame throwable = stack.remove(0).value;
-                    currentFrame = new ThrowFrame(throwable);
-                    done = true;
-                    break;
-                }
-                case CHECKCAST: {
-                    TypeInsnNode cast = (TypeInsnNode) now;
-                    StackObject obj = new StackObject(Object.class, stack.get(0).value, cast.desc);
-                    stack.remove(0);
-                    stack.add(0, obj);
-                    currentFrame = new CheckCastFrame(obj.value);
-                    break;
-                }
-                case INSTANCEOF: {
-                    TypeInsnNode cast = (TypeInsnNode) now;
-                    currentFrame = new InstanceofFrame(stack.remove(0).value);
-                    stack.add(0, new StackObject(int.class, currentFrame));
-                    break;
-                }
-                case MONITORENTER:
-                case MONITOREXIT: {
-                    currentFrame = new MonitorFrame(now.getOpcode(), stack.remove(0).value);
-                    break;
-                }
-                case MULTIANEWARRAY: {
-                    MultiANewArrayInsnNode cast = (MultiANewArrayInsnNode) now;
-                    List<Frame> sizes = new ArrayList<>();
-                    for (int i = 0; i < cast.dims; i++) {
-                        sizes.add(0, stack.remove(0).value);
-                    }
-                    currentFrame = new MultiANewArrayFrame(sizes);
-                    String desc = cast.desc;
-                    for (int i = 0; i < cast.dims; i++) {
-                        desc = "[" + desc;
-                    }
-                    stack.add(0, new StackObject(Object.class, currentFrame, desc));
-                    break;
-                }
-                case -1: {
-                    currentFrame = null;
-                    break;
-                }
-                default: {
-                    throw new IllegalArgumentException(now.getOpcode() + " ");
-                }
+            int opcode = now.getOpcode();
+            if (opcode == -1) {
+                currentFrame = null;
+            } else if (opcode <= LDC) {
+                currentFrame = executeConstant(now, stack);
+            } else if (opcode <= SASTORE || opcode == IINC) {
+                currentFrame = executeLocalOrArray(now, stack, locals);
+            } else if (opcode <= SWAP) {
+                currentFrame = executeStack(now, stack);
+            } else if (opcode <= DCMPG) {
+                currentFrame = executeMath(now, stack);
+            } else if (opcode <= LOOKUPSWITCH || opcode == IFNULL || opcode == IFNONNULL) {
+                currentFrame = executeJump(now, stack, successors);
+            } else if (opcode <= RETURN) {
+                currentFrame = new ReturnFrame(opcode, opcode == RETURN ? null : stack.remove(0).value);
+                done = true;
+            } else if (opcode <= PUTFIELD) {
+                currentFrame = executeField(now, stack);
+            } else if (opcode <= INVOKEDYNAMIC) {
+                currentFrame = executeInvoke(now, stack);
+            } else if (opcode == ATHROW) {
+                currentFrame = new ThrowFrame(stack.remove(0).value);
+                done = true;
+            } else {
+                currentFrame = executeObject(now, stack);
             }
 //            System.out.println(method.instructions.indexOf(now) + " " + Utils.prettyprint(now).trim());
 //            System.out.println("\t" + stack);
@@ -1022,6 +424,559 @@ public class MethodAnalyzer {
         }
     }
 
+    /*
+     * NOP to LDC
+     */
+    private static Frame executeConstant(AbstractInsnNode now, List<StackObject> stack) {
+        Frame currentFrame;
+        switch (now.getOpcode()) {
+            case NOP:
+                currentFrame = new Frame(NOP);
+                break;
+            case ACONST_NULL:
+                currentFrame = new LdcFrame(now.getOpcode(), null);
+                stack.add(0, new StackObject(Object.class, currentFrame, "java/lang/Object"));
+                break;
+            case ICONST_M1:
+            case ICONST_0:
+            case ICONST_1:
+            case ICONST_2:
+            case ICONST_3:
+            case ICONST_4:
+            case ICONST_5:
+                currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 3);
+                stack.add(0, new StackObject(int.class, currentFrame));
+                break;
+            case LCONST_0:
+            case LCONST_1:
+                currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 9);
+                stack.add(0, new StackObject(long.class, currentFrame));
+                break;
+            case FCONST_0:
+            case FCONST_1:
+            case FCONST_2:
+                currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 11);
+                stack.add(0, new StackObject(float.class, currentFrame));
+                break;
+            case DCONST_0:
+            case DCONST_1:
+                currentFrame = new LdcFrame(now.getOpcode(), now.getOpcode() - 14);
+                stack.add(0, new StackObject(double.class, currentFrame));
+                break;
+            case BIPUSH: {
+                IntInsnNode cast = (IntInsnNode) now;
+                currentFrame = new LdcFrame(now.getOpcode(), (byte) cast.operand);
+                stack.add(0, new StackObject(byte.class, currentFrame));
+                break;
+            }
+            case SIPUSH: {
+                IntInsnNode cast = (IntInsnNode) now;
+                currentFrame = new LdcFrame(now.getOpcode(), (short) cast.operand);
+                stack.add(0, new StackObject(short.class, currentFrame));
+                break;
+            }
+            case LDC: {
+                LdcInsnNode cast = (LdcInsnNode) now;
+                currentFrame = new LdcFrame(now.getOpcode(), cast.cst);
+                Class<?> unwrapped = Primitives.unwrap(cast.cst.getClass());
+                if (unwrapped == cast.cst.getClass()) {
+                    if (cast.cst instanceof Type) {
+                        unwrapped = Class.class;
+                    } else {
+                        unwrapped = cast.cst.getClass();
+                    }
+                    stack.add(0, new StackObject(Object.class, currentFrame, Type.getType(unwrapped).getInternalName()));
+                } else {
+                    stack.add(0, new StackObject(unwrapped, currentFrame));
+                }
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+        return currentFrame;
+    }
+
+    /*
+     * ILOAD to SASTORE, and IINC
+     */
+    private static Frame executeLocalOrArray(AbstractInsnNode now, List<StackObject> stack, List<StackObject> locals) {
+        switch (now.getOpcode()) {
+            case ILOAD:
+            case LLOAD:
+            case FLOAD:
+            case DLOAD:
+            case ALOAD: {
+                VarInsnNode cast = (VarInsnNode) now;
+                assureSize(locals, cast.var);
+                StackObject stackObject = locals.get(cast.var);
+                Frame currentFrame = new LocalFrame(now.getOpcode(), cast.var, stackObject.value);
+                stack.add(0, stackObject);
+                return currentFrame;
+            }
+            case IALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, int.class);
+            case LALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, long.class);
+            case FALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, float.class);
+            case DALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, double.class);
+            case AALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, Object.class);
+            case BALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, byte.class);
+            case CALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, char.class);
+            case SALOAD:
+                return executeArrayLoad(now.getOpcode(), stack, short.class);
+            case ISTORE:
+            case LSTORE:
+            case FSTORE:
+            case DSTORE:
+            case ASTORE: {
+                VarInsnNode cast = (VarInsnNode) now;
+                StackObject stackObject = stack.remove(0);
+                Frame currentFrame = new LocalFrame(now.getOpcode(), cast.var, stackObject.value);
+                assureSize(locals, cast.var);
+                locals.set(cast.var, new StackObject(stackObject.type, currentFrame, stackObject.initType));
+                return currentFrame;
+            }
+            case IASTORE:
+            case LASTORE:
+            case FASTORE:
+            case DASTORE:
+            case BASTORE:
+            case CASTORE:
+            case SASTORE:
+            case AASTORE:
+                return executeArrayStore(now.getOpcode(), stack);
+            case IINC: {
+                IincInsnNode cast = (IincInsnNode) now;
+                assureSize(locals, cast.var);
+                StackObject obj = locals.get(cast.var);
+                return new LocalFrame(now.getOpcode(), cast.var, obj.value);
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * POP to SWAP
+     */
+    private static Frame executeStack(AbstractInsnNode now, List<StackObject> stack) {
+        Frame currentFrame;
+        switch (now.getOpcode()) {
+            case POP: {
+                StackObject stackObject = stack.remove(0);
+                currentFrame = new PopFrame(now.getOpcode(), stackObject.value);
+                break;
+            }
+            case POP2: {
+                StackObject obj = stack.get(0);
+                if (obj.type == double.class || obj.type == long.class) {
+                    stack.remove(0);
+                    currentFrame = new PopFrame(now.getOpcode(), obj.value);
+                } else {
+                    stack.remove(0);
+                    StackObject next = stack.remove(0);
+                    currentFrame = new PopFrame(now.getOpcode(), obj.value, next.value);
+                }
+                break;
+            }
+            case DUP: {
+                StackObject stackObject = stack.get(0);
+                currentFrame = new DupFrame(now.getOpcode(), stackObject.value);
+                stack.add(0, stackObject);
+                break;
+            }
+            case DUP_X1: {
+                StackObject obj = stack.get(0);
+                if (obj.type == double.class || obj.type == long.class) {
+                    throw new IllegalStateException();
+                }
+                stack.add(2, obj);
+                currentFrame = new DupFrame(now.getOpcode(), obj.value);
+                break;
+            }
+            case DUP_X2: {
+                StackObject obj = stack.get(1);
+                StackObject zeroth = stack.get(0);
+                currentFrame = new DupFrame(now.getOpcode(), zeroth.value);
+                if (obj.type == double.class || obj.type == long.class) {
+                    stack.add(2, stack.get(0));
+                } else {
+                    stack.add(3, stack.get(0));
+                }
+                break;
+            }
+            case DUP2: {
+                StackObject o = stack.get(0);
+                if (o.type == double.class || o.type == long.class) {
+                    stack.add(1, o);
+                    currentFrame = new DupFrame(now.getOpcode(), o.value);
+                } else {
+                    StackObject o1 = stack.get(1);
+                    stack.add(2, o);
+                    stack.add(3, o1);
+                    currentFrame = new DupFrame(now.getOpcode(), o.value, o1.value);
+                }
+                break;
+            }
+            case DUP2_X1: {
+                StackObject o = stack.get(0);
+                if (o.type == double.class || o.type == long.class) {
+                    stack.add(2, o);
+                    currentFrame = new DupFrame(now.getOpcode(), o.value);
+                } else {
+                    StackObject o1 = stack.get(1);
+                    stack.add(3, o);
+                    stack.add(4, o1);
+                    currentFrame = new DupFrame(now.getOpcode(), o.value, o1.value);
+                }
+                break;
+            }
+            case DUP2_X2: {
+                StackObject o = stack.get(0);
+                StackObject obj;
+                if (o.type == double.class || o.type == long.class) {
+                    obj = stack.get(1);
+                    currentFrame = new DupFrame(now.getOpcode(), o.value);
+                    if (obj.type == double.class || obj.type == long.class) {
+                        stack.add(2, o);
+                    } else {
+                        stack.add(3, o);
+                    }
+                } else {
+                    StackObject o1 = stack.get(1);
+                    obj = stack.get(2);
+                    currentFrame = new DupFrame(now.getOpcode(), o.value, o1.value);
+                    if (obj.type == double.class || obj.type == long.class) {
+                        stack.add(3, o);
+                        stack.add(4, o1);
+                    } else {
+                        stack.add(4, o);
+                        stack.add(5, o1);
+                    }
+                }
+                break;
+            }
+            case SWAP: {
+                StackObject a = stack.remove(0);
+                StackObject b = stack.remove(0);
+                currentFrame = new SwapFrame(a.value, b.value);
+                stack.add(0, a);
+                stack.add(0, b);
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+        return currentFrame;
+    }
+
+    /*
+     * IADD to DCMPG, except for IINC
+     */
+    private static Frame executeMath(AbstractInsnNode now, List<StackObject> stack) {
+        switch (now.getOpcode()) {
+            case IADD:
+            case ISUB:
+            case IMUL:
+            case IDIV:
+            case IREM:
+            case ISHL:
+            case ISHR:
+            case IUSHR:
+            case IAND:
+            case IOR:
+            case IXOR:
+            case LCMP:
+            case FCMPL:
+            case FCMPG:
+            case DCMPL:
+            case DCMPG:
+                return doBinaryMath(now.getOpcode(), stack, int.class);
+            case LADD:
+            case LSUB:
+            case LMUL:
+            case LDIV:
+            case LREM:
+            case LSHL:
+            case LSHR:
+            case LUSHR:
+            case LAND:
+            case LOR:
+            case LXOR:
+                return doBinaryMath(now.getOpcode(), stack, long.class);
+            case FADD:
+            case FSUB:
+            case FMUL:
+            case FDIV:
+            case FREM:
+                return doBinaryMath(now.getOpcode(), stack, float.class);
+            case DADD:
+            case DSUB:
+            case DMUL:
+            case DDIV:
+            case DREM:
+                return doBinaryMath(now.getOpcode(), stack, double.class);
+            case INEG:
+                return doUnaryMath(now.getOpcode(), stack, int.class);
+            case LNEG:
+                return doUnaryMath(now.getOpcode(), stack, long.class);
+            case FNEG:
+                return doUnaryMath(now.getOpcode(), stack, float.class);
+            case DNEG:
+                return doUnaryMath(now.getOpcode(), stack, double.class);
+            case I2L:
+            case F2L:
+            case D2L:
+                return doCast(now.getOpcode(), stack, long.class);
+            case I2F:
+            case L2F:
+            case D2F:
+                return doCast(now.getOpcode(), stack, float.class);
+            case I2D:
+            case L2D:
+            case F2D:
+                return doCast(now.getOpcode(), stack, double.class);
+            case L2I:
+            case D2I:
+            case F2I:
+                return doCast(now.getOpcode(), stack, int.class);
+            case I2B:
+                return doCast(now.getOpcode(), stack, byte.class);
+            case I2C:
+                return doCast(now.getOpcode(), stack, char.class);
+            case I2S:
+                return doCast(now.getOpcode(), stack, short.class);
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * IFEQ to LOOKUPSWITCH, IFNULL and IFNONNULL
+     */
+    private static Frame executeJump(AbstractInsnNode now, List<StackObject> stack, List<AbstractInsnNode> successors) {
+        switch (now.getOpcode()) {
+            case IFEQ:
+            case IFNE:
+            case IFLT:
+            case IFGE:
+            case IFGT:
+            case IFLE:
+            case IFNULL:
+            case IFNONNULL: {
+                JumpInsnNode cast = (JumpInsnNode) now;
+                Frame o = stack.remove(0).value;
+                successors.add(cast.label);
+                successors.add(now.getNext());
+                return new JumpFrame(now.getOpcode(), Collections.singletonList(o), cast.label, now.getNext());
+            }
+            case IF_ICMPEQ:
+            case IF_ICMPNE:
+            case IF_ICMPLT:
+            case IF_ICMPGT:
+            case IF_ICMPGE:
+            case IF_ICMPLE:
+            case IF_ACMPNE:
+            case IF_ACMPEQ: {
+                JumpInsnNode cast = (JumpInsnNode) now;
+                Frame o = stack.remove(0).value;
+                Frame o1 = stack.remove(0).value;
+                successors.add(cast.label);
+                successors.add(now.getNext());
+                return new JumpFrame(now.getOpcode(), Arrays.asList(o, o1), cast.label, now.getNext());
+            }
+            case GOTO: {
+                JumpInsnNode cast = (JumpInsnNode) now;
+                successors.add(cast.label);
+                return new JumpFrame(now.getOpcode(), Collections.emptyList(), cast.label);
+            }
+            case JSR:
+            case RET:
+                throw new UnsupportedOperationException();
+            case TABLESWITCH: {
+                Frame frame = stack.remove(0).value;
+                TableSwitchInsnNode cast = (TableSwitchInsnNode) now;
+                successors.addAll(cast.labels);
+                successors.add(cast.dflt);
+                return new SwitchFrame(now.getOpcode(), frame, cast.labels, cast.dflt);
+            }
+            case LOOKUPSWITCH: {
+                Frame frame = stack.remove(0).value;
+                LookupSwitchInsnNode cast = (LookupSwitchInsnNode) now;
+                successors.addAll(cast.labels);
+                successors.add(cast.dflt);
+                return new SwitchFrame(now.getOpcode(), frame, cast.labels, cast.dflt);
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * GETSTATIC to PUTFIELD
+     */
+    private static Frame executeField(AbstractInsnNode now, List<StackObject> stack) {
+        FieldInsnNode cast = (FieldInsnNode) now;
+        switch (now.getOpcode()) {
+            case GETSTATIC:
+            case GETFIELD: {
+                Frame instance = now.getOpcode() == GETFIELD ? stack.remove(0).value : null;
+                Frame currentFrame = new FieldFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, instance, null);
+                push(stack, Type.getType(cast.desc), currentFrame);
+                return currentFrame;
+            }
+            case PUTSTATIC:
+                return new FieldFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, null, stack.remove(0).value);
+            case PUTFIELD: {
+                Frame obj = stack.remove(0).value;
+                Frame instance = stack.remove(0).value;
+                return new FieldFrame(now.getOpcode(), cast.owner, cast.name, cast.desc, instance, obj);
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * INVOKEVIRTUAL to INVOKEDYNAMIC
+     */
+    private static Frame executeInvoke(AbstractInsnNode now, List<StackObject> stack) {
+        String owner;
+        String name;
+        String desc;
+        if (now.getOpcode() == INVOKEDYNAMIC) {
+            InvokeDynamicInsnNode cast = (InvokeDynamicInsnNode) now;
+            owner = "";
+            name = cast.name;
+            desc = cast.desc;
+        } else {
+            MethodInsnNode cast = (MethodInsnNode) now;
+            owner = cast.owner;
+            name = cast.name;
+            desc = cast.desc;
+        }
+        List<Frame> args = new ArrayList<>();
+        for (int i = Type.getArgumentTypes(desc).length; i > 0; i--) {
+            args.add(0, stack.remove(0).value);
+        }
+        Frame instance = null;
+        if (now.getOpcode() != INVOKESTATIC && now.getOpcode() != INVOKEDYNAMIC) {
+            StackObject obj = stack.remove(0);
+            if (now.getOpcode() == INVOKESPECIAL) {
+                //                if (instance.isInitialized && cast.name.equals("<init>"))
+                //                    throw new IllegalArgumentException("Already initialized");
+                obj.initialize();
+            }
+            instance = obj.value;
+        }
+        Frame currentFrame = new MethodFrame(now.getOpcode(), owner, name, desc, instance, args);
+        Type type = Type.getReturnType(desc);
+        if (type.getSort() != Type.VOID) {
+            push(stack, type, currentFrame);
+        }
+        return currentFrame;
+    }
+
+    /*
+     * Pushes the value produced by a frame as the given type
+     */
+    private static void push(List<StackObject> stack, Type type, Frame currentFrame) {
+        Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
+        if (clazz == null) {
+            stack.add(0, new StackObject(Object.class, currentFrame, type.getInternalName()));
+        } else {
+            stack.add(0, new StackObject(clazz, currentFrame));
+        }
+    }
+
+    /*
+     * NEW to MULTIANEWARRAY, except for ATHROW
+     */
+    private static Frame executeObject(AbstractInsnNode now, List<StackObject> stack) {
+        Frame currentFrame;
+        switch (now.getOpcode()) {
+            case NEW: {
+                TypeInsnNode cast = (TypeInsnNode) now;
+                currentFrame = new NewFrame(cast.desc);
+                stack.add(0, new StackObject((NewFrame) currentFrame));
+                break;
+            }
+            case NEWARRAY: {
+                Frame len = stack.remove(0).value;
+                IntInsnNode cast = (IntInsnNode) now;
+                currentFrame = new NewArrayFrame(now.getOpcode(), PrimitiveUtils.getPrimitiveByNewArrayId(cast.operand).getSimpleName(), len);
+                String desc = "[" + Type.getType(PrimitiveUtils.getPrimitiveByNewArrayId(cast.operand)).getDescriptor();
+                stack.add(0, new StackObject(Object.class, currentFrame, desc));
+                break;
+            }
+            case ANEWARRAY: {
+                Frame len = stack.remove(0).value;
+                TypeInsnNode cast = (TypeInsnNode) now;
+                currentFrame = new NewArrayFrame(now.getOpcode(), cast.desc, len);
+                String desc = null;
+                Type type = Type.getType(cast.desc);
+                if (type.getSort() == Type.ARRAY) {
+                    desc = type.getDescriptor();
+                } else {
+                    desc = "[" + type.getDescriptor() + ";";
+                }
+                stack.add(0, new StackObject(Object.class, currentFrame, desc));
+                break;
+            }
+            case ARRAYLENGTH: {
+                Frame obj = stack.remove(0).value;
+                currentFrame = new ArrayLengthFrame(obj);
+                stack.add(0, new StackObject(int.class, currentFrame));
+                break;
+            }
+            case CHECKCAST: {
+                TypeInsnNode cast = (TypeInsnNode) now;
+                StackObject obj = new StackObject(Object.class, stack.get(0).value, cast.desc);
+                stack.remove(0);
+                stack.add(0, obj);
+                currentFrame = new CheckCastFrame(obj.value);
+                break;
+            }
+            case INSTANCEOF: {
+                currentFrame = new InstanceofFrame(stack.remove(0).value);
+                stack.add(0, new StackObject(int.class, currentFrame));
+                break;
+            }
+            case MONITORENTER:
+            case MONITOREXIT: {
+                currentFrame = new MonitorFrame(now.getOpcode(), stack.remove(0).value);
+                break;
+            }
+            case MULTIANEWARRAY: {
+                MultiANewArrayInsnNode cast = (MultiANewArrayInsnNode) now;
+                List<Frame> sizes = new ArrayList<>();
+                for (int i = 0; i < cast.dims; i++) {
+                    sizes.add(0, stack.remove(0).value);
+                }
+                currentFrame = new MultiANewArrayFrame(sizes);
+                String desc = cast.desc;
+                for (int i = 0; i < cast.dims; i++) {
+                    desc = "[" + desc;
+                }
+                stack.add(0, new StackObject(Object.class, currentFrame, desc));
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+        return currentFrame;
+    }
+
+    private static IllegalArgumentException unknownOpcode(AbstractInsnNode now) {
+        return new IllegalArgumentException(now.getOpcode() + " ");
+    }
+
     public static class StackObject {
         public Class<?> type;
         public Frame value;
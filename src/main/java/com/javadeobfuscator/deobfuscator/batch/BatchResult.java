@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.batch;
+
+import java.io.File;
+
+/**
+ * Outcome of one jar of a {@link DeobfuscatorBatch}.
+ */
+public class BatchResult {
+    private final File input;
+    private final File output;
+    private final Throwable error;
+    private final long queuedMillis;
+    private final long runMillis;
+
+    BatchResult(File input, File output, Throwable error, long queuedMillis, long runMillis) {
+        this.input = input;
+        this.output = output;
+        this.error = error;
+        this.queuedMillis = queuedMillis;
+        this.runMillis = runMillis;
+    }
+
+    public File getInput() {
+        return input;
+    }
+
+    public File getOutput() {
+        return output;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return why the jar failed, or null if it succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return how long the jar waited for a free worker
+     */
+    public long getQueuedMillis() {
+        return queuedMillis;
+    }
+
+    public long getRunMillis() {
+        return runMillis;
+    }
+
+    @Override
+    public String toString() {
+        return input + " -> " + output + ": " + (error == null ? "ok" : "failed (" + error + ")") + " in " + runMillis + "ms";
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.javadeobfuscator.deobfuscator.Deobfuscator;
+import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClasspathSnapshot;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+
+/**
+ * Runs the same transformers over many jars which share a classpath. The classpath is loaded once and shared
+ * read-only; every jar gets its own {@link Deobfuscator}, so its classes and hierachy stay isolated from the others.
+ * A failing jar is reported in its {@link BatchResult} and doesn't stop the rest.
+ * <pre>
+ * List&lt;BatchResult&gt; results = new DeobfuscatorBatch()
+ *     .withClasspath(new File("rt.jar"))
+ *     .withTransformer(Transformers.Stringer.STRING_ENCRYPTION)
+ *     .withJob(new File("a.jar"), new File("a-deobf.jar"))
+ *     .withJob(new File("b.jar"), new File("b-deobf.jar"))
+ *     .run();
+ * </pre>
+ */
+public class DeobfuscatorBatch {
+    private final List<Class<? extends Transformer>> transformers = new ArrayList<>();
+    private final List<File> classpathFiles = new ArrayList<>();
+    private final List<File[]> jobs = new ArrayList<>();
+    private int workers = Runtime.getRuntime().availableProcessors();
+
+    public DeobfuscatorBatch withTransformer(Class<? extends Transformer> transformer) {
+        this.transformers.add(transformer);
+        return this;
+    }
+
+    public DeobfuscatorBatch withClasspath(File file) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles((dir, name) -> name.endsWith(".jar") || name.endsWith(ClasspathSnapshot.EXTENSION));
+            if (files != null) {
+                classpathFiles.addAll(Arrays.asList(files));
+            }
+        } else {
+            this.classpathFiles.add(file);
+        }
+        return this;
+    }
+
+    public DeobfuscatorBatch withJob(File input, File output) {
+        this.jobs.add(new File[]{input, output});
+        return this;
+    }
+
+    /**
+     * Sets how many jars are processed at once. Defaults to the number of processors.
+     */
+    public DeobfuscatorBatch withWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * @return one result per job, in the order the jobs were added
+     */
+    public List<BatchResult> run() throws IOException {
+        long start = System.currentTimeMillis();
+        List<Map<String, WrappedClassNode>> libraries = new ArrayList<>();
+        for (File file : classpathFiles) {
+            libraries.add(Deobfuscator.loadLibrary(file));
+        }
+        System.out.println("[Batch] Loaded " + libraries.size() + " libraries in " + (System.currentTimeMillis() - start) + "ms");
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, Math.max(jobs.size(), 1)));
+        List<Future<BatchResult>> futures = new ArrayList<>();
+        try {
+            for (File[] job : jobs) {
+                long queuedAt = System.currentTimeMillis();
+                futures.add(executor.submit(() -> run(job[0], job[1], libraries, queuedAt)));
+            }
+            List<BatchResult> results = new ArrayList<>();
+            for (Future<BatchResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the batch", e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BatchResult run(File input, File output, List<Map<String, WrappedClassNode>> libraries, long queuedAt) {
+        long start = System.currentTimeMillis();
+        Throwable error = null;
+        try {
+            Deobfuscator deobfuscator = new Deobfuscator().withInput(input).withOutput(output);
+            for (Class<? extends Transformer> transformer : transformers) {
+                deobfuscator.withTransformer(transformer);
+            }
+            for (Map<String, WrappedClassNode> library : libraries) {
+                deobfuscator.withLibrary(library);
+            }
+            deobfuscator.start();
+        } catch (Throwable t) {
+            error = t;
+        }
+        BatchResult result = new BatchResult(input, output, error, start - queuedAt, System.currentTimeMillis() - start);
+        System.out.println("[Batch] " + result);
+        return result;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.daemon;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.javadeobfuscator.deobfuscator.Deobfuscator;
+import com.javadeobfuscator.deobfuscator.DeobfuscatorMain;
+import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+
+/**
+ * Keeps library jars parsed and the JVM warm between runs. Clients connect to a port on the loopback interface and
+ * send one JSON {@link Request} per line; each gets one JSON {@link Response} line back, once the job is done:
+ * <pre>
+ * {"input": "in.jar", "output": "out.jar", "transformers": ["stringer.StringEncryptionTransformer"], "path": ["rt.jar"]}
+ * {"command": "metrics"}
+ * {"command": "shutdown"}
+ * </pre>
+ * Jobs run on a fixed number of workers. When all of them are busy and the queue is full, new jobs are rejected
+ * right away instead of piling up.
+ */
+public class DeobfuscatorDaemon {
+    private final Gson gson = new Gson();
+    private final LibraryCache libraries = new LibraryCache();
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Deobfuscator connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int port;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalQueuedMillis = new AtomicLong();
+    private final AtomicLong totalRunMillis = new AtomicLong();
+
+    private volatile ServerSocket server;
+
+    public DeobfuscatorDaemon(int port, int workers, int queueCapacity) {
+        this.port = port;
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> new Thread(runnable, "Deobfuscator worker"));
+    }
+
+    /**
+     * Parses libraries ahead of the first job which needs them.
+     */
+    public DeobfuscatorDaemon preload(File file) throws IOException {
+        libraries.get(file);
+        return this;
+    }
+
+    /**
+     * Accepts connections until a shutdown request arrives.
+     */
+    public void run() throws IOException {
+        server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        System.out.println("[Daemon] Listening on " + server.getLocalSocketAddress() + " with " + workers.getCorePoolSize() + " workers");
+        try {
+            while (!server.isClosed()) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException e) {
+                    break;
+                }
+                connections.execute(() -> handle(socket));
+            }
+        } finally {
+            workers.shutdown();
+            connections.shutdownNow();
+        }
+        System.out.println("[Daemon] Stopped");
+    }
+
+    public int getPort() {
+        ServerSocket server = this.server;
+        return server == null ? port : server.getLocalPort();
+    }
+
+    public void shutdown() throws IOException {
+        ServerSocket server = this.server;
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Response response;
+                try {
+                    response = handle(gson.fromJson(line, Request.class));
+                } catch (JsonSyntaxException e) {
+                    response = Response.of("invalid", "Malformed request: " + e.getMessage());
+                }
+                out.write(gson.toJson(response));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("[Daemon] Connection failed: " + e);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // The connection is gone either way
+            }
+        }
+    }
+
+    private Response handle(Request request) throws IOException {
+        if (request == null) {
+            return Response.of("invalid", "Empty request");
+        }
+        String command = request.command == null ? "run" : request.command;
+        switch (command) {
+            case "run":
+                return submit(request);
+            case "metrics":
+                Response response = Response.of("ok", null);
+                response.metrics = metrics();
+                return response;
+            case "shutdown":
+                shutdown();
+                return Response.of("ok", "Shutting down");
+            default:
+                return Response.of("invalid", "Unknown command " + command);
+        }
+    }
+
+    private Response submit(Request request) {
+        if (request.input == null || request.output == null) {
+            return Response.of("invalid", "Both input and output are required");
+        }
+        if (request.transformers == null || request.transformers.isEmpty()) {
+            return Response.of("invalid", "No transformers specified");
+        }
+        long id = ids.incrementAndGet();
+        long queuedAt = System.currentTimeMillis();
+        Future<Response> future;
+        try {
+            future = workers.submit(() -> execute(id, request, queuedAt));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            Response response = Response.of("rejected", "Queue is full");
+            response.id = id;
+            return response;
+        }
+        submitted.incrementAndGet();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.of("failed", "Interrupted");
+        } catch (ExecutionException e) {
+            return Response.of("failed", String.valueOf(e.getCause()));
+        }
+    }
+
+    private Response execute(long id, Request request, long queuedAt) {
+        long start = System.currentTimeMillis();
+        Response response;
+        try {
+            Deobfuscator deobfuscator = new Deobfuscator().withInput(new File(request.input)).withOutput(new File(request.output));
+            for (String name : request.transformers) {
+                Class<? extends Transformer> transformer = DeobfuscatorMain.findTransformer(name);
+                if (transformer == null) {
+                    throw new IllegalArgumentException("Could not locate transformer " + name);
+                }
+                deobfuscator.withTransformer(transformer);
+            }
+            if (request.path != null) {
+                for (String path : request.path) {
+                    for (Map<String, WrappedClassNode> library : libraries.get(new File(path))) {
+                        deobfuscator.withLibrary(library);
+                    }
+                }
+            }
+            System.out.println("[Daemon] [Job " + id + "] Starting " + request.input);
+            deobfuscator.start();
+            response = Response.of("ok", null);
+            completed.incrementAndGet();
+        } catch (Throwable t) {
+            System.out.println("[Daemon] [Job " + id + "] Failed");
+            t.printStackTrace(System.out);
+            response = Response.of("failed", String.valueOf(t));
+            failed.incrementAndGet();
+        }
+        response.id = id;
+        response.queuedMillis = start - queuedAt;
+        response.runMillis = System.currentTimeMillis() - start;
+        totalQueuedMillis.addAndGet(response.queuedMillis);
+        totalRunMillis.addAndGet(response.runMillis);
+        System.out.println("[Daemon] [Job " + id + "] Finished with " + response.status + " in " + response.runMillis + "ms after waiting " + response.queuedMillis + "ms");
+        return response;
+    }
+
+    public Response.Metrics metrics() {
+        Response.Metrics metrics = new Response.Metrics();
+        metrics.submitted = submitted.get();
+        metrics.completed = completed.get();
+        metrics.failed = failed.get();
+        metrics.rejected = rejected.get();
+        metrics.queued = workers.getQueue().size();
+        metrics.running = workers.getActiveCount();
+        metrics.workers = workers.getCorePoolSize();
+        metrics.libraries = libraries.size();
+        long finished = metrics.completed + metrics.failed;
+        if (finished > 0) {
+            metrics.averageQueuedMillis = totalQueuedMillis.get() / finished;
+            metrics.averageRunMillis = totalRunMillis.get() / finished;
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.javadeobfuscator.deobfuscator.Deobfuscator;
+import com.javadeobfuscator.deobfuscator.utils.ClasspathSnapshot;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+
+/**
+ * Library jars parsed once and shared by every job. An entry is reloaded when its file changes.
+ */
+public class LibraryCache {
+    private final Map<String, Library> libraries = new ConcurrentHashMap<>();
+
+    /**
+     * @return the parsed libraries for a jar, or for every jar in a directory
+     */
+    public List<Map<String, WrappedClassNode>> get(File file) throws IOException {
+        List<File> jars = new ArrayList<>();
+        if (file.isDirectory()) {
+            File[] files = file.listFiles((dir, name) -> name.endsWith(".jar") || name.endsWith(ClasspathSnapshot.EXTENSION));
+            if (files != null) {
+                jars.addAll(Arrays.asList(files));
+            }
+        } else {
+            jars.add(file);
+        }
+        List<Map<String, WrappedClassNode>> result = new ArrayList<>();
+        for (File jar : jars) {
+            result.add(load(jar));
+        }
+        return result;
+    }
+
+    public int size() {
+        return libraries.size();
+    }
+
+    private Map<String, WrappedClassNode> load(File jar) throws IOException {
+        String key = jar.getCanonicalPath();
+        Library library = libraries.get(key);
+        if (library == null || library.lastModified != jar.lastModified() || library.length != jar.length()) {
+            synchronized (this) {
+                library = libraries.get(key);
+                if (library == null || library.lastModified != jar.lastModified() || library.length != jar.length()) {
+                    library = new Library(jar.lastModified(), jar.length(), Deobfuscator.loadLibrary(jar));
+                    libraries.put(key, library);
+                }
+            }
+        }
+        return library.classes;
+    }
+
+    private static class Library {
+        private final long lastModified;
+        private final long length;
+        private final Map<String, WrappedClassNode> classes;
+
+        Library(long lastModified, long length, Map<String, WrappedClassNode> classes) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.classes = classes;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.daemon;
+
+/**
+ * One line of the daemon protocol, sent back for every request.
+ */
+public class Response {
+    long id;
+    /**
+     * "ok", "failed", "rejected" or "invalid"
+     */
+    String status;
+    String message;
+    long queuedMillis;
+    long runMillis;
+    Metrics metrics;
+
+    static Response of(String status, String message) {
+        Response response = new Response();
+        response.status = status;
+        response.message = message;
+        return response;
+    }
+
+    public static class Metrics {
+        long submitted;
+        long completed;
+        long failed;
+        long rejected;
+        int queued;
+        int running;
+        int workers;
+        int libraries;
+        long averageQueuedMillis;
+        long averageRunMillis;
+    }
+}
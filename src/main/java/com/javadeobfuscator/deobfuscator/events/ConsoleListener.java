@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.events;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prints events the way the deobfuscator always has. Progress is only printed every ten percent, each successful
+ * decryption or processed class is not printed at all, and every batch is written with a single call.
+ */
+public class ConsoleListener implements DeobfuscatorListener {
+    private final PrintStream out;
+    private final Map<String, Long> lastPercent = new HashMap<>();
+
+    public ConsoleListener() {
+        this(System.out);
+    }
+
+    public ConsoleListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onEvents(List<DeobfuscatorEvent> events) {
+        StringBuilder text = new StringBuilder();
+        for (DeobfuscatorEvent event : events) {
+            switch (event.getType()) {
+                case PROGRESS: {
+                    long percent = event.getTotal() == 0 ? 100 : event.getDone() * 100L / event.getTotal() / 10 * 10;
+                    Long last = lastPercent.get(event.getSource());
+                    if (percent == 0 || (last != null && last >= percent)) {
+                        continue;
+                    }
+                    lastPercent.put(event.getSource(), percent);
+                    text.append(event);
+                    long remaining = event.getEstimatedRemainingMillis();
+                    if (remaining > 0) {
+                        text.append(", about ").append((remaining + 999) / 1000).append("s left");
+                    }
+                    break;
+                }
+                case PHASE_STARTED:
+                    lastPercent.remove(event.getSource());
+                    text.append(event);
+                    break;
+                case CLASS_PROCESSED:
+                case DECRYPTION_SUCCEEDED:
+                    continue;
+                default:
+                    text.append(event);
+                    break;
+            }
+            text.append(System.lineSeparator());
+            if (event.getError() != null && event.getType() != DeobfuscatorEvent.Type.INFO) {
+                StringWriter trace = new StringWriter();
+                event.getError().printStackTrace(new PrintWriter(trace));
+                text.append(trace);
+            }
+        }
+        if (text.length() > 0) {
+            out.print(text);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.events;
+
+/**
+ * Something that happened during a run. Events are immutable; which fields are set depends on the {@link Type}.
+ */
+public class DeobfuscatorEvent {
+    public enum Type {
+        PHASE_STARTED,
+        PHASE_FINISHED,
+        PROGRESS,
+        CLASS_PROCESSED,
+        DECRYPTION_SUCCEEDED,
+        DECRYPTION_FAILED,
+        WARNING,
+        INFO
+    }
+
+    private final Type type;
+    private final long timestamp;
+    private final String source;
+    private final String message;
+    private final String className;
+    private final int done;
+    private final int total;
+    private final long elapsedMillis;
+    private final Throwable error;
+
+    DeobfuscatorEvent(Type type, String source, String message, String className, int done, int total, long elapsedMillis, Throwable error) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.source = source;
+        this.message = message;
+        this.className = className;
+        this.done = done;
+        this.total = total;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return who sent the event, such as {@code [Stringer] [StringEncryptionTransformer]}
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the phase name, such as {@code string decryption}, for phase events, otherwise a human readable description or null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public int getDone() {
+        return done;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return time since the source's current phase started, for progress and phase finished events
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return a linear estimate of the time left in the current phase, or -1 if there isn't enough progress yet
+     */
+    public long getEstimatedRemainingMillis() {
+        if (type != Type.PROGRESS || done <= 0 || total <= 0) {
+            return -1;
+        }
+        return elapsedMillis * Math.max(total - done, 0) / done;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case PHASE_STARTED:
+                return source + " Starting " + message;
+            case PHASE_FINISHED:
+                return source + " Finished " + message + ", took " + elapsedMillis + "ms";
+            case PROGRESS:
+                return source + " Done " + (total == 0 ? 100 : done * 100L / total) + "%";
+            case CLASS_PROCESSED:
+                return source + " Processed " + className;
+            case DECRYPTION_SUCCEEDED:
+                return source + " Decrypted in " + className;
+            case DECRYPTION_FAILED:
+                return source + " Could not decrypt in " + className + (message == null ? "" : ": " + message);
+            default:
+                return source + " " + message;
+        }
+    }
+}
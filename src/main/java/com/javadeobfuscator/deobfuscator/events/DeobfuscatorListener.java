@@ -0,0 +1,28 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.events;
+
+import java.util.List;
+
+/**
+ * Receives the events of a run. Events are delivered in batches, in the order they were sent, on a thread of the
+ * {@link EventDispatcher} rather than the thread which sent them, so a slow listener never stalls a transformer.
+ */
+public interface DeobfuscatorListener {
+    void onEvents(List<DeobfuscatorEvent> events);
+}
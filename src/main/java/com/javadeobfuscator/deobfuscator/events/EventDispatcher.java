@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.events;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects the events of one run and hands them to the {@link DeobfuscatorListener}s in batches. Sending an event
+ * only appends it to a lock-free queue, so transformers can report from their innermost loops without contending
+ * on the console; a background thread delivers the queue every 100ms. Events sent while there are no listeners
+ * are dropped.
+ */
+public class EventDispatcher implements Closeable {
+    private static final int BATCH_SIZE = 512;
+    private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Queue<DeobfuscatorEvent> queue = new ConcurrentLinkedQueue<>();
+    private final List<DeobfuscatorListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> phaseStarts = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final Object deliveredLock = new Object();
+    private long delivered;
+
+    private volatile Thread thread;
+    private volatile boolean closed;
+
+    public void addListener(DeobfuscatorListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    public void phaseStarted(String source, String phase) {
+        phaseStarts.put(source, System.nanoTime());
+        send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.PHASE_STARTED, source, phase, null, 0, 0, 0, null));
+    }
+
+    public void phaseFinished(String source, String phase) {
+        long elapsed = elapsedMillis(source);
+        phaseStarts.remove(source);
+        send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.PHASE_FINISHED, source, phase, null, 0, 0, elapsed, null));
+    }
+
+    /**
+     * Reports that {@code done} out of {@code total} items of the source's current phase are finished.
+     */
+    public void progress(String source, int done, int total) {
+        if (!listeners.isEmpty()) {
+            send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.PROGRESS, source, null, null, done, total, elapsedMillis(source), null));
+        }
+    }
+
+    public void classProcessed(String source, String className) {
+        send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.CLASS_PROCESSED, source, null, className, 0, 0, 0, null));
+    }
+
+    public void decrypted(String source, String className) {
+        send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.DECRYPTION_SUCCEEDED, source, null, className, 0, 0, 0, null));
+    }
+
+    public void decryptionFailed(String source, String className, String message, Throwable error) {
+        send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.DECRYPTION_FAILED, source, message, className, 0, 0, 0, error));
+    }
+
+    public void warning(String source, String message) {
+        warning(source, message, null);
+    }
+
+    public void warning(String source, String message, Throwable error) {
+        send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.WARNING, source, message, null, 0, 0, 0, error));
+    }
+
+    public void info(String source, String message) {
+        send(new DeobfuscatorEvent(DeobfuscatorEvent.Type.INFO, source, message, null, 0, 0, 0, null));
+    }
+
+    /**
+     * Blocks until every event sent before this call was delivered.
+     */
+    public void flush() {
+        Thread thread = this.thread;
+        if (thread == null) {
+            return;
+        }
+        long target = sent.sum();
+        LockSupport.unpark(thread);
+        synchronized (deliveredLock) {
+            while (delivered < target && thread.isAlive()) {
+                try {
+                    deliveredLock.wait(INTERVAL_NANOS / 1000000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers the remaining events and waits for the delivery thread to stop. Events sent afterwards are delivered
+     * by the calling thread.
+     */
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        Thread thread = this.thread;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private long elapsedMillis(String source) {
+        Long start = phaseStarts.get(source);
+        return start == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private void send(DeobfuscatorEvent event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            queue.add(event);
+            deliver();
+            return;
+        }
+        queue.add(event);
+        sent.increment();
+        if (thread == null) {
+            start();
+        }
+    }
+
+    private synchronized void start() {
+        if (thread != null || closed) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            while (!closed || !queue.isEmpty()) {
+                deliver();
+                if (!closed) {
+                    LockSupport.parkNanos(this, INTERVAL_NANOS);
+                }
+            }
+        }, "Deobfuscator events");
+        thread.setDaemon(true);
+        this.thread = thread;
+        thread.start();
+    }
+
+    private synchronized void deliver() {
+        List<DeobfuscatorEvent> batch = new ArrayList<>();
+        DeobfuscatorEvent event;
+        while (true) {
+            while (batch.size() < BATCH_SIZE && (event = queue.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (DeobfuscatorListener listener : listeners) {
+                try {
+                    listener.onEvents(batch);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            synchronized (deliveredLock) {
+                delivered += batch.size();
+                deliveredLock.notifyAll();
+            }
+            batch = new ArrayList<>();
+        }
+    }
+}
@@ -1,51 +1,213 @@
 package com.javadeobfuscator.deobfuscator.executor;
 
+import com.google.common.collect.MapMaker;
 import com.javadeobfuscator.deobfuscator.executor.providers.Provider;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class Context { //FIXME clinit classes
-    private List<StackTraceElement> context = new ArrayList<>();
+/**
+ * State of one interpretation, usually one top-level call such as a single decryption.
+ * <p>
+ * A context is confined to the thread that created it and must not be reused concurrently. What it points to is
+ * shared: the {@link #provider} and {@link #dictionary} may be used by any number of contexts on any number of
+ * threads, and only read after configuration. {@link #statics} is shared by the contexts of one thread; to run
+ * several threads from the same initialized state, give each of them a {@link StaticState#fork()} of a snapshot.
+ */
+public class Context {
+    private static final Map<Provider, Frame> CALL_TREES = new MapMaker().weakKeys().makeMap();
+
+    private Frame top;
 
     public Provider provider;
     public Map<String, WrappedClassNode> dictionary;
 
-    public Set<String> clinit = new HashSet<>();
+    /**
+     * When set, classes from the dictionary are initialized lazily on first static access and their static fields
+     * live here instead of in the field provider.
+     */
+    public StaticState statics;
 
     public File file;
 
+    /**
+     * The invoke instruction the interpreter is about to hand to the provider, so that providers can cache their
+     * resolution per call site. It is cleared as soon as the provider returns or throws.
+     */
+    public MethodInsnNode invocation;
+
     public Context(Provider provider) {
         this.provider = provider;
     }
 
+    /**
+     * Runs the static initializer of the given class (and its superclasses) if that hasn't happened yet for the
+     * attached {@link StaticState}. Does nothing if no state is attached or the class isn't part of the dictionary.
+     * <p>
+     * If the initializer throws, the exception is passed on and the class is marked as failed: like on the JVM, any
+     * later use of it throws a {@link NoClassDefFoundError} instead of seeing half-initialized statics.
+     */
+    public void initialize(String className) {
+        if (statics == null || dictionary == null) {
+            return;
+        }
+        if (statics.hasFailed(className)) {
+            throw new NoClassDefFoundError("Could not initialize class " + className.replace('/', '.'));
+        }
+        WrappedClassNode wrappedClassNode = dictionary.get(className);
+        if (wrappedClassNode == null || wrappedClassNode.classNode.isLibrary || !statics.markInitialized(className)) {
+            return;
+        }
+        try {
+            if (wrappedClassNode.classNode.superName != null) {
+                initialize(wrappedClassNode.classNode.superName);
+            }
+            MethodNode clinit = wrappedClassNode.classNode.methods.stream().filter(mn -> mn.name.equals("<clinit>")).findFirst().orElse(null);
+            if (clinit != null) {
+                MethodExecutor.execute(wrappedClassNode, clinit, new ArrayList<>(), null, this);
+            }
+        } catch (Throwable t) {
+            statics.markFailed(className);
+            throw t;
+        }
+    }
+
     public StackTraceElement at(int index) {
-        return context.get(index);
+        return top().materialize()[index];
     }
 
     public StackTraceElement pop() {
-        return context.remove(0);
+        Frame top = top();
+        if (top.parent == null) {
+            throw new IndexOutOfBoundsException("Call stack is empty");
+        }
+        this.top = top.parent;
+        return top.element();
     }
 
     public void push(String clazz, String method, int constantPoolSize) {
-        clazz = clazz.replace('/', '.');
-        context.add(0, new StackTraceElement(clazz, method, "", constantPoolSize));
+        top = top().child(clazz, method, constantPoolSize);
     }
 
     public int size() {
-        return context.size();
+        return top().depth;
     }
 
     public StackTraceElement[] getStackTrace() {
-        StackTraceElement[] orig = new StackTraceElement[size()];
-        for (int i = 0; i < size(); i++) {
-            orig[i] = at(i);
+        return top().materialize().clone();
+    }
+
+    /*
+     * The frames are interned in the tree of the attached StaticState, or else in the tree of the provider, so they
+     * are shared by every context of one run and dropped with it. Without either, this context keeps its own tree.
+     */
+    private Frame top() {
+        if (top == null) {
+            if (statics != null) {
+                top = statics.getCallTree();
+            } else if (provider != null) {
+                top = CALL_TREES.computeIfAbsent(provider, key -> Frame.root());
+            } else {
+                top = Frame.root();
+            }
+        }
+        return top;
+    }
+
+    /**
+     * One entry of the interpreted call stack. Pushing only links a frame to its caller; the
+     * {@link StackTraceElement}s are built when a trace is actually requested. Frames form a tree from a root, and
+     * every call path below that root is represented by one frame, which caches its trace. A tree is only shared
+     * by the contexts of one {@link StaticState} or one provider, so it can't outlive the run.
+     */
+    static final class Frame {
+        private static final int MAX_SHARED_DEPTH = 64;
+
+        private final Frame parent;
+        private final String clazz;
+        private final String method;
+        private final int constantPoolSize;
+        private final int depth;
+        private volatile Map<String, Map<String, Frame>> children;
+
+        private volatile StackTraceElement element;
+        private volatile StackTraceElement[] trace;
+
+        private Frame(Frame parent, String clazz, String method, int constantPoolSize) {
+            this.parent = parent;
+            this.clazz = clazz;
+            this.method = method;
+            this.constantPoolSize = constantPoolSize;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            if (parent == null) {
+                trace = new StackTraceElement[0];
+            }
+        }
+
+        static Frame root() {
+            return new Frame(null, null, null, 0);
+        }
+
+        Frame child(String clazz, String method, int constantPoolSize) {
+            if (depth >= MAX_SHARED_DEPTH) {
+                return new Frame(this, clazz, method, constantPoolSize);
+            }
+            Map<String, Map<String, Frame>> children = children();
+            Map<String, Frame> byMethod = children.get(clazz);
+            if (byMethod == null) {
+                byMethod = children.computeIfAbsent(clazz, key -> new ConcurrentHashMap<>());
+            }
+            Frame frame = byMethod.get(method);
+            if (frame == null) {
+                frame = byMethod.computeIfAbsent(method, key -> new Frame(this, clazz, method, constantPoolSize));
+            }
+            if (frame.constantPoolSize != constantPoolSize) {
+                return new Frame(this, clazz, method, constantPoolSize);
+            }
+            return frame;
+        }
+
+        /*
+         * Most frames are leaves, so their map is only created once something is called from them
+         */
+        private Map<String, Map<String, Frame>> children() {
+            Map<String, Map<String, Frame>> result = children;
+            if (result == null) {
+                synchronized (this) {
+                    result = children;
+                    if (result == null) {
+                        result = new ConcurrentHashMap<>();
+                        children = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        StackTraceElement element() {
+            StackTraceElement result = element;
+            if (result == null) {
+                result = new StackTraceElement(clazz.replace('/', '.'), method, "", constantPoolSize);
+                element = result;
+            }
+            return result;
+        }
+
+        StackTraceElement[] materialize() {
+            StackTraceElement[] result = trace;
+            if (result == null) {
+                StackTraceElement[] callers = parent.materialize();
+                result = new StackTraceElement[callers.length + 1];
+                result[0] = element();
+                System.arraycopy(callers, 0, result, 1, callers.length);
+                trace = result;
+            }
+            return result;
         }
-        return orig;
     }
 }
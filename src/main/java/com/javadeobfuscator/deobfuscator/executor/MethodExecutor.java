@@ -290,14 +290,14 @@ public class MethodExecutor {
     }
 
     /*
-     * Main executor. This will go through each instruction and execute the instruction using a switch statement
+     * Main executor. This will go through each instruction and hand it to the handler for its group of opcodes.
+     * The loop and every handler are kept well below HotSpot's huge method limit so that they can be JIT compiled
      */
     private static <T> T execute(WrappedClassNode classNode, MethodNode method, AbstractInsnNode now, List<JavaValue> stack, List<JavaValue> locals, Context context) {
         context.push(classNode.classNode.name, method.name, classNode.constantPoolSize);
         if (DEBUG) {
             System.out.println("Executing " + classNode.classNode.name + " " + method.name + method.desc);
         }
-        forever:
         while (true) {
             try {
                 if (DEBUG && (DEBUG_CLASSES.isEmpty() || DEBUG_CLASSES.contains(classNode.classNode.name)) && (DEBUG_METHODS_WITH_DESC.isEmpty() || DEBUG_METHODS_WITH_DESC.contains(method.name + method.desc))) {
@@ -309,1184 +309,963 @@ public class MethodExecutor {
                 if (now == null) {
                     throw new FallingOffCodeException();
                 }
-                Throwable toThrow = null;
-                switch (now.getOpcode()) {
-                    case NOP:
-                        break;
-                    case ACONST_NULL:
-                        stack.add(0, new JavaObject(null, "java/lang/Object"));
-                        break;
-                    case ICONST_M1:
-                    case ICONST_0:
-                    case ICONST_1:
-                    case ICONST_2:
-                    case ICONST_3:
-                    case ICONST_4:
-                    case ICONST_5:
-                        stack.add(0, new JavaInteger(now.getOpcode() - 3));
-                        break;
-                    case LCONST_0:
-                    case LCONST_1:
-                        stack.add(0, new JavaLong(now.getOpcode() - 9));
-                        stack.add(0, new JavaTop());
-                        break;
-                    case FCONST_0:
-                    case FCONST_1:
-                    case FCONST_2:
-                        stack.add(0, new JavaFloat(now.getOpcode() - 11));
-                        break;
-                    case DCONST_0:
-                    case DCONST_1:
-                        stack.add(0, new JavaDouble(now.getOpcode() - 14));
-                        stack.add(0, new JavaTop());
-                        break;
-                    case BIPUSH: {
-                        IntInsnNode cast = (IntInsnNode) now;
-                        stack.add(0, new JavaByte((byte) cast.operand));
-                        break;
-                    }
-                    case SIPUSH: {
-                        IntInsnNode cast = (IntInsnNode) now;
-                        stack.add(0, new JavaShort((short) cast.operand));
-                        break;
+                int opcode = now.getOpcode();
+                if (opcode == -1) {
+                    // Labels, line numbers and frames
+                } else if (opcode <= LDC) {
+                    executeConstant(now, stack, context);
+                } else if (opcode <= SASTORE || opcode == IINC) {
+                    executeLocalOrArray(now, stack, locals);
+                } else if (opcode <= SWAP) {
+                    executeStack(now, stack);
+                } else if (opcode <= DCMPG) {
+                    executeMath(now, stack);
+                } else if (opcode <= LOOKUPSWITCH || opcode == IFNULL || opcode == IFNONNULL) {
+                    AbstractInsnNode target = executeJump(now, stack, locals, context);
+                    if (target != null) {
+                        now = target;
+                    }
+                } else if (opcode <= RETURN) {
+                    context.pop();
+                    return executeReturn(now, stack);
+                } else if (opcode <= PUTFIELD) {
+                    executeField(now, stack, context);
+                } else if (opcode <= INVOKEDYNAMIC) {
+                    executeInvoke(now, stack, context);
+                } else if (opcode == ATHROW) {
+                    Throwable toThrow = executeThrow(stack, context);
+                    if (DEBUG_PRINT_EXCEPTIONS) {
+                        toThrow.printStackTrace(System.out);
                     }
-                    case LDC: {
-                        LdcInsnNode cast = (LdcInsnNode) now;
-                        Object load = cast.cst;
-                        if (load instanceof Type) {
-                            Type type = (Type) load;
-                            load = new JavaClass(type.getInternalName().replace('/', '.'), context);
-                        }
-                        if (load instanceof Integer) {
-                            stack.add(0, new JavaInteger((Integer) load));
-                        } else if (load instanceof Float) {
-                            stack.add(0, new JavaFloat((Float) load));
-                        } else if (load instanceof Double) {
-                            stack.add(0, new JavaDouble((Double) load));
-                            stack.add(0, new JavaTop());
-                        } else if (load instanceof Long) {
-                            stack.add(0, new JavaLong((Long) load));
-                            stack.add(0, new JavaTop());
-                        } else if (load instanceof String) {
-                            stack.add(0, new JavaObject(load, "java/lang/String"));
-                        } else if (load instanceof JavaClass) {
-                            stack.add(0, new JavaObject(load, "java/lang/Class"));
-                        } else {
-                            throw new ExecutionException("Unexpected ldc type " + (load == null ? "null" : load.getClass()));
-                        }
-                        break;
+                    AbstractInsnNode handler = findHandler(method, now, toThrow, stack, context);
+                    if (handler != null) {
+                        now = handler;
+                        continue;
                     }
-                    case ILOAD:
-                    case FLOAD:
-                    case ALOAD: {
-                        VarInsnNode cast = (VarInsnNode) now;
-                        stack.add(0, locals.get(cast.var).copy());
-                        if (VERIFY) {
-                            switch (now.getOpcode()) {
-                                case ILOAD:
-                                    if (!(stack.get(0) instanceof JavaInteger)) {
-                                        throw new ExecutionException("Expected Integer");
-                                    }
-                                    break;
-                                case FLOAD:
-                                    if (!(stack.get(0) instanceof JavaFloat)) {
-                                        throw new ExecutionException("Expected Float");
-                                    }
-                                    break;
-                                case ALOAD:
-                                    if (!(stack.get(0) instanceof JavaObject)) {
-                                        throw new ExecutionException("Expected Object");
-                                    }
-                                    break;
+                    throw new ExecutionException(toThrow);
+                } else {
+                    executeObject(now, stack, context);
+                }
+                now = now.getNext();
+            } catch (ExecutionException e) {
+                if (e.clazz.isEmpty()) {
+                    e.clazz = classNode.classNode.name;
+                    e.method = method.name + method.desc;
+                }
+                throw e;
+            } catch (Throwable t) {
+                if (DEBUG_PRINT_EXCEPTIONS) {
+                    t.printStackTrace(System.out);
+                }
+                AbstractInsnNode handler = findHandler(method, now, t, stack, context);
+                if (handler == null) {
+                    Utils.sneakyThrow(t);
+                    return null;
+                }
+                now = handler;
+            }
+        }
+    }
+
+    /*
+     * NOP to LDC
+     */
+    private static void executeConstant(AbstractInsnNode now, List<JavaValue> stack, Context context) {
+        switch (now.getOpcode()) {
+            case NOP:
+                break;
+            case ACONST_NULL:
+                stack.add(0, new JavaObject(null, "java/lang/Object"));
+                break;
+            case ICONST_M1:
+            case ICONST_0:
+            case ICONST_1:
+            case ICONST_2:
+            case ICONST_3:
+            case ICONST_4:
+            case ICONST_5:
+                stack.add(0, new JavaInteger(now.getOpcode() - 3));
+                break;
+            case LCONST_0:
+            case LCONST_1:
+                stack.add(0, new JavaLong(now.getOpcode() - 9));
+                stack.add(0, new JavaTop());
+                break;
+            case FCONST_0:
+            case FCONST_1:
+            case FCONST_2:
+                stack.add(0, new JavaFloat(now.getOpcode() - 11));
+                break;
+            case DCONST_0:
+            case DCONST_1:
+                stack.add(0, new JavaDouble(now.getOpcode() - 14));
+                stack.add(0, new JavaTop());
+                break;
+            case BIPUSH: {
+                IntInsnNode cast = (IntInsnNode) now;
+                stack.add(0, new JavaByte((byte) cast.operand));
+                break;
+            }
+            case SIPUSH: {
+                IntInsnNode cast = (IntInsnNode) now;
+                stack.add(0, new JavaShort((short) cast.operand));
+                break;
+            }
+            case LDC: {
+                LdcInsnNode cast = (LdcInsnNode) now;
+                Object load = cast.cst;
+                if (load instanceof Type) {
+                    Type type = (Type) load;
+                    load = new JavaClass(type.getInternalName().replace('/', '.'), context);
+                }
+                if (load instanceof Integer) {
+                    stack.add(0, new JavaInteger((Integer) load));
+                } else if (load instanceof Float) {
+                    stack.add(0, new JavaFloat((Float) load));
+                } else if (load instanceof Double) {
+                    stack.add(0, new JavaDouble((Double) load));
+                    stack.add(0, new JavaTop());
+                } else if (load instanceof Long) {
+                    stack.add(0, new JavaLong((Long) load));
+                    stack.add(0, new JavaTop());
+                } else if (load instanceof String) {
+                    stack.add(0, new JavaObject(load, "java/lang/String"));
+                } else if (load instanceof JavaClass) {
+                    stack.add(0, new JavaObject(load, "java/lang/Class"));
+                } else {
+                    throw new ExecutionException("Unexpected ldc type " + (load == null ? "null" : load.getClass()));
+                }
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * ILOAD to SASTORE, and IINC
+     */
+    private static void executeLocalOrArray(AbstractInsnNode now, List<JavaValue> stack, List<JavaValue> locals) {
+        switch (now.getOpcode()) {
+            case ILOAD:
+            case FLOAD:
+            case ALOAD: {
+                VarInsnNode cast = (VarInsnNode) now;
+                stack.add(0, locals.get(cast.var).copy());
+                if (VERIFY) {
+                    switch (now.getOpcode()) {
+                        case ILOAD:
+                            if (!(stack.get(0) instanceof JavaInteger)) {
+                                throw new ExecutionException("Expected Integer");
                             }
-                        }
-                        break;
-                    }
-                    case LLOAD:
-                    case DLOAD: {
-                        VarInsnNode cast = (VarInsnNode) now;
-                        stack.add(0, locals.get(cast.var).copy());
-                        stack.add(0, new JavaTop());
-                        if (VERIFY) {
-                            switch (now.getOpcode()) {
-                                case DLOAD:
-                                    if (!(stack.get(1) instanceof JavaDouble)) {
-                                        throw new ExecutionException("Expected Double");
-                                    }
-                                    break;
-                                case LLOAD:
-                                    if (!(stack.get(1) instanceof JavaLong)) {
-                                        throw new ExecutionException("Expected Long");
-                                    }
-                                    break;
+                            break;
+                        case FLOAD:
+                            if (!(stack.get(0) instanceof JavaFloat)) {
+                                throw new ExecutionException("Expected Float");
                             }
-                        }
-                        break;
-                    }
-                    case IALOAD:
-                        executeArrayLoad(stack, int.class);
-                        break;
-                    case LALOAD:
-                        executeArrayLoad(stack, long.class);
-                        break;
-                    case FALOAD:
-                        executeArrayLoad(stack, float.class);
-                        break;
-                    case DALOAD:
-                        executeArrayLoad(stack, double.class);
-                        break;
-                    case AALOAD:
-                        executeArrayLoad(stack, Object.class);
-                        break;
-                    case BALOAD:
-                        executeArrayLoad(stack, byte.class);
-                        break;
-                    case CALOAD:
-                        executeArrayLoad(stack, char.class);
-                        break;
-                    case SALOAD:
-                        executeArrayLoad(stack, short.class);
-                        break;
-                    case ISTORE:
-                    case FSTORE:
-                    case ASTORE: {
-                        VarInsnNode cast = (VarInsnNode) now;
-                        locals.set(cast.var, stack.remove(0).copy());
-                        break;
-                    }
-                    case LSTORE:
-                    case DSTORE: {
-                        stack.remove(0);
-                        VarInsnNode cast = (VarInsnNode) now;
-                        locals.set(cast.var, stack.remove(0).copy());
-                        break;
-                    }
-                    case IASTORE:
-                    case LASTORE:
-                    case FASTORE:
-                    case DASTORE:
-                    case BASTORE:
-                    case CASTORE:
-                    case SASTORE:
-                    case AASTORE:
-                        executeArrayStore(stack);
-                        break;
-                    case POP:
-                        stack.remove(0);
-                        break;
-                    case POP2: {
-                        stack.remove(0);
-                        stack.remove(0);
-                        break;
-                    }
-                    case DUP:
-                        stack.add(0, stack.get(0));
-                        break;
-                    case DUP_X1: {
-                        JavaValue obj = stack.get(0);
-                        if (obj instanceof JavaDouble || obj instanceof JavaLong) {
-                            throw new ExecutionException("Dup with double/long");
-                        }
-                        stack.add(2, stack.get(0));
-                        break;
-                    }
-                    case DUP_X2: {
-                        JavaValue obj = stack.get(0);
-                        if (obj instanceof JavaDouble || obj instanceof JavaLong) {
-                            throw new ExecutionException("Dup with double/long");
-                        }
-                        stack.add(3, obj);
-                        break;
-                    }
-                    case DUP2: {
-                        JavaValue obj = stack.get(0);
-                        JavaValue obj1 = stack.get(1);
-                        stack.add(2, obj);
-                        stack.add(3, obj1);
-                        break;
-                    }
-                    case DUP2_X1: {
-                        JavaValue obj = stack.get(0);
-                        JavaValue obj1 = stack.get(1);
-                        stack.add(3, obj);
-                        stack.add(4, obj1);
-                        break;
-                    }
-                    case DUP2_X2: {
-                        JavaValue obj = stack.get(0);
-                        JavaValue obj1 = stack.get(1);
-                        stack.add(4, obj);
-                        stack.add(5, obj1);
-                        break;
-                    }
-                    case SWAP: {
-                        JavaValue a = stack.remove(0);
-                        JavaValue b = stack.remove(0);
-                        stack.add(0, a);
-                        stack.add(0, b);
-                        break;
-                    }
-                    case IADD:
-                        doIntegerMath(stack, (x, y) -> x + y);
-                        break;
-                    case ISUB:
-                        doIntegerMath(stack, (x, y) -> x - y);
-                        break;
-                    case IMUL:
-                        doIntegerMath(stack, (x, y) -> x * y);
-                        break;
-                    case IDIV:
-                        doIntegerMath(stack, (x, y) -> x / y);
-                        break;
-                    case IREM:
-                        doIntegerMath(stack, (x, y) -> x % y);
-                        break;
-                    case ISHL:
-                        doIntegerMath(stack, (x, y) -> x << y);
-                        break;
-                    case ISHR:
-                        doIntegerMath(stack, (x, y) -> x >> y);
-                        break;
-                    case IUSHR:
-                        doIntegerMath(stack, (x, y) -> x >>> y);
-                        break;
-                    case IAND:
-                        doIntegerMath(stack, (x, y) -> x & y);
-                        break;
-                    case IOR:
-                        doIntegerMath(stack, (x, y) -> x | y);
-                        break;
-                    case IXOR:
-                        doIntegerMath(stack, (x, y) -> x ^ y);
-                        break;
-                    case LADD:
-                        doLongMath(stack, (x, y) -> x + y);
-                        break;
-                    case LSUB:
-                        doLongMath(stack, (x, y) -> x - y);
-                        break;
-                    case LMUL:
-                        doLongMath(stack, (x, y) -> x * y);
-                        break;
-                    case LDIV:
-                        doLongMath(stack, (x, y) -> x / y);
-                        break;
-                    case LREM:
-                        doLongMath(stack, (x, y) -> x % y);
-                        break;
-                    case LSHL:
-                        doLongShift(stack, (x, y) -> x << y);
-                        break;
-                    case LSHR:
-                        doLongShift(stack, (x, y) -> x >> y);
-                        break;
-                    case LUSHR:
-                        doLongShift(stack, (x, y) -> x >>> y);
-                        break;
-                    case LAND:
-                        doLongMath(stack, (x, y) -> x & y);
-                        break;
-                    case LOR:
-                        doLongMath(stack, (x, y) -> x | y);
-                        break;
-                    case LXOR:
-                        doLongMath(stack, (x, y) -> x ^ y);
-                        break;
-                    case LCMP:
-                        doLongMathReturnInteger(stack, (x, y) -> x.compareTo(y));
-                        break;
-                    case FADD:
-                        doFloatMath(stack, (x, y) -> x + y);
-                        break;
-                    case FSUB:
-                        doFloatMath(stack, (x, y) -> x - y);
-                        break;
-                    case FMUL:
-                        doFloatMath(stack, (x, y) -> x * y);
-                        break;
-                    case FDIV:
-                        doFloatMath(stack, (x, y) -> x / y);
-                        break;
-                    case FREM:
-                        doFloatMath(stack, (x, y) -> x % y);
-                        break;
-                    case FCMPL:
-                        doFloatMathReturnInteger(stack, (x, y) -> Float.isNaN(x) || Float.isNaN(y) ? -1 : x.compareTo(y));
-                        break;
-                    case FCMPG:
-                        doFloatMathReturnInteger(stack, (x, y) -> Float.isNaN(x) || Float.isNaN(y) ? 1 : x.compareTo(y));
-                        break;
-                    case DADD:
-                        doDoubleMath(stack, (x, y) -> x + y);
-                        break;
-                    case DSUB:
-                        doDoubleMath(stack, (x, y) -> x - y);
-                        break;
-                    case DMUL:
-                        doDoubleMath(stack, (x, y) -> x * y);
-                        break;
-                    case DDIV:
-                        doDoubleMath(stack, (x, y) -> x / y);
-                        break;
-                    case DREM:
-                        doDoubleMath(stack, (x, y) -> x % y);
-                        break;
-                    case DCMPL:
-                        doDoubleMathReturnInteger(stack, (x, y) -> Double.isNaN(x) || Double.isNaN(y) ? -1 : x.compareTo(y));
-                        break;
-                    case DCMPG:
-                        doDoubleMathReturnInteger(stack, (x, y) -> Double.isNaN(x) || Double.isNaN(y) ? 1 : x.compareTo(y));
-                        break;
-                    case INEG:
-                        stack.set(0, new JavaInteger(-stack.get(0).intValue()));
-                        break;
-                    case LNEG:
-                        stack.set(1, new JavaLong(-stack.get(1).longValue()));
-                        break;
-                    case FNEG:
-                        stack.set(0, new JavaFloat(-stack.get(0).floatValue()));
-                        break;
-                    case DNEG:
-                        stack.set(1, new JavaDouble(-stack.get(1).doubleValue()));
-                        break;
-                    case IINC: {
-                        IincInsnNode cast = (IincInsnNode) now;
-                        JavaInteger integer = (JavaInteger) locals.get(cast.var);
-                        integer.increment(cast.incr);
-                        break;
-                    }
-                    case I2L: {
-                        stack.add(0, new JavaLong(stack.remove(0).intValue()));
-                        stack.add(0, new JavaTop());
-                        break;
-                    }
-                    case I2F: {
-                        stack.add(0, new JavaFloat(stack.remove(0).intValue()));
-                        break;
-                    }
-                    case I2D: {
-                        stack.add(0, new JavaDouble(stack.remove(0).intValue()));
-                        stack.add(0, new JavaTop());
-                        break;
-                    }
-                    case L2I: {
-                        JavaValue value = stack.remove(0);
-                        if (VERIFY && !(value instanceof JavaTop)) {
-                            throw new ExecutionException("Expected JavaTop");
-                        }
-                        stack.add(0, new JavaInteger((int) stack.remove(0).longValue()));
-                        break;
-                    }
-                    case L2F: {
-                        JavaValue value = stack.remove(0);
-                        if (VERIFY && !(value instanceof JavaTop)) {
-                            throw new ExecutionException("Expected JavaTop");
-                        }
-                        stack.add(0, new JavaFloat((float) stack.remove(0).longValue()));
-                        break;
-                    }
-                    case L2D: {
-                        stack.add(1, new JavaDouble(stack.remove(1).longValue()));
-                        break;
-                    }
-                    case F2I: {
-                        stack.add(0, new JavaInteger((int) stack.remove(0).floatValue()));
-                        break;
-                    }
-                    case F2L: {
-                        stack.add(0, new JavaLong((long) stack.remove(0).floatValue()));
-                        stack.add(0, new JavaTop());
-                        break;
-                    }
-                    case F2D: {
-                        stack.add(0, new JavaDouble((double) stack.remove(0).floatValue()));
-                        stack.add(0, new JavaTop());
-                        break;
-                    }
-                    case D2I: {
-                        JavaValue value = stack.remove(0);
-                        if (VERIFY && !(value instanceof JavaTop)) {
-                            throw new ExecutionException("Expected JavaTop");
-                        }
-                        stack.add(0, new JavaInteger((int) stack.remove(0).doubleValue()));
-                        break;
-                    }
-                    case D2L: {
-                        stack.add(1, new JavaLong((long) stack.remove(1).doubleValue()));
-                        break;
-                    }
-                    case D2F: {
-                        JavaValue value = stack.remove(0);
-                        if (VERIFY && !(value instanceof JavaTop)) {
-                            throw new ExecutionException("Expected JavaTop");
-                        }
-                        stack.add(0, new JavaFloat((float) stack.remove(0).doubleValue()));
-                        break;
-                    }
-                    case I2B: {
-                        stack.add(0, new JavaByte((byte) stack.remove(0).intValue()));
-                        break;
-                    }
-                    case I2C: {
-                        stack.add(0, new JavaCharacter((char) stack.remove(0).intValue()));
-                        break;
-                    }
-                    case I2S: {
-                        stack.add(0, new JavaShort((short) stack.remove(0).intValue()));
-                        break;
-                    }
-                    case IFEQ: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        if (o.intValue() == 0) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IFNE: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        if (o.intValue() != 0) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IFLT: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        if (o.intValue() < 0) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IFGE: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        if (o.intValue() >= 0) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IFGT: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        if (o.intValue() > 0) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IFLE: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        if (o.intValue() <= 0) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IF_ICMPEQ: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (o.intValue() == o1.intValue()) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IF_ICMPNE: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (o.intValue() != o1.intValue()) {
-                            now = cast.label;
-                        }
-                        break;
+                            break;
+                        case ALOAD:
+                            if (!(stack.get(0) instanceof JavaObject)) {
+                                throw new ExecutionException("Expected Object");
+                            }
+                            break;
                     }
-                    case IF_ICMPLT: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (o1.intValue() < o.intValue()) {
-                            now = cast.label;
-                        }
-                        break;
+                }
+                break;
+            }
+            case LLOAD:
+            case DLOAD: {
+                VarInsnNode cast = (VarInsnNode) now;
+                stack.add(0, locals.get(cast.var).copy());
+                stack.add(0, new JavaTop());
+                if (VERIFY) {
+                    switch (now.getOpcode()) {
+                        case DLOAD:
+                            if (!(stack.get(1) instanceof JavaDouble)) {
+                                throw new ExecutionException("Expected Double");
+                            }
+                            break;
+                        case LLOAD:
+                            if (!(stack.get(1) instanceof JavaLong)) {
+                                throw new ExecutionException("Expected Long");
+                            }
+                            break;
                     }
-                    case IF_ICMPGE: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (o1.intValue() >= o.intValue()) {
-                            now = cast.label;
-                        }
-                        break;
+                }
+                break;
+            }
+            case IALOAD:
+                executeArrayLoad(stack, int.class);
+                break;
+            case LALOAD:
+                executeArrayLoad(stack, long.class);
+                break;
+            case FALOAD:
+                executeArrayLoad(stack, float.class);
+                break;
+            case DALOAD:
+                executeArrayLoad(stack, double.class);
+                break;
+            case AALOAD:
+                executeArrayLoad(stack, Object.class);
+                break;
+            case BALOAD:
+                executeArrayLoad(stack, byte.class);
+                break;
+            case CALOAD:
+                executeArrayLoad(stack, char.class);
+                break;
+            case SALOAD:
+                executeArrayLoad(stack, short.class);
+                break;
+            case ISTORE:
+            case FSTORE:
+            case ASTORE: {
+                VarInsnNode cast = (VarInsnNode) now;
+                locals.set(cast.var, stack.remove(0).copy());
+                break;
+            }
+            case LSTORE:
+            case DSTORE: {
+                stack.remove(0);
+                VarInsnNode cast = (VarInsnNode) now;
+                locals.set(cast.var, stack.remove(0).copy());
+                break;
+            }
+            case IASTORE:
+            case LASTORE:
+            case FASTORE:
+            case DASTORE:
+            case BASTORE:
+            case CASTORE:
+            case SASTORE:
+            case AASTORE:
+                executeArrayStore(stack);
+                break;
+            case IINC: {
+                IincInsnNode cast = (IincInsnNode) now;
+                JavaInteger integer = (JavaInteger) locals.get(cast.var);
+                integer.increment(cast.incr);
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * POP to SWAP
+     */
+    private static void executeStack(AbstractInsnNode now, List<JavaValue> stack) {
+        switch (now.getOpcode()) {
+            case POP:
+                stack.remove(0);
+                break;
+            case POP2: {
+                stack.remove(0);
+                stack.remove(0);
+                break;
+            }
+            case DUP:
+                stack.add(0, stack.get(0));
+                break;
+            case DUP_X1: {
+                JavaValue obj = stack.get(0);
+                if (obj instanceof JavaDouble || obj instanceof JavaLong) {
+                    throw new ExecutionException("Dup with double/long");
+                }
+                stack.add(2, stack.get(0));
+                break;
+            }
+            case DUP_X2: {
+                JavaValue obj = stack.get(0);
+                if (obj instanceof JavaDouble || obj instanceof JavaLong) {
+                    throw new ExecutionException("Dup with double/long");
+                }
+                stack.add(3, obj);
+                break;
+            }
+            case DUP2: {
+                JavaValue obj = stack.get(0);
+                JavaValue obj1 = stack.get(1);
+                stack.add(2, obj);
+                stack.add(3, obj1);
+                break;
+            }
+            case DUP2_X1: {
+                JavaValue obj = stack.get(0);
+                JavaValue obj1 = stack.get(1);
+                stack.add(3, obj);
+                stack.add(4, obj1);
+                break;
+            }
+            case DUP2_X2: {
+                JavaValue obj = stack.get(0);
+                JavaValue obj1 = stack.get(1);
+                stack.add(4, obj);
+                stack.add(5, obj1);
+                break;
+            }
+            case SWAP: {
+                JavaValue a = stack.remove(0);
+                JavaValue b = stack.remove(0);
+                stack.add(0, a);
+                stack.add(0, b);
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * IADD to DCMPG, except for IINC
+     */
+    private static void executeMath(AbstractInsnNode now, List<JavaValue> stack) {
+        switch (now.getOpcode()) {
+            case IADD:
+                doIntegerMath(stack, (x, y) -> x + y);
+                break;
+            case ISUB:
+                doIntegerMath(stack, (x, y) -> x - y);
+                break;
+            case IMUL:
+                doIntegerMath(stack, (x, y) -> x * y);
+                break;
+            case IDIV:
+                doIntegerMath(stack, (x, y) -> x / y);
+                break;
+            case IREM:
+                doIntegerMath(stack, (x, y) -> x % y);
+                break;
+            case ISHL:
+                doIntegerMath(stack, (x, y) -> x << y);
+                break;
+            case ISHR:
+                doIntegerMath(stack, (x, y) -> x >> y);
+                break;
+            case IUSHR:
+                doIntegerMath(stack, (x, y) -> x >>> y);
+                break;
+            case IAND:
+                doIntegerMath(stack, (x, y) -> x & y);
+                break;
+            case IOR:
+                doIntegerMath(stack, (x, y) -> x | y);
+                break;
+            case IXOR:
+                doIntegerMath(stack, (x, y) -> x ^ y);
+                break;
+            case LADD:
+                doLongMath(stack, (x, y) -> x + y);
+                break;
+            case LSUB:
+                doLongMath(stack, (x, y) -> x - y);
+                break;
+            case LMUL:
+                doLongMath(stack, (x, y) -> x * y);
+                break;
+            case LDIV:
+                doLongMath(stack, (x, y) -> x / y);
+                break;
+            case LREM:
+                doLongMath(stack, (x, y) -> x % y);
+                break;
+            case LSHL:
+                doLongShift(stack, (x, y) -> x << y);
+                break;
+            case LSHR:
+                doLongShift(stack, (x, y) -> x >> y);
+                break;
+            case LUSHR:
+                doLongShift(stack, (x, y) -> x >>> y);
+                break;
+            case LAND:
+                doLongMath(stack, (x, y) -> x & y);
+                break;
+            case LOR:
+                doLongMath(stack, (x, y) -> x | y);
+                break;
+            case LXOR:
+                doLongMath(stack, (x, y) -> x ^ y);
+                break;
+            case LCMP:
+                doLongMathReturnInteger(stack, (x, y) -> x.compareTo(y));
+                break;
+            case FADD:
+                doFloatMath(stack, (x, y) -> x + y);
+                break;
+            case FSUB:
+                doFloatMath(stack, (x, y) -> x - y);
+                break;
+            case FMUL:
+                doFloatMath(stack, (x, y) -> x * y);
+                break;
+            case FDIV:
+                doFloatMath(stack, (x, y) -> x / y);
+                break;
+            case FREM:
+                doFloatMath(stack, (x, y) -> x % y);
+                break;
+            case FCMPL:
+                doFloatMathReturnInteger(stack, (x, y) -> Float.isNaN(x) || Float.isNaN(y) ? -1 : x.compareTo(y));
+                break;
+            case FCMPG:
+                doFloatMathReturnInteger(stack, (x, y) -> Float.isNaN(x) || Float.isNaN(y) ? 1 : x.compareTo(y));
+                break;
+            case DADD:
+                doDoubleMath(stack, (x, y) -> x + y);
+                break;
+            case DSUB:
+                doDoubleMath(stack, (x, y) -> x - y);
+                break;
+            case DMUL:
+                doDoubleMath(stack, (x, y) -> x * y);
+                break;
+            case DDIV:
+                doDoubleMath(stack, (x, y) -> x / y);
+                break;
+            case DREM:
+                doDoubleMath(stack, (x, y) -> x % y);
+                break;
+            case DCMPL:
+                doDoubleMathReturnInteger(stack, (x, y) -> Double.isNaN(x) || Double.isNaN(y) ? -1 : x.compareTo(y));
+                break;
+            case DCMPG:
+                doDoubleMathReturnInteger(stack, (x, y) -> Double.isNaN(x) || Double.isNaN(y) ? 1 : x.compareTo(y));
+                break;
+            case INEG:
+                stack.set(0, new JavaInteger(-stack.get(0).intValue()));
+                break;
+            case LNEG:
+                stack.set(1, new JavaLong(-stack.get(1).longValue()));
+                break;
+            case FNEG:
+                stack.set(0, new JavaFloat(-stack.get(0).floatValue()));
+                break;
+            case DNEG:
+                stack.set(1, new JavaDouble(-stack.get(1).doubleValue()));
+                break;
+            default:
+                executeConversion(now, stack);
+                break;
+        }
+    }
+
+    /*
+     * I2L to I2S
+     */
+    private static void executeConversion(AbstractInsnNode now, List<JavaValue> stack) {
+        switch (now.getOpcode()) {
+            case I2L: {
+                stack.add(0, new JavaLong(stack.remove(0).intValue()));
+                stack.add(0, new JavaTop());
+                break;
+            }
+            case I2F: {
+                stack.add(0, new JavaFloat(stack.remove(0).intValue()));
+                break;
+            }
+            case I2D: {
+                stack.add(0, new JavaDouble(stack.remove(0).intValue()));
+                stack.add(0, new JavaTop());
+                break;
+            }
+            case L2I: {
+                JavaValue value = stack.remove(0);
+                if (VERIFY && !(value instanceof JavaTop)) {
+                    throw new ExecutionException("Expected JavaTop");
+                }
+                stack.add(0, new JavaInteger((int) stack.remove(0).longValue()));
+                break;
+            }
+            case L2F: {
+                JavaValue value = stack.remove(0);
+                if (VERIFY && !(value instanceof JavaTop)) {
+                    throw new ExecutionException("Expected JavaTop");
+                }
+                stack.add(0, new JavaFloat((float) stack.remove(0).longValue()));
+                break;
+            }
+            case L2D: {
+                stack.add(1, new JavaDouble(stack.remove(1).longValue()));
+                break;
+            }
+            case F2I: {
+                stack.add(0, new JavaInteger((int) stack.remove(0).floatValue()));
+                break;
+            }
+            case F2L: {
+                stack.add(0, new JavaLong((long) stack.remove(0).floatValue()));
+                stack.add(0, new JavaTop());
+                break;
+            }
+            case F2D: {
+                stack.add(0, new JavaDouble((double) stack.remove(0).floatValue()));
+                stack.add(0, new JavaTop());
+                break;
+            }
+            case D2I: {
+                JavaValue value = stack.remove(0);
+                if (VERIFY && !(value instanceof JavaTop)) {
+                    throw new ExecutionException("Expected JavaTop");
+                }
+                stack.add(0, new JavaInteger((int) stack.remove(0).doubleValue()));
+                break;
+            }
+            case D2L: {
+                stack.add(1, new JavaLong((long) stack.remove(1).doubleValue()));
+                break;
+            }
+            case D2F: {
+                JavaValue value = stack.remove(0);
+                if (VERIFY && !(value instanceof JavaTop)) {
+                    throw new ExecutionException("Expected JavaTop");
+                }
+                stack.add(0, new JavaFloat((float) stack.remove(0).doubleValue()));
+                break;
+            }
+            case I2B: {
+                stack.add(0, new JavaByte((byte) stack.remove(0).intValue()));
+                break;
+            }
+            case I2C: {
+                stack.add(0, new JavaCharacter((char) stack.remove(0).intValue()));
+                break;
+            }
+            case I2S: {
+                stack.add(0, new JavaShort((short) stack.remove(0).intValue()));
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * IFEQ to LOOKUPSWITCH, IFNULL and IFNONNULL. Returns the instruction to continue from, or null to fall through
+     */
+    private static AbstractInsnNode executeJump(AbstractInsnNode now, List<JavaValue> stack, List<JavaValue> locals, Context context) {
+        switch (now.getOpcode()) {
+            case IFEQ:
+                return stack.remove(0).intValue() == 0 ? ((JumpInsnNode) now).label : null;
+            case IFNE:
+                return stack.remove(0).intValue() != 0 ? ((JumpInsnNode) now).label : null;
+            case IFLT:
+                return stack.remove(0).intValue() < 0 ? ((JumpInsnNode) now).label : null;
+            case IFGE:
+                return stack.remove(0).intValue() >= 0 ? ((JumpInsnNode) now).label : null;
+            case IFGT:
+                return stack.remove(0).intValue() > 0 ? ((JumpInsnNode) now).label : null;
+            case IFLE:
+                return stack.remove(0).intValue() <= 0 ? ((JumpInsnNode) now).label : null;
+            case IF_ICMPEQ:
+            case IF_ICMPNE:
+            case IF_ICMPLT:
+            case IF_ICMPGE:
+            case IF_ICMPGT:
+            case IF_ICMPLE: {
+                JavaValue o = stack.remove(0);
+                JavaValue o1 = stack.remove(0);
+                return compare(now.getOpcode(), o1.intValue(), o.intValue()) ? ((JumpInsnNode) now).label : null;
+            }
+            case IF_ACMPEQ:
+            case IF_ACMPNE: {
+                JavaValue o = stack.remove(0);
+                JavaValue o1 = stack.remove(0);
+                if (!context.provider.canCheckEquality(o, o1, context)) {
+                    throw new NoSuchMethodHandlerException("Could not find comparison for " + o.type() + " " + o1.type());
+                }
+                boolean eq = context.provider.checkEquality(o, o1, context);
+                return eq == (now.getOpcode() == IF_ACMPEQ) ? ((JumpInsnNode) now).label : null;
+            }
+            case GOTO:
+                return ((JumpInsnNode) now).label;
+            case JSR: {
+                stack.add(0, new JavaAddress(now));
+                return ((JumpInsnNode) now).label;
+            }
+            case RET: {
+                VarInsnNode cast = (VarInsnNode) now;
+                JavaValue value = locals.get(cast.var);
+                if (!(value instanceof JavaAddress)) {
+                    throw new ExecutionException("Expected address on stack");
+                }
+                return (AbstractInsnNode) ((JavaAddress) value).value();
+            }
+            case TABLESWITCH: {
+                int x = stack.remove(0).intValue();
+                TableSwitchInsnNode cast = (TableSwitchInsnNode) now;
+                if (x < cast.labels.size() && x >= 0) {
+                    return cast.labels.get(x);
+                }
+                return cast.dflt;
+            }
+            case LOOKUPSWITCH: {
+                Integer x = stack.remove(0).intValue();
+                LookupSwitchInsnNode cast = (LookupSwitchInsnNode) now;
+                if (cast.keys.indexOf(x) != -1) {
+                    return cast.labels.get(cast.keys.indexOf(x));
+                }
+                return cast.dflt;
+            }
+            case IFNULL:
+                return stack.remove(0).value() == null ? ((JumpInsnNode) now).label : null;
+            case IFNONNULL:
+                return stack.remove(0).value() != null ? ((JumpInsnNode) now).label : null;
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    private static boolean compare(int opcode, int a, int b) {
+        switch (opcode) {
+            case IF_ICMPEQ:
+                return a == b;
+            case IF_ICMPNE:
+                return a != b;
+            case IF_ICMPLT:
+                return a < b;
+            case IF_ICMPGE:
+                return a >= b;
+            case IF_ICMPGT:
+                return a > b;
+            case IF_ICMPLE:
+                return a <= b;
+            default:
+                throw new ExecutionException("Unknown comparison " + opcode);
+        }
+    }
+
+    /*
+     * IRETURN to RETURN. The caller pops the context
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T executeReturn(AbstractInsnNode now, List<JavaValue> stack) {
+        switch (now.getOpcode()) {
+            case IRETURN:
+                return (T) (Integer) stack.remove(0).intValue();
+            case LRETURN:
+                stack.remove(0);
+                return (T) (Long) stack.remove(0).longValue();
+            case FRETURN:
+                return (T) (Float) stack.remove(0).floatValue();
+            case DRETURN:
+                stack.remove(0);
+                return (T) (Double) stack.remove(0).doubleValue();
+            case ARETURN:
+                return (T) stack.remove(0).value();
+            case RETURN:
+                return (T) Optional.absent();
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * GETSTATIC to PUTFIELD
+     */
+    private static void executeField(AbstractInsnNode now, List<JavaValue> stack, Context context) {
+        FieldInsnNode cast = (FieldInsnNode) now;
+        switch (now.getOpcode()) {
+            case GETSTATIC: {
+                context.initialize(cast.owner);
+                Object provided = context.provider.getField(cast.owner, cast.name, cast.desc, null, context);
+                push(stack, Type.getType(cast.desc), provided);
+                break;
+            }
+            case PUTSTATIC: {
+                JavaValue obj = stack.remove(0);
+                context.initialize(cast.owner);
+                context.provider.setField(cast.owner, cast.name, cast.desc, null, value(obj), context);
+                break;
+            }
+            case GETFIELD: {
+                JavaValue obj = stack.remove(0);
+                Object provided = context.provider.getField(cast.owner, cast.name, cast.desc, obj, context);
+                push(stack, Type.getType(cast.desc), provided);
+                break;
+            }
+            case PUTFIELD: {
+                JavaValue obj = stack.remove(0);
+                JavaValue instance = stack.remove(0);
+                context.provider.setField(cast.owner, cast.name, cast.desc, instance, value(obj), context);
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    /*
+     * INVOKEVIRTUAL to INVOKEDYNAMIC
+     */
+    private static void executeInvoke(AbstractInsnNode now, List<JavaValue> stack, Context context) {
+        if (now.getOpcode() == INVOKEDYNAMIC) {
+            throw new ExecutionException(new UnsupportedOperationException());
+        }
+        MethodInsnNode cast = (MethodInsnNode) now;
+        List<JavaValue> args = new ArrayList<>();
+        JavaValue instance = null;
+        if (now.getOpcode() == INVOKESTATIC) {
+            context.initialize(cast.owner);
+            List<Type> l = new ArrayList<>(Arrays.asList(Type.getArgumentTypes(cast.desc)));
+            Collections.reverse(l);
+            for (Type t1 : l) {
+                if (t1.getSort() == Type.LONG || t1.getSort() == Type.DOUBLE) {
+                    if (!(stack.get(0) instanceof JavaTop)) {
+                        throw new ExecutionException("Expected JavaTop while invoking " + cast.owner + " " + cast.name + " " + cast.desc + ", but got " + stack.get(0).getClass().getSimpleName());
+                    }
+                    stack.remove(0);
+                }
+                args.add(0, stack.remove(0).copy());
+            }
+        } else {
+            for (Type t1 : Type.getArgumentTypes(cast.desc)) {
+                if (t1.getSort() == Type.LONG || t1.getSort() == Type.DOUBLE) {
+                    if (!(stack.get(0) instanceof JavaTop)) {
+                        throw new ExecutionException("Expected JavaTop");
                     }
-                    case IF_ICMPGT: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (o1.intValue() > o.intValue()) {
-                            now = cast.label;
-                        }
+                    stack.remove(0);
+                }
+                args.add(0, stack.remove(0).copy());
+            }
+            instance = stack.remove(0);
+        }
+        Object provided;
+        context.invocation = cast;
+        try {
+            if (!context.provider.canInvokeMethod(cast.owner, cast.name, cast.desc, instance, args, context)) {
+                throw new NoSuchMethodHandlerException("Could not find invoker for " + cast.owner + " " + cast.name + cast.desc);
+            }
+            provided = context.provider.invokeMethod(cast.owner, cast.name, cast.desc, instance, args, context);
+        } finally {
+            context.invocation = null;
+        }
+        push(stack, Type.getReturnType(cast.desc), provided);
+    }
+
+    /*
+     * Pushes a value returned by a provider as the given type. Nothing is pushed for void
+     */
+    private static void push(List<JavaValue> stack, Type type, Object provided) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                stack.add(0, new JavaBoolean((Boolean) provided));
+                break;
+            case Type.CHAR:
+                stack.add(0, new JavaCharacter((Character) provided));
+                break;
+            case Type.BYTE:
+                stack.add(0, new JavaByte((Byte) provided));
+                break;
+            case Type.SHORT:
+                stack.add(0, new JavaShort((Short) provided));
+                break;
+            case Type.INT:
+                stack.add(0, new JavaInteger((Integer) provided));
+                break;
+            case Type.FLOAT:
+                stack.add(0, new JavaFloat((Float) provided));
+                break;
+            case Type.LONG:
+                stack.add(0, new JavaLong((Long) provided));
+                stack.add(0, new JavaTop());
+                break;
+            case Type.DOUBLE:
+                stack.add(0, new JavaDouble((Double) provided));
+                stack.add(0, new JavaTop());
+                break;
+            case Type.ARRAY:
+            case Type.OBJECT:
+                stack.add(0, new JavaObject(provided, "java/lang/Object"));
+                break;
+        }
+    }
+
+    private static Throwable executeThrow(List<JavaValue> stack, Context context) {
+        Object throwable = stack.remove(0).value();
+        if (throwable instanceof Throwable) {
+            return (Throwable) throwable;
+        } else if (throwable == null) {
+            NullPointerException exception = new NullPointerException();
+            exception.setStackTrace(context.getStackTrace());
+            return exception;
+        } else {
+            throw new ExecutionException("Expected a throwable on stack");
+        }
+    }
+
+    /*
+     * NEW to MULTIANEWARRAY, except for ATHROW
+     */
+    private static void executeObject(AbstractInsnNode now, List<JavaValue> stack, Context context) {
+        switch (now.getOpcode()) {
+            case NEW: {
+                TypeInsnNode cast = (TypeInsnNode) now;
+                context.initialize(cast.desc);
+                stack.add(0, new JavaObject(cast.desc));
+                break;
+            }
+            case NEWARRAY: {
+                int len = stack.remove(0).intValue();
+                IntInsnNode cast = (IntInsnNode) now;
+                Object add = null;
+                switch (cast.operand) {
+                    case T_BOOLEAN:
+                        add = new boolean[len];
                         break;
-                    }
-                    case IF_ICMPLE: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (o1.intValue() <= o.intValue()) {
-                            now = cast.label;
-                        }
+                    case T_CHAR:
+                        add = new char[len];
                         break;
-                    }
-                    case IF_ACMPNE: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (context.provider.canCheckEquality(o, o1, context)) {
-                            boolean eq = context.provider.checkEquality(o, o1, context);
-                            if (!eq) {
-                                now = cast.label;
-                            }
-                        } else {
-                            throw new NoSuchMethodHandlerException("Could not find comparison for " + o.type() + " " + o1.type());
-                        }
+                    case T_FLOAT:
+                        add = new float[len];
                         break;
-                    }
-                    case IF_ACMPEQ: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue o = stack.remove(0);
-                        JavaValue o1 = stack.remove(0);
-                        if (context.provider.canCheckEquality(o, o1, context)) {
-                            boolean eq = context.provider.checkEquality(o, o1, context);
-                            if (eq) {
-                                now = cast.label;
-                            }
-                        } else {
-                            throw new NoSuchMethodHandlerException("Could not find comparison for " + o.type() + " " + o1.type());
-                        }
+                    case T_DOUBLE:
+                        add = new double[len];
                         break;
-                    }
-                    case GOTO: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        now = cast.label;
+                    case T_BYTE:
+                        add = new byte[len];
                         break;
-                    }
-                    case JSR: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        stack.add(0, new JavaAddress(now));
-                        now = cast.label;
+                    case T_SHORT:
+                        add = new short[len];
                         break;
-                    }
-                    case RET: {
-                        VarInsnNode cast = (VarInsnNode) now;
-                        JavaValue value = locals.get(cast.var);
-                        if (!(value instanceof JavaAddress)) {
-                            throw new ExecutionException("Expected address on stack");
-                        }
-                        now = (AbstractInsnNode) ((JavaAddress) value).value();
+                    case T_INT:
+                        add = new int[len];
                         break;
-                    }
-                    case TABLESWITCH: {
-                        int x = stack.remove(0).intValue();
-                        TableSwitchInsnNode cast = (TableSwitchInsnNode) now;
-                        if (x < cast.labels.size() && x >= 0) {
-                            now = cast.labels.get(x);
-                        } else {
-                            now = cast.dflt;
-                        }
+                    case T_LONG:
+                        add = new long[len];
                         break;
-                    }
-                    case LOOKUPSWITCH: {
-                        Integer x = stack.remove(0).intValue();
-                        LookupSwitchInsnNode cast = (LookupSwitchInsnNode) now;
-                        if (cast.keys.indexOf(x) != -1) {
-                            now = cast.labels.get(cast.keys.indexOf(x));
-                        } else {
-                            now = cast.dflt;
+                    default:
+                        throw new ExecutionException("Unknown newarray type " + cast.operand);
+                }
+                stack.add(0, new JavaObject(add, "java/lang/Object"));
+                break;
+            }
+            case ANEWARRAY: {
+                int len = stack.remove(0).intValue();
+                stack.add(0, new JavaObject(new Object[len], "java/lang/Object"));
+                break;
+            }
+            case ARRAYLENGTH: {
+                JavaValue obj = stack.remove(0);
+                if (VERIFY && obj.value() == null) {
+                    throw new ExecutionException("Array is null");
+                }
+                int len = Array.getLength(obj.value());
+                stack.add(0, new JavaInteger(len));
+                break;
+            }
+            case CHECKCAST: {
+                TypeInsnNode cast = (TypeInsnNode) now;
+                JavaValue obj = stack.get(0);
+                if (obj.value() != null) {
+                    if (context.provider.canCheckcast(obj, Type.getType(cast.desc), context)) {
+                        if (!context.provider.checkcast(obj, Type.getType(cast.desc), context)) {
+                            throw new ClassCastException(cast.desc);
                         }
-                        break;
+                    } else {
+                        throw new NoSuchComparisonHandlerException("No comparator found for " + cast.desc);
                     }
-                    case IRETURN: {
-                        context.pop();
-                        return (T) (Integer) stack.remove(0).intValue();
-                    }
-                    case LRETURN: {
-                        context.pop();
-                        stack.remove(0);
-                        return (T) (Long) stack.remove(0).longValue();
-                    }
-                    case FRETURN: {
-                        context.pop();
-                        return (T) (Float) stack.remove(0).floatValue();
-                    }
-                    case DRETURN: {
-                        context.pop();
-                        stack.remove(0);
-                        return (T) (Double) stack.remove(0).doubleValue();
-                    }
-                    case ARETURN: {
-                        context.pop();
-                        return (T) stack.remove(0).value();
-                    }
-                    case RETURN: {
-                        context.pop();
-                        return (T) Optional.absent();
-                    }
-                    case GETSTATIC: {
-                        FieldInsnNode cast = (FieldInsnNode) now;
-                        Type type = Type.getType(cast.desc);
-                        Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                        Object provided = context.provider.getField(cast.owner, cast.name, cast.desc, null, context);
+                }
+                break;
+            }
+            case INSTANCEOF: {
+                TypeInsnNode cast = (TypeInsnNode) now;
+                JavaValue obj = stack.remove(0);
+                if (context.provider.canCheckInstanceOf(obj, Type.getType(cast.desc), context)) {
+                    boolean is = context.provider.instanceOf(obj, Type.getType(cast.desc), context);
+                    stack.add(0, new JavaInteger(is ? 1 : 0));
+                } else {
+                    throw new NoSuchComparisonHandlerException("No comparator found for " + cast.desc);
+                }
+                break;
+            }
+            case MONITORENTER: { //TODO Actually implement
+                stack.remove(0);
+                break;
+            }
+            case MONITOREXIT: {
+                stack.remove(0);
+                break;
+            }
+            case MULTIANEWARRAY: {
+                MultiANewArrayInsnNode cast = (MultiANewArrayInsnNode) now;
+                List<Integer> sizes = new ArrayList<>();
+                for (int i = 0; i < cast.dims; i++) {
+                    sizes.add(0, stack.remove(0).intValue());
+                }
+                Type type = Type.getType(cast.desc);
+                Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
+                Class<?> create = clazz == null ? Object.class : clazz;
+                Object root = Array.newInstance(create, sizes.get(0));
+                List<Object> currentArray = new ArrayList<>();
+                currentArray.add(root);
 
-                        switch (type.getReturnType().getSort()) {
-                            case Type.BOOLEAN:
-                                stack.add(0, new JavaBoolean((Boolean) provided));
-                                break;
-                            case Type.CHAR:
-                                stack.add(0, new JavaCharacter((Character) provided));
-                                break;
-                            case Type.BYTE:
-                                stack.add(0, new JavaByte((Byte) provided));
-                                break;
-                            case Type.SHORT:
-                                stack.add(0, new JavaShort((Short) provided));
-                                break;
-                            case Type.INT:
-                                stack.add(0, new JavaInteger((Integer) provided));
-                                break;
-                            case Type.FLOAT:
-                                stack.add(0, new JavaFloat((Float) provided));
-                                break;
-                            case Type.LONG:
-                                stack.add(0, new JavaLong((Long) provided));
-                                stack.add(0, new JavaTop());
-                                break;
-                            case Type.DOUBLE:
-                                stack.add(0, new JavaDouble((Double) provided));
-                                stack.add(0, new JavaTop());
-                                break;
-                            case Type.ARRAY:
-                            case Type.OBJECT:
-                                stack.add(0, new JavaObject(provided, "java/lang/Object"));
-                                break;
-                        }
-                        break;
-                    }
-                    case PUTSTATIC: {
-                        JavaValue obj = stack.remove(0);
-                        FieldInsnNode cast = (FieldInsnNode) now;
-                        context.provider.setField(cast.owner, cast.name, cast.desc, null, value(obj), context);
-                        break;
-                    }
-                    case GETFIELD: {
-                        JavaValue obj = stack.remove(0);
-                        FieldInsnNode cast = (FieldInsnNode) now;
-                        Type type = Type.getType(cast.desc);
-                        Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                        Object provided = context.provider.getField(cast.owner, cast.name, cast.desc, obj, context);
-                        switch (type.getReturnType().getSort()) {
-                            case Type.BOOLEAN:
-                                stack.add(0, new JavaBoolean((Boolean) provided));
-                                break;
-                            case Type.CHAR:
-                                stack.add(0, new JavaCharacter((Character) provided));
-                                break;
-                            case Type.BYTE:
-                                stack.add(0, new JavaByte((Byte) provided));
-                                break;
-                            case Type.SHORT:
-                                stack.add(0, new JavaShort((Short) provided));
-                                break;
-                            case Type.INT:
-                                stack.add(0, new JavaInteger((Integer) provided));
-                                break;
-                            case Type.FLOAT:
-                                stack.add(0, new JavaFloat((Float) provided));
-                                break;
-                            case Type.LONG:
-                                stack.add(0, new JavaLong((Long) provided));
-                                stack.add(0, new JavaTop());
-                                break;
-                            case Type.DOUBLE:
-                                stack.add(0, new JavaDouble((Double) provided));
-                                stack.add(0, new JavaTop());
-                                break;
-                            case Type.ARRAY:
-                            case Type.OBJECT:
-                                stack.add(0, new JavaObject(provided, "java/lang/Object"));
-                                break;
-                        }
-                        break;
-                    }
-                    case PUTFIELD: {
-                        JavaValue obj = stack.remove(0);
-                        JavaValue instance = stack.remove(0);
-                        FieldInsnNode cast = (FieldInsnNode) now;
-                        context.provider.setField(cast.owner, cast.name, cast.desc, instance, value(obj), context);
-                        break;
-                    }
-                    case INVOKEVIRTUAL: {
-                        MethodInsnNode cast = (MethodInsnNode) now;
-                        Type type = Type.getReturnType(cast.desc);
-                        List<JavaValue> args = new ArrayList<>();
-                        for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                            if (t1.getSort() == Type.LONG || t1.getSort() == Type.DOUBLE) {
-                                if (!(stack.get(0) instanceof JavaTop)) {
-                                    throw new ExecutionException("Expected JavaTop");
-                                }
-                                stack.remove(0);
-                            }
-                            args.add(0, stack.remove(0).copy());
-                        }
-                        args.add(stack.remove(0));
-                        if (context.provider.canInvokeMethod(cast.owner, cast.name, cast.desc, args.get(args.size() - 1), args.subList(0, args.size() - 1), context)) {
-                            Object provided = context.provider.invokeMethod(cast.owner, cast.name, cast.desc, args.get(args.size() - 1), args.subList(0, args.size() - 1), context);
-                            switch (type.getReturnType().getSort()) {
-                                case Type.BOOLEAN:
-                                    stack.add(0, new JavaBoolean((Boolean) provided));
-                                    break;
-                                case Type.CHAR:
-                                    stack.add(0, new JavaCharacter((Character) provided));
-                                    break;
-                                case Type.BYTE:
-                                    stack.add(0, new JavaByte((Byte) provided));
-                                    break;
-                                case Type.SHORT:
-                                    stack.add(0, new JavaShort((Short) provided));
-                                    break;
-                                case Type.INT:
-                                    stack.add(0, new JavaInteger((Integer) provided));
-                                    break;
-                                case Type.FLOAT:
-                                    stack.add(0, new JavaFloat((Float) provided));
-                                    break;
-                                case Type.LONG:
-                                    stack.add(0, new JavaLong((Long) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.DOUBLE:
-                                    stack.add(0, new JavaDouble((Double) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.ARRAY:
-                                case Type.OBJECT:
-                                    stack.add(0, new JavaObject(provided, "java/lang/Object"));
-                                    break;
-                            }
-                        } else {
-                            throw new NoSuchMethodHandlerException("Could not find invoker for " + cast.owner + " " + cast.name + cast.desc);
-                        }
-                        break;
-                    }
-                    case INVOKESPECIAL: {
-                        MethodInsnNode cast = (MethodInsnNode) now;
-                        Type type = Type.getReturnType(cast.desc);
-                        List<JavaValue> args = new ArrayList<>();
-                        for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                            if (t1.getSort() == Type.LONG || t1.getSort() == Type.DOUBLE) {
-                                if (!(stack.get(0) instanceof JavaTop)) {
-                                    throw new ExecutionException("Expected JavaTop");
-                                }
-                                stack.remove(0);
-                            }
-                            args.add(0, stack.remove(0).copy());
-                        }
-                        args.add(stack.remove(0));
-                        if (context.provider.canInvokeMethod(cast.owner, cast.name, cast.desc, args.get(args.size() - 1), args.subList(0, args.size() - 1), context)) {
-                            Object provided = context.provider.invokeMethod(cast.owner, cast.name, cast.desc, args.get(args.size() - 1), args.subList(0, args.size() - 1), context);
-                            switch (type.getReturnType().getSort()) {
-                                case Type.BOOLEAN:
-                                    stack.add(0, new JavaBoolean((Boolean) provided));
-                                    break;
-                                case Type.CHAR:
-                                    stack.add(0, new JavaCharacter((Character) provided));
-                                    break;
-                                case Type.BYTE:
-                                    stack.add(0, new JavaByte((Byte) provided));
-                                    break;
-                                case Type.SHORT:
-                                    stack.add(0, new JavaShort((Short) provided));
-                                    break;
-                                case Type.INT:
-                                    stack.add(0, new JavaInteger((Integer) provided));
-                                    break;
-                                case Type.FLOAT:
-                                    stack.add(0, new JavaFloat((Float) provided));
-                                    break;
-                                case Type.LONG:
-                                    stack.add(0, new JavaLong((Long) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.DOUBLE:
-                                    stack.add(0, new JavaDouble((Double) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.ARRAY:
-                                case Type.OBJECT:
-                                    stack.add(0, new JavaObject(provided, "java/lang/Object"));
-                                    break;
-                            }
-                        } else {
-                            throw new NoSuchMethodHandlerException("Could not find invoker for " + cast.owner + " " + cast.name + cast.desc);
+                for (int i = 0; i < sizes.size() - 1; i++) {
+                    List<Object> temp = new ArrayList<>(currentArray);
+                    currentArray.clear();
+                    int size = sizes.get(i);
+                    for (int s = 0; s < size; s++) {
+                        for (Object o : temp) {
+                            Object created = Array.newInstance(create, sizes.get(i + 1));
+                            currentArray.add(created);
+                            Array.set(o, s, created);
                         }
-                        break;
                     }
-                    case INVOKESTATIC: {
-                        MethodInsnNode cast = (MethodInsnNode) now;
-                        Type type = Type.getReturnType(cast.desc);
-                        List<JavaValue> args = new ArrayList<>();
-                        List<Type> l = new ArrayList<>(Arrays.asList(Type.getArgumentTypes(cast.desc)));
-                        Collections.reverse(l);
-                        for (Type t1 : l) {
-                            if (t1.getSort() == Type.LONG || t1.getSort() == Type.DOUBLE) {
-                                if (!(stack.get(0) instanceof JavaTop)) {
-                                    throw new ExecutionException("Expected JavaTop while invoking " + cast.owner + " " + cast.name + " " + cast.desc + ", but got " + stack.get(0).getClass().getSimpleName());
-                                }
-                                stack.remove(0);
-                            }
-                            args.add(0, stack.remove(0).copy());
-                        }
-                        if (context.provider.canInvokeMethod(cast.owner, cast.name, cast.desc, null, args, context)) {
-                            Object provided = context.provider.invokeMethod(cast.owner, cast.name, cast.desc, null, args, context);
-                            switch (type.getReturnType().getSort()) {
-                                case Type.BOOLEAN:
-                                    stack.add(0, new JavaBoolean((Boolean) provided));
-                                    break;
-                                case Type.CHAR:
-                                    stack.add(0, new JavaCharacter((Character) provided));
-                                    break;
-                                case Type.BYTE:
-                                    stack.add(0, new JavaByte((Byte) provided));
-                                    break;
-                                case Type.SHORT:
-                                    stack.add(0, new JavaShort((Short) provided));
-                                    break;
-                                case Type.INT:
-                                    stack.add(0, new JavaInteger((Integer) provided));
-                                    break;
-                                case Type.FLOAT:
-                                    stack.add(0, new JavaFloat((Float) provided));
-                                    break;
-                                case Type.LONG:
-                                    stack.add(0, new JavaLong((Long) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.DOUBLE:
-                                    stack.add(0, new JavaDouble((Double) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.ARRAY:
-                                case Type.OBJECT:
-                                    stack.add(0, new JavaObject(provided, "java/lang/Object"));
+                }
+                stack.add(0, new JavaObject(root, "java/lang/Object"));
+                break;
+            }
+            default:
+                throw unknownOpcode(now);
+        }
+    }
+
+    private static ExecutionException unknownOpcode(AbstractInsnNode now) {
+        return new ExecutionException("Unknown opcode " + now.getClass().getSimpleName() + " " + now.getOpcode() + " ");
+    }
+
+    /*
+     * Looks for the handler catching the given throwable at the current instruction. If there is one, the stack is
+     * replaced by the throwable and the handler is returned, otherwise null is returned
+     */
+    private static AbstractInsnNode findHandler(MethodNode method, AbstractInsnNode now, Throwable t, List<JavaValue> stack, Context context) {
+        if (method.tryCatchBlocks != null) {
+            for (TryCatchBlockNode tcbn : method.tryCatchBlocks) {
+                if (method.instructions.indexOf(tcbn.start) <= method.instructions.indexOf(now) && method.instructions.indexOf(now) < method.instructions.indexOf(tcbn.end)) {
+                    if (tcbn.type == null || tcbn.type.equals("java/lang/Throwable")) {
+                        stack.clear();
+                        stack.add(new JavaObject(t, "java/lang/Object"));
+                        return tcbn.handler;
+                    } else {
+                        WrappedClassNode wr = context.dictionary.get(Type.getType(t.getClass()).getInternalName());
+                        if (wr.classNode != null) {
+                            ClassNode cn = wr.classNode;
+                            boolean ok = false;
+                            while (cn != null) {
+                                if (cn.name.equals(tcbn.type)) {
+                                    ok = true;
                                     break;
-                            }
-                        } else {
-                            throw new NoSuchMethodHandlerException("Could not find invoker for " + cast.owner + " " + cast.name + cast.desc);
-                        }
-                        break;
-                    }
-                    case INVOKEINTERFACE: {
-                        MethodInsnNode cast = (MethodInsnNode) now;
-                        Type type = Type.getReturnType(cast.desc);
-                        List<JavaValue> args = new ArrayList<>();
-                        for (Type t1 : Type.getArgumentTypes(cast.desc)) {
-                            if (t1.getSort() == Type.LONG || t1.getSort() == Type.DOUBLE) {
-                                if (!(stack.get(0) instanceof JavaTop)) {
-                                    throw new ExecutionException("Expected JavaTop");
                                 }
-                                stack.remove(0);
-                            }
-                            args.add(0, stack.remove(0).copy());
-                        }
-                        args.add(stack.remove(0));
-                        if (context.provider.canInvokeMethod(cast.owner, cast.name, cast.desc, args.get(args.size() - 1), args.subList(0, args.size() - 1), context)) {
-                            Object provided = context.provider.invokeMethod(cast.owner, cast.name, cast.desc, args.get(args.size() - 1), args.subList(0, args.size() - 1), context);
-                            switch (type.getReturnType().getSort()) {
-                                case Type.BOOLEAN:
-                                    stack.add(0, new JavaBoolean((Boolean) provided));
-                                    break;
-                                case Type.CHAR:
-                                    stack.add(0, new JavaCharacter((Character) provided));
-                                    break;
-                                case Type.BYTE:
-                                    stack.add(0, new JavaByte((Byte) provided));
-                                    break;
-                                case Type.SHORT:
-                                    stack.add(0, new JavaShort((Short) provided));
+                                if (cn.superName == null) {
                                     break;
-                                case Type.INT:
-                                    stack.add(0, new JavaInteger((Integer) provided));
-                                    break;
-                                case Type.FLOAT:
-                                    stack.add(0, new JavaFloat((Float) provided));
-                                    break;
-                                case Type.LONG:
-                                    stack.add(0, new JavaLong((Long) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.DOUBLE:
-                                    stack.add(0, new JavaDouble((Double) provided));
-                                    stack.add(0, new JavaTop());
-                                    break;
-                                case Type.ARRAY:
-                                case Type.OBJECT:
-                                    stack.add(0, new JavaObject(provided, "java/lang/Object"));
-                                    break;
-                            }
-                        } else {
-                            throw new NoSuchMethodHandlerException("Could not find invoker for " + cast.owner + " " + cast.name + cast.desc);
-                        }
-                        break;
-                    }
-                    case INVOKEDYNAMIC: {
-                        throw new ExecutionException(new UnsupportedOperationException());
-                    }
-                    case NEW: {
-                        TypeInsnNode cast = (TypeInsnNode) now;
-                        stack.add(0, new JavaObject(cast.desc));
-                        break;
-                    }
-                    case NEWARRAY: {
-                        int len = stack.remove(0).intValue();
-                        IntInsnNode cast = (IntInsnNode) now;
-                        Object add = null;
-                        switch (cast.operand) {
-                            case T_BOOLEAN:
-                                add = new boolean[len];
-                                break;
-                            case T_CHAR:
-                                add = new char[len];
-                                break;
-                            case T_FLOAT:
-                                add = new float[len];
-                                break;
-                            case T_DOUBLE:
-                                add = new double[len];
-                                break;
-                            case T_BYTE:
-                                add = new byte[len];
-                                break;
-                            case T_SHORT:
-                                add = new short[len];
-                                break;
-                            case T_INT:
-                                add = new int[len];
-                                break;
-                            case T_LONG:
-                                add = new long[len];
-                                break;
-                            default:
-                                throw new ExecutionException("Unknown newarray type " + cast.operand);
-                        }
-                        stack.add(0, new JavaObject(add, "java/lang/Object"));
-                        break;
-                    }
-                    case ANEWARRAY: {
-                        int len = stack.remove(0).intValue();
-                        stack.add(0, new JavaObject(new Object[len], "java/lang/Object"));
-                        break;
-                    }
-                    case ARRAYLENGTH: {
-                        JavaValue obj = stack.remove(0);
-                        if (VERIFY && obj.value() == null) {
-                            throw new ExecutionException("Array is null");
-                        }
-                        int len = Array.getLength(obj.value());
-                        stack.add(0, new JavaInteger(len));
-                        break;
-                    }
-                    case ATHROW: {
-                        Object throwable = stack.remove(0).value();
-                        if (throwable instanceof Throwable) {
-                            toThrow = (Throwable) throwable;
-                            break;
-                        } else if (throwable == null) {
-                            NullPointerException exception = new NullPointerException();
-                            exception.setStackTrace(context.getStackTrace());
-                            toThrow = exception;
-                            break;
-                        } else {
-                            throw new ExecutionException("Expected a throwable on stack");
-                        }
-                    }
-                    case CHECKCAST: {
-                        TypeInsnNode cast = (TypeInsnNode) now;
-                        JavaValue obj = stack.get(0);
-                        if (obj.value() != null) {
-                            if (context.provider.canCheckcast(obj, Type.getType(cast.desc), context)) {
-                                if (!context.provider.checkcast(obj, Type.getType(cast.desc), context)) {
-                                    throw new ClassCastException(cast.desc);
                                 }
-                            } else {
-                                throw new NoSuchComparisonHandlerException("No comparator found for " + cast.desc);
-                            }
-                        }
-                        break;
-                    }
-                    case INSTANCEOF: {
-                        TypeInsnNode cast = (TypeInsnNode) now;
-                        JavaValue obj = stack.remove(0);
-                        if (context.provider.canCheckInstanceOf(obj, Type.getType(cast.desc), context)) {
-                            boolean is = context.provider.instanceOf(obj, Type.getType(cast.desc), context);
-                            stack.add(0, new JavaInteger(is ? 1 : 0));
-                        } else {
-                            throw new NoSuchComparisonHandlerException("No comparator found for " + cast.desc);
-                        }
-                        break;
-                    }
-                    case MONITORENTER: { //TODO Actually implement
-                        stack.remove(0);
-                        break;
-                    }
-                    case MONITOREXIT: {
-                        stack.remove(0);
-                        break;
-                    }
-                    case MULTIANEWARRAY: {
-                        MultiANewArrayInsnNode cast = (MultiANewArrayInsnNode) now;
-                        List<Integer> sizes = new ArrayList<>();
-                        for (int i = 0; i < cast.dims; i++) {
-                            sizes.add(0, stack.remove(0).intValue());
-                        }
-                        Type type = Type.getType(cast.desc);
-                        Class<?> clazz = PrimitiveUtils.getPrimitiveByName(type.getClassName());
-                        Class<?> create = clazz == null ? Object.class : clazz;
-                        Object root = Array.newInstance(create, sizes.get(0));
-                        List<Object> currentArray = new ArrayList<>();
-                        currentArray.add(root);
-
-                        for (int i = 0; i < sizes.size() - 1; i++) {
-                            List<Object> temp = new ArrayList<>(currentArray);
-                            currentArray.clear();
-                            int size = sizes.get(i);
-                            for (int s = 0; s < size; s++) {
-                                for (Object o : temp) {
-                                    Object created = Array.newInstance(create, sizes.get(i + 1));
-                                    currentArray.add(created);
-                                    Array.set(o, s, created);
-                                }
-                            }
-                        }
-                        stack.add(0, new JavaObject(root, "java/lang/Object"));
-                        break;
-                    }
-                    case IFNULL: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue obj = stack.remove(0);
-                        if (obj.value() == null) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case IFNONNULL: {
-                        JumpInsnNode cast = (JumpInsnNode) now;
-                        JavaValue obj = stack.remove(0);
-                        if (obj.value() != null) {
-                            now = cast.label;
-                        }
-                        break;
-                    }
-                    case -1: {
-                        break;
-                    }
-                    default: {
-                        throw new ExecutionException("Unknown opcode " + now.getClass().getSimpleName() + " " + now.getOpcode() + " ");
-                    }
-                }
-
-                if (toThrow != null) {
-                    if (DEBUG_PRINT_EXCEPTIONS) {
-                        toThrow.printStackTrace(System.out);
-                    }
-                    if (method.tryCatchBlocks != null) {
-                        for (TryCatchBlockNode tcbn : method.tryCatchBlocks) {
-                            if (method.instructions.indexOf(tcbn.start) <= method.instructions.indexOf(now) && method.instructions.indexOf(now) < method.instructions.indexOf(tcbn.end)) {
-                                if (tcbn.type == null || tcbn.type.equals("java/lang/Throwable")) {
-                                    stack.clear();
-                                    stack.add(new JavaObject(toThrow, "java/lang/Object"));
-                                    now = tcbn.handler;
-                                    continue forever;
-                                } else {
-                                    WrappedClassNode wr = context.dictionary.get(Type.getType(toThrow.getClass()).getInternalName());
-                                    if (wr.classNode != null) {
-                                        ClassNode cn = wr.classNode;
-                                        boolean ok = false;
-                                        while (cn != null) {
-                                            if (cn.name.equals(tcbn.type)) {
-                                                ok = true;
-                                                break;
-                                            }
-                                            if (cn.superName == null) {
-                                                break;
-                                            }
-                                            wr = context.dictionary.get(cn.superName);
-                                            if (wr != null) {
-                                                cn = wr.classNode;
-                                            }
-                                        }
-                                        if (ok) {
-                                            stack.clear();
-                                            stack.add(new JavaObject(toThrow, "java/lang/Object"));
-                                            now = tcbn.handler;
-                                            continue forever;
-                                        }
-                                    }
+                                wr = context.dictionary.get(cn.superName);
+                                if (wr != null) {
+                                    cn = wr.classNode;
                                 }
                             }
-                        }
-                    }
-                    throw new ExecutionException(toThrow);
-                }
-                now = now.getNext();
-            } catch (ExecutionException e) {
-                if (e.clazz.isEmpty()) {
-                    e.clazz = classNode.classNode.name;
-                    e.method = method.name + method.desc;
-                }
-                throw e;
-            } catch (Throwable t) {
-                if (DEBUG_PRINT_EXCEPTIONS) {
-                    t.printStackTrace(System.out);
-                }
-                if (method.tryCatchBlocks != null) {
-                    for (TryCatchBlockNode tcbn : method.tryCatchBlocks) {
-                        if (method.instructions.indexOf(tcbn.start) <= method.instructions.indexOf(now) && method.instructions.indexOf(now) < method.instructions.indexOf(tcbn.end)) {
-                            if (tcbn.type == null || tcbn.type.equals("java/lang/Throwable")) {
+                            if (ok) {
                                 stack.clear();
                                 stack.add(new JavaObject(t, "java/lang/Object"));
-                                now = tcbn.handler;
-                                continue forever;
-                            } else {
-                                WrappedClassNode wr = context.dictionary.get(Type.getType(t.getClass()).getInternalName());
-                                if (wr.classNode != null) {
-                                    ClassNode cn = wr.classNode;
-                                    boolean ok = false;
-                                    while (cn != null) {
-                                        if (cn.name.equals(tcbn.type)) {
-                                            ok = true;
-                                            break;
-                                        }
-                                        if (cn.superName == null) {
-                                            break;
-                                        }
-                                        wr = context.dictionary.get(cn.superName);
-                                        if (wr != null) {
-                                            cn = wr.classNode;
-                                        }
-                                    }
-                                    if (ok) {
-                                        stack.clear();
-                                        stack.add(new JavaObject(t, "java/lang/Object"));
-                                        now = tcbn.handler;
-                                        continue forever;
-                                    }
-                                }
+                                return tcbn.handler;
                             }
                         }
                     }
                 }
-                Utils.sneakyThrow(t);
-                return null;
             }
         }
+        return null;
     }
 }
@@ -0,0 +1,291 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Static field values and initialized classes of one interpreted "JVM". Attach the same instance to every
+ * {@link Context} which should observe the same class initialization, and each {@code <clinit>} only runs once.
+ * <p>
+ * Once the interesting classes are initialized, {@link #snapshot()} freezes the state. A snapshot is immutable and
+ * can be shared between threads; each worker then calls {@link #fork()} to get its own copy-on-write view. A fork
+ * only copies the values it actually reads, and preserves aliasing between them. Forks themselves are not
+ * thread-safe and should not be shared.
+ * <p>
+ * Copies are deep for arrays, interpreted {@link JavaInstance}s, {@link StringBuilder}s, {@link StringBuffer}s and
+ * the common {@code java.util} lists, sets and maps. Any other object is assumed to be immutable and is shared by
+ * the snapshot and all of its forks, so a static holding some other mutable object is not isolated between forks.
+ * <p>
+ * Values are stored in one array per class, indexed by the {@link MappedFieldProvider.FieldSlot}s of the provider
+ * which resolved the fields, so every context sharing a state must also share that provider.
+ */
+public class StaticState {
+    private static final Set<Class<?>> COLLECTIONS = new HashSet<>(Arrays.asList(ArrayList.class, LinkedList.class, Vector.class, ArrayDeque.class, HashSet.class, LinkedHashSet.class));
+    private static final Set<Class<?>> MAPS = new HashSet<>(Arrays.asList(HashMap.class, LinkedHashMap.class, Hashtable.class, IdentityHashMap.class));
+    private static final Object UNSET = new Object();
+
+    private final StaticState parent;
+    private final Map<Object, Object[]> fields;
+    private final Set<String> initialized;
+    private final Set<String> failed;
+    private final Map<Object, Object> copies;
+    private final boolean frozen;
+    private final Context.Frame callTree;
+
+    public StaticState() {
+        this(null, new IdentityHashMap<>(), new HashSet<>(), new HashSet<>(), false, Context.Frame.root());
+    }
+
+    private StaticState(StaticState parent, Map<Object, Object[]> fields, Set<String> initialized, Set<String> failed, boolean frozen, Context.Frame callTree) {
+        this.parent = parent;
+        this.fields = fields;
+        this.initialized = initialized;
+        this.failed = failed;
+        this.copies = parent == null ? null : new IdentityHashMap<>();
+        this.frozen = frozen;
+        this.callTree = callTree;
+    }
+
+    /**
+     * Marks the class as being initialized. This happens before its initializer runs, so that the initializer can
+     * access its own class, just like on the JVM.
+     *
+     * @return true if the class was not initialized before and its initializer should run now
+     */
+    public boolean markInitialized(String className) {
+        checkMutable();
+        if (parent != null && parent.initialized.contains(className)) {
+            return false;
+        }
+        return initialized.add(className);
+    }
+
+    public boolean isInitialized(String className) {
+        return initialized.contains(className) || (parent != null && parent.initialized.contains(className));
+    }
+
+    /**
+     * Records that the initializer of the class threw. Like the JVM, the class stays unusable from then on.
+     */
+    public void markFailed(String className) {
+        checkMutable();
+        failed.add(className);
+    }
+
+    public boolean hasFailed(String className) {
+        return failed.contains(className) || (parent != null && parent.failed.contains(className));
+    }
+
+    public Object getField(MappedFieldProvider.FieldSlot slot) {
+        checkMutable();
+        Object value = read(slot.getDeclaringClass(), slot.getIndex());
+        if (value == UNSET) {
+            Object inherited = parent == null ? UNSET : parent.read(slot.getDeclaringClass(), slot.getIndex());
+            if (inherited == UNSET) {
+                return defaultValue(slot.getDesc());
+            }
+            value = copy(inherited, copies);
+            values(slot.getDeclaringClass(), slot.getIndex())[slot.getIndex()] = value;
+        }
+        return value;
+    }
+
+    public void setField(MappedFieldProvider.FieldSlot slot, Object value) {
+        checkMutable();
+        values(slot.getDeclaringClass(), slot.getIndex())[slot.getIndex()] = value;
+    }
+
+    private Object read(Object declaringClass, int index) {
+        Object[] values = fields.get(declaringClass);
+        return values != null && index < values.length ? values[index] : UNSET;
+    }
+
+    /**
+     * @return the values of the class, grown to hold the given index
+     */
+    private Object[] values(Object declaringClass, int index) {
+        Object[] values = fields.get(declaringClass);
+        if (values == null || index >= values.length) {
+            Object[] grown = new Object[Math.max(index + 1, values == null ? 0 : values.length * 2)];
+            Arrays.fill(grown, UNSET);
+            if (values != null) {
+                System.arraycopy(values, 0, grown, 0, values.length);
+            }
+            fields.put(declaringClass, values = grown);
+        }
+        return values;
+    }
+
+    /**
+     * Freezes the current state into an immutable snapshot. Mutable values are copied, so this state can keep being
+     * used.
+     */
+    public StaticState snapshot() {
+        Map<Object, Object> copied = new IdentityHashMap<>();
+        Map<Object, Object[]> frozenFields = new IdentityHashMap<>();
+        Set<String> frozenInitialized = new HashSet<>(initialized);
+        Set<String> frozenFailed = new HashSet<>(failed);
+        if (parent != null) {
+            for (Map.Entry<Object, Object[]> entry : parent.fields.entrySet()) {
+                frozenFields.put(entry.getKey(), copyValues(entry.getValue(), null, copied));
+            }
+            frozenInitialized.addAll(parent.initialized);
+            frozenFailed.addAll(parent.failed);
+        }
+        for (Map.Entry<Object, Object[]> entry : fields.entrySet()) {
+            frozenFields.put(entry.getKey(), copyValues(entry.getValue(), frozenFields.get(entry.getKey()), copied));
+        }
+        return new StaticState(null, Collections.unmodifiableMap(frozenFields), Collections.unmodifiableSet(frozenInitialized), Collections.unmodifiableSet(frozenFailed), true, callTree);
+    }
+
+    /**
+     * @return a cheap copy-on-write view of this snapshot
+     */
+    public StaticState fork() {
+        if (!frozen) {
+            throw new IllegalStateException("Only snapshots can be forked");
+        }
+        return new StaticState(this, new IdentityHashMap<>(), new HashSet<>(), new HashSet<>(), false, callTree);
+    }
+
+    /**
+     * @return the root of the call stacks interned by the contexts using this state, its snapshots and their forks
+     */
+    Context.Frame getCallTree() {
+        return callTree;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("Snapshots are read-only, use fork()");
+        }
+    }
+
+    /**
+     * Copies the values of one class, keeping the already copied inherited values where they are unset
+     */
+    private static Object[] copyValues(Object[] values, Object[] inherited, Map<Object, Object> copies) {
+        Object[] copy = new Object[Math.max(values.length, inherited == null ? 0 : inherited.length)];
+        for (int i = 0; i < copy.length; i++) {
+            Object value = i < values.length ? values[i] : UNSET;
+            if (value != UNSET) {
+                copy[i] = copy(value, copies);
+            } else {
+                copy[i] = inherited != null && i < inherited.length ? inherited[i] : UNSET;
+            }
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object value, Map<Object, Object> copies) {
+        if (value == null) {
+            return null;
+        }
+        Object copy = copies.get(value);
+        if (copy != null) {
+            return copy;
+        }
+        if (value instanceof JavaInstance) {
+            JavaInstance instance = new JavaInstance(((JavaInstance) value).getType());
+            copies.put(value, instance);
+            ((JavaInstance) value).copyFields(instance, field -> copy(field, copies));
+            return instance;
+        }
+        if (value instanceof StringBuilder) {
+            copy = new StringBuilder((StringBuilder) value);
+            copies.put(value, copy);
+            return copy;
+        }
+        if (value instanceof StringBuffer) {
+            copy = new StringBuffer((StringBuffer) value);
+            copies.put(value, copy);
+            return copy;
+        }
+        if (COLLECTIONS.contains(value.getClass())) {
+            Collection<Object> collection = (Collection<Object>) newInstance(value.getClass());
+            copies.put(value, collection);
+            for (Object element : (Collection<Object>) value) {
+                collection.add(copy(element, copies));
+            }
+            return collection;
+        }
+        if (MAPS.contains(value.getClass())) {
+            Map<Object, Object> map = (Map<Object, Object>) newInstance(value.getClass());
+            copies.put(value, map);
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+                map.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+            }
+            return map;
+        }
+        if (!value.getClass().isArray()) {
+            return value;
+        }
+        int length = Array.getLength(value);
+        copy = Array.newInstance(value.getClass().getComponentType(), length);
+        copies.put(value, copy);
+        if (value instanceof Object[]) {
+            Object[] source = (Object[]) value;
+            Object[] target = (Object[]) copy;
+            for (int i = 0; i < length; i++) {
+                target[i] = copy(source[i], copies);
+            }
+        } else {
+            System.arraycopy(value, 0, copy, 0, length);
+        }
+        return copy;
+    }
+
+    private static Object newInstance(Class<?> clazz) {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Object defaultValue(String desc) {
+        switch (Type.getType(desc).getSort()) {
+            case Type.BOOLEAN:
+                return false;
+            case Type.CHAR:
+                return '\u0000';
+            case Type.BYTE:
+                return (byte) 0;
+            case Type.SHORT:
+                return (short) 0;
+            case Type.INT:
+                return 0;
+            case Type.FLOAT:
+                return 0.0f;
+            case Type.LONG:
+                return 0L;
+            case Type.DOUBLE:
+                return 0.0d;
+            default:
+                return null;
+        }
+    }
+}
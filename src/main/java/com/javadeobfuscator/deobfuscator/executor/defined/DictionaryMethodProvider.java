@@ -23,6 +23,7 @@ import java.util.Map;
 import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
 import com.javadeobfuscator.deobfuscator.executor.Context;
 ;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
 import com.javadeobfuscator.deobfuscator.executor.providers.MethodProvider;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
@@ -42,6 +43,9 @@ public class DictionaryMethodProvider extends MethodProvider {
             ClassNode classNode = wrappedClassNode.classNode;
             MethodNode methodNode = classNode.methods.stream().filter(mn -> mn.name.equals(methodName) && mn.desc.equals(methodDesc)).findFirst().orElseGet(null);
             if (methodNode != null) {
+                if (methodName.equals("<init>") && targetObject != null && targetObject.value() == null) {
+                    targetObject.initialize(new JavaInstance(className));
+                }
                 List<JavaValue> argsClone = new ArrayList<>();
                 for (JavaValue arg : args) {
                     argsClone.add(arg.copy());
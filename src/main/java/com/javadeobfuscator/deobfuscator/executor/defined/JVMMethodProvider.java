@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -41,6 +42,7 @@ import com.javadeobfuscator.deobfuscator.executor.Context;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaClass;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaConstantPool;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaField;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaMethod;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaMethodHandle;
 import com.javadeobfuscator.deobfuscator.executor.providers.MethodProvider;
@@ -48,307 +50,306 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
 import org.jooq.lambda.tuple.Tuple3;
 
 public class JVMMethodProvider extends MethodProvider {
-    @SuppressWarnings("serial")
+    /**
+     * Emulations of JDK methods, by owner, name and descriptor. Every provider starts with a copy.
+     */
+    private static final Map<String, Map<String, Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>>>> DEFAULTS = new HashMap<>();
+
     //@formatter:off
-    private static final Map<String, Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>>> functions = new HashMap<String, Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>>>() {{
-        put("java/lang/Object", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getClass()Ljava/lang/Class;", (targetObject, args, context) -> {
-                return new JavaClass(Type.getType(targetObject.value().getClass()).getInternalName(), context);
-            });
-        }});
-        put("java/util/zip/ZipInputStream", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>(Ljava/io/InputStream;)V", (targetObject, args, context) -> {
-                System.out.println("New ZipInputStream with " + args.get(0).value());
-                targetObject.initialize(new ZipInputStream(args.get(0).as(InputStream.class)));
-                return null;
-            });
-        }});
-        put("java/nio/charset/Charset", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("availableCharsets()Ljava/util/SortedMap;", (targetObject, args, context) -> Charset.availableCharsets());
-        }});
-        put("java/util/SortedMap", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("keySet()Ljava/util/Set;", (targetObject, args, context) -> targetObject.as(SortedMap.class).keySet());
-        }});
-        put("java/util/Set", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("iterator()Ljava/util/Iterator;", (targetObject, args, context) -> targetObject.as(Set.class).iterator());
-        }});
-        put("java/util/Iterator", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("hasNext()Z", (targetObject, args, context) -> targetObject.as(Iterator.class).hasNext());
-            put("next()Ljava/lang/Object;", (targetObject, args, context) -> targetObject.as(Iterator.class).next());
-        }});
-        put("java/io/ByteArrayOutputStream", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>()V", (targetObject, args, context) -> {
-                targetObject.initialize(new ByteArrayOutputStream());
-                return null;
-            });
-            put("close()V", (targetObject, args, context) -> {
-                try {
-                    targetObject.as(ByteArrayOutputStream.class).close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-                return null;
-            });
-            put("toByteArray()[B", (targetObject, args, context) -> targetObject.as(ByteArrayOutputStream.class).toByteArray());
-            put("write([B)V", (targetObject, args, context) -> {
-                try {
-                    targetObject.as(ByteArrayOutputStream.class).write(args.get(0).as(byte[].class));
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-                return null;
-            });
-        }});
-        put("java/lang/String", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>([CII)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/String");
-                targetObject.initialize(new String(args.get(0).as(char[].class), args.get(1).intValue(), args.get(2).intValue()));
-                return null;
-            });
-            put("<init>([C)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/String");
-                targetObject.initialize(new String(args.get(0).as(char[].class)));
-                return null;
-            });
-            put("intern()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).intern());
-            put("equals(Ljava/lang/Object;)Z", (targetObject, args, context) -> targetObject.as(String.class).equals(args.get(0).value()));
-            put("trim()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).trim());
-            put("toCharArray()[C", (targetObject, args, context) -> targetObject.as(String.class).toCharArray());
-            put("length()I", (targetObject, args, context) -> targetObject.as(String.class).length());
-            put("hashCode()I", (targetObject, args, context) -> targetObject.as(String.class).hashCode());
-            put("charAt(I)C", (targetObject, args, context) -> targetObject.as(String.class).charAt(args.get(0).intValue()));
-            put("indexOf(I)I", (targetObject, args, context) -> targetObject.as(String.class).indexOf(args.get(0).intValue()));
-            put("substring(I)Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).substring(args.get(0).intValue()));
-            put("substring(II)Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).substring(args.get(0).intValue(), args.get(1).intValue()));
-            put("indexOf(II)I", (targetObject, args, context) -> targetObject.as(String.class).indexOf(args.get(0).intValue(), args.get(1).intValue()));
-            put("lastIndexOf(I)I", (targetObject, args, context) -> targetObject.as(String.class).lastIndexOf(args.get(0).intValue()));
-            put("split(Ljava/lang/String;)[Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).split(args.get(0).as(String.class)));
-            put("valueOf(Ljava/lang/Object;)Ljava/lang/String;", (targetObject, args, context) -> String.valueOf(args.get(0).value()));
-            put("getBytes(Ljava/lang/String;)[B", (targetObject, args, context) -> {
-                try {
-                    return targetObject.as(String.class).getBytes(args.get(0).as(String.class));
-                } catch (UnsupportedEncodingException e) {
-                    throw new ExecutionException(e);
-                }
-            });
-            put("valueOf([CII)Ljava/lang/String;", (targetObject, args, context) -> String.valueOf(args.get(0).as(char[].class), args.get(1).intValue(), args.get(2).intValue()));
-        }});
-        put("java/lang/StringBuilder", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>()V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/StringBuilder");
-                targetObject.initialize(new StringBuilder());
-                return null;
-            });
-            put("<init>(Ljava/lang/String;)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/StringBuilder");
-                targetObject.initialize(new StringBuilder(args.get(0).as(String.class)));
-                return null;
-            });
-            put("append(I)Ljava/lang/StringBuilder;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).append(args.get(0).intValue()));
-            put("append(C)Ljava/lang/StringBuilder;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).append(args.get(0).as(char.class)));
-            put("append(Ljava/lang/String;)Ljava/lang/StringBuilder;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).append(args.get(0).as(String.class)));
-            put("toString()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).toString());
-            put("length()I", (targetObject, args, context) -> targetObject.as(StringBuilder.class).length());
-            put("charAt(I)C", (targetObject, args, context) -> targetObject.as(StringBuilder.class).charAt(args.get(0).intValue()));
-            put("setCharAt(IC)V", (targetObject, args, context) -> {
-                targetObject.as(StringBuilder.class).setCharAt(args.get(0).intValue(), (char) ((JavaCharacter) args.get(1)).charValue());
-                return null;
-            });
-        }});
-        put("java/lang/StringBuffer", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>(Ljava/lang/String;)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/StringBuffer");
-                targetObject.initialize(new StringBuffer(args.get(0).as(String.class)));
-                return null;
-            });
-            put("<init>(I)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/StringBuffer");
-                targetObject.initialize(new StringBuffer(args.get(0).intValue()));
-                return null;
-            });
-            put("<init>()V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/StringBuffer");
-                targetObject.initialize(new StringBuffer());
-                return null;
-            });
-            put("insert(ILjava/lang/String;)Ljava/lang/StringBuffer;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).insert(args.get(0).intValue(), args.get(1).as(String.class)));
-            put("append(Ljava/lang/String;)Ljava/lang/StringBuffer;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).append(args.get(0).as(String.class)));
-            put("append(C)Ljava/lang/StringBuffer;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).append(args.get(0).as(char.class)));
-            put("toString()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).toString());
-        }});
-        put("java/lang/Exception", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>()V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/Exception");
-                targetObject.initialize(null);
-                return null;
-            });
-            put("getStackTrace()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> context.getStackTrace());
-            put("toString()Ljava/lang/String;", (targetObject, args, context) -> targetObject.toString());
-        }});
-        put("java/lang/Throwable", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>()V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/Throwable");
-                targetObject.initialize(null);
-                return null;
-            });
-            put("getStackTrace()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> context.getStackTrace());
-            put("toString()Ljava/lang/String;", (targetObject, args, context) -> targetObject.toString());
-        }});
-        put("java/lang/NullPointerException", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>()V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/NullPointerException");
-                targetObject.initialize(null);
-                return null;
-            });
-            put("getStackTrace()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> context.getStackTrace());
-            put("toString()Ljava/lang/String;", (targetObject, args, context) -> targetObject.toString());
-        }});
-        put("java/lang/RuntimeException", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>(Ljava/lang/String;)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/RuntimeException");
-                targetObject.initialize(args.get(0).value());
-                return null;
-            });
-        }});
-        put("java/lang/Class", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("forName(Ljava/lang/String;)Ljava/lang/Class;", (targetObject, args, context) -> new JavaClass(args.get(0).as(String.class), context));
-            put("getDeclaredMethod(Ljava/lang/String;[Ljava/lang/Class;)Ljava/lang/reflect/Method;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getDeclaredMethod(args.get(0).as(String.class), toJavaClass(args.get(1).as(Object[].class))));
-            put("getDeclaredMethods()[Ljava/lang/reflect/Method;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getDeclaredMethods());
-            put("getDeclaredFields()[Ljava/lang/reflect/Field;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getDeclaredFields());
-            put("getClassLoader()Ljava/lang/ClassLoader;", (targetObject, args, context) -> null);
-            put("getName()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getName());
-            put("getSuperclass()Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getSuperclass());
-            put("getInterfaces()[Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getInterfaces());
-            put("getProtectionDomain()Ljava/security/ProtectionDomain;", (targetObject, args, context) -> new ProtectionDomain(new CodeSource(context.file.toURI().toURL(), new Certificate[0]), null));
-        }});
-        put("java/security/ProtectionDomain", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getCodeSource()Ljava/security/CodeSource;", (targetObject, args, context) -> targetObject.as(ProtectionDomain.class).getCodeSource());
-        }});
-        put("java/security/CodeSource", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getLocation()Ljava/net/URL;", (targetObject, args, context) -> targetObject.as(CodeSource.class).getLocation());
-        }});
-        put("java/net/URL", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            // Probably not an issue because you can't construct URLs yet
-            put("openStream()Ljava/io/InputStream;", (targetObject, args, context) -> {
-                URL url = targetObject.as(URL.class);
-                if (url.getProtocol().equals("file")) {
-                    return url.openStream();
-                }
-                throw new ExecutionException("Disallowed opening URL for now");
-            });
-        }});
-        put("java/util/zip/ZipInputStream", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>(Ljava/io/InputStream;)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/util/zip/ZipInputStream");
-                targetObject.initialize(new ZipInputStream(args.get(0).as(InputStream.class)));
-                return null;
-            });
-            put("getNextEntry()Ljava/util/zip/ZipEntry;", (targetObject, args, context) -> targetObject.as(ZipInputStream.class).getNextEntry());
-            put("closeEntry()V", (targetObject, args, context) -> {
-                targetObject.as(ZipInputStream.class).closeEntry();
-                return null;
-            });
-        }});
-        put("java/util/zip/ZipEntry", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getName()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(ZipEntry.class).getName());
-            put("getExtra()[B", (targetObject, args, context) -> targetObject.as(ZipEntry.class).getExtra());
-        }});
-        put("java/lang/reflect/Method", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getName()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).getName());
-            put("getReturnType()Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).getReturnType());
-            put("getParameterTypes()[Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).getParameterTypes());
-            put("setAccessible(Z)V", (targetObject, args, context) -> {
-                targetObject.as(JavaMethod.class).setAccessible(args.get(0).as(boolean.class));
-                return null;
-            });
-            put("hashCode()I", (targetObject, args, context) -> targetObject.as(JavaMethod.class).hashCode());
-            put("invoke(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).invoke(args.get(0), args.get(1).as(Object[].class)));
-        }});
-        put("java/lang/reflect/Field", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getName()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(JavaField.class).getName());
-            put("getType()Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaField.class).getType());
-        }});
-        put("java/lang/invoke/MethodType", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("fromMethodDescriptorString(Ljava/lang/String;Ljava/lang/ClassLoader;)Ljava/lang/invoke/MethodType;", (targetObject, args, context) -> args.get(0).value());
-        }});
-        put("java/lang/invoke/MethodHandles$Lookup", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("findStatic(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/MethodHandle;", (targetObject, args, context) -> new JavaMethodHandle(args.get(0).as(JavaClass.class).getType().getInternalName(), args.get(1).as(String.class), args.get(2).as(String.class), "static"));
-            put("findVirtual(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/MethodHandle;", (targetObject, args, context) -> new JavaMethodHandle(args.get(0).as(JavaClass.class).getType().getInternalName(), args.get(1).as(String.class), args.get(2).as(String.class), "virtual"));
-        }});
-        put("java/lang/invoke/MethodHandle", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("asType(Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/MethodHandle;", (targetObject, args, context) -> targetObject.value());
-        }});
-        put("java/lang/invoke/ConstantCallSite", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>(Ljava/lang/invoke/MethodHandle;)V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/invoke/ConstantCallSite");
-                targetObject.initialize(args.get(0).value());
-                return null;
-            });
-        }});
-        put("java/lang/System", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("currentTimeMillis()J", (targetObject, args, context) -> System.currentTimeMillis());
-            put("arraycopy(Ljava/lang/Object;ILjava/lang/Object;II)V", (targetObject, args, context) -> {
-                System.arraycopy(args.get(0).value(), args.get(1).intValue(), args.get(2).value(), args.get(3).intValue(), args.get(4).intValue());
-                return null;
-            });
-        }});
-        put("java/lang/Thread", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("currentThread()Ljava/lang/Thread;", (targetObject, args, context) -> null);
-            put("getStackTrace()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> {
-                context.push("java.lang.Thread", "getStackTrace", 0);
-                StackTraceElement[] elems = context.getStackTrace();
-                context.pop();
-                return elems;
-            });
-        }});
-        put("sun/misc/SharedSecrets", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getJavaLangAccess()Lsun/misc/JavaLangAccess;", (targetObject, args, context) -> null);
-        }});
-        put("java/lang/StackTraceElement", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getClassName()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StackTraceElement.class).getClassName());
-            put("getMethodName()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StackTraceElement.class).getMethodName());
-        }});
-        put("sun/misc/JavaLangAccess", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getConstantPool(Ljava/lang/Class;)Lsun/reflect/ConstantPool;", (targetObject, args, context) -> new JavaConstantPool(args.get(0).as(JavaClass.class)));
-        }});
-        put("sun/reflect/ConstantPool", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("getSize()I", (targetObject, args, context) -> targetObject.as(JavaConstantPool.class).getSize());
-        }});
-        put("java/lang/Long", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("parseLong(Ljava/lang/String;)J", (targetObject, args, context) -> Long.parseLong(args.get(0).as(String.class)));
-            put("parseLong(Ljava/lang/String;I)J", (targetObject, args, context) -> Long.parseLong(args.get(0).as(String.class), args.get(1).intValue()));
-        }});
-        put("java/lang/Integer", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("parseInt(Ljava/lang/String;)I", (targetObject, args, context) -> Integer.parseInt(args.get(0).as(String.class)));
-        }});
-        put("java/util/regex/Pattern", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("compile(Ljava/lang/String;)Ljava/util/regex/Pattern;", (targetObject, args, context) -> Pattern.compile(args.get(0).as(String.class)));
-        }});
-        put("java/lang/BootstrapMethodError", new HashMap<String, Function3<JavaValue, List<JavaValue>, Context, Object>>() {{
-            put("<init>()V", (targetObject, args, context) -> {
-                expect(targetObject, "java/lang/BootstrapMethodError");
-                targetObject.initialize(new BootstrapMethodError());
-                return null;
-            });
-        }});
-    }};
+    static {
+        define("java/lang/Object", "<init>", "()V", (targetObject, args, context) -> null);
+        define("java/lang/Object", "getClass", "()Ljava/lang/Class;", (targetObject, args, context) -> {
+            if (targetObject.value() instanceof JavaInstance) {
+                return new JavaClass(targetObject.as(JavaInstance.class).getType(), context);
+            }
+            return new JavaClass(Type.getType(targetObject.value().getClass()).getInternalName(), context);
+        });
+
+        define("java/nio/charset/Charset", "availableCharsets", "()Ljava/util/SortedMap;", (targetObject, args, context) -> Charset.availableCharsets());
+
+        define("java/util/SortedMap", "keySet", "()Ljava/util/Set;", (targetObject, args, context) -> targetObject.as(SortedMap.class).keySet());
+
+        define("java/util/Set", "iterator", "()Ljava/util/Iterator;", (targetObject, args, context) -> targetObject.as(Set.class).iterator());
+
+        define("java/util/Iterator", "hasNext", "()Z", (targetObject, args, context) -> targetObject.as(Iterator.class).hasNext());
+        define("java/util/Iterator", "next", "()Ljava/lang/Object;", (targetObject, args, context) -> targetObject.as(Iterator.class).next());
+
+        define("java/io/ByteArrayOutputStream", "<init>", "()V", (targetObject, args, context) -> {
+            targetObject.initialize(new ByteArrayOutputStream());
+            return null;
+        });
+        define("java/io/ByteArrayOutputStream", "close", "()V", (targetObject, args, context) -> {
+            try {
+                targetObject.as(ByteArrayOutputStream.class).close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
+        });
+        define("java/io/ByteArrayOutputStream", "toByteArray", "()[B", (targetObject, args, context) -> targetObject.as(ByteArrayOutputStream.class).toByteArray());
+        define("java/io/ByteArrayOutputStream", "write", "([B)V", (targetObject, args, context) -> {
+            try {
+                targetObject.as(ByteArrayOutputStream.class).write(args.get(0).as(byte[].class));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
+        });
+
+        define("java/lang/String", "<init>", "([CII)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/String");
+            targetObject.initialize(new String(args.get(0).as(char[].class), args.get(1).intValue(), args.get(2).intValue()));
+            return null;
+        });
+        define("java/lang/String", "<init>", "([C)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/String");
+            targetObject.initialize(new String(args.get(0).as(char[].class)));
+            return null;
+        });
+        define("java/lang/String", "intern", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).intern());
+        define("java/lang/String", "equals", "(Ljava/lang/Object;)Z", (targetObject, args, context) -> targetObject.as(String.class).equals(args.get(0).value()));
+        define("java/lang/String", "trim", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).trim());
+        define("java/lang/String", "toCharArray", "()[C", (targetObject, args, context) -> targetObject.as(String.class).toCharArray());
+        define("java/lang/String", "length", "()I", (targetObject, args, context) -> targetObject.as(String.class).length());
+        define("java/lang/String", "hashCode", "()I", (targetObject, args, context) -> targetObject.as(String.class).hashCode());
+        define("java/lang/String", "charAt", "(I)C", (targetObject, args, context) -> targetObject.as(String.class).charAt(args.get(0).intValue()));
+        define("java/lang/String", "indexOf", "(I)I", (targetObject, args, context) -> targetObject.as(String.class).indexOf(args.get(0).intValue()));
+        define("java/lang/String", "substring", "(I)Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).substring(args.get(0).intValue()));
+        define("java/lang/String", "substring", "(II)Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).substring(args.get(0).intValue(), args.get(1).intValue()));
+        define("java/lang/String", "indexOf", "(II)I", (targetObject, args, context) -> targetObject.as(String.class).indexOf(args.get(0).intValue(), args.get(1).intValue()));
+        define("java/lang/String", "lastIndexOf", "(I)I", (targetObject, args, context) -> targetObject.as(String.class).lastIndexOf(args.get(0).intValue()));
+        define("java/lang/String", "split", "(Ljava/lang/String;)[Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(String.class).split(args.get(0).as(String.class)));
+        define("java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;", (targetObject, args, context) -> String.valueOf(args.get(0).value()));
+        define("java/lang/String", "getBytes", "(Ljava/lang/String;)[B", (targetObject, args, context) -> {
+            try {
+                return targetObject.as(String.class).getBytes(args.get(0).as(String.class));
+            } catch (UnsupportedEncodingException e) {
+                throw new ExecutionException(e);
+            }
+        });
+        define("java/lang/String", "valueOf", "([CII)Ljava/lang/String;", (targetObject, args, context) -> String.valueOf(args.get(0).as(char[].class), args.get(1).intValue(), args.get(2).intValue()));
+
+        define("java/lang/StringBuilder", "<init>", "()V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/StringBuilder");
+            targetObject.initialize(new StringBuilder());
+            return null;
+        });
+        define("java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/StringBuilder");
+            targetObject.initialize(new StringBuilder(args.get(0).as(String.class)));
+            return null;
+        });
+        define("java/lang/StringBuilder", "append", "(I)Ljava/lang/StringBuilder;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).append(args.get(0).intValue()));
+        define("java/lang/StringBuilder", "append", "(C)Ljava/lang/StringBuilder;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).append(args.get(0).as(char.class)));
+        define("java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).append(args.get(0).as(String.class)));
+        define("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StringBuilder.class).toString());
+        define("java/lang/StringBuilder", "length", "()I", (targetObject, args, context) -> targetObject.as(StringBuilder.class).length());
+        define("java/lang/StringBuilder", "charAt", "(I)C", (targetObject, args, context) -> targetObject.as(StringBuilder.class).charAt(args.get(0).intValue()));
+        define("java/lang/StringBuilder", "setCharAt", "(IC)V", (targetObject, args, context) -> {
+            targetObject.as(StringBuilder.class).setCharAt(args.get(0).intValue(), (char) ((JavaCharacter) args.get(1)).charValue());
+            return null;
+        });
+
+        define("java/lang/StringBuffer", "<init>", "(Ljava/lang/String;)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/StringBuffer");
+            targetObject.initialize(new StringBuffer(args.get(0).as(String.class)));
+            return null;
+        });
+        define("java/lang/StringBuffer", "<init>", "(I)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/StringBuffer");
+            targetObject.initialize(new StringBuffer(args.get(0).intValue()));
+            return null;
+        });
+        define("java/lang/StringBuffer", "<init>", "()V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/StringBuffer");
+            targetObject.initialize(new StringBuffer());
+            return null;
+        });
+        define("java/lang/StringBuffer", "insert", "(ILjava/lang/String;)Ljava/lang/StringBuffer;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).insert(args.get(0).intValue(), args.get(1).as(String.class)));
+        define("java/lang/StringBuffer", "append", "(Ljava/lang/String;)Ljava/lang/StringBuffer;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).append(args.get(0).as(String.class)));
+        define("java/lang/StringBuffer", "append", "(C)Ljava/lang/StringBuffer;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).append(args.get(0).as(char.class)));
+        define("java/lang/StringBuffer", "toString", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StringBuffer.class).toString());
+
+        define("java/lang/Exception", "<init>", "()V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/Exception");
+            targetObject.initialize(null);
+            return null;
+        });
+        define("java/lang/Exception", "getStackTrace", "()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> context.getStackTrace());
+        define("java/lang/Exception", "toString", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.toString());
+
+        define("java/lang/Throwable", "<init>", "()V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/Throwable");
+            targetObject.initialize(null);
+            return null;
+        });
+        define("java/lang/Throwable", "getStackTrace", "()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> context.getStackTrace());
+        define("java/lang/Throwable", "toString", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.toString());
+
+        define("java/lang/NullPointerException", "<init>", "()V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/NullPointerException");
+            targetObject.initialize(null);
+            return null;
+        });
+        define("java/lang/NullPointerException", "getStackTrace", "()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> context.getStackTrace());
+        define("java/lang/NullPointerException", "toString", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.toString());
+
+        define("java/lang/RuntimeException", "<init>", "(Ljava/lang/String;)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/RuntimeException");
+            targetObject.initialize(args.get(0).value());
+            return null;
+        });
+
+        define("java/lang/Class", "forName", "(Ljava/lang/String;)Ljava/lang/Class;", (targetObject, args, context) -> new JavaClass(args.get(0).as(String.class), context));
+        define("java/lang/Class", "getDeclaredMethod", "(Ljava/lang/String;[Ljava/lang/Class;)Ljava/lang/reflect/Method;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getDeclaredMethod(args.get(0).as(String.class), toJavaClass(args.get(1).as(Object[].class))));
+        define("java/lang/Class", "getDeclaredMethods", "()[Ljava/lang/reflect/Method;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getDeclaredMethods());
+        define("java/lang/Class", "getDeclaredFields", "()[Ljava/lang/reflect/Field;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getDeclaredFields());
+        define("java/lang/Class", "getClassLoader", "()Ljava/lang/ClassLoader;", (targetObject, args, context) -> null);
+        define("java/lang/Class", "getName", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getName());
+        define("java/lang/Class", "getSuperclass", "()Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getSuperclass());
+        define("java/lang/Class", "getInterfaces", "()[Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaClass.class).getInterfaces());
+        define("java/lang/Class", "getProtectionDomain", "()Ljava/security/ProtectionDomain;", (targetObject, args, context) -> new ProtectionDomain(new CodeSource(context.file.toURI().toURL(), new Certificate[0]), null));
+
+        define("java/security/ProtectionDomain", "getCodeSource", "()Ljava/security/CodeSource;", (targetObject, args, context) -> targetObject.as(ProtectionDomain.class).getCodeSource());
+
+        define("java/security/CodeSource", "getLocation", "()Ljava/net/URL;", (targetObject, args, context) -> targetObject.as(CodeSource.class).getLocation());
+
+        // Probably not an issue because you can't construct URLs yet
+        define("java/net/URL", "openStream", "()Ljava/io/InputStream;", (targetObject, args, context) -> {
+            URL url = targetObject.as(URL.class);
+            if (url.getProtocol().equals("file")) {
+                return url.openStream();
+            }
+            throw new ExecutionException("Disallowed opening URL for now");
+        });
+
+        define("java/util/zip/ZipInputStream", "<init>", "(Ljava/io/InputStream;)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/util/zip/ZipInputStream");
+            targetObject.initialize(new ZipInputStream(args.get(0).as(InputStream.class)));
+            return null;
+        });
+        define("java/util/zip/ZipInputStream", "getNextEntry", "()Ljava/util/zip/ZipEntry;", (targetObject, args, context) -> targetObject.as(ZipInputStream.class).getNextEntry());
+        define("java/util/zip/ZipInputStream", "closeEntry", "()V", (targetObject, args, context) -> {
+            targetObject.as(ZipInputStream.class).closeEntry();
+            return null;
+        });
+
+        define("java/util/zip/ZipEntry", "getName", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(ZipEntry.class).getName());
+        define("java/util/zip/ZipEntry", "getExtra", "()[B", (targetObject, args, context) -> targetObject.as(ZipEntry.class).getExtra());
+
+        define("java/lang/reflect/Method", "getName", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).getName());
+        define("java/lang/reflect/Method", "getReturnType", "()Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).getReturnType());
+        define("java/lang/reflect/Method", "getParameterTypes", "()[Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).getParameterTypes());
+        define("java/lang/reflect/Method", "setAccessible", "(Z)V", (targetObject, args, context) -> {
+            targetObject.as(JavaMethod.class).setAccessible(args.get(0).as(boolean.class));
+            return null;
+        });
+        define("java/lang/reflect/Method", "hashCode", "()I", (targetObject, args, context) -> targetObject.as(JavaMethod.class).hashCode());
+        define("java/lang/reflect/Method", "invoke", "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", (targetObject, args, context) -> targetObject.as(JavaMethod.class).invoke(args.get(0), args.get(1).as(Object[].class)));
+
+        define("java/lang/reflect/Field", "getName", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(JavaField.class).getName());
+        define("java/lang/reflect/Field", "getType", "()Ljava/lang/Class;", (targetObject, args, context) -> targetObject.as(JavaField.class).getType());
+
+        define("java/lang/invoke/MethodType", "fromMethodDescriptorString", "(Ljava/lang/String;Ljava/lang/ClassLoader;)Ljava/lang/invoke/MethodType;", (targetObject, args, context) -> args.get(0).value());
+
+        define("java/lang/invoke/MethodHandles$Lookup", "findStatic", "(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/MethodHandle;", (targetObject, args, context) -> new JavaMethodHandle(args.get(0).as(JavaClass.class).getType().getInternalName(), args.get(1).as(String.class), args.get(2).as(String.class), "static"));
+        define("java/lang/invoke/MethodHandles$Lookup", "findVirtual", "(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/MethodHandle;", (targetObject, args, context) -> new JavaMethodHandle(args.get(0).as(JavaClass.class).getType().getInternalName(), args.get(1).as(String.class), args.get(2).as(String.class), "virtual"));
+
+        define("java/lang/invoke/MethodHandle", "asType", "(Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/MethodHandle;", (targetObject, args, context) -> targetObject.value());
+
+        define("java/lang/invoke/ConstantCallSite", "<init>", "(Ljava/lang/invoke/MethodHandle;)V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/invoke/ConstantCallSite");
+            targetObject.initialize(args.get(0).value());
+            return null;
+        });
+
+        define("java/lang/System", "currentTimeMillis", "()J", (targetObject, args, context) -> System.currentTimeMillis());
+        define("java/lang/System", "arraycopy", "(Ljava/lang/Object;ILjava/lang/Object;II)V", (targetObject, args, context) -> {
+            System.arraycopy(args.get(0).value(), args.get(1).intValue(), args.get(2).value(), args.get(3).intValue(), args.get(4).intValue());
+            return null;
+        });
+
+        define("java/lang/Thread", "currentThread", "()Ljava/lang/Thread;", (targetObject, args, context) -> null);
+        define("java/lang/Thread", "getStackTrace", "()[Ljava/lang/StackTraceElement;", (targetObject, args, context) -> {
+            context.push("java.lang.Thread", "getStackTrace", 0);
+            StackTraceElement[] elems = context.getStackTrace();
+            context.pop();
+            return elems;
+        });
+
+        define("sun/misc/SharedSecrets", "getJavaLangAccess", "()Lsun/misc/JavaLangAccess;", (targetObject, args, context) -> null);
+
+        define("java/lang/StackTraceElement", "getClassName", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StackTraceElement.class).getClassName());
+        define("java/lang/StackTraceElement", "getMethodName", "()Ljava/lang/String;", (targetObject, args, context) -> targetObject.as(StackTraceElement.class).getMethodName());
+
+        define("sun/misc/JavaLangAccess", "getConstantPool", "(Ljava/lang/Class;)Lsun/reflect/ConstantPool;", (targetObject, args, context) -> new JavaConstantPool(args.get(0).as(JavaClass.class)));
+
+        define("sun/reflect/ConstantPool", "getSize", "()I", (targetObject, args, context) -> targetObject.as(JavaConstantPool.class).getSize());
+
+        define("java/lang/Long", "parseLong", "(Ljava/lang/String;)J", (targetObject, args, context) -> Long.parseLong(args.get(0).as(String.class)));
+        define("java/lang/Long", "parseLong", "(Ljava/lang/String;I)J", (targetObject, args, context) -> Long.parseLong(args.get(0).as(String.class), args.get(1).intValue()));
+
+        define("java/lang/Integer", "parseInt", "(Ljava/lang/String;)I", (targetObject, args, context) -> Integer.parseInt(args.get(0).as(String.class)));
+
+        define("java/util/regex/Pattern", "compile", "(Ljava/lang/String;)Ljava/util/regex/Pattern;", (targetObject, args, context) -> Pattern.compile(args.get(0).as(String.class)));
+
+        define("java/lang/BootstrapMethodError", "<init>", "()V", (targetObject, args, context) -> {
+            expect(targetObject, "java/lang/BootstrapMethodError");
+            targetObject.initialize(new BootstrapMethodError());
+            return null;
+        });
+    }
     //@formatter:on
 
+    private static void define(String className, String methodName, String methodDesc, Function3<JavaValue, List<JavaValue>, Context, Object> intrinsic) {
+        DEFAULTS.computeIfAbsent(className, key -> new HashMap<>()).computeIfAbsent(methodName, key -> new HashMap<>()).put(methodDesc, intrinsic);
+    }
+
     @Override
     public boolean instanceOf(JavaValue target, Type type, Context context) {
         return false;
     }
 
+    private final Map<String, Map<String, Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>>>> intrinsics = new ConcurrentHashMap<>();
+
+    public JVMMethodProvider() {
+        for (Map.Entry<String, Map<String, Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>>>> owner : DEFAULTS.entrySet()) {
+            for (Map.Entry<String, Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>>> name : owner.getValue().entrySet()) {
+                for (Map.Entry<String, Function3<JavaValue, List<JavaValue>, Context, Object>> desc : name.getValue().entrySet()) {
+                    register(owner.getKey(), name.getKey(), desc.getKey(), desc.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces the emulation of a JDK method for this provider only.
+     */
+    public void register(String className, String methodName, String methodDesc, Function3<JavaValue, List<JavaValue>, Context, Object> intrinsic) {
+        intrinsics.computeIfAbsent(className, key -> new ConcurrentHashMap<>()).computeIfAbsent(methodName, key -> new ConcurrentHashMap<>()).put(methodDesc, intrinsic);
+    }
+
+    /**
+     * @return the emulation of the given method, or null. Callers which dispatch the same call site repeatedly can
+     * hold on to the result and call it directly.
+     */
+    public Function3<JavaValue, List<JavaValue>, Context, Object> resolve(String className, String methodName, String methodDesc) {
+        Map<String, Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>>> byName = intrinsics.get(className);
+        if (byName == null) {
+            return null;
+        }
+        Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>> byDesc = byName.get(methodName);
+        return byDesc == null ? null : byDesc.get(methodDesc);
+    }
+
     @Override
     public Object invokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
-        Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>> map = functions.get(className);
-        return map.get(methodName + methodDesc).applyUnchecked(targetObject, args, context);
+        return resolve(className, methodName, methodDesc).applyUnchecked(targetObject, args, context);
     }
 
     @Override
     public boolean canInvokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
-        Map<String, Function3<JavaValue, List<JavaValue>, Context, Object>> map = functions.get(className);
-        return map != null && map.containsKey(methodName + methodDesc);
+        return resolve(className, methodName, methodDesc) != null;
     }
 
     @Override
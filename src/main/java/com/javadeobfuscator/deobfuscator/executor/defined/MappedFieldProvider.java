@@ -17,22 +17,53 @@
 package com.javadeobfuscator.deobfuscator.executor.defined;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.google.common.collect.MapMaker;
 import com.javadeobfuscator.deobfuscator.executor.Context;
-;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
 import com.javadeobfuscator.deobfuscator.executor.providers.FieldProvider;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
+/**
+ * Stores every field in memory.
+ * <p>
+ * A field reference is resolved once to a {@link FieldSlot} of the class which declares it (walking up the
+ * hierarchy like the JVM when the class is in the context's dictionary), so {@code Sub.X} and {@code Super.X} are the
+ * same field. Static values live in the context's {@link com.javadeobfuscator.deobfuscator.executor.StaticState}
+ * under the declaring class if there is one, otherwise in one array per class; instance
+ * values live on the {@link JavaInstance} itself, or on a shadow instance kept in a weak identity map for real
+ * objects. An object which has no value yet, because no provider ran its constructor, becomes a {@link JavaInstance}
+ * of its own type when its first field is set. Lookups after the first one don't allocate. Resolutions are cached per
+ * dictionary, since another dictionary may declare the field in another class.
+ */
 public class MappedFieldProvider extends FieldProvider {
-    private Map<String, Object> fields = new HashMap<>();
+    private static final Object NO_DICTIONARY = new Object();
+
+    private final Map<Object, Map<String, Map<String, Map<String, FieldSlot>>>> resolved = new MapMaker().weakKeys().makeMap();
+    private final Map<String, ClassFields> declared = new ConcurrentHashMap<>();
+    private final Map<Object, JavaInstance> foreignInstances = new MapMaker().weakKeys().makeMap();
 
     public Object getField(String className, String fieldName, String fieldDesc, JavaValue targetObject, Context context) {
-        return fields.get(className + fieldName + fieldDesc);
+        if (targetObject == null && context.statics != null) {
+            return context.statics.getField(resolve(className, fieldName, fieldDesc, context));
+        }
+        return resolve(className, fieldName, fieldDesc, context).get(targetObject);
     }
 
     public void setField(String className, String fieldName, String fieldDesc, JavaValue targetObject, Object value, Context context) {
-        fields.put(className + fieldName + fieldDesc, value);
+        if (targetObject == null && context.statics != null) {
+            context.statics.setField(resolve(className, fieldName, fieldDesc, context), value);
+            return;
+        }
+        resolve(className, fieldName, fieldDesc, context).set(targetObject, value);
     }
 
     public boolean canGetField(String className, String fieldName, String fieldDesc, JavaValue targetObject, Context context) {
@@ -42,4 +73,162 @@ public class MappedFieldProvider extends FieldProvider {
     public boolean canSetField(String className, String fieldName, String fieldDesc, JavaValue targetObject, Object value, Context context) {
         return true;
     }
+
+    public FieldSlot resolve(String className, String fieldName, String fieldDesc, Context context) {
+        Object dictionary = context == null || context.dictionary == null ? NO_DICTIONARY : context.dictionary;
+        Map<String, Map<String, Map<String, FieldSlot>>> byClass = resolved.get(dictionary);
+        if (byClass == null) {
+            byClass = resolved.computeIfAbsent(dictionary, key -> new ConcurrentHashMap<>());
+        }
+        Map<String, Map<String, FieldSlot>> byName = byClass.get(className);
+        if (byName == null) {
+            byName = byClass.computeIfAbsent(className, key -> new ConcurrentHashMap<>());
+        }
+        Map<String, FieldSlot> byDesc = byName.get(fieldName);
+        if (byDesc == null) {
+            byDesc = byName.computeIfAbsent(fieldName, key -> new ConcurrentHashMap<>());
+        }
+        FieldSlot slot = byDesc.get(fieldDesc);
+        if (slot == null) {
+            String owner = findDeclaringClass(className, fieldName, fieldDesc, context);
+            slot = byDesc.computeIfAbsent(fieldDesc, key -> declared.computeIfAbsent(owner, ClassFields::new).slot(fieldName, fieldDesc));
+        }
+        return slot;
+    }
+
+    /*
+     * Looks in the class itself, then its superinterfaces, then its superclass, like JVM field resolution
+     */
+    private String findDeclaringClass(String className, String fieldName, String fieldDesc, Context context) {
+        if (context == null || context.dictionary == null) {
+            return className;
+        }
+        String declaring = findDeclaringClass(className, fieldName, fieldDesc, context.dictionary, new HashSet<>());
+        return declaring == null ? className : declaring;
+    }
+
+    private String findDeclaringClass(String className, String fieldName, String fieldDesc, Map<String, WrappedClassNode> dictionary, Set<String> visited) {
+        String current = className;
+        while (current != null && visited.add(current)) {
+            WrappedClassNode wrappedClassNode = dictionary.get(current);
+            if (wrappedClassNode == null) {
+                break;
+            }
+            ClassNode classNode = wrappedClassNode.classNode;
+            for (FieldNode field : classNode.fields) {
+                if (field.name.equals(fieldName) && field.desc.equals(fieldDesc)) {
+                    return current;
+                }
+            }
+            for (String itf : classNode.interfaces) {
+                String declaring = findDeclaringClass(itf, fieldName, fieldDesc, dictionary, visited);
+                if (declaring != null) {
+                    return declaring;
+                }
+            }
+            current = classNode.superName;
+        }
+        return null;
+    }
+
+    private class ClassFields {
+        private final String name;
+        private final Map<String, FieldSlot> slots = new HashMap<>();
+        private volatile Object[] statics = new Object[0];
+
+        ClassFields(String name) {
+            this.name = name;
+        }
+
+        synchronized FieldSlot slot(String fieldName, String fieldDesc) {
+            FieldSlot slot = slots.get(fieldName + fieldDesc);
+            if (slot == null) {
+                slot = new FieldSlot(this, slots.size(), fieldDesc);
+                slots.put(fieldName + fieldDesc, slot);
+            }
+            return slot;
+        }
+
+        synchronized void setStatic(int index, Object value) {
+            statics = ensureCapacity(statics, index);
+            statics[index] = value;
+        }
+    }
+
+    /**
+     * A resolved field. Holding on to it skips resolution entirely.
+     */
+    public final class FieldSlot {
+        private final ClassFields owner;
+        private final int index;
+        private final String desc;
+
+        private FieldSlot(ClassFields owner, int index, String desc) {
+            this.owner = owner;
+            this.index = index;
+            this.desc = desc;
+        }
+
+        public String getOwner() {
+            return owner.name;
+        }
+
+        /**
+         * @return the key the values of the declaring class are grouped by, in {@link JavaInstance}s and in the
+         * {@link com.javadeobfuscator.deobfuscator.executor.StaticState}
+         */
+        public Object getDeclaringClass() {
+            return owner;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getDesc() {
+            return desc;
+        }
+
+        public Object get(JavaValue targetObject) {
+            if (targetObject == null) {
+                Object[] statics = owner.statics;
+                return index < statics.length ? statics[index] : null;
+            }
+            Object instance = targetObject.value();
+            if (instance instanceof JavaInstance) {
+                return ((JavaInstance) instance).get(owner, index);
+            }
+            if (instance == null) {
+                return null;
+            }
+            JavaInstance fields = foreignInstances.get(instance);
+            return fields == null ? null : fields.get(owner, index);
+        }
+
+        public void set(JavaValue targetObject, Object value) {
+            if (targetObject == null) {
+                owner.setStatic(index, value);
+                return;
+            }
+            Object instance = targetObject.value();
+            if (instance instanceof JavaInstance) {
+                ((JavaInstance) instance).set(owner, index, value);
+            } else if (instance == null) {
+                JavaInstance created = new JavaInstance(targetObject instanceof JavaObject ? targetObject.type() : getOwner());
+                targetObject.initialize(created);
+                created.set(owner, index, value);
+            } else {
+                foreignInstances.computeIfAbsent(instance, key -> new JavaInstance(getOwner())).set(owner, index, value);
+            }
+        }
+    }
+
+    private static Object[] ensureCapacity(Object[] array, int index) {
+        if (index < array.length) {
+            return array;
+        }
+        Object[] grown = new Object[Math.max(index + 1, array.length * 2)];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
 }
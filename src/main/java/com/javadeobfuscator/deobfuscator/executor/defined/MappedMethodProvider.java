@@ -16,43 +16,196 @@
 
 package com.javadeobfuscator.deobfuscator.executor.defined;
 
+import com.google.common.collect.MapMaker;
 import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
 import com.javadeobfuscator.deobfuscator.executor.Context;
-;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
 import com.javadeobfuscator.deobfuscator.executor.providers.MethodProvider;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Executes methods of the classes in the given classpath.
+ * <p>
+ * A method is resolved the way the JVM does it: up the superclasses first, then to a default method of the
+ * superinterfaces. Virtual and interface calls resolve against the runtime type of the receiver when it is a
+ * {@link JavaInstance}, falling back to the static owner otherwise. Resolutions are shared between all callers, and
+ * every call site the interpreter reports through {@link Context#invocation} also keeps an inline cache of the last
+ * few receiver types it saw, so a monomorphic or polymorphic site skips the shared table entirely.
+ */
 public class MappedMethodProvider extends MethodProvider {
+    /**
+     * Call sites which see more receiver types than this are megamorphic, and go to the shared table
+     */
+    private static final int POLYMORPHIC_LIMIT = 4;
+
+    private static final Target MISSING = new Target(null, null);
+
     private Map<String, WrappedClassNode> classpath = new HashMap<>();
+    private final Map<String, Map<String, Map<String, Target>>> resolved = new ConcurrentHashMap<>();
+    private final Map<MethodInsnNode, InlineCache> inlineCaches = new MapMaker().weakKeys().makeMap();
 
     public MappedMethodProvider(Map<String, WrappedClassNode> classpath) {
         this.classpath = classpath;
     }
 
     public boolean canInvokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
-        WrappedClassNode wrappedClassNode = classpath.get(className);
-        return wrappedClassNode != null;
+        return target(className, methodName, methodDesc, targetObject, context) != MISSING;
     }
 
     @Override
     public Object invokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
-        WrappedClassNode wrappedClassNode = classpath.get(className);
-        if (wrappedClassNode != null) {
+        Target target = target(className, methodName, methodDesc, targetObject, context);
+        context.invocation = null;
+        if (target == MISSING) {
+            throw new IllegalArgumentException("Could not find method " + className + " " + methodName + methodDesc);
+        }
+        if (methodName.equals("<init>") && targetObject != null && targetObject.value() == null) {
+            targetObject.initialize(new JavaInstance(className));
+        }
+        List<JavaValue> argsClone = new ArrayList<>();
+        for (JavaValue arg : args) {
+            argsClone.add(arg.copy());
+        }
+        return MethodExecutor.execute(target.owner, target.method, argsClone, targetObject == null ? null : targetObject.value(), context);
+    }
+
+    /*
+     * Picks the method to run, through the inline cache of the call site when the interpreter reported one
+     */
+    private Target target(String className, String methodName, String methodDesc, JavaValue targetObject, Context context) {
+        MethodInsnNode site = context == null ? null : context.invocation;
+        if (site == null || !site.owner.equals(className) || !site.name.equals(methodName) || !site.desc.equals(methodDesc)) {
+            return resolve(className, methodName, methodDesc);
+        }
+        String receiver = className;
+        if ((site.getOpcode() == Opcodes.INVOKEVIRTUAL || site.getOpcode() == Opcodes.INVOKEINTERFACE) && targetObject != null && targetObject.value() instanceof JavaInstance) {
+            receiver = ((JavaInstance) targetObject.value()).getType();
+        }
+        InlineCache cache = inlineCaches.get(site);
+        if (cache == null) {
+            cache = inlineCaches.computeIfAbsent(site, key -> new InlineCache());
+        }
+        Target target = cache.get(receiver);
+        if (target == null) {
+            target = resolve(receiver, methodName, methodDesc);
+            if (target == MISSING && !receiver.equals(className)) {
+                target = resolve(className, methodName, methodDesc);
+            }
+            cache.put(receiver, target);
+        }
+        return target;
+    }
+
+    private Target resolve(String className, String methodName, String methodDesc) {
+        Map<String, Map<String, Target>> byName = resolved.get(className);
+        if (byName == null) {
+            byName = resolved.computeIfAbsent(className, key -> new ConcurrentHashMap<>());
+        }
+        Map<String, Target> byDesc = byName.get(methodName);
+        if (byDesc == null) {
+            byDesc = byName.computeIfAbsent(methodName, key -> new ConcurrentHashMap<>());
+        }
+        Target target = byDesc.get(methodDesc);
+        if (target == null) {
+            target = byDesc.computeIfAbsent(methodDesc, key -> lookup(className, methodName, methodDesc));
+        }
+        return target;
+    }
+
+    /*
+     * Walks the superclasses for a concrete method, then the superinterfaces for a default one
+     */
+    private Target lookup(String className, String methodName, String methodDesc) {
+        List<String> interfaces = new ArrayList<>();
+        String current = className;
+        while (current != null) {
+            WrappedClassNode wrappedClassNode = classpath.get(current);
+            if (wrappedClassNode == null) {
+                break;
+            }
             ClassNode classNode = wrappedClassNode.classNode;
-            MethodNode methodNode = classNode.methods.stream().filter(mn -> mn.name.equals(methodName) && mn.desc.equals(methodDesc)).findFirst().orElse(null);
-            if (methodNode != null) {
-                List<JavaValue> argsClone = new ArrayList<>();
-                for (JavaValue arg : args) {
-                    argsClone.add(arg.copy());
+            MethodNode methodNode = find(classNode, methodName, methodDesc);
+            if (methodNode != null && (methodNode.access & Opcodes.ACC_ABSTRACT) == 0) {
+                return new Target(wrappedClassNode, methodNode);
+            }
+            interfaces.addAll(classNode.interfaces);
+            current = classNode.superName;
+        }
+        Set<String> visited = new HashSet<>();
+        for (int i = 0; i < interfaces.size(); i++) {
+            WrappedClassNode wrappedClassNode = visited.add(interfaces.get(i)) ? classpath.get(interfaces.get(i)) : null;
+            if (wrappedClassNode == null) {
+                continue;
+            }
+            MethodNode methodNode = find(wrappedClassNode.classNode, methodName, methodDesc);
+            if (methodNode != null && (methodNode.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_STATIC)) == 0) {
+                return new Target(wrappedClassNode, methodNode);
+            }
+            interfaces.addAll(wrappedClassNode.classNode.interfaces);
+        }
+        return MISSING;
+    }
+
+    private static MethodNode find(ClassNode classNode, String methodName, String methodDesc) {
+        for (MethodNode methodNode : classNode.methods) {
+            if (methodNode.name.equals(methodName) && methodNode.desc.equals(methodDesc)) {
+                return methodNode;
+            }
+        }
+        return null;
+    }
+
+    private static class Target {
+        private final WrappedClassNode owner;
+        private final MethodNode method;
+
+        Target(WrappedClassNode owner, MethodNode method) {
+            this.owner = owner;
+            this.method = method;
+        }
+    }
+
+    /**
+     * The receiver types seen by one call site and the methods they resolved to. Entries are only ever appended, by
+     * copying the array, so lookups don't lock.
+     */
+    private static class InlineCache {
+        private volatile Entry[] entries = new Entry[0];
+
+        Target get(String type) {
+            for (Entry entry : entries) {
+                if (entry.type.equals(type)) {
+                    return entry.target;
                 }
-                return MethodExecutor.execute(wrappedClassNode, methodNode, argsClone, targetObject == null ? null : targetObject.value(), context);
             }
+            return null;
+        }
+
+        synchronized void put(String type, Target target) {
+            if (entries.length >= POLYMORPHIC_LIMIT || get(type) != null) {
+                return;
+            }
+            Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[entries.length] = new Entry(type, target);
+            entries = grown;
+        }
+    }
+
+    private static class Entry {
+        private final String type;
+        private final Target target;
+
+        Entry(String type, Target target) {
+            this.type = type;
+            this.target = target;
         }
-        throw new IllegalArgumentException("Could not find class " + className);
     }
 }
@@ -21,26 +21,35 @@ import com.javadeobfuscator.deobfuscator.executor.exceptions.ExecutionException;
 import com.javadeobfuscator.deobfuscator.executor.providers.Provider;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+import com.javadeobfuscator.deobfuscator.utils.PrimitiveUtils;
 import com.javadeobfuscator.deobfuscator.utils.Utils;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
-import sun.invoke.util.BytecodeDescriptor;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
  * Not recommended for production usage
  */
 public class ReflectiveProvider implements Provider {
-    private Map<String, WrappedClassNode> dictionary;
-    private Map<String, Method> methodCache = new HashMap<>();
-    private Map<String, Constructor<?>> ctorCache = new HashMap<>();
-    private Map<String, Field> fieldCache = new HashMap<>();
+    /*
+     * Numeric types in the order primitive widening allows
+     */
+    private static final List<Class<?>> NUMERIC = Arrays.asList(Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class);
+    private static final List<Class<?>> NUMERIC_PRIMITIVES = Arrays.asList(byte.class, short.class, int.class, long.class, float.class, double.class);
+
+    private final Map<String, WrappedClassNode> dictionary;
+    private final Map<String, Map<String, Map<String, Invoker>>> invokers = new ConcurrentHashMap<>();
+    private final Map<String, Field> fieldCache = new ConcurrentHashMap<>();
 
     public ReflectiveProvider(Map<String, WrappedClassNode> dictionary) {
         this.dictionary = dictionary;
@@ -51,69 +60,84 @@ public class ReflectiveProvider implements Provider {
         if (!dictionary.containsKey(className)) {
             throw new ExecutionException(className + " could not be located in dictionary");
         }
-        Class<?> targetClass;
-        Class<?>[] clazzes;
-        try {
-            targetClass = Class.forName(className.replace("/", "."));
-            List<Class<?>> l = BytecodeDescriptor.parseMethod(methodDesc, ClassLoader.getSystemClassLoader());
-            l.remove(l.size() - 1);
-            clazzes = l.toArray(new Class<?>[0]);
-        } catch (Throwable e) {
-            throw new ExecutionException(e);
+        boolean constructor = methodName.equals("<init>");
+        Invoker invoker = resolve(className, methodName, methodDesc);
+        int offset = invoker.hasReceiver ? 1 : 0;
+        if (args.size() + offset != invoker.parameterTypes.length) {
+            throw new ExecutionException("Expected " + (invoker.parameterTypes.length - offset) + " arguments for " + className + " " + methodName + methodDesc + " but got " + args.size());
         }
-        if (methodName.equals("<init>")) {
-            Constructor<?> ctor = ctorCache.computeIfAbsent(className + methodName + methodDesc, key -> {
-                try {
-                    Constructor<?> constructor = targetClass.getDeclaredConstructor(clazzes);
-                    constructor.setAccessible(true);
-                    return constructor;
-                } catch (Throwable t) {
-                    throw new ExecutionException(t);
-                }
-            });
-
-            List<Object> ar = new ArrayList<>();
-            for (JavaValue o : args) {
-                ar.add(o.value());
+        Object[] arguments = new Object[invoker.parameterTypes.length];
+        if (invoker.hasReceiver) {
+            if (targetObject == null || targetObject.value() == null) {
+                throw new ExecutionException("Cannot invoke " + className + " " + methodName + methodDesc + " on null");
             }
-            Object o;
-            try {
-                o = ctor.newInstance(ar.toArray());
-            } catch (ReflectiveOperationException ex) {
-                Utils.sneakyThrow(ex.getCause());
-                return null;
-            } catch (Throwable t) {
-                throw new ExecutionException(t);
-            }
-            targetObject.initialize(o);
-            if (targetObject.value() instanceof Throwable) {
-                ((Throwable) targetObject.value()).setStackTrace(context.getStackTrace());
+            arguments[0] = adapt(targetObject.value(), invoker.parameterTypes[0]);
+        }
+        for (int i = 0; i < args.size(); i++) {
+            arguments[i + offset] = adapt(args.get(i).value(), invoker.parameterTypes[i + offset]);
+        }
+        // The arguments match the handle's type exactly now, so anything thrown here was thrown by the target
+        Object result;
+        try {
+            result = invoker.handle.invokeExact(arguments);
+        } catch (Throwable t) {
+            Utils.sneakyThrow(t);
+            return null;
+        }
+        if (constructor) {
+            targetObject.initialize(result);
+            if (result instanceof Throwable) {
+                ((Throwable) result).setStackTrace(context.getStackTrace());
             }
             return null;
-        } else {
-            Method method = methodCache.computeIfAbsent(className + methodName + methodDesc, key -> {
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a method or constructor once to a handle of type {@code (Object[])Object}, which takes the receiver
+     * (if any) followed by the arguments.
+     */
+    private Invoker resolve(String className, String methodName, String methodDesc) {
+        Map<String, Map<String, Invoker>> byName = invokers.get(className);
+        if (byName == null) {
+            byName = invokers.computeIfAbsent(className, key -> new ConcurrentHashMap<>());
+        }
+        Map<String, Invoker> byDesc = byName.get(methodName);
+        if (byDesc == null) {
+            byDesc = byName.computeIfAbsent(methodName, key -> new ConcurrentHashMap<>());
+        }
+        Invoker invoker = byDesc.get(methodDesc);
+        if (invoker == null) {
+            invoker = byDesc.computeIfAbsent(methodDesc, key -> {
                 try {
-                    Method innerMethod = targetClass.getDeclaredMethod(methodName, clazzes);
-                    innerMethod.setAccessible(true);
-                    return innerMethod;
+                    Class<?> targetClass = Class.forName(className.replace("/", "."));
+                    Type[] argumentTypes = Type.getArgumentTypes(methodDesc);
+                    Class<?>[] clazzes = new Class<?>[argumentTypes.length];
+                    for (int i = 0; i < argumentTypes.length; i++) {
+                        clazzes[i] = toClass(argumentTypes[i]);
+                    }
+                    MethodHandle handle;
+                    boolean hasReceiver = false;
+                    if (methodName.equals("<init>")) {
+                        Constructor<?> ctor = targetClass.getDeclaredConstructor(clazzes);
+                        ctor.setAccessible(true);
+                        handle = MethodHandles.lookup().unreflectConstructor(ctor);
+                    } else {
+                        Method method = targetClass.getDeclaredMethod(methodName, clazzes);
+                        method.setAccessible(true);
+                        handle = MethodHandles.lookup().unreflect(method);
+                        hasReceiver = !Modifier.isStatic(method.getModifiers());
+                    }
+                    Class<?>[] parameterTypes = handle.type().parameterArray();
+                    handle = handle.asSpreader(Object[].class, parameterTypes.length).asType(MethodType.methodType(Object.class, Object[].class));
+                    return new Invoker(handle, hasReceiver, parameterTypes);
                 } catch (Throwable t) {
                     throw new ExecutionException(t);
                 }
             });
-            Object instance = targetObject == null ? null : targetObject.value();
-            List<Object> ar = new ArrayList<>();
-            for (JavaValue o : args) {
-                ar.add(o.value());
-            }
-            try {
-                return method.invoke(instance, ar.toArray());
-            } catch (ReflectiveOperationException ex) {
-                Utils.sneakyThrow(ex.getCause());
-                return null;
-            } catch (Throwable t) {
-                throw new ExecutionException(t);
-            }
         }
+        return invoker;
     }
 
     @Override
@@ -141,13 +165,13 @@ public class ReflectiveProvider implements Provider {
         if (!dictionary.containsKey(className)) {
             throw new ExecutionException(className + " could not be located in dictionary");
         }
-        Class<?> targetClass;
-        try {
-            targetClass = Class.forName(className.replace("/", "."));
-        } catch (Throwable e) {
-            throw new ExecutionException(e);
-        }
         Field field = fieldCache.computeIfAbsent(className + fieldName + fieldDesc, key -> {
+            Class<?> targetClass;
+            try {
+                targetClass = Class.forName(className.replace("/", "."));
+            } catch (Throwable e) {
+                throw new ExecutionException(e);
+            }
             Field[] fields = targetClass.getDeclaredFields();
             for (Field f : fields) {
                 if (f.getName().equals(fieldName) && Type.getType(f.getType()).getDescriptor().equals(fieldDesc)) {
@@ -209,4 +233,76 @@ public class ReflectiveProvider implements Provider {
     public boolean canSetField(String className, String fieldName, String fieldDesc, JavaValue targetObject, Object value, Context context) {
         return dictionary.containsKey(className);
     }
+
+    private static Class<?> toClass(Type type) throws ClassNotFoundException {
+        if (type.getSort() == Type.OBJECT) {
+            return Class.forName(type.getClassName(), false, ClassLoader.getSystemClassLoader());
+        }
+        if (type.getSort() == Type.ARRAY) {
+            return Class.forName(type.getDescriptor().replace('/', '.'), false, ClassLoader.getSystemClassLoader());
+        }
+        return PrimitiveUtils.getPrimitiveByName(type.getClassName());
+    }
+
+    /*
+     * Checks an argument the way Method.invoke does: references must be instances of the parameter type, and
+     * primitives are unboxed and may only be widened (JLS 5.1.2)
+     */
+    private static Object adapt(Object value, Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (value == null || type.isInstance(value)) {
+                return value;
+            }
+        } else if (value != null) {
+            Object widened = widen(value, type);
+            if (widened != null) {
+                return widened;
+            }
+        }
+        throw new ExecutionException("Cannot pass " + (value == null ? "null" : value.getClass().getName()) + " as " + type.getName());
+    }
+
+    private static Object widen(Object value, Class<?> type) {
+        if (value instanceof Boolean) {
+            return type == boolean.class ? value : null;
+        }
+        if (value instanceof Character) {
+            if (type == char.class) {
+                return value;
+            }
+            value = (int) (Character) value;
+        }
+        int from = NUMERIC.indexOf(value.getClass());
+        int to = NUMERIC_PRIMITIVES.indexOf(type);
+        if (from == -1 || to < from) {
+            return null;
+        }
+        Number number = (Number) value;
+        switch (to) {
+            case 0:
+                return number.byteValue();
+            case 1:
+                return number.shortValue();
+            case 2:
+                return number.intValue();
+            case 3:
+                return number.longValue();
+            case 4:
+                return number.floatValue();
+            default:
+                return number.doubleValue();
+        }
+    }
+
+    private static final class Invoker {
+        private final MethodHandle handle;
+        private final boolean hasReceiver;
+        private final Class<?>[] parameterTypes;
+
+        private Invoker(MethodHandle handle, boolean hasReceiver, Class<?>[] parameterTypes) {
+            this.handle = handle;
+            this.hasReceiver = hasReceiver;
+            this.parameterTypes = parameterTypes;
+        }
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.javadeobfuscator.deobfuscator.executor.defined.types;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * An object of a class from the dictionary which only exists inside the interpreter. It gives the object an
+ * identity and holds its instance fields. Fields are grouped by the class declaring them, and indexed by the slots
+ * handed out by {@link com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider}.
+ */
+public class JavaInstance {
+    private final String type;
+    private final Map<Object, Object[]> fields = new IdentityHashMap<>();
+
+    public JavaInstance(String type) {
+        this.type = type;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public synchronized Object get(Object declaringClass, int index) {
+        Object[] values = fields.get(declaringClass);
+        return values != null && index < values.length ? values[index] : null;
+    }
+
+    public synchronized void set(Object declaringClass, int index, Object value) {
+        Object[] values = fields.get(declaringClass);
+        if (values == null || index >= values.length) {
+            Object[] grown = new Object[index + 1];
+            if (values != null) {
+                System.arraycopy(values, 0, grown, 0, values.length);
+            }
+            fields.put(declaringClass, values = grown);
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Copies every field of this instance into the other one, passing each value through the given function.
+     */
+    public synchronized void copyFields(JavaInstance target, UnaryOperator<Object> values) {
+        for (Map.Entry<Object, Object[]> entry : fields.entrySet()) {
+            Object[] copy = new Object[entry.getValue().length];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = values.apply(entry.getValue()[i]);
+            }
+            synchronized (target) {
+                target.fields.put(entry.getKey(), copy);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type.replace('/', '.') + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+}
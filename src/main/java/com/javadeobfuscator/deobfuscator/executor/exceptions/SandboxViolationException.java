@@ -0,0 +1,28 @@
+package com.javadeobfuscator.deobfuscator.executor.exceptions;
+
+/**
+ * Thrown when a method cannot be (or stops being) executed natively inside the sandbox.
+ * Callers are expected to fall back to the interpreter.
+ */
+public class SandboxViolationException extends ExecutionException {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean replayable;
+
+    public SandboxViolationException(String msg) {
+        this(msg, true);
+    }
+
+    public SandboxViolationException(String msg, boolean replayable) {
+        super(msg);
+        this.replayable = replayable;
+    }
+
+    /**
+     * @return false if the sandboxed code already had side effects when this was raised, so the call can't be
+     * replayed by the interpreter without applying them twice
+     */
+    public boolean isReplayable() {
+        return replayable;
+    }
+}
@@ -16,8 +16,8 @@
 
 package com.javadeobfuscator.deobfuscator.executor.providers;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.javadeobfuscator.deobfuscator.executor.Context;
 ;
@@ -27,7 +27,7 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
 
 public class DelegatingProvider implements Provider {
 
-    private List<Provider> providers = new ArrayList<>();
+    private final List<Provider> providers = new CopyOnWriteArrayList<>();
 
     @Override
     public Object invokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
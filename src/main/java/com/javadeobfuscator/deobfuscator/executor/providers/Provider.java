@@ -23,6 +23,10 @@ import com.javadeobfuscator.deobfuscator.executor.Context;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
 
+/**
+ * Answers what the interpreter cannot do itself. Providers are shared between contexts and threads, so
+ * implementations must be safe for concurrent use once they are registered.
+ */
 public interface Provider {
 
     Object invokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context);
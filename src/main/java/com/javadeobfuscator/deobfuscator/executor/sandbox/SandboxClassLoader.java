@@ -0,0 +1,180 @@
+package com.javadeobfuscator.deobfuscator.executor.sandbox;
+
+import com.google.common.base.Optional;
+import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.exceptions.SandboxViolationException;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+import com.javadeobfuscator.deobfuscator.utils.Utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Isolated loader holding one compiled sandbox unit. It defines the copied classes itself, exposes
+ * {@link SandboxRuntime} and the types allowed by the {@link SandboxPolicy}, and refuses everything else.
+ */
+public class SandboxClassLoader extends ClassLoader {
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> definitions;
+    private final Map<String, Integer> constantPoolSizes;
+    private final SandboxPolicy policy;
+    private final String entryOwner;
+    private final String entryName;
+    private final String entryDesc;
+
+    private volatile Method entry;
+
+    SandboxClassLoader(Map<String, byte[]> definitions, Map<String, Integer> constantPoolSizes, SandboxPolicy policy, String entryOwner, String entryName, String entryDesc) {
+        super(null);
+        this.definitions = definitions;
+        this.constantPoolSizes = constantPoolSizes;
+        this.policy = policy;
+        this.entryOwner = entryOwner;
+        this.entryName = entryName;
+        this.entryDesc = entryDesc;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                String internalName = name.replace('.', '/');
+                byte[] bytes = definitions.get(internalName);
+                if (bytes != null) {
+                    clazz = defineClass(name, bytes, 0, bytes.length);
+                } else if (internalName.equals(SandboxRuntime.INTERNAL_NAME)) {
+                    clazz = SandboxRuntime.class;
+                } else if (policy.isLoadable(internalName)) {
+                    clazz = Class.forName(name, false, null);
+                } else {
+                    throw new ClassNotFoundException(name);
+                }
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    boolean isSandboxed(String internalName) {
+        return definitions.containsKey(internalName);
+    }
+
+    int getConstantPoolSize(String internalName) {
+        Integer size = constantPoolSizes.get(internalName);
+        return size == null ? 0 : size;
+    }
+
+    Class<?> resolve(Type type) throws ClassNotFoundException {
+        switch (type.getSort()) {
+            case Type.ARRAY:
+                return Class.forName(type.getDescriptor().replace('/', '.'), false, this);
+            case Type.OBJECT:
+                return Class.forName(type.getClassName(), false, this);
+            default:
+                throw new ClassNotFoundException(type.getDescriptor());
+        }
+    }
+
+    /**
+     * Runs the entry method natively. Exceptions thrown by the sandboxed code itself are rethrown as they are, just
+     * like the interpreter would. Everything the sandbox can't handle is reported as a
+     * {@link SandboxViolationException}, which tells whether the call can still be replayed in the interpreter.
+     */
+    public Object invoke(List<JavaValue> args, Context context) {
+        Type[] argTypes = Type.getArgumentTypes(entryDesc);
+        Type returnType = Type.getReturnType(entryDesc);
+        Object[] nativeArgs = new Object[argTypes.length];
+        SandboxRuntime.Invocation invocation = SandboxRuntime.enter(this, context);
+        try {
+            for (int i = 0; i < argTypes.length; i++) {
+                nativeArgs[i] = toNative(args.get(i), argTypes[i], invocation);
+            }
+            for (Object nativeArg : nativeArgs) {
+                invocation.escape(nativeArg);
+            }
+            Object result = entry().invoke(null, nativeArgs);
+            if (invocation.violation != null) {
+                throw invocation.violation;
+            }
+            switch (returnType.getSort()) {
+                case Type.VOID:
+                    return Optional.absent();
+                case Type.BOOLEAN:
+                case Type.CHAR:
+                case Type.BYTE:
+                case Type.SHORT:
+                    return SandboxRuntime.toInt(result);
+                default:
+                    return result;
+            }
+        } catch (InvocationTargetException e) {
+            if (invocation.violation != null) {
+                throw invocation.violation;
+            }
+            if (e.getCause() instanceof LinkageError) {
+                throw linkageViolation(e.getCause(), invocation);
+            }
+            Utils.sneakyThrow(e.getCause());
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw linkageViolation(e, invocation);
+        } finally {
+            SandboxRuntime.exit(invocation);
+        }
+    }
+
+    private static SandboxViolationException linkageViolation(Throwable cause, SandboxRuntime.Invocation invocation) {
+        SandboxViolationException violation = new SandboxViolationException("Could not link sandboxed code: " + cause, !invocation.sideEffects);
+        violation.initCause(cause);
+        return violation;
+    }
+
+    private Object toNative(JavaValue value, Type type, SandboxRuntime.Invocation invocation) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return value.intValue() != 0;
+            case Type.CHAR:
+                return (char) value.intValue();
+            case Type.BYTE:
+                return (byte) value.intValue();
+            case Type.SHORT:
+                return (short) value.intValue();
+            case Type.INT:
+                return value.intValue();
+            case Type.FLOAT:
+                return value.floatValue();
+            case Type.LONG:
+                return value.longValue();
+            case Type.DOUBLE:
+                return value.doubleValue();
+            default:
+                return invocation.check(value.value(), type);
+        }
+    }
+
+    private Method entry() throws ClassNotFoundException {
+        if (entry == null) {
+            Class<?> owner = loadClass(entryOwner.replace('/', '.'));
+            for (Method method : owner.getDeclaredMethods()) {
+                if (method.getName().equals(entryName) && Type.getMethodDescriptor(method).equals(entryDesc)) {
+                    method.setAccessible(true);
+                    entry = method;
+                    break;
+                }
+            }
+            if (entry == null) {
+                throw new ClassNotFoundException(entryOwner + " " + entryName + entryDesc);
+            }
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,501 @@
+package com.javadeobfuscator.deobfuscator.executor.sandbox;
+
+import com.javadeobfuscator.deobfuscator.executor.exceptions.SandboxViolationException;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassWriter;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Handle;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.AbstractInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FrameNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.LabelNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.LdcInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.TryCatchBlockNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.TypeInsnNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes.*;
+
+/**
+ * Copies a method and every in-jar method it can reach into a fresh set of classes which can be defined by a
+ * {@link SandboxClassLoader}.
+ * <p>
+ * Calls and field accesses which the {@link SandboxPolicy} does not allow are rewritten into calls to private
+ * helpers which forward to {@link SandboxRuntime}. Static fields are always forwarded and {@code <clinit>} is never
+ * copied, so static state lives in the provider exactly like it does for the interpreter. Anything which cannot be
+ * expressed this way (invokedynamic, class literals, constructors of foreign types, ...) rejects the whole unit.
+ * <p>
+ * Classes are emitted as version 49 so the verifier infers types and no stack map frames have to be computed.
+ */
+public class SandboxCompiler {
+    static final String HELPER_PREFIX = "sandbox$";
+
+    private final Map<String, WrappedClassNode> classpath;
+    private final SandboxPolicy policy;
+
+    public SandboxCompiler(Map<String, WrappedClassNode> classpath, SandboxPolicy policy) {
+        this.classpath = classpath;
+        this.policy = policy;
+    }
+
+    public SandboxClassLoader compile(String owner, MethodNode entry) {
+        return new Unit().compile(owner, entry);
+    }
+
+    private boolean isInJar(String name) {
+        WrappedClassNode wrappedClassNode = classpath.get(name);
+        return wrappedClassNode != null && !wrappedClassNode.classNode.isLibrary;
+    }
+
+    private static SandboxViolationException violation(String message) {
+        return new SandboxViolationException(message);
+    }
+
+    private class Unit {
+        private final Map<String, ClassNode> copies = new LinkedHashMap<>();
+        private final Set<String> copiedMethods = new HashSet<>();
+        private final Deque<MethodNode> worklist = new ArrayDeque<>();
+        private final Map<MethodNode, String> owners = new HashMap<>();
+        private final Map<String, String> helpers = new HashMap<>();
+
+        SandboxClassLoader compile(String owner, MethodNode entry) {
+            if ((entry.access & ACC_STATIC) == 0) {
+                throw violation("Only static methods can be sandboxed");
+            }
+            if (!isInJar(owner)) {
+                throw violation("Class " + owner + " is not part of the input");
+            }
+            ensureClass(owner);
+            addMethod(owner, entry);
+            drain();
+            boolean changed;
+            do {
+                changed = false;
+                for (String name : new ArrayList<>(copies.keySet())) {
+                    for (MethodNode method : classpath.get(name).classNode.methods) {
+                        if ((method.access & ACC_STATIC) == 0 && !method.name.equals("<init>") && !copiedMethods.contains(name + "." + method.name + method.desc) && overridesCopied(name, method)) {
+                            addMethod(name, method);
+                            drain();
+                            changed = true;
+                        }
+                    }
+                }
+            } while (changed);
+
+            Map<String, byte[]> definitions = new HashMap<>();
+            Map<String, Integer> constantPoolSizes = new HashMap<>();
+            for (ClassNode copy : copies.values()) {
+                ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+                copy.accept(writer);
+                definitions.put(copy.name, writer.toByteArray());
+                constantPoolSizes.put(copy.name, classpath.get(copy.name).constantPoolSize);
+            }
+            return new SandboxClassLoader(definitions, constantPoolSizes, policy, owner, entry.name, entry.desc);
+        }
+
+        private void drain() {
+            while (!worklist.isEmpty()) {
+                MethodNode next = worklist.poll();
+                rewrite(copies.get(owners.get(next)), next);
+            }
+        }
+
+        private boolean overridesCopied(String owner, MethodNode method) {
+            Deque<String> supers = new ArrayDeque<>();
+            Set<String> seen = new HashSet<>();
+            ClassNode classNode = classpath.get(owner).classNode;
+            supers.add(classNode.superName == null ? "" : classNode.superName);
+            supers.addAll(classNode.interfaces);
+            while (!supers.isEmpty()) {
+                String name = supers.poll();
+                if (!seen.add(name) || !copies.containsKey(name)) {
+                    continue;
+                }
+                if (copiedMethods.contains(name + "." + method.name + method.desc)) {
+                    return true;
+                }
+                ClassNode superNode = classpath.get(name).classNode;
+                if (superNode.superName != null) {
+                    supers.add(superNode.superName);
+                }
+                supers.addAll(superNode.interfaces);
+            }
+            return false;
+        }
+
+        private ClassNode ensureClass(String name) {
+            ClassNode copy = copies.get(name);
+            if (copy != null) {
+                return copy;
+            }
+            ClassNode original = classpath.get(name).classNode;
+            copy = new ClassNode();
+            copy.version = V1_5;
+            copy.access = original.access;
+            copy.name = original.name;
+            copy.superName = original.superName;
+            copy.interfaces = new ArrayList<>(original.interfaces);
+            for (FieldNode field : original.fields) {
+                if ((field.access & ACC_STATIC) == 0) {
+                    copy.fields.add(new FieldNode(field.access, field.name, field.desc, null, null));
+                }
+            }
+            copies.put(name, copy);
+            if (original.superName != null) {
+                requireClass(original.superName);
+            }
+            for (String itf : original.interfaces) {
+                requireClass(itf);
+            }
+            return copy;
+        }
+
+        private void requireClass(String name) {
+            if (isInJar(name)) {
+                ensureClass(name);
+            } else if (!policy.isLoadable(name)) {
+                throw violation("Type " + name + " is not allowed in the sandbox");
+            }
+        }
+
+        private void requireType(Type type) {
+            switch (type.getSort()) {
+                case Type.ARRAY:
+                    requireType(type.getElementType());
+                    break;
+                case Type.OBJECT:
+                    requireClass(type.getInternalName());
+                    break;
+                case Type.METHOD:
+                    for (Type arg : type.getArgumentTypes()) {
+                        requireType(arg);
+                    }
+                    requireType(type.getReturnType());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void addMethod(String owner, MethodNode method) {
+            if (!copiedMethods.add(owner + "." + method.name + method.desc)) {
+                return;
+            }
+            if (method.name.equals("<clinit>")) {
+                return;
+            }
+            if ((method.access & ACC_NATIVE) != 0) {
+                throw violation("Native method " + owner + " " + method.name + method.desc);
+            }
+            if ((classpath.get(owner).classNode.access & ACC_INTERFACE) != 0 && (method.access & ACC_ABSTRACT) == 0) {
+                throw violation("Interface method with code " + owner + " " + method.name + method.desc);
+            }
+            requireType(Type.getMethodType(method.desc));
+            MethodNode copy = new MethodNode(method.access, method.name, method.desc, method.signature, method.exceptions.toArray(new String[method.exceptions.size()]));
+            if ((method.access & ACC_ABSTRACT) == 0) {
+                Map<LabelNode, LabelNode> labels = new HashMap<>();
+                for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                    if (insn instanceof LabelNode) {
+                        labels.put((LabelNode) insn, new LabelNode());
+                    }
+                }
+                for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                    if (!(insn instanceof FrameNode)) {
+                        copy.instructions.add(insn.clone(labels));
+                    }
+                }
+                for (TryCatchBlockNode tryCatch : method.tryCatchBlocks) {
+                    if (tryCatch.type != null) {
+                        requireClass(tryCatch.type);
+                    }
+                    copy.tryCatchBlocks.add(new TryCatchBlockNode(labels.get(tryCatch.start), labels.get(tryCatch.end), labels.get(tryCatch.handler), tryCatch.type));
+                }
+            }
+            ensureClass(owner).methods.add(copy);
+            owners.put(copy, owner);
+            worklist.add(copy);
+        }
+
+        private void rewrite(ClassNode copy, MethodNode method) {
+            for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                if (insn instanceof MethodInsnNode) {
+                    MethodInsnNode cast = (MethodInsnNode) insn;
+                    requireType(Type.getMethodType(cast.desc));
+                    if (isInJar(cast.owner)) {
+                        linkInJar(cast);
+                    } else if (policy.isNative(cast.owner, cast.name, cast.desc)) {
+                        requireType(Type.getObjectType(cast.owner));
+                    } else if (cast.name.equals("<init>")) {
+                        throw violation("Cannot construct " + cast.owner + " in the sandbox");
+                    } else {
+                        AbstractInsnNode replacement = bridgeMethod(copy, cast);
+                        method.instructions.set(cast, replacement);
+                        insn = replacement;
+                    }
+                } else if (insn instanceof FieldInsnNode) {
+                    FieldInsnNode cast = (FieldInsnNode) insn;
+                    requireType(Type.getType(cast.desc));
+                    if (cast.getOpcode() == GETFIELD || cast.getOpcode() == PUTFIELD) {
+                        if (isInJar(cast.owner)) {
+                            ensureClass(cast.owner);
+                            continue;
+                        }
+                    }
+                    AbstractInsnNode replacement = bridgeField(copy, cast);
+                    method.instructions.set(cast, replacement);
+                    insn = replacement;
+                } else if (insn instanceof TypeInsnNode) {
+                    TypeInsnNode cast = (TypeInsnNode) insn;
+                    requireType(cast.desc.startsWith("[") ? Type.getType(cast.desc) : Type.getObjectType(cast.desc));
+                    if (cast.getOpcode() == NEW && !isInJar(cast.desc) && !policy.isNative(cast.desc, "<init>", "()V")) {
+                        throw violation("Cannot construct " + cast.desc + " in the sandbox");
+                    }
+                } else if (insn instanceof MultiANewArrayInsnNode) {
+                    requireType(Type.getType(((MultiANewArrayInsnNode) insn).desc));
+                } else if (insn instanceof LdcInsnNode) {
+                    Object cst = ((LdcInsnNode) insn).cst;
+                    if (cst instanceof Type || cst instanceof Handle) {
+                        throw violation("Constant " + cst + " is not supported in the sandbox");
+                    }
+                } else if (insn instanceof InvokeDynamicInsnNode) {
+                    throw violation("invokedynamic is not supported in the sandbox");
+                }
+            }
+        }
+
+        /**
+         * Resolves a call on an in-jar owner the way the JVM would and schedules the target for copying.
+         */
+        private void linkInJar(MethodInsnNode cast) {
+            Deque<String> queue = new ArrayDeque<>();
+            Set<String> seen = new HashSet<>();
+            queue.add(cast.owner);
+            String foreign = null;
+            while (!queue.isEmpty()) {
+                String name = queue.poll();
+                if (!seen.add(name)) {
+                    continue;
+                }
+                if (!isInJar(name)) {
+                    if (foreign == null) {
+                        foreign = name;
+                    }
+                    continue;
+                }
+                ClassNode classNode = classpath.get(name).classNode;
+                for (MethodNode method : classNode.methods) {
+                    if (method.name.equals(cast.name) && method.desc.equals(cast.desc)) {
+                        ensureClass(name);
+                        addMethod(name, method);
+                        return;
+                    }
+                }
+                if (classNode.superName != null) {
+                    queue.add(classNode.superName);
+                }
+                queue.addAll(classNode.interfaces);
+            }
+            if (foreign == null || !policy.isNative(foreign, cast.name, cast.desc)) {
+                throw violation("Could not link " + cast.owner + " " + cast.name + cast.desc);
+            }
+            ensureClass(cast.owner);
+        }
+
+        private MethodInsnNode bridgeMethod(ClassNode copy, MethodInsnNode cast) {
+            boolean isStatic = cast.getOpcode() == INVOKESTATIC;
+            Type[] args = Type.getArgumentTypes(cast.desc);
+            Type returnType = Type.getReturnType(cast.desc);
+            StringBuilder desc = new StringBuilder("(");
+            if (!isStatic) {
+                desc.append("Ljava/lang/Object;");
+            }
+            for (Type arg : args) {
+                desc.append(arg.getDescriptor());
+            }
+            desc.append(')').append(returnType.getDescriptor());
+            String name = helper(copy, cast.getOpcode() + cast.owner + "." + cast.name + cast.desc, desc.toString(), helper -> {
+                helper.visitLdcInsn(cast.owner);
+                helper.visitLdcInsn(cast.name);
+                helper.visitLdcInsn(cast.desc);
+                int local = 0;
+                if (!isStatic) {
+                    helper.visitVarInsn(ALOAD, local++);
+                }
+                pushInt(helper, args.length);
+                helper.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+                for (int i = 0; i < args.length; i++) {
+                    helper.visitInsn(DUP);
+                    pushInt(helper, i);
+                    helper.visitVarInsn(args[i].getOpcode(ILOAD), local);
+                    box(helper, args[i]);
+                    helper.visitInsn(AASTORE);
+                    local += args[i].getSize();
+                }
+                if (isStatic) {
+                    helper.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "invokeStatic", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/Object;", false);
+                } else {
+                    helper.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "invokeVirtual", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", false);
+                }
+                unboxAndReturn(helper, returnType);
+            });
+            return new MethodInsnNode(INVOKESTATIC, copy.name, name, desc.toString(), false);
+        }
+
+        private MethodInsnNode bridgeField(ClassNode copy, FieldInsnNode cast) {
+            Type type = Type.getType(cast.desc);
+            String desc;
+            switch (cast.getOpcode()) {
+                case GETSTATIC:
+                    desc = "()" + cast.desc;
+                    break;
+                case PUTSTATIC:
+                    desc = "(" + cast.desc + ")V";
+                    break;
+                case GETFIELD:
+                    desc = "(Ljava/lang/Object;)" + cast.desc;
+                    break;
+                default:
+                    desc = "(Ljava/lang/Object;" + cast.desc + ")V";
+                    break;
+            }
+            String name = helper(copy, cast.getOpcode() + cast.owner + "." + cast.name + cast.desc, desc, helper -> {
+                helper.visitLdcInsn(cast.owner);
+                helper.visitLdcInsn(cast.name);
+                helper.visitLdcInsn(cast.desc);
+                switch (cast.getOpcode()) {
+                    case GETSTATIC:
+                        helper.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "getStatic", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)Ljava/lang/Object;", false);
+                        unboxAndReturn(helper, type);
+                        break;
+                    case PUTSTATIC:
+                        helper.visitVarInsn(type.getOpcode(ILOAD), 0);
+                        box(helper, type);
+                        helper.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "putStatic", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;)V", false);
+                        helper.visitInsn(RETURN);
+                        break;
+                    case GETFIELD:
+                        helper.visitVarInsn(ALOAD, 0);
+                        helper.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "getField", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;", false);
+                        unboxAndReturn(helper, type);
+                        break;
+                    default:
+                        helper.visitVarInsn(ALOAD, 0);
+                        helper.visitVarInsn(type.getOpcode(ILOAD), 1);
+                        box(helper, type);
+                        helper.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "putField", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;Ljava/lang/Object;)V", false);
+                        helper.visitInsn(RETURN);
+                        break;
+                }
+            });
+            return new MethodInsnNode(INVOKESTATIC, copy.name, name, desc, false);
+        }
+
+        private String helper(ClassNode copy, String key, String desc, Consumer<MethodNode> body) {
+            String name = helpers.get(copy.name + " " + key);
+            if (name == null) {
+                name = HELPER_PREFIX + helpers.size();
+                MethodNode helper = new MethodNode(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC, name, desc, null, null);
+                body.accept(helper);
+                helper.visitMaxs(0, 0);
+                copy.methods.add(helper);
+                helpers.put(copy.name + " " + key, name);
+            }
+            return name;
+        }
+    }
+
+    private static void pushInt(MethodNode method, int value) {
+        if (value <= 5) {
+            method.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            method.visitIntInsn(BIPUSH, value);
+        } else {
+            method.visitIntInsn(SIPUSH, value);
+        }
+    }
+
+    private static void box(MethodNode method, Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+                break;
+            case Type.CHAR:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Character", "valueOf", "(C)Ljava/lang/Character;", false);
+                break;
+            case Type.BYTE:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Byte", "valueOf", "(B)Ljava/lang/Byte;", false);
+                break;
+            case Type.SHORT:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Short", "valueOf", "(S)Ljava/lang/Short;", false);
+                break;
+            case Type.INT:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
+                break;
+            case Type.FLOAT:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "valueOf", "(F)Ljava/lang/Float;", false);
+                break;
+            case Type.LONG:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Long", "valueOf", "(J)Ljava/lang/Long;", false);
+                break;
+            case Type.DOUBLE:
+                method.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void unboxAndReturn(MethodNode method, Type type) {
+        switch (type.getSort()) {
+            case Type.VOID:
+                method.visitInsn(POP);
+                method.visitInsn(RETURN);
+                return;
+            case Type.BOOLEAN:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toBoolean", "(Ljava/lang/Object;)Z", false);
+                break;
+            case Type.CHAR:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toChar", "(Ljava/lang/Object;)C", false);
+                break;
+            case Type.BYTE:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toByte", "(Ljava/lang/Object;)B", false);
+                break;
+            case Type.SHORT:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toShort", "(Ljava/lang/Object;)S", false);
+                break;
+            case Type.INT:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toInt", "(Ljava/lang/Object;)I", false);
+                break;
+            case Type.FLOAT:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toFloat", "(Ljava/lang/Object;)F", false);
+                break;
+            case Type.LONG:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toLong", "(Ljava/lang/Object;)J", false);
+                break;
+            case Type.DOUBLE:
+                method.visitMethodInsn(INVOKESTATIC, SandboxRuntime.INTERNAL_NAME, "toDouble", "(Ljava/lang/Object;)D", false);
+                break;
+            default:
+                if (!type.getInternalName().equals("java/lang/Object")) {
+                    method.visitTypeInsn(CHECKCAST, type.getInternalName());
+                }
+                break;
+        }
+        method.visitInsn(type.getOpcode(IRETURN));
+    }
+}
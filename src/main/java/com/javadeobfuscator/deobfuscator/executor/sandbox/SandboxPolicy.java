@@ -0,0 +1,95 @@
+package com.javadeobfuscator.deobfuscator.executor.sandbox;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides what sandboxed code may touch directly.
+ * <p>
+ * A <i>loadable</i> type may appear in descriptors, casts and handlers and is resolved from the bootstrap loader.
+ * A <i>native</i> class additionally has all of its members executed directly; every other JDK member access is
+ * routed through the {@link com.javadeobfuscator.deobfuscator.executor.providers.Provider}.
+ */
+public class SandboxPolicy {
+    private final Set<String> loadable = new HashSet<>();
+    private final Set<String> nativeClasses = new HashSet<>();
+    private final Set<String> nativeMembers = new HashSet<>();
+    private final Set<String> deniedMembers = new HashSet<>();
+
+    public static SandboxPolicy defaultPolicy() {
+        return new SandboxPolicy()
+                .allowClass("java/lang/Object", "java/lang/String", "java/lang/StringBuilder", "java/lang/StringBuffer", "java/lang/CharSequence")
+                .allowClass("java/lang/Math", "java/lang/StrictMath", "java/lang/Number", "java/lang/Integer", "java/lang/Long", "java/lang/Short", "java/lang/Byte", "java/lang/Character", "java/lang/Boolean", "java/lang/Float", "java/lang/Double")
+                .allowClass("java/lang/StackTraceElement")
+                .allowClass("java/lang/Throwable", "java/lang/Exception", "java/lang/RuntimeException", "java/lang/Error")
+                .allowClass("java/lang/ArithmeticException", "java/lang/ArrayIndexOutOfBoundsException", "java/lang/IndexOutOfBoundsException", "java/lang/StringIndexOutOfBoundsException", "java/lang/NullPointerException", "java/lang/ClassCastException", "java/lang/IllegalArgumentException", "java/lang/IllegalStateException", "java/lang/NumberFormatException", "java/lang/UnsupportedOperationException")
+                .allowType("java/lang/Comparable", "java/lang/Cloneable", "java/io/Serializable", "java/lang/Appendable", "java/lang/Thread", "java/lang/System")
+                .allowMember("java/lang/System", "arraycopy", "(Ljava/lang/Object;ILjava/lang/Object;II)V")
+                .denyMember("getClass", "()Ljava/lang/Class;")
+                .denyMember("getStackTrace", "()[Ljava/lang/StackTraceElement;")
+                .denyMember("setStackTrace", "([Ljava/lang/StackTraceElement;)V")
+                .denyMember("fillInStackTrace", "()Ljava/lang/Throwable;")
+                .denyMember("printStackTrace", "()V")
+                .denyMember("wait", "()V")
+                .denyMember("wait", "(J)V")
+                .denyMember("wait", "(JI)V");
+    }
+
+    public SandboxPolicy allowType(String... types) {
+        for (String type : types) {
+            loadable.add(type);
+        }
+        return this;
+    }
+
+    public SandboxPolicy allowClass(String... types) {
+        for (String type : types) {
+            loadable.add(type);
+            nativeClasses.add(type);
+        }
+        return this;
+    }
+
+    public SandboxPolicy allowMember(String owner, String name, String desc) {
+        loadable.add(owner);
+        nativeMembers.add(owner + "." + name + desc);
+        return this;
+    }
+
+    /**
+     * Forces the given member to go through the provider on every owner, even native classes.
+     */
+    public SandboxPolicy denyMember(String name, String desc) {
+        deniedMembers.add(name + desc);
+        return this;
+    }
+
+    public boolean isLoadable(Type type) {
+        switch (type.getSort()) {
+            case Type.ARRAY:
+                return isLoadable(type.getElementType());
+            case Type.OBJECT:
+                return loadable.contains(type.getInternalName());
+            case Type.METHOD:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public boolean isLoadable(String internalName) {
+        return loadable.contains(internalName);
+    }
+
+    public boolean isNative(String owner, String name, String desc) {
+        if (deniedMembers.contains(name + desc)) {
+            return false;
+        }
+        if (owner.startsWith("[")) {
+            return true;
+        }
+        return nativeClasses.contains(owner) || nativeMembers.contains(owner + "." + name + desc);
+    }
+}
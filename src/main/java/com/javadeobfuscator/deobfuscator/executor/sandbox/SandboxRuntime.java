@@ -0,0 +1,277 @@
+package com.javadeobfuscator.deobfuscator.executor.sandbox;
+
+import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.exceptions.SandboxViolationException;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaBoolean;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaByte;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaCharacter;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaDouble;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaFloat;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaInteger;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaLong;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaShort;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bridge called from sandboxed bytecode. Every member access which the {@link SandboxPolicy} does not allow natively
+ * is rewritten into a call to one of the public methods here, which forwards it to the provider of the active
+ * {@link Context}.
+ */
+public final class SandboxRuntime {
+    public static final String INTERNAL_NAME = Type.getInternalName(SandboxRuntime.class);
+
+    private static final ThreadLocal<Invocation> ACTIVE = new ThreadLocal<>();
+
+    private SandboxRuntime() {
+    }
+
+    static Invocation enter(SandboxClassLoader loader, Context context) {
+        Invocation invocation = new Invocation(loader, context, ACTIVE.get());
+        ACTIVE.set(invocation);
+        return invocation;
+    }
+
+    static void exit(Invocation invocation) {
+        if (invocation.previous == null) {
+            ACTIVE.remove();
+        } else {
+            ACTIVE.set(invocation.previous);
+        }
+    }
+
+    public static Object invokeStatic(String owner, String name, String desc, Object[] args) {
+        return invoke(owner, name, desc, null, args);
+    }
+
+    public static Object invokeVirtual(String owner, String name, String desc, Object receiver, Object[] args) {
+        return invoke(owner, name, desc, new JavaObject(receiver, owner), args);
+    }
+
+    public static Object getStatic(String owner, String name, String desc) {
+        return getField(owner, name, desc, null);
+    }
+
+    public static Object getField(String owner, String name, String desc, Object receiver) {
+        Invocation invocation = active();
+        if (receiver == null) {
+            invocation.context.initialize(owner);
+        }
+        JavaValue target = receiver == null ? null : new JavaObject(receiver, owner);
+        if (!invocation.context.provider.canGetField(owner, name, desc, target, invocation.context)) {
+            throw invocation.violate("No provider for field " + owner + " " + name + desc);
+        }
+        Object value = invocation.context.provider.getField(owner, name, desc, target, invocation.context);
+        return invocation.escape(invocation.check(value, Type.getType(desc)));
+    }
+
+    public static void putStatic(String owner, String name, String desc, Object value) {
+        putField(owner, name, desc, null, value);
+    }
+
+    public static void putField(String owner, String name, String desc, Object receiver, Object value) {
+        Invocation invocation = active();
+        if (receiver == null) {
+            invocation.context.initialize(owner);
+        }
+        JavaValue target = receiver == null ? null : new JavaObject(receiver, owner);
+        if (!invocation.context.provider.canSetField(owner, name, desc, target, value, invocation.context)) {
+            throw invocation.violate("No provider for field " + owner + " " + name + desc);
+        }
+        invocation.sideEffects = true;
+        invocation.context.provider.setField(owner, name, desc, target, value, invocation.context);
+    }
+
+    private static Object invoke(String owner, String name, String desc, JavaValue target, Object[] args) {
+        Invocation invocation = active();
+        Type[] argTypes = Type.getArgumentTypes(desc);
+        List<JavaValue> wrapped = new ArrayList<>(args.length);
+        for (int i = 0; i < args.length; i++) {
+            wrapped.add(wrap(args[i], argTypes[i]));
+        }
+        Context context = invocation.context;
+        int pushed = invocation.pushNativeFrames();
+        try {
+            if (!context.provider.canInvokeMethod(owner, name, desc, target, wrapped, context)) {
+                throw invocation.violate("No provider for method " + owner + " " + name + desc);
+            }
+            invocation.sideEffects = true;
+            Object result = context.provider.invokeMethod(owner, name, desc, target, wrapped, context);
+            return invocation.check(result, Type.getReturnType(desc));
+        } finally {
+            for (int i = 0; i < pushed; i++) {
+                context.pop();
+            }
+        }
+    }
+
+    private static Invocation active() {
+        Invocation invocation = ACTIVE.get();
+        if (invocation == null) {
+            throw new SandboxViolationException("Sandboxed code called outside of an invocation");
+        }
+        return invocation;
+    }
+
+    static JavaValue wrap(Object value, Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return new JavaBoolean((Boolean) value);
+            case Type.CHAR:
+                return new JavaCharacter((Character) value);
+            case Type.BYTE:
+                return new JavaByte((Byte) value);
+            case Type.SHORT:
+                return new JavaShort((Short) value);
+            case Type.INT:
+                return new JavaInteger((Integer) value);
+            case Type.FLOAT:
+                return new JavaFloat((Float) value);
+            case Type.LONG:
+                return new JavaLong((Long) value);
+            case Type.DOUBLE:
+                return new JavaDouble((Double) value);
+            default:
+                return new JavaObject(value, type.getInternalName());
+        }
+    }
+
+    public static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return toInt(value) != 0;
+    }
+
+    public static char toChar(Object value) {
+        if (value instanceof Character) {
+            return (Character) value;
+        }
+        return (char) toInt(value);
+    }
+
+    public static byte toByte(Object value) {
+        return (byte) toInt(value);
+    }
+
+    public static short toShort(Object value) {
+        return (short) toInt(value);
+    }
+
+    public static int toInt(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof Character) {
+            return (Character) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        throw active().violate("Expected int but got " + describe(value));
+    }
+
+    public static long toLong(Object value) {
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        throw active().violate("Expected long but got " + describe(value));
+    }
+
+    public static float toFloat(Object value) {
+        if (value instanceof Float) {
+            return (Float) value;
+        }
+        throw active().violate("Expected float but got " + describe(value));
+    }
+
+    public static double toDouble(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        throw active().violate("Expected double but got " + describe(value));
+    }
+
+    private static String describe(Object value) {
+        return value == null ? "null" : value.getClass().getName();
+    }
+
+    static class Invocation {
+        private final SandboxClassLoader loader;
+        private final Context context;
+        private final Invocation previous;
+        SandboxViolationException violation;
+
+        /**
+         * Set once the sandboxed code could have changed anything outside of itself: it wrote a field through the
+         * provider, called the provider, or got hold of a mutable object it doesn't own.
+         */
+        boolean sideEffects;
+
+        Invocation(SandboxClassLoader loader, Context context, Invocation previous) {
+            this.loader = loader;
+            this.context = context;
+            this.previous = previous;
+        }
+
+        /**
+         * Records the violation so that it is still reported if the sandboxed code swallows the exception.
+         */
+        SandboxViolationException violate(String message) {
+            SandboxViolationException exception = new SandboxViolationException(message, !sideEffects);
+            if (violation == null) {
+                violation = exception;
+            }
+            return exception;
+        }
+
+        Object check(Object value, Type type) {
+            if (value == null || type.getSort() < Type.ARRAY) {
+                return value;
+            }
+            Class<?> expected;
+            try {
+                expected = loader.resolve(type);
+            } catch (ClassNotFoundException e) {
+                throw violate("Could not resolve " + type.getDescriptor());
+            }
+            if (!expected.isInstance(value)) {
+                throw violate("Provider returned " + describe(value) + " for " + type.getDescriptor());
+            }
+            return value;
+        }
+
+        /**
+         * Notes that the sandboxed code now holds the given value, which counts as a side effect unless it is
+         * immutable.
+         */
+        Object escape(Object value) {
+            if (value != null && !(value instanceof String) && !(value instanceof Number) && !(value instanceof Character) && !(value instanceof Boolean)) {
+                sideEffects = true;
+            }
+            return value;
+        }
+
+        /**
+         * Mirrors the sandboxed frames of the real call stack onto the context, the same way the interpreter
+         * would have pushed them, so providers which inspect the stack see consistent results.
+         */
+        int pushNativeFrames() {
+            StackTraceElement[] trace = new Throwable().getStackTrace();
+            int pushed = 0;
+            for (int i = trace.length - 1; i >= 0; i--) {
+                StackTraceElement element = trace[i];
+                String owner = element.getClassName().replace('.', '/');
+                if (loader.isSandboxed(owner) && !element.getMethodName().startsWith(SandboxCompiler.HELPER_PREFIX)) {
+                    context.push(owner, element.getMethodName(), loader.getConstantPoolSize(owner));
+                    pushed++;
+                }
+            }
+            return pushed;
+        }
+    }
+}
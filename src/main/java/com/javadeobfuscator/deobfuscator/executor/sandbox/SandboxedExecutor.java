@@ -0,0 +1,79 @@
+package com.javadeobfuscator.deobfuscator.executor.sandbox;
+
+import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
+import com.javadeobfuscator.deobfuscator.executor.exceptions.SandboxViolationException;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drop-in replacement for {@link MethodExecutor#execute} for static methods which are called many times, such as
+ * string decryptors. The first call compiles the method with a {@link SandboxCompiler}; later calls run it natively.
+ * Whenever the sandbox rejects the method, or reports a violation before the native code had any side effect, the
+ * call is replayed by the interpreter. A violation after a side effect can't be replayed safely, so it is rethrown
+ * and the method is left to the interpreter from then on. Exceptions thrown by the method itself are rethrown as
+ * they are.
+ * <p>
+ * Instances are thread-safe and meant to be shared by every worker of a transformer.
+ */
+public class SandboxedExecutor {
+    private final SandboxCompiler compiler;
+    private final Map<String, SandboxClassLoader> units = new ConcurrentHashMap<>();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger nativeCalls = new AtomicInteger();
+    private final AtomicInteger fallbacks = new AtomicInteger();
+
+    public SandboxedExecutor(Map<String, WrappedClassNode> classpath) {
+        this(classpath, SandboxPolicy.defaultPolicy());
+    }
+
+    public SandboxedExecutor(Map<String, WrappedClassNode> classpath, SandboxPolicy policy) {
+        this.compiler = new SandboxCompiler(classpath, policy);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(WrappedClassNode classNode, MethodNode method, List<JavaValue> args, Context context) {
+        String key = classNode.classNode.name + "." + method.name + method.desc;
+        if (!rejected.contains(key)) {
+            SandboxClassLoader unit = units.get(key);
+            try {
+                if (unit == null) {
+                    unit = compiler.compile(classNode.classNode.name, method);
+                    SandboxClassLoader existing = units.putIfAbsent(key, unit);
+                    if (existing != null) {
+                        unit = existing;
+                    }
+                }
+                T result = (T) unit.invoke(args, context);
+                nativeCalls.incrementAndGet();
+                return result;
+            } catch (SandboxViolationException e) {
+                if (unit == null || e.getCause() instanceof LinkageError || !e.isReplayable()) {
+                    rejected.add(key);
+                    units.remove(key);
+                }
+                if (!e.isReplayable()) {
+                    throw e;
+                }
+            }
+        }
+        fallbacks.incrementAndGet();
+        return MethodExecutor.execute(classNode, method, args, null, context);
+    }
+
+    public int getNativeCalls() {
+        return nativeCalls.get();
+    }
+
+    public int getFallbacks() {
+        return fallbacks.get();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.fingerprint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.transformers.Transformers;
+
+/**
+ * Result of a {@link Fingerprinter} run: how many call sites or classes look like the work of each known
+ * obfuscator transformation.
+ */
+public class Fingerprint {
+    /**
+     * Every transformer the fingerprinter knows about, in the order they should run. Reflection and invokedynamic
+     * obfuscation hide the calls the string decryptors look for, so they are undone first.
+     */
+    static final List<Class<? extends Transformer>> ORDER = Collections.unmodifiableList(new ArrayList<Class<? extends Transformer>>() {{
+        add(Transformers.Stringer.INVOKEDYNAMIC);
+        add(Transformers.Stringer.REFLECTION_OBFUSCATION);
+        add(Transformers.Stringer.STRING_ENCRYPTION);
+        add(Transformers.Zelix.REFLECTION_OBFUSCATION);
+        add(Transformers.Zelix.STRING_ENCRYPTION);
+        add(Transformers.Allatori.STRING_ENCRYPTION);
+        add(Transformers.DashO.STRING_ENCRYPTION);
+    }});
+
+    private final Map<Class<? extends Transformer>, Integer> scores;
+    private final int classCount;
+
+    Fingerprint(Map<Class<? extends Transformer>, Integer> scores, int classCount) {
+        this.scores = scores;
+        this.classCount = classCount;
+    }
+
+    public int getScore(Class<? extends Transformer> transformer) {
+        Integer score = scores.get(transformer);
+        return score == null ? 0 : score;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @return the transformers which found something to do, in the order they should be applied
+     */
+    public List<Class<? extends Transformer>> getRecommendedTransformers() {
+        List<Class<? extends Transformer>> recommended = new ArrayList<>();
+        for (Class<? extends Transformer> transformer : ORDER) {
+            if (getScore(transformer) > 0) {
+                recommended.add(transformer);
+            }
+        }
+        return recommended;
+    }
+
+    public Map<Class<? extends Transformer>, Integer> getScores() {
+        Map<Class<? extends Transformer>, Integer> result = new LinkedHashMap<>();
+        for (Class<? extends Transformer> transformer : ORDER) {
+            result.put(transformer, getScore(transformer));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.fingerprint;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.AbstractInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.LdcInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.transformers.Transformers;
+import com.javadeobfuscator.deobfuscator.utils.Utils;
+
+/**
+ * Guesses which obfuscators were applied to a jar, without interpreting anything. Classes are parsed without debug
+ * information and frames, in parallel, and every method is checked for the call site shapes the transformers in
+ * {@link Transformers} look for. The checks are deliberately cheap and may overcount; a transformer that is
+ * recommended but has nothing to do only costs one scan of its own.
+ */
+public class Fingerprinter {
+    private static final String STRINGER_BOOTSTRAP = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/Object;";
+
+    public Fingerprint scan(File input) throws IOException {
+        List<byte[]> classFiles = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(input)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".class")) {
+                    classFiles.add(Utils.toByteArray(zipFile.getInputStream(entry)));
+                }
+            }
+        }
+        Map<String, ClassNode> classes = new ConcurrentHashMap<>();
+        classFiles.parallelStream().forEach(bytes -> {
+            try {
+                ClassNode node = new ClassNode();
+                new ClassReader(bytes).accept(node, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                classes.put(node.name, node);
+            } catch (RuntimeException ignored) {
+                // Not a class we can read, the deobfuscator will report it
+            }
+        });
+        return scan(classes);
+    }
+
+    public Fingerprint scan(Map<String, ClassNode> classes) {
+        Map<Class<? extends Transformer>, AtomicInteger> counters = new HashMap<>();
+        for (Class<? extends Transformer> transformer : Fingerprint.ORDER) {
+            counters.put(transformer, new AtomicInteger());
+        }
+        classes.values().parallelStream().forEach(classNode -> {
+            for (MethodNode methodNode : classNode.methods) {
+                scan(classes, classNode, methodNode, counters);
+            }
+        });
+        Map<Class<? extends Transformer>, Integer> scores = new HashMap<>();
+        counters.forEach((transformer, counter) -> scores.put(transformer, counter.get()));
+        return new Fingerprint(scores, classes.size());
+    }
+
+    private void scan(Map<String, ClassNode> classes, ClassNode classNode, MethodNode methodNode, Map<Class<? extends Transformer>, AtomicInteger> counters) {
+        boolean clinit = methodNode.name.equals("<clinit>");
+        for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof InvokeDynamicInsnNode) {
+                InvokeDynamicInsnNode indy = (InvokeDynamicInsnNode) insn;
+                if (indy.bsm.getDesc().equals(STRINGER_BOOTSTRAP) && indy.bsmArgs.length == 1 && indy.bsmArgs[0] instanceof String) {
+                    counters.get(Transformers.Stringer.INVOKEDYNAMIC).incrementAndGet();
+                }
+            } else if (insn instanceof MethodInsnNode) {
+                MethodInsnNode m = (MethodInsnNode) insn;
+                ClassNode owner = classes.get(m.owner);
+                if (m.desc.equals("(J)Ljava/lang/reflect/Method;") && owner != null) {
+                    counters.get(Transformers.Zelix.REFLECTION_OBFUSCATION).incrementAndGet();
+                } else if (m.getOpcode() == Opcodes.INVOKESTATIC && owner != null && hasStaticField(owner, "[Ljava/lang/Object;") && hasStaticField(owner, "[Ljava/lang/Class;") && !isStringDecryptor(m.desc)) {
+                    counters.get(Transformers.Stringer.REFLECTION_OBFUSCATION).incrementAndGet();
+                } else if (clinit && owner != null && m.desc.equals("(Ljava/lang/String;)[C")) {
+                    AbstractInsnNode next = Utils.getNext(m);
+                    if (next instanceof MethodInsnNode && ((MethodInsnNode) next).desc.equals("([C)Ljava/lang/String;")) {
+                        counters.get(Transformers.Zelix.STRING_ENCRYPTION).incrementAndGet();
+                    }
+                } else if (m.getOpcode() == Opcodes.INVOKESTATIC && m.desc.equals("(II)Ljava/lang/String;") && m.owner.equals(classNode.name) && isIntPush(Utils.getPrevious(m)) && isIntPush(Utils.getPrevious(Utils.getPrevious(m)))) {
+                    counters.get(Transformers.Zelix.STRING_ENCRYPTION).incrementAndGet();
+                }
+            } else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof String) {
+                scanLdc(classes, (LdcInsnNode) insn, counters);
+            }
+        }
+    }
+
+    /**
+     * Encrypted strings are loaded with ldc and passed straight into a static decryptor of the jar.
+     */
+    private void scanLdc(Map<String, ClassNode> classes, LdcInsnNode ldc, Map<Class<? extends Transformer>, AtomicInteger> counters) {
+        AbstractInsnNode next = Utils.getNext(ldc);
+        if (next instanceof MethodInsnNode) {
+            MethodInsnNode m = (MethodInsnNode) next;
+            ClassNode owner = classes.get(m.owner);
+            if (owner == null || m.getOpcode() != Opcodes.INVOKESTATIC || !isStringDecryptor(m.desc)) {
+                return;
+            }
+            if (hasStaticField(owner, "[Ljava/lang/Object;")) {
+                counters.get(Transformers.Stringer.STRING_ENCRYPTION).incrementAndGet();
+            } else if (m.desc.equals("(Ljava/lang/String;)Ljava/lang/String;") && isXorDecryptor(owner, m)) {
+                counters.get(Transformers.Allatori.STRING_ENCRYPTION).incrementAndGet();
+            }
+            return;
+        }
+        // DashO passes one or two ints along with the string
+        for (int i = 0; i < 2 && isIntPush(next); i++) {
+            next = Utils.getNext(next);
+            if (next instanceof MethodInsnNode) {
+                MethodInsnNode m = (MethodInsnNode) next;
+                ClassNode owner = classes.get(m.owner);
+                if (m.getOpcode() == Opcodes.INVOKESTATIC && owner != null && isDashODecryptor(m.desc) && isXorDecryptor(owner, m)) {
+                    counters.get(Transformers.DashO.STRING_ENCRYPTION).incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean isStringDecryptor(String desc) {
+        return desc.endsWith(")Ljava/lang/String;") && Type.getArgumentTypes(desc).length == 1;
+    }
+
+    private static boolean isDashODecryptor(String desc) {
+        if (!desc.endsWith(")Ljava/lang/String;")) {
+            return false;
+        }
+        boolean hasString = false;
+        for (Type type : Type.getArgumentTypes(desc)) {
+            if (type.getDescriptor().equals("Ljava/lang/String;")) {
+                hasString = true;
+            } else if (type.getSort() != Type.INT) {
+                return false;
+            }
+        }
+        return hasString;
+    }
+
+    /**
+     * The decryptors all mix the characters with xor, which ordinary string helpers rarely do.
+     */
+    private static boolean isXorDecryptor(ClassNode owner, MethodInsnNode m) {
+        for (MethodNode methodNode : owner.methods) {
+            if (methodNode.name.equals(m.name) && methodNode.desc.equals(m.desc) && Modifier.isStatic(methodNode.access)) {
+                for (AbstractInsnNode insn = methodNode.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                    if (insn.getOpcode() == Opcodes.IXOR) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIntPush(AbstractInsnNode insn) {
+        if (insn == null) {
+            return false;
+        }
+        int opcode = insn.getOpcode();
+        return (opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) || opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH || (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof Integer);
+    }
+
+    private static boolean hasStaticField(ClassNode classNode, String desc) {
+        return classNode.fields.stream().anyMatch(fn -> fn.desc.equals(desc) && Modifier.isStatic(fn.access));
+    }
+}
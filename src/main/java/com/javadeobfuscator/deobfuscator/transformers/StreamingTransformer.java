@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.javadeobfuscator.deobfuscator.transformers;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassVisitor;
+
+/**
+ * A transformer which looks at one class at a time and can do all its work while the class is copied from the
+ * input to the output. When every transformer of a run is one, the run streams each class from a ClassReader through
+ * their visitors straight into a ClassWriter, on all processors, without building trees or loading the classpath.
+ * Otherwise {@link Transformer#transform()} is used as usual.
+ */
+public interface StreamingTransformer {
+    /**
+     * Called once for every class, possibly from several threads at once.
+     *
+     * @param next the visitor to hand the transformed class to
+     * @return a visitor which transforms the class
+     */
+    ClassVisitor visitor(ClassVisitor next);
+}
@@ -17,12 +17,17 @@
 package com.javadeobfuscator.deobfuscator.transformers;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import com.javadeobfuscator.deobfuscator.Deobfuscator;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
+import com.javadeobfuscator.deobfuscator.utils.LazyClassMap;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 public abstract class Transformer {
@@ -39,12 +44,57 @@ public abstract class Transformer {
         this.callers = null;
     }
 
+    /**
+     * @return the classes to transform, without the ones the prefilter deferred
+     */
     public Collection<WrappedClassNode> classNodes() {
+        if (this.classes instanceof LazyClassMap) {
+            return ((LazyClassMap) this.classes).ownValues();
+        }
         return this.classes.values();
     }
 
     public abstract void transform() throws Throwable;
 
+    /**
+     * Declares that {@link #transform()} marks every class it changes with {@link WrappedClassNode#markDirty()}, so
+     * the classes it leaves alone can be copied from the input as-is. By default, every class the transformer could
+     * have changed is written out again.
+     */
+    public boolean tracksChanges() {
+        return false;
+    }
+
+    /**
+     * Declares which classes this transformer can possibly change. When every transformer of a run declares a
+     * filter, classes matching none of them are not parsed unless something looks them up, and are written back
+     * untouched. The default, null, means every class is needed.
+     * <p>
+     * A deferred class only joins the hierachy once something looks it up, so while classes are deferred the
+     * subclasses known to {@link Deobfuscator#getClassTree(String)} can be incomplete. Transformers which walk
+     * subclasses must not declare a filter.
+     */
+    public ConstantPoolFilter getPrefilter() {
+        return null;
+    }
+
+    /**
+     * Declares which optional parts of the input classes this transformer looks at. A part which no transformer
+     * of a run needs, and which some transformer discards anyway, is dropped while reading. The default is
+     * everything but frames.
+     */
+    public Set<ClassPart> getRequiredParts() {
+        return ClassPart.all();
+    }
+
+    /**
+     * Declares which parts of the input classes this transformer removes, so they don't need to be read at all.
+     * {@link ClassPart#CODE} can't be discarded, as every class is written back with its method bodies.
+     */
+    public Set<ClassPart> getDiscardedParts() {
+        return Collections.emptySet();
+    }
+
     // heh
     public void setDeobfuscator(Deobfuscator deobfuscator) {
         this.deobfuscator = deobfuscator;
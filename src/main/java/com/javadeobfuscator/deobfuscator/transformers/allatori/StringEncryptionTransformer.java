@@ -21,26 +21,41 @@ import com.javadeobfuscator.deobfuscator.analyzer.MethodAnalyzer;
 import com.javadeobfuscator.deobfuscator.analyzer.frame.LdcFrame;
 import com.javadeobfuscator.deobfuscator.analyzer.frame.MethodFrame;
 import com.javadeobfuscator.deobfuscator.executor.Context;
-import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
 import com.javadeobfuscator.deobfuscator.executor.defined.JVMComparisonProvider;
 import com.javadeobfuscator.deobfuscator.executor.defined.JVMMethodProvider;
 import com.javadeobfuscator.deobfuscator.executor.defined.MappedMethodProvider;
 import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.sandbox.SandboxedExecutor;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.*;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class StringEncryptionTransformer extends Transformer {
+    private static final String SOURCE = "[Allatori] [StringEncryptionTransformer]";
+
 
     public StringEncryptionTransformer(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
     @Override
     public void transform() throws Throwable {
         DelegatingProvider provider = new DelegatingProvider();
@@ -48,6 +63,7 @@ public class StringEncryptionTransformer extends Transformer {
         provider.register(new JVMComparisonProvider());
         provider.register(new MappedMethodProvider(classes));
 
+        SandboxedExecutor sandbox = new SandboxedExecutor(classpath);
         AtomicInteger x = new AtomicInteger();
 
         classNodes().forEach(wrappedClassNode -> {
@@ -70,17 +86,16 @@ public class StringEncryptionTransformer extends Transformer {
                                 Context context = new Context(provider);
                                 context.push(wrappedClassNode.classNode.name, methodNode.name, wrappedClassNode.constantPoolSize);
                                 if (classes.containsKey(strCl)) {
-                                    ClassNode innerClassNode = classes.get(strCl).classNode;
-                                    MethodNode decrypterNode = innerClassNode.methods.stream().filter(mn -> mn.name.equals(m.name) && mn.desc.equals(m.desc)).findFirst().orElse(null);
+                                    WrappedClassNode decrypterClassNode = classes.get(strCl);
+                                    MethodNode decrypterNode = decrypterClassNode.classNode.methods.stream().filter(mn -> mn.name.equals(m.name) && mn.desc.equals(m.desc)).findFirst().orElse(null);
                                     try {
-                                        Object o = MethodExecutor.execute(wrappedClassNode, decrypterNode, Collections.singletonList(JavaValue.valueOf(insn.cst)), null, context);
+                                        Object o = sandbox.execute(decrypterClassNode, decrypterNode, Collections.singletonList(JavaValue.valueOf(insn.cst)), context);
                                         insn.cst = o;
                                         methodNode.instructions.remove(current);
+                                        wrappedClassNode.markDirty();
+                                        deobfuscator.getEvents().decrypted(SOURCE, wrappedClassNode.classNode.name);
                                     } catch (Throwable t) {
-                                        System.out.println("Error while decrypting Allatori string.");
-                                        System.out.println("Are you sure you're deobfuscating something obfuscated by Allatori?");
-                                        System.out.println(wrappedClassNode.classNode.name + " " + methodNode.name + methodNode.desc + " " + m.owner + " " + m.name + m.desc);
-                                        t.printStackTrace(System.out);
+                                        deobfuscator.getEvents().decryptionFailed(SOURCE, wrappedClassNode.classNode.name, methodNode.name + methodNode.desc + " " + m.owner + " " + m.name + m.desc + ". Are you sure you're deobfuscating something obfuscated by Allatori?", t);
                                     }
                                 }
                             }
@@ -89,5 +104,6 @@ public class StringEncryptionTransformer extends Transformer {
                 }
             });
         });
+        deobfuscator.getEvents().info(SOURCE, "Ran " + sandbox.getNativeCalls() + " decryptions natively, " + sandbox.getFallbacks() + " in the interpreter");
     }
 }
@@ -17,7 +17,9 @@
 package com.javadeobfuscator.deobfuscator.transformers.dasho;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
 import com.javadeobfuscator.deobfuscator.analyzer.AnalyzerResult;
 import com.javadeobfuscator.deobfuscator.analyzer.MethodAnalyzer;
@@ -39,6 +41,7 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.LdcInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
 import com.javadeobfuscator.deobfuscator.utils.Utils;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
@@ -48,6 +51,16 @@ public class StringEncryptionTransformer extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
     @Override
     public void transform() throws Throwable {
         DelegatingProvider provider = new DelegatingProvider();
@@ -16,30 +16,74 @@
 
 package com.javadeobfuscator.deobfuscator.transformers.general;
 
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Label;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.MethodVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.AbstractInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.LineNumberNode;
+import com.javadeobfuscator.deobfuscator.transformers.StreamingTransformer;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
-public class LineNumberRemover extends Transformer {
+public class LineNumberRemover extends Transformer implements StreamingTransformer {
     public LineNumberRemover(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
+    @Override
+    public Set<ClassPart> getDiscardedParts() {
+        return EnumSet.of(ClassPart.LINE_NUMBERS);
+    }
+
+    @Override
+    public ConstantPoolFilter getPrefilter() {
+        return new ConstantPoolFilter().utf8("LineNumberTable");
+    }
+
     @Override
     public void transform() throws Throwable {
-        classNodes().stream().map(WrappedClassNode::getClassNode).forEach(classNode -> {
-            classNode.methods.forEach(methodNode -> {
+        classNodes().forEach(wrappedClassNode -> {
+            wrappedClassNode.classNode.methods.forEach(methodNode -> {
                 Iterator<AbstractInsnNode> it = methodNode.instructions.iterator();
                 while (it.hasNext()) {
                     if (it.next() instanceof LineNumberNode) {
                         it.remove();
+                        wrappedClassNode.markDirty();
                     }
                 }
             });
         });
     }
+
+    @Override
+    public ClassVisitor visitor(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM5, next) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM5, super.visitMethod(access, name, desc, signature, exceptions)) {
+                    @Override
+                    public void visitLineNumber(int line, Label start) {
+                    }
+                };
+            }
+        };
+    }
 }
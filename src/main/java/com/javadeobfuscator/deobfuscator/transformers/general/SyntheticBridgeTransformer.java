@@ -16,30 +16,87 @@
 
 package com.javadeobfuscator.deobfuscator.transformers.general;
 
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.FieldVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.MethodVisitor;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.transformers.StreamingTransformer;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
-public class SyntheticBridgeTransformer extends Transformer {
+public class SyntheticBridgeTransformer extends Transformer implements StreamingTransformer {
     public SyntheticBridgeTransformer(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.noneOf(ClassPart.class);
+    }
+
     @Override
     public void transform() throws Throwable {
-        classNodes().stream().map(WrappedClassNode::getClassNode).forEach(classNode -> {
+        classNodes().forEach(wrappedClassNode -> {
+            ClassNode classNode = wrappedClassNode.classNode;
+            int access = classNode.access;
             classNode.access &= ~Opcodes.ACC_SYNTHETIC;
             classNode.access &= ~Opcodes.ACC_BRIDGE;
-            classNode.methods.forEach(methodNode -> {
+            boolean modified = access != classNode.access;
+            for (MethodNode methodNode : classNode.methods) {
+                access = methodNode.access;
                 methodNode.access &= ~Opcodes.ACC_SYNTHETIC;
                 methodNode.access &= ~Opcodes.ACC_BRIDGE;
-            });
-            classNode.fields.forEach(fieldNode -> {
+                modified |= access != methodNode.access;
+            }
+            for (FieldNode fieldNode : classNode.fields) {
+                access = fieldNode.access;
                 fieldNode.access &= ~Opcodes.ACC_SYNTHETIC;
                 fieldNode.access &= ~Opcodes.ACC_BRIDGE;
-            });
+                modified |= access != fieldNode.access;
+            }
+            if (modified) {
+                wrappedClassNode.markDirty();
+            }
         });
     }
+
+    @Override
+    public ClassVisitor visitor(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM5, next) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                super.visit(version, access & ~(Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE), name, signature, superName, interfaces);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                MethodVisitor mv = super.visitMethod(access & ~(Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE), name, desc, signature, exceptions);
+                if ((access & Opcodes.ACC_SYNTHETIC) == 0) {
+                    return mv;
+                }
+                // A method writer handed out as is copies the method's attributes from the reader, which would keep
+                // the Synthetic attribute of classes older than Java 5
+                return new MethodVisitor(Opcodes.ASM5, mv) {
+                };
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                return super.visitField(access & ~(Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE), name, desc, signature, value);
+            }
+        };
+    }
 }
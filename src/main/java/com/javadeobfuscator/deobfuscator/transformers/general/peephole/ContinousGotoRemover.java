@@ -32,6 +32,11 @@ public class ContinousGotoRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger counter = new AtomicInteger();
@@ -45,6 +50,7 @@ public class ContinousGotoRemover extends Transformer {
                         if (a == b) {
                             methodNode.instructions.remove(node);
                             counter.incrementAndGet();
+                            classes.get(classNode.name).markDirty();
                         }
                     }
                 }
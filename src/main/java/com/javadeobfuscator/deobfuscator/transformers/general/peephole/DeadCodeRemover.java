@@ -33,6 +33,11 @@ public class DeadCodeRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger deadInstructions = new AtomicInteger();
@@ -46,6 +51,7 @@ public class DeadCodeRemover extends Transformer {
                         if (!(next instanceof LabelNode) && f.get(next) == null) {
                             iterator.remove();
                             deadInstructions.incrementAndGet();
+                            classes.get(classNode.name).markDirty();
                         }
                     }
                 } catch (Throwable ignored) {
@@ -32,6 +32,11 @@ public class GotoRearranger extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger counter = new AtomicInteger();
@@ -130,6 +135,7 @@ public class GotoRearranger extends Transformer {
                                         methodNode.instructions.remove(node);
                                         modified = true;
                                         counter.incrementAndGet();
+                                        classes.get(classNode.name).markDirty();
                                         continue outer;
                                     }
                                 }
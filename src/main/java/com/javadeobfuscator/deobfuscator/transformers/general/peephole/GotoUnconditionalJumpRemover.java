@@ -34,6 +34,11 @@ public class GotoUnconditionalJumpRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger counter = new AtomicInteger();
@@ -67,6 +72,7 @@ public class GotoUnconditionalJumpRemover extends Transformer {
                                         methodNode.instructions.insertBefore(node, target.clone(mapping));
                                         methodNode.instructions.remove(node);
                                         counter.incrementAndGet();
+                                        classes.get(classNode.name).markDirty();
                                         modified = true;
                                         break;
                                 }
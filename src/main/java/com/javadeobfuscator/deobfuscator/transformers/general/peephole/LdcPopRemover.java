@@ -37,6 +37,11 @@ public class LdcPopRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     private boolean willTakeTwoSlots(int opcode) {
         switch (opcode) {
             case Opcodes.DLOAD:
@@ -109,6 +114,7 @@ public class LdcPopRemover extends Transformer {
                                 methodNode.instructions.remove(next);
                                 methodNode.instructions.remove(node);
                                 counter.incrementAndGet();
+                                classes.get(classNode.name).markDirty();
                                 modified = true;
                             }
                         }
@@ -31,6 +31,11 @@ public class LdcSwapInvokeSwapPopRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger counter = new AtomicInteger();
@@ -56,6 +61,7 @@ public class LdcSwapInvokeSwapPopRemover extends Transformer {
                                             methodNode.instructions.remove(swap);
                                             methodNode.instructions.remove(node);
                                             counter.incrementAndGet();
+                                            classes.get(classNode.name).markDirty();
                                             modified = true;
                                         }
                                     }
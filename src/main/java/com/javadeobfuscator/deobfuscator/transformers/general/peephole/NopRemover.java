@@ -30,6 +30,11 @@ public class NopRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger counter = new AtomicInteger();
@@ -41,6 +46,7 @@ public class NopRemover extends Transformer {
                     if (node.getOpcode() == Opcodes.NOP) {
                         it.remove();
                         counter.getAndIncrement();
+                        classes.get(classNode.name).markDirty();
                     }
                 }
             });
@@ -38,6 +38,11 @@ public class PeepholeOptimizer extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         for (Class<? extends Transformer> peepholeTransformerClass :
@@ -35,6 +35,11 @@ public class RedundantTrapRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger redudantTraps = new AtomicInteger();
@@ -47,9 +52,11 @@ public class RedundantTrapRemover extends Transformer {
                         AbstractInsnNode nextInsn = Utils.getNext(tcbn.handler.getPrevious());
                         if (nextInsn.getOpcode() == Opcodes.ATHROW) {
                             iterator.remove();
+                            classes.get(classNode.name).markDirty();
                             redudantTraps.incrementAndGet();
                         } else if (tcbn.start.getNext() == tcbn.end) {
                             iterator.remove();
+                            classes.get(classNode.name).markDirty();
                         }
                     }
                     iterator = methodNode.tryCatchBlocks.iterator();
@@ -59,7 +66,8 @@ public class RedundantTrapRemover extends Transformer {
                         while (start.getOpcode() == -1) {
                             if (start == tcbn.end) {
                                 iterator.remove();
-                                System.out.println("Removing empty trap"); //fixme located inside GotoUnconditionalJumpRemover
+                                classes.get(classNode.name).markDirty();
+                                redudantTraps.incrementAndGet(); //fixme located inside GotoUnconditionalJumpRemover
                                 break;
                             }
                             start = start.getNext();
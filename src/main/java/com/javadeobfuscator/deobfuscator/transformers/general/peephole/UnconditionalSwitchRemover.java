@@ -32,6 +32,11 @@ public class UnconditionalSwitchRemover extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
         AtomicInteger counter = new AtomicInteger();
@@ -75,6 +80,7 @@ public class UnconditionalSwitchRemover extends Transformer {
                             insns.insertBefore(node, replace);
                             insns.remove(node);
                             counter.incrementAndGet();
+                            classes.get(classNode.name).markDirty();
                         }
                     }
                 }
@@ -128,6 +134,7 @@ public class UnconditionalSwitchRemover extends Transformer {
                                         insns.insertBefore(node, replace);
                                         insns.remove(node);
                                         counter.incrementAndGet();
+                                        classes.get(classNode.name).markDirty();
                                     }
                                 }
                             }
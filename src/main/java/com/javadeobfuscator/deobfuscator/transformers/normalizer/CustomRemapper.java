@@ -17,11 +17,39 @@
 package com.javadeobfuscator.deobfuscator.transformers.normalizer;
 
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.commons.Remapper;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
+/**
+ * The renames of all normalizers, applied in one pass when the classes are written. Fields and methods are keyed by
+ * the original names of their owner and descriptor, so they don't depend on the classes and packages renamed by
+ * other normalizers. Remapped types and descriptors are cached, as every reference in every class remaps one.
+ * <p>
+ * Methods only need to be mapped in the classes declaring them. Given a resolver, a method referenced through a
+ * class which inherits it is renamed like the method it resolves to.
+ */
 public class CustomRemapper extends Remapper {
+    private final Function<String, ClassNode> resolver;
+
+    public CustomRemapper() {
+        this(null);
+    }
+
+    /**
+     * @param resolver looks up classes by their original name, or returns null for unknown classes
+     */
+    public CustomRemapper(Function<String, ClassNode> resolver) {
+        this.resolver = resolver;
+    }
+
     /**
      * Map method name to the new name. Subclasses can override.
      *
@@ -34,37 +62,65 @@ public class CustomRemapper extends Remapper {
      * @return new name of the method
      */
     public String mapMethodName(String owner, String name, String desc) {
-        Map<String, String> map = mapMethod.get(map(owner));
+        MemberMap map = mapMethod.get(owner);
         if (map != null) {
-            String data = map.get(name + mapDesc(desc));
+            String data = map.get(name, desc);
             if (data != null) {
                 return data;
             }
         }
+        if (resolver == null || mapMethod.isEmpty()) {
+            return name;
+        }
+        MemberMap inherited = inheritedMethods.computeIfAbsent(owner, key -> new MemberMap());
+        String data = inherited.get(name, desc);
+        if (data == null) {
+            data = mapInheritedMethodName(owner, name, desc);
+            inherited.put(name, desc, data);
+        }
+        return data;
+    }
+
+    /**
+     * Looks for the class the method resolves to, searching the super classes before the interfaces.
+     *
+     * @return the new name of the method in that class, or the old name if there is no such class
+     */
+    private String mapInheritedMethodName(String owner, String name, String desc) {
+        Set<String> visited = new HashSet<>();
+        List<String> toVisit = new ArrayList<>();
+        toVisit.add(owner);
+        for (int i = 0; i < toVisit.size(); i++) {
+            String type = toVisit.get(i);
+            ClassNode node = resolver.apply(type);
+            if (node == null || !visited.add(type)) {
+                continue;
+            }
+            MemberMap map = mapMethod.get(type);
+            String data = map == null ? null : map.get(name, desc);
+            if (data != null) {
+                return data;
+            }
+            for (MethodNode method : node.methods) {
+                if (method.name.equals(name) && method.desc.equals(desc)) {
+                    return name;
+                }
+            }
+            if (node.superName != null) {
+                toVisit.add(node.superName);
+            }
+            toVisit.addAll(node.interfaces);
+        }
         return name;
     }
 
     public boolean mapMethodName(String owner, String oldName, String oldDesc, String newName, boolean force) {
-        Map<String, String> methods = mapMethod.get(map(owner));
-        Map<String, String> methodsRev = mapMethodReversed.get(map(owner));
-        if (methods == null) {
-            methods = new HashMap<>();
-            mapMethod.put(map(owner), methods);
-        }
-        if (methodsRev == null) {
-            methodsRev = new HashMap<>();
-            mapMethodReversed.put(map(owner), methodsRev);
-        }
-        if (!methodsRev.containsKey(newName +  mapDesc(oldDesc)) || force) {
-            methods.put(oldName + mapDesc(oldDesc), newName);
-            methodsRev.put(newName + mapDesc(oldDesc), oldName + mapDesc(oldDesc));
-            return true;
-        }
-        return false;
+        return mapMember(mapMethod, mapMethodReversed, owner, oldName, oldDesc, newName, force);
     }
 
     public boolean methodMappingExists(String owner, String oldName, String oldDesc) {
-        return mapMethod.containsKey(map(owner)) && mapMethod.get(map(owner)).containsKey(oldName + mapDesc(oldDesc));
+        MemberMap map = mapMethod.get(owner);
+        return map != null && map.get(oldName, oldDesc) != null;
     }
 
     /**
@@ -92,9 +148,9 @@ public class CustomRemapper extends Remapper {
      * @return new name of the field.
      */
     public String mapFieldName(String owner, String name, String desc) {
-        Map<String, String> map = mapField.get(map(owner));
+        MemberMap map = mapField.get(owner);
         if (map != null) {
-            String data = map.get(name + mapDesc(desc));
+            String data = map.get(name, desc);
             if (data != null) {
                 return data;
             }
@@ -103,32 +159,58 @@ public class CustomRemapper extends Remapper {
     }
 
     public boolean mapFieldName(String owner, String oldName, String oldDesc, String newName, boolean force) {
-        Map<String, String> fields = mapField.get(map(owner));
-        Map<String, String> fieldsRev = mapFieldReversed.get(map(owner));
-        if (fields == null) {
-            fields = new HashMap<>();
-            mapField.put(map(owner), fields);
-        }
-        if (fieldsRev == null) {
-            fieldsRev = new HashMap<>();
-            mapFieldReversed.put(map(owner), fieldsRev);
-        }
-        if (!fieldsRev.containsKey(newName + mapDesc(oldDesc)) || force) {
-            fields.put(oldName + mapDesc(oldDesc), newName);
-            fieldsRev.put(newName + mapDesc(oldDesc), oldName + mapDesc(oldDesc));
+        return mapMember(mapField, mapFieldReversed, owner, oldName, oldDesc, newName, force);
+    }
+
+    public boolean fieldMappingExists(String owner, String oldName, String oldDesc) {
+        MemberMap map = mapField.get(owner);
+        return map != null && map.get(oldName, oldDesc) != null;
+    }
+
+    private boolean mapMember(Map<String, MemberMap> members, Map<String, MemberMap> membersReversed, String owner, String oldName, String oldDesc, String newName, boolean force) {
+        MemberMap reversed = membersReversed.computeIfAbsent(owner, key -> new MemberMap());
+        if (reversed.get(newName, oldDesc) == null || force) {
+            members.computeIfAbsent(owner, key -> new MemberMap()).put(oldName, oldDesc, newName);
+            inheritedMethods.clear();
+            reversed.put(newName, oldDesc, oldName);
             return true;
         }
         return false;
     }
 
-    public boolean fieldMappingExists(String owner, String oldName, String oldDesc) {
-        return mapField.containsKey(map(owner)) && mapField.get(map(owner)).containsKey(oldName + mapDesc(oldDesc));
+    @Override
+    public String mapDesc(String desc) {
+        String mapped = descCache.get(desc);
+        if (mapped == null) {
+            mapped = super.mapDesc(desc);
+            descCache.put(desc, mapped);
+        }
+        return mapped;
+    }
+
+    @Override
+    public String mapMethodDesc(String desc) {
+        String mapped = methodDescCache.get(desc);
+        if (mapped == null) {
+            mapped = super.mapMethodDesc(desc);
+            methodDescCache.put(desc, mapped);
+        }
+        return mapped;
     }
 
     /**
      * Map type name to the new name. Subclasses can override.
      */
     public String map(String in) {
+        String mapped = typeCache.get(in);
+        if (mapped == null) {
+            mapped = mapType0(in);
+            typeCache.put(in, mapped);
+        }
+        return mapped;
+    }
+
+    private String mapType0(String in) {
         int lin = in.lastIndexOf('/');
         String className =  lin == -1 ? in : in.substring(lin + 1);
         if (lin == -1) {
@@ -159,6 +241,7 @@ public class CustomRemapper extends Remapper {
         if (!packageMapReversed.containsKey(newPackage) && !packageMap.containsKey(oldPackage)) {
             packageMapReversed.put(newPackage, oldPackage);
             packageMap.put(oldPackage, newPackage);
+            clearCaches();
             return true;
         }
         return false;
@@ -176,15 +259,50 @@ public class CustomRemapper extends Remapper {
         }
         map.put(old, newName);
         mapReversed.put(newName, old);
+        clearCaches();
         return true;
     }
 
-    private Map<String, Map<String, String>> mapField = new HashMap<>(); //name + desc
-    private Map<String, Map<String, String>> mapFieldReversed = new HashMap<>(); //name + desc
-    private Map<String, Map<String, String>> mapMethod = new HashMap<>(); //name + desc
-    private Map<String, Map<String, String>> mapMethodReversed = new HashMap<>(); //name + desc
+    private Map<String, MemberMap> mapField = new HashMap<>();
+    private Map<String, MemberMap> mapFieldReversed = new HashMap<>();
+    private Map<String, MemberMap> mapMethod = new HashMap<>();
+    private Map<String, MemberMap> mapMethodReversed = new HashMap<>();
+    private Map<String, MemberMap> inheritedMethods = new HashMap<>();
+
+    private Map<String, String> typeCache = new HashMap<>();
+    private Map<String, String> descCache = new HashMap<>();
+    private Map<String, String> methodDescCache = new HashMap<>();
 
     public String unmap(String ref) {
         return mapReversed.get(ref) == null ? ref : mapReversed.get(ref);
     }
+
+    /**
+     * @return true if nothing has been renamed
+     */
+    public boolean isEmpty() {
+        return map.isEmpty() && packageMap.isEmpty() && mapField.isEmpty() && mapMethod.isEmpty();
+    }
+
+    private void clearCaches() {
+        typeCache.clear();
+        descCache.clear();
+        methodDescCache.clear();
+    }
+
+    /**
+     * Members of one class, keyed by name and then descriptor, so looking one up doesn't build a string.
+     */
+    private static class MemberMap {
+        private final Map<String, Map<String, String>> names = new HashMap<>();
+
+        String get(String name, String desc) {
+            Map<String, String> descs = names.get(name);
+            return descs == null ? null : descs.get(desc);
+        }
+
+        void put(String name, String desc, String value) {
+            names.computeIfAbsent(name, key -> new HashMap<>()).put(desc, value);
+        }
+    }
 }
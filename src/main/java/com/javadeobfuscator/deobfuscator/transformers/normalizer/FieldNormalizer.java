@@ -16,7 +16,6 @@
 
 package com.javadeobfuscator.deobfuscator.transformers.normalizer;
 
-import com.javadeobfuscator.deobfuscator.org.objectweb.asm.commons.RemappingClassAdapter;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
@@ -36,9 +35,14 @@ public class FieldNormalizer extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
-        CustomRemapper remapper = new CustomRemapper();
+        CustomRemapper remapper = deobfuscator.getRemapper();
         AtomicInteger id = new AtomicInteger(0);
         classNodes().stream().map(WrappedClassNode::getClassNode).forEach(classNode -> {
             ClassTree tree = this.deobfuscator.getClassTree(classNode.name);
@@ -84,12 +88,5 @@ public class FieldNormalizer extends Transformer {
                 }
             }
         });
-
-        classNodes().forEach(wr -> {
-            ClassNode newNode = new ClassNode();
-            RemappingClassAdapter remap = new RemappingClassAdapter(newNode, remapper);
-            wr.classNode.accept(remap);
-            wr.classNode = newNode;
-        });
     }
 }
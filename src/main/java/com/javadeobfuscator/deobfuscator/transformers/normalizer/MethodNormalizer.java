@@ -16,207 +16,215 @@
 
 package com.javadeobfuscator.deobfuscator.transformers.normalizer;
 
-import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
-import com.javadeobfuscator.deobfuscator.org.objectweb.asm.commons.RemappingClassAdapter;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
-import com.javadeobfuscator.deobfuscator.utils.ClassTree;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
-import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Renames all methods to Method&lt;number&gt;. Methods which override each other must keep the same name, so the
+ * methods are first grouped into families, once for the whole program: classes connected through their super
+ * classes and interfaces form a hierachy, and methods of one hierachy with the same name and arguments form a
+ * family. Methods differing only in their return type stay together, so covariant overrides and their bridges are
+ * renamed alike. A family is renamed as a whole, unless one of its methods is declared by a library, which can't be
+ * renamed.
+ */
 public class MethodNormalizer extends Transformer {
+    private static final String OBJECT = "java/lang/Object";
+
     public MethodNormalizer(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
     @Override
     public void transform() throws Throwable {
-        CustomRemapper remapper = new CustomRemapper();
+        CustomRemapper remapper = deobfuscator.getRemapper();
+        Map<MethodNode, Family> families = findFamilies();
         AtomicInteger id = new AtomicInteger(0);
         classNodes().stream().map(WrappedClassNode::getClassNode).forEach(classNode -> {
-            Set<String> allClasses = new HashSet<>();
-            ClassTree tree = this.deobfuscator.getClassTree(classNode.name);
-            Set<String> tried = new HashSet<>();
-            LinkedList<String> toTry = new LinkedList<>();
-            toTry.add(tree.thisClass);
-            while (!toTry.isEmpty()) {
-                String t = toTry.poll();
-                if (tried.add(t) && !t.equals("java/lang/Object")) {
-                    ClassNode cn = this.deobfuscator.assureLoaded(t);
-                    ClassTree ct = this.deobfuscator.getClassTree(t);
-                    allClasses.add(t);
-                    allClasses.addAll(ct.parentClasses);
-                    toTry.addAll(ct.parentClasses);
-                    allClasses.addAll(ct.subClasses);
-                    toTry.addAll(ct.subClasses);
-                }
-            }
-            allClasses.remove(tree.thisClass);
-
-            for (MethodNode methodNode : new ArrayList<>(classNode.methods)) {
+            for (MethodNode methodNode : classNode.methods) {
                 if (methodNode.name.startsWith("<"))
                     continue;
                 if (methodNode.name.equals("main"))
                     continue;
-                final Map<Map.Entry<ClassNode, MethodNode>, Boolean> allMethodNodes = new HashMap<>();
-                final Type methodType = Type.getReturnType(methodNode.desc);
-                final AtomicBoolean isLibrary = new AtomicBoolean(false);
-                if (methodType.getSort() != Type.OBJECT && methodType.getSort() != Type.ARRAY) {
-                    if (methodType.getSort() == Type.METHOD) {
-                        throw new IllegalArgumentException("Did not expect method");
-                    }
-                    allClasses.stream().map(name -> this.deobfuscator.assureLoaded(name)).forEach(node -> {
-                        boolean foundSimilar = false;
-                        boolean equals = false;
-                        MethodNode equalsMethod = null;
-                        for (MethodNode method : node.methods) {
-                            Type thisType = Type.getMethodType(methodNode.desc);
-                            Type otherType = Type.getMethodType(method.desc);
-                            if (methodNode.name.equals(method.name) && Arrays.equals(thisType.getArgumentTypes(), otherType.getArgumentTypes())) {
-                                foundSimilar = true;
-                                if (thisType.getReturnType().getSort() == otherType.getReturnType().getSort()) {
-                                    equals = true;
-                                    equalsMethod = method;
-                                }
-                            }
-                        }
-                        if (foundSimilar) {
-                            if (equals) {
-                                allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, equalsMethod), true);
-                            }
-                        } else {
-                            allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, methodNode), false);
-                        }
-                    });
-                } else if (methodType.getSort() == Type.ARRAY) {
-                    Type elementType = methodType.getElementType();
-                    if (elementType.getSort() == Type.OBJECT) {
-                        String parent = elementType.getInternalName();
-                        allClasses.stream().map(name -> this.deobfuscator.assureLoaded(name)).forEach(node -> {
-                            boolean foundSimilar = false;
-                            boolean equals = false;
-                            MethodNode equalsMethod = null;
-                            for (MethodNode method : node.methods) {
-                                Type thisType = Type.getMethodType(methodNode.desc);
-                                Type otherType = Type.getMethodType(method.desc);
-                                if (methodNode.name.equals(method.name) && Arrays.equals(thisType.getArgumentTypes(), otherType.getArgumentTypes())) {
-                                    if (otherType.getReturnType().getSort() == Type.OBJECT) {
-                                        foundSimilar = true;
-                                        String child = otherType.getReturnType().getInternalName();
-                                        this.deobfuscator.assureLoaded(parent);
-                                        this.deobfuscator.assureLoaded(child);
-                                        if (this.deobfuscator.isSubclass(parent, child) || this.deobfuscator.isSubclass(child, parent)) {
-                                            equals = true;
-                                            equalsMethod = method;
-                                        }
-                                    }
-                                }
-                            }
-                            if (foundSimilar) {
-                                if (equals) {
-                                    allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, equalsMethod), true);
-                                }
-                            } else {
-                                allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, methodNode), false);
-                            }
-                        });
-                    } else {
-                        allClasses.stream().map(name -> this.deobfuscator.assureLoaded(name)).forEach(node -> {
-                            boolean foundSimilar = false;
-                            boolean equals = false;
-                            MethodNode equalsMethod = null;
-                            for (MethodNode method : node.methods) {
-                                Type thisType = Type.getMethodType(methodNode.desc);
-                                Type otherType = Type.getMethodType(method.desc);
-                                if (methodNode.name.equals(method.name) && Arrays.equals(thisType.getArgumentTypes(), otherType.getArgumentTypes())) {
-                                    foundSimilar = true;
-                                    if (thisType.getReturnType().getSort() == otherType.getReturnType().getSort()) {
-                                        equals = true;
-                                        equalsMethod = method;
-                                    }
-                                }
-                            }
-                            if (foundSimilar) {
-                                if (equals) {
-                                    allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, equalsMethod), true);
-                                }
-                            } else {
-                                allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, methodNode), false);
-                            }
-                        });
-                    }
-                } else if (methodType.getSort() == Type.OBJECT) {
-                    String parent = methodType.getInternalName();
-                    allClasses.stream().map(name -> this.deobfuscator.assureLoaded(name)).forEach(node -> {
-                        boolean foundSimilar = false;
-                        boolean equals = false;
-                        MethodNode equalsMethod = null;
-                        for (MethodNode method : node.methods) {
-                            Type thisType = Type.getMethodType(methodNode.desc);
-                            Type otherType = Type.getMethodType(method.desc);
-                            if (methodNode.name.equals(method.name) && Arrays.equals(thisType.getArgumentTypes(), otherType.getArgumentTypes())) {
-                                if (otherType.getReturnType().getSort() == Type.OBJECT) {
-                                    foundSimilar = true;
-                                    String child = otherType.getReturnType().getInternalName();
-                                    this.deobfuscator.assureLoaded(parent);
-                                    this.deobfuscator.assureLoaded(child);
-                                    if (this.deobfuscator.isSubclass(parent, child) || this.deobfuscator.isSubclass(child, parent)) {
-                                        equals = true;
-                                        equalsMethod = method;
-                                    }
-                                }
-                            }
-                        }
-                        if (foundSimilar) {
-                            if (equals) {
-                                allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, equalsMethod), true);
-                            } else {
-                                allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, methodNode), false);
-                            }
-                        } else {
-                            allMethodNodes.put(new AbstractMap.SimpleEntry<>(node, methodNode), false);
-                        }
-                    });
+                Family family = families.get(methodNode).find();
+                if (family.isLibrary || remapper.methodMappingExists(classNode.name, methodNode.name, methodNode.desc)) {
+                    continue;
                 }
-
-                allMethodNodes.entrySet().forEach(ent -> {
-                    if (ent.getKey().getKey().isLibrary && ent.getValue()) {
-                        isLibrary.set(true);
-                    }
-                });
-
-                if (!isLibrary.get()) {
-                    if (!remapper.methodMappingExists(classNode.name, methodNode.name, methodNode.desc)) {
-                        while (true) {
-                            String name = "Method" + id.getAndIncrement();
-                            if (remapper.mapMethodName(classNode.name, methodNode.name, methodNode.desc, name, false)) {
-                                allMethodNodes.keySet().forEach(ent -> {
-                                    remapper.mapMethodName(ent.getKey().name, ent.getValue().name, ent.getValue().desc, name, true);
-                                });
-                                break;
-                            }
+                while (true) {
+                    String name = "Method" + id.getAndIncrement();
+                    if (remapper.mapMethodName(classNode.name, methodNode.name, methodNode.desc, name, false)) {
+                        for (Member member : family.members) {
+                            remapper.mapMethodName(member.owner.name, member.method.name, member.method.desc, name, true);
                         }
+                        break;
                     }
                 }
             }
         });
+    }
 
-        classNodes().forEach(wr -> {
-            ClassNode newNode = new ClassNode();
-            RemappingClassAdapter remap = new RemappingClassAdapter(newNode, remapper);
-            wr.classNode.accept(remap);
-            wr.classNode = newNode;
-        });
+    /**
+     * @return the family of every method declared by the input classes and everything they inherit from
+     */
+    private Map<MethodNode, Family> findFamilies() {
+        Map<String, Hierachy> hierachies = new HashMap<>();
+        Set<String> processed = new HashSet<>();
+        LinkedList<ClassNode> toProcess = new LinkedList<>();
+        classNodes().forEach(wrappedClassNode -> toProcess.add(wrappedClassNode.classNode));
+        while (!toProcess.isEmpty()) {
+            ClassNode node = toProcess.poll();
+            if (!processed.add(node.name)) {
+                continue;
+            }
+            Hierachy hierachy = hierachies.computeIfAbsent(node.name, key -> new Hierachy(node));
+            List<String> parents = new ArrayList<>(node.interfaces);
+            if (node.superName != null) {
+                parents.add(node.superName);
+            }
+            for (String parent : parents) {
+                if (parent.equals(OBJECT)) {
+                    continue;
+                }
+                Hierachy parentHierachy = hierachies.get(parent);
+                if (parentHierachy == null) {
+                    ClassNode parentNode = deobfuscator.assureLoaded(parent);
+                    parentHierachy = new Hierachy(parentNode);
+                    hierachies.put(parent, parentHierachy);
+                    toProcess.add(parentNode);
+                }
+                hierachy.union(parentHierachy);
+            }
+        }
+
+        Map<MethodNode, Family> families = new HashMap<>();
+        Map<Hierachy, Map<String, Family>> signatures = new HashMap<>();
+        for (Hierachy hierachy : hierachies.values()) {
+            Map<String, Family> hierachySignatures = signatures.computeIfAbsent(hierachy.find(), key -> new HashMap<>());
+            for (MethodNode method : hierachy.node.methods) {
+                Family family = new Family(new Member(hierachy.node, method));
+                families.put(method, family);
+                Family similar = hierachySignatures.putIfAbsent(method.name + arguments(method.desc), family);
+                if (similar != null) {
+                    similar.union(family);
+                }
+            }
+        }
+        for (MethodNode method : deobfuscator.assureLoaded(OBJECT).methods) {
+            String signature = method.name + arguments(method.desc);
+            for (Map<String, Family> hierachySignatures : signatures.values()) {
+                Family family = hierachySignatures.get(signature);
+                if (family != null) {
+                    family.find().isLibrary = true;
+                }
+            }
+        }
+        return families;
+    }
+
+    private static String arguments(String desc) {
+        return desc.substring(0, desc.indexOf(')') + 1);
+    }
+
+    private static class Member {
+        private final ClassNode owner;
+        private final MethodNode method;
+
+        private Member(ClassNode owner, MethodNode method) {
+            this.owner = owner;
+            this.method = method;
+        }
+    }
+
+    /**
+     * Union-find node of a class. The root stands for every class connected to it.
+     */
+    private static class Hierachy {
+        private final ClassNode node;
+        private Hierachy parent = this;
+
+        private Hierachy(ClassNode node) {
+            this.node = node;
+        }
+
+        private Hierachy find() {
+            Hierachy root = this;
+            while (root.parent != root) {
+                root = root.parent;
+            }
+            for (Hierachy hierachy = this; hierachy != root; ) {
+                Hierachy next = hierachy.parent;
+                hierachy.parent = root;
+                hierachy = next;
+            }
+            return root;
+        }
+
+        private void union(Hierachy other) {
+            Hierachy root = find();
+            Hierachy otherRoot = other.find();
+            if (root != otherRoot) {
+                otherRoot.parent = root;
+            }
+        }
+    }
+
+    /**
+     * Union-find node of a method. The root holds the members of the family, and whether one of them is declared by
+     * a library.
+     */
+    private static class Family {
+        private Family parent = this;
+        private List<Member> members = new ArrayList<>(1);
+        private boolean isLibrary;
+
+        private Family(Member member) {
+            members.add(member);
+            isLibrary = member.owner.isLibrary;
+        }
+
+        private Family find() {
+            Family root = this;
+            while (root.parent != root) {
+                root = root.parent;
+            }
+            for (Family family = this; family != root; ) {
+                Family next = family.parent;
+                family.parent = root;
+                family = next;
+            }
+            return root;
+        }
+
+        private void union(Family other) {
+            Family root = find();
+            Family otherRoot = other.find();
+            if (root == otherRoot) {
+                return;
+            }
+            if (root.members.size() < otherRoot.members.size()) {
+                Family swap = root;
+                root = otherRoot;
+                otherRoot = swap;
+            }
+            otherRoot.parent = root;
+            root.members.addAll(otherRoot.members);
+            root.isLibrary |= otherRoot.isLibrary;
+            otherRoot.members = null;
+        }
     }
 }
@@ -17,12 +17,14 @@
 package com.javadeobfuscator.deobfuscator.transformers.stringer;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
 import com.javadeobfuscator.deobfuscator.executor.Context;
 
@@ -43,30 +45,53 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.InvokeDynamicIns
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 public class InvokedynamicTransformer extends Transformer {
+    private static final String SOURCE = "[Stringer] [InvokedynamicTransformer]";
+
+    private static final String BOOTSTRAP_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/Object;";
+
     public InvokedynamicTransformer(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
+    @Override
+    public ConstantPoolFilter getPrefilter() {
+        return new ConstantPoolFilter()
+                .invokeDynamic()
+                .utf8(BOOTSTRAP_DESC);
+    }
+
     @Override
     public void transform() {
-        System.out.println("[Stringer] [InvokedynamicTransformer] Starting");
-        System.out.println("[Stringer] [InvokedynamicTransformer] Finding invokedynamic instructions");
+        EventDispatcher events = deobfuscator.getEvents();
+        events.phaseStarted(SOURCE, "finding invokedynamic instructions");
         int amount = findInvokeDynamic();
-        System.out.println("[Stringer] [InvokedynamicTransformer] Found " + amount + " invokedynamic instructions");
+        events.phaseFinished(SOURCE, "finding invokedynamic instructions");
+        events.info(SOURCE, "Found " + amount + " invokedynamic instructions");
         if (amount > 0) {
-            System.out.println("[Stringer] [InvokedynamicTransformer] Inlining invokedynamic");
-            long start = System.currentTimeMillis();
+            events.phaseStarted(SOURCE, "inlining invokedynamic");
             int inlined = inlineInvokeDynamic(amount);
-            long end = System.currentTimeMillis();
-            System.out.println("[Stringer] [InvokedynamicTransformer] Removed " + inlined + " invokedynamic instructions, took " + TimeUnit.MILLISECONDS.toSeconds(end - start) + "s");
-            System.out.println("[Stringer] [InvokedynamicTransformer] Cleaning up bootstrap methods");
+            events.phaseFinished(SOURCE, "inlining invokedynamic");
+            events.info(SOURCE, "Removed " + inlined + " invokedynamic instructions");
+            events.phaseStarted(SOURCE, "cleaning up bootstrap methods");
             int cleanedup = cleanup();
-            System.out.println("[Stringer] [InvokedynamicTransformer] Removed " + cleanedup + " bootstrap methods");
+            events.phaseFinished(SOURCE, "cleaning up bootstrap methods");
+            events.info(SOURCE, "Removed " + cleanedup + " bootstrap methods");
         }
-        System.out.println("[Stringer] [InvokedynamicTransformer] Done");
     }
 
     private int findInvokeDynamic() {
@@ -89,7 +114,6 @@ public class InvokedynamicTransformer extends Transformer {
 
     private int inlineInvokeDynamic(int expected) {
         AtomicInteger total = new AtomicInteger();
-        final boolean[] alerted = new boolean[100];
 
         DelegatingProvider provider = new DelegatingProvider();
         provider.register(new DisabledFieldProvider());
@@ -166,19 +190,13 @@ public class InvokedynamicTransformer extends Transformer {
                                 }
                                 methodNode.instructions.insert(abstractInsnNode, replacement);
                                 methodNode.instructions.remove(abstractInsnNode);
-                                total.incrementAndGet();
-                                int x = (int) ((total.get() * 1.0d / expected) * 100);
-                                if (x != 0 && x % 10 == 0 && !alerted[x - 1]) {
-                                    System.out.println("[Stringer] [InvokedynamicTransformer] Done " + x + "%");
-                                    alerted[x - 1] = true;
-                                }
+                                classes.get(classNode.name).markDirty();
+                                deobfuscator.getEvents().progress(SOURCE, total.incrementAndGet(), expected);
                             } catch (ExecutionException ex) {
-                                if (ex.getCause() != null) {
-                                    ex.getCause().printStackTrace(System.out);
-                                }
+                                deobfuscator.getEvents().decryptionFailed(SOURCE, classNode.name, ex.getMessage(), ex.getCause());
                                 throw ex;
                             } catch (Throwable t) {
-                                System.out.println(classNode.name);
+                                deobfuscator.getEvents().decryptionFailed(SOURCE, classNode.name, null, null);
                                 throw t;
                             }
                         }
@@ -195,8 +213,9 @@ public class InvokedynamicTransformer extends Transformer {
             Iterator<MethodNode> it = classNode.methods.iterator();
             while (it.hasNext()) {
                 MethodNode node = it.next();
-                if (node.desc.equals("(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/Object;")) {
+                if (node.desc.equals(BOOTSTRAP_DESC)) {
                     it.remove();
+                    classes.get(classNode.name).markDirty();
                     total.incrementAndGet();
                 }
             }
@@ -18,6 +18,7 @@ package com.javadeobfuscator.deobfuscator.transformers.stringer;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -25,8 +26,10 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
 import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.StaticState;
 
 import com.javadeobfuscator.deobfuscator.executor.defined.DictionaryMethodProvider;
 import com.javadeobfuscator.deobfuscator.executor.defined.JVMMethodProvider;
@@ -47,29 +50,43 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
 import com.javadeobfuscator.deobfuscator.utils.PrimitiveUtils;
 import com.javadeobfuscator.deobfuscator.utils.Utils;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 public class ReflectionObfuscationTransformer extends Transformer {
+    private static final String SOURCE = "[Stringer] [ReflectionObfuscationTransformer]";
+
     private Set<ClassNode> remove = new HashSet<>();
     
     public ReflectionObfuscationTransformer(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
     @Override
     public void transform() {
-        System.out.println("[Stringer] [ReflectionObfuscationTransformer] Starting");
+        EventDispatcher events = deobfuscator.getEvents();
+        events.phaseStarted(SOURCE, "reflection deobfuscation");
         int count = count();
-        System.out.println("[Stringer] [ReflectionObfuscationTransformer] Found " + count + " reflection obfuscation calls");
+        events.info(SOURCE, "Found " + count + " reflection obfuscation calls");
         if (count > 0) {
             int decrypted = decrypt(count);
-            System.out.println("[Stringer] [ReflectionObfuscationTransformer] Deobfuscated " + decrypted + " reflection obfuscation calls");
+            events.info(SOURCE, "Deobfuscated " + decrypted + " reflection obfuscation calls");
             int cleanedup = cleanup();
-            System.out.println("[Stringer] [ReflectionObfuscationTransformer] Removed " + cleanedup + " reflection obfuscation classes");
+            events.info(SOURCE, "Removed " + cleanedup + " reflection obfuscation classes");
         }
-        System.out.println("[Stringer] [ReflectionObfuscationTransformer] Done");
+        events.phaseFinished(SOURCE, "reflection deobfuscation");
     }
 
     private int count() {
@@ -108,11 +125,62 @@ public class ReflectionObfuscationTransformer extends Transformer {
 
     private int decrypt(int expected) {
         AtomicInteger total = new AtomicInteger();
-        final boolean[] alerted = new boolean[100];
 
         AtomicReference<JavaMethod> myMethod = new AtomicReference<>();
 
-        Set<ClassNode> initted = new HashSet<>();
+        DelegatingProvider provider = new DelegatingProvider();
+        provider.register(new MethodProvider() {
+            public Object invokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
+                Object val = targetObject != null && targetObject.value() instanceof JavaMethod ? targetObject.value() : null;
+                if (val != null) {
+                    myMethod.set((JavaMethod) val);
+                    throw new StopExecution();
+                }
+                return val;
+            }
+
+            public boolean canInvokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
+                return className.equals("java/lang/reflect/Method") && (methodName.equals("setAccessible") || methodName.equals("invoke"));
+            }
+        });
+        provider.register(new PrimitiveFieldProvider());
+        provider.register(new MappedFieldProvider());
+        provider.register(new DictionaryMethodProvider(this.classes));
+        provider.register(new JVMMethodProvider());
+
+        provider.register(new ComparisonProvider() {
+            @Override
+            public boolean instanceOf(JavaValue target, Type type, Context context) {
+                return false;
+            }
+
+            @Override
+            public boolean checkcast(JavaValue target, Type type, Context context) {
+                return true;
+            }
+
+            @Override
+            public boolean checkEquality(JavaValue first, JavaValue second, Context context) {
+                return false;
+            }
+
+            @Override
+            public boolean canCheckInstanceOf(JavaValue target, Type type, Context context) {
+                return false;
+            }
+
+            @Override
+            public boolean canCheckcast(JavaValue target, Type type, Context context) {
+                return true;
+            }
+
+            @Override
+            public boolean canCheckEquality(JavaValue first, JavaValue second, Context context) {
+                return false;
+            }
+        });
+
+        StaticState statics = new StaticState();
 
         classNodes().stream().map(wrappedClassNode -> wrappedClassNode.classNode).forEach(classNode -> {
             classNode.methods.forEach(methodNode -> {
@@ -126,65 +194,12 @@ public class ReflectionObfuscationTransformer extends Transformer {
                             MethodNode method = target.methods.stream().filter(mn -> mn.name.equals(methodInsnNode.name) && mn.desc.equals(methodInsnNode.desc)).findFirst().orElse(null);
                             if (method != null) {
                                 if (isValidTarget(target, method)) {
-                                    DelegatingProvider provider = new DelegatingProvider();
-                                    provider.register(new MethodProvider() {
-                                        public Object invokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
-                                            Object val = targetObject != null && targetObject.value() instanceof JavaMethod ? targetObject.value() : null;
-                                            if (val != null) {
-                                                myMethod.set((JavaMethod) val);
-                                                throw new StopExecution();
-                                            }
-                                            return val;
-                                        }
-
-                                        public boolean canInvokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
-                                            return className.equals("java/lang/reflect/Method") && (methodName.equals("setAccessible") || methodName.equals("invoke"));
-                                        }
-                                    });
-                                    provider.register(new PrimitiveFieldProvider());
-                                    provider.register(new MappedFieldProvider());
-                                    provider.register(new DictionaryMethodProvider(this.classes));
-                                    provider.register(new JVMMethodProvider());
-
-                                    provider.register(new ComparisonProvider() {
-                                        @Override
-                                        public boolean instanceOf(JavaValue target, Type type, Context context) {
-                                            return false;
-                                        }
-
-                                        @Override
-                                        public boolean checkcast(JavaValue target, Type type, Context context) {
-                                            return true;
-                                        }
-
-                                        @Override
-                                        public boolean checkEquality(JavaValue first, JavaValue second, Context context) {
-                                            return false;
-                                        }
-
-                                        @Override
-                                        public boolean canCheckInstanceOf(JavaValue target, Type type, Context context) {
-                                            return false;
-                                        }
-
-                                        @Override
-                                        public boolean canCheckcast(JavaValue target, Type type, Context context) {
-                                            return true;
-                                        }
-
-                                        @Override
-                                        public boolean canCheckEquality(JavaValue first, JavaValue second, Context context) {
-                                            return false;
-                                        }
-                                    });
-
-                                    if (initted.add(target) || true) {
-                                        Context context = new Context(provider);
-                                        context.dictionary = this.classpath;
-                                        context.file = deobfuscator.getFile();
-                                        MethodNode clinit = target.methods.stream().filter(mn -> mn.name.equals("<clinit>")).findFirst().orElse(null);
-                                        MethodExecutor.execute(wrappedTarget, clinit, new ArrayList<>(), null, context);
-                                    }
+                                    myMethod.set(null);
+                                    Context context = new Context(provider);
+                                    context.dictionary = this.classpath;
+                                    context.statics = statics;
+                                    context.file = deobfuscator.getFile();
+                                    context.initialize(target.name);
                                     remove.add(target);
                                     List<JavaValue> args = new ArrayList<>();
                                     for (Type t : Type.getArgumentTypes(method.desc)) {
@@ -195,9 +210,6 @@ public class ReflectionObfuscationTransformer extends Transformer {
                                             args.add(new JavaObject(null, "java/lang/Object"));
                                         }
                                     }
-                                    Context context = new Context(provider);
-                                    context.dictionary = this.classpath;
-                                    context.file = deobfuscator.getFile();
                                     try {
                                         MethodExecutor.execute(wrappedTarget, method, args, null, context);
                                     } catch (StopExecution ex) {
@@ -215,12 +227,8 @@ public class ReflectionObfuscationTransformer extends Transformer {
                                         MethodNode mn = cn.methods.stream().filter(m -> m.name.equals(result.getName()) && m.desc.startsWith(partDesc)).findFirst().orElse(null);
                                         methodInsnNode.desc = mn.desc;
                                         methodInsnNode.setOpcode(Modifier.isStatic(mn.access) ? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL);
-                                        total.incrementAndGet();
-                                        int x = (int) ((total.get() * 1.0d / expected) * 100);
-                                        if (x != 0 && x % 10 == 0 && !alerted[x - 1]) {
-                                            System.out.println("[Stringer] [ReflectionObfuscationTransformer] Done " + x + "%");
-                                            alerted[x - 1] = true;
-                                        }
+                                        classes.get(classNode.name).markDirty();
+                                        deobfuscator.getEvents().progress(SOURCE, total.incrementAndGet(), expected);
                                     }
                                 }
                             }
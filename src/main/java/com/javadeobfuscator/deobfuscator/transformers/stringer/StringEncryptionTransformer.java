@@ -19,6 +19,7 @@ package com.javadeobfuscator.deobfuscator.transformers.stringer;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -26,7 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.Context;
 
 import com.javadeobfuscator.deobfuscator.executor.defined.JVMMethodProvider;
@@ -34,6 +35,7 @@ import com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider;
 import com.javadeobfuscator.deobfuscator.executor.defined.MappedMethodProvider;
 import com.javadeobfuscator.deobfuscator.executor.providers.ComparisonProvider;
 import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.sandbox.SandboxedExecutor;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
@@ -45,25 +47,48 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.LdcInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodInsnNode;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 public class StringEncryptionTransformer extends Transformer {
+    private static final String SOURCE = "[Stringer] [StringEncryptionTransformer]";
+
     public StringEncryptionTransformer(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
+    @Override
+    public ConstantPoolFilter getPrefilter() {
+        // The decryptor classes, and the classes calling a method which could be a decryptor
+        return new ConstantPoolFilter()
+                .utf8("[Ljava/lang/Object;")
+                .methodRef(null, null, desc -> desc.endsWith(")Ljava/lang/String;") && Type.getArgumentTypes(desc).length == 1);
+    }
+
     @Override
     public void transform() {
-        System.out.println("[Stringer] [StringEncryptionTransformer] Starting");
+        EventDispatcher events = deobfuscator.getEvents();
+        events.phaseStarted(SOURCE, "string decryption");
         int count = count();
-        System.out.println("[Stringer] [StringEncryptionTransformer] Found " + count + " encrypted strings");
+        events.info(SOURCE, "Found " + count + " encrypted strings");
         if (count > 0) {
             int decrypted = decrypt(count);
-            System.out.println("[Stringer] [StringEncryptionTransformer] Decrypted " + decrypted + " encrypted strings");
+            events.info(SOURCE, "Decrypted " + decrypted + " encrypted strings");
             int cleanedup = cleanup();
-            System.out.println("[Stringer] [StringEncryptionTransformer] Removed " + cleanedup + " decryption classes");
+            events.info(SOURCE, "Removed " + cleanedup + " decryption classes");
         }
-        System.out.println("[Stringer] [StringEncryptionTransformer] Done");
+        events.phaseFinished(SOURCE, "string decryption");
     }
 
     private int cleanup() {
@@ -136,7 +161,6 @@ public class StringEncryptionTransformer extends Transformer {
 
     private int decrypt(int expected) {
         AtomicInteger total = new AtomicInteger();
-        final boolean[] alerted = new boolean[100];
 
         DelegatingProvider provider = new DelegatingProvider();
         provider.register(new MappedFieldProvider());
@@ -175,6 +199,7 @@ public class StringEncryptionTransformer extends Transformer {
             }
         });
 
+        SandboxedExecutor sandbox = new SandboxedExecutor(classpath);
         Map<AbstractInsnNode, String> enhanced = new HashMap<>();
 
         for (WrappedClassNode classNode : classNodes()) {
@@ -201,19 +226,16 @@ public class StringEncryptionTransformer extends Transformer {
                                             context.file = deobfuscator.getFile();
                                             Object o = null;
                                             try {
-                                                o = MethodExecutor.execute(classes.get(strCl), decrypterNode, Collections.singletonList(new JavaObject(ldc.cst, "java/lang/String")), null, context);
+                                                o = sandbox.execute(classes.get(strCl), decrypterNode, Collections.singletonList(new JavaObject(ldc.cst, "java/lang/String")), context);
                                             } catch (ArrayIndexOutOfBoundsException e) {
                                                 enhanced.put(ldc, classNode.classNode.name + " " + methodNode.name);
                                             }
                                             if (o != null) {
+                                                deobfuscator.getEvents().decrypted(SOURCE, classNode.classNode.name);
                                                 ldc.cst = (String) o;
                                                 methodNode.instructions.remove(ldc.getNext());
-                                                total.incrementAndGet();
-                                                int x = (int) ((total.get() * 1.0d / expected) * 100);
-                                                if (x != 0 && x % 10 == 0 && !alerted[x - 1]) {
-                                                    System.out.println("[Stringer] [StringEncryptionTransformer] Done " + x + "%");
-                                                    alerted[x - 1] = true;
-                                                }
+                                                classNode.markDirty();
+                                                deobfuscator.getEvents().progress(SOURCE, total.incrementAndGet(), expected);
                                             }
                                         }
                                     }
@@ -257,15 +279,12 @@ public class StringEncryptionTransformer extends Transformer {
                                                     context.push(classNode.classNode.name.replace('/', '.'), methodNode.name, classNode.constantPoolSize);
                                                     context.push(targetClassNode.classNode.name.replace('/', '.'), targetMethodNode.name, targetClassNode.constantPoolSize);
                                                     context.dictionary = classpath;
-                                                    Object o = MethodExecutor.execute(classes.get(strCl), decrypterNode, Arrays.asList(new JavaObject(innerLdc.cst, "java/lang/String")), null, context);
+                                                    Object o = sandbox.execute(classes.get(strCl), decrypterNode, Arrays.asList(new JavaObject(innerLdc.cst, "java/lang/String")), context);
+                                                    deobfuscator.getEvents().decrypted(SOURCE, targetClassNode.classNode.name);
                                                     innerLdc.cst = o;
                                                     targetMethodNode.instructions.remove(innerLdc.getNext());
-                                                    total.incrementAndGet();
-                                                    int x = (int) ((total.get() * 1.0d / expected) * 100);
-                                                    if (x != 0 && x % 10 == 0 && !alerted[x - 1]) {
-                                                        System.out.println("[Stringer] [StringEncryptionTransformer] Done " + x + "%");
-                                                        alerted[x - 1] = true;
-                                                    }
+                                                    targetClassNode.markDirty();
+                                                    deobfuscator.getEvents().progress(SOURCE, total.incrementAndGet(), expected);
                                                 }
                                             }
                                         }
@@ -277,6 +296,7 @@ public class StringEncryptionTransformer extends Transformer {
                 }
             }
         }
+        deobfuscator.getEvents().info(SOURCE, "Ran " + sandbox.getNativeCalls() + " decryptions natively, " + sandbox.getFallbacks() + " in the interpreter");
         return total.get();
     }
 }
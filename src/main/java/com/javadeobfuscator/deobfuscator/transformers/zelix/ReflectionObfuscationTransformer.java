@@ -19,21 +19,32 @@ package com.javadeobfuscator.deobfuscator.transformers.zelix;
 import com.javadeobfuscator.deobfuscator.analyzer.AnalyzerResult;
 import com.javadeobfuscator.deobfuscator.analyzer.MethodAnalyzer;
 import com.javadeobfuscator.deobfuscator.analyzer.frame.*;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.defined.*;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaClass;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaField;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaMethod;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.providers.ComparisonProvider;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
 
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaLong;
+import com.javadeobfuscator.deobfuscator.events.EventDispatcher;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.*;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
 import java.lang.reflect.Modifier;
@@ -41,6 +52,8 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ReflectionObfuscationTransformer extends Transformer {
+    private static final String SOURCE = "[Zelix] [ReflectionObfuscationTransformer]";
+
     static Map<String, String> PRIMITIVES = new HashMap<>();
 
     static {
@@ -58,22 +71,33 @@ public class ReflectionObfuscationTransformer extends Transformer {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
     @Override
     public void transform() throws Throwable {
-        System.out.println("[Zelix] [ReflectionObfuscationTransformer] Starting");
-        System.out.println("[Zelix] [ReflectionObfuscationTransformer] Finding reflection obfuscation");
+        EventDispatcher events = deobfuscator.getEvents();
+        events.phaseStarted(SOURCE, "finding reflection obfuscation");
         int count = findReflectionObfuscation();
-        System.out.println("[Zelix] [ReflectionObfuscationTransformer] Found " + count + " reflection obfuscation instructions");
+        events.phaseFinished(SOURCE, "finding reflection obfuscation");
+        events.info(SOURCE, "Found " + count + " reflection obfuscation instructions");
         if (count > 0) {
+            events.phaseStarted(SOURCE, "inlining reflection obfuscation");
             int amount = inlineReflection(count);
-            System.out.println("[Zelix] [ReflectionObfuscationTransformer] Inlined " + amount + " reflection obfuscation instructions");
+            events.phaseFinished(SOURCE, "inlining reflection obfuscation");
+            events.info(SOURCE, "Inlined " + amount + " reflection obfuscation instructions");
         }
-        System.out.println("[Zelix] [ReflectionObfuscationTransformer] Done");
     }
 
     public int inlineReflection(int expected) throws Throwable {
         AtomicInteger count = new AtomicInteger(0);
-        final boolean[] alerted = new boolean[100];
 
         DelegatingProvider provider = new DelegatingProvider();
 
@@ -178,8 +202,7 @@ public class ReflectionObfuscationTransformer extends Transformer {
                                         context.dictionary = this.classpath;
                                         MethodExecutor.execute(classpath.get(innerClassNode.name), decrypterNode, Collections.emptyList(), null, context);
                                     } catch (Throwable t) {
-                                        System.out.println("Error while fully initializing  " + strCl);
-                                        t.printStackTrace(System.out);
+                                        deobfuscator.getEvents().warning(SOURCE, "Error while fully initializing " + strCl, t);
                                     }
                                 }
 
@@ -213,13 +236,9 @@ public class ReflectionObfuscationTransformer extends Transformer {
                                 methodNode.instructions.insert(current.getPrevious().getPrevious(), replacement);
                                 methodNode.instructions.remove(current.getPrevious());
                                 methodNode.instructions.remove(current);
-                                count.incrementAndGet();
+                                deobfuscator.getEvents().progress(SOURCE, count.incrementAndGet(), expected);
+                                classes.get(classNode.name).markDirty();
                                 found = true;
-                                int x = (int) ((count.get() * 1.0d / expected) * 100);
-                                if (x != 0 && x % 10 == 0 && !alerted[x - 1]) {
-                                    System.out.println("[Zelix] [ReflectionObfucationTransformer] Done " + x + "%");
-                                    alerted[x - 1] = true;
-                                }
                             } else if (methodInsnNode.desc.equals("(J)Ljava/lang/reflect/Field;")) {
                                 long ldc = (long) ((LdcInsnNode) current.getPrevious()).cst;
                                 String strCl = methodInsnNode.owner;
@@ -240,13 +259,9 @@ public class ReflectionObfuscationTransformer extends Transformer {
                                 methodNode.instructions.insertBefore(current.getPrevious(), replacement);
                                 methodNode.instructions.remove(current.getPrevious());
                                 methodNode.instructions.remove(current);
-                                count.incrementAndGet();
+                                deobfuscator.getEvents().progress(SOURCE, count.incrementAndGet(), expected);
+                                classes.get(classNode.name).markDirty();
                                 found = true;
-                                int x = (int) ((count.get() * 1.0d / expected) * 100);
-                                if (x != 0 && x % 10 == 0 && !alerted[x - 1]) {
-                                    System.out.println("[Zelix] [ReflectionObfucationTransformer] Done " + x + "%");
-                                    alerted[x - 1] = true;
-                                }
                             }
                         }
                     }
@@ -519,13 +534,13 @@ public class ReflectionObfuscationTransformer extends Transformer {
 //                                            }
 //                                            toRemove.forEach(methodNode.instructions::remove);
                                             } else {
-                                                System.out.println("Could not find " + findMethod + findDesc + " in " + findClass);
+                                                deobfuscator.getEvents().warning(SOURCE, "Could not find " + findMethod + findDesc + " in " + findClass);
                                             }
                                             modified = true;
                                             continue outer;
                                         }
                                     } else {
-                                        System.out.println("Null frame?");
+                                        deobfuscator.getEvents().warning(SOURCE, "Null frame in " + classNode.name + " " + methodNode.name + methodNode.desc);
                                     }
                                 } else if (cast.owner.equals("java/lang/reflect/Field")) {
 
@@ -539,6 +554,7 @@ public class ReflectionObfuscationTransformer extends Transformer {
                             TryCatchBlockNode next = it.next();
                             if (next.type != null && next.type.startsWith("java/lang/reflect")) {
                                 it.remove();
+                                classes.get(classNode.name).markDirty();
                             }
                         }
                     }
@@ -547,6 +563,7 @@ public class ReflectionObfuscationTransformer extends Transformer {
         });
         classNodes().stream().filter(node -> initted.contains(node.classNode)).forEach(node -> {
             node.classNode.fields.add(0, new FieldNode(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "REFLECTION_OBFUSCATION_CLASS", "Z", null, true));
+            node.markDirty();
         });
 
         return count.get();
@@ -30,6 +30,7 @@ import com.javadeobfuscator.deobfuscator.executor.defined.MappedMethodProvider;
 import com.javadeobfuscator.deobfuscator.executor.exceptions.NoSuchHandlerException;
 import com.javadeobfuscator.deobfuscator.executor.providers.ComparisonProvider;
 import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.sandbox.SandboxedExecutor;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaShort;
 import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
@@ -38,6 +39,8 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
 import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.*;
 import com.javadeobfuscator.deobfuscator.transformers.Transformer;
 import com.javadeobfuscator.deobfuscator.transformers.general.peephole.PeepholeOptimizer;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
 import com.javadeobfuscator.deobfuscator.utils.Utils;
 import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
 
@@ -45,11 +48,31 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class StringEncryptionTransformer extends Transformer {
+    private static final String SOURCE = "[Zelix] [StringEncryptionTransformer]";
+
 
     public StringEncryptionTransformer(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
         super(classes, classpath);
     }
 
+    @Override
+    public boolean tracksChanges() {
+        return true;
+    }
+
+    @Override
+    public Set<ClassPart> getRequiredParts() {
+        return EnumSet.of(ClassPart.CODE);
+    }
+
+    @Override
+    public ConstantPoolFilter getPrefilter() {
+        // Every other pattern is only looked for in static initializers
+        return new ConstantPoolFilter()
+                .utf8("(II)Ljava/lang/String;")
+                .utf8("<clinit>");
+    }
+
     @Override
     public void transform() throws Throwable {
         Map<ClassNode, List<MethodNode>> remove = new HashMap<>();
@@ -106,6 +129,7 @@ public class StringEncryptionTransformer extends Transformer {
                                     }
                                     decryptorNode.instructions.add(new InsnNode(Opcodes.ARETURN));
                                     decryptorClassNode.methods.add(decryptorNode);
+                                    classes.get(classNode.name).markDirty();
                                 }
                             } else if (cast.desc.equals("(Ljava/lang/String;)[C")) {
                                 if (cast.getNext() instanceof MethodInsnNode) {
@@ -141,6 +165,7 @@ public class StringEncryptionTransformer extends Transformer {
                                             insns.insert(castnext, new MethodInsnNode(Opcodes.INVOKESTATIC, decryptorClassNode.name, decryptorNode.name, decryptorNode.desc, false));
                                             insns.remove(castnext);
                                             insns.remove(cast);
+                                            classes.get(classNode.name).markDirty();
                                         }
                                     }
                                 }
@@ -154,7 +179,7 @@ public class StringEncryptionTransformer extends Transformer {
             try {
                 new PeepholeOptimizer(classes, classpath).transform();
             } catch (Throwable t) {
-                t.printStackTrace();
+                deobfuscator.getEvents().warning(SOURCE, "Peephole optimization failed", t);
             }
         }
 
@@ -195,34 +220,46 @@ public class StringEncryptionTransformer extends Transformer {
             }
         });
 
+        SandboxedExecutor sandbox = new SandboxedExecutor(classpath);
         classNodes().forEach(wrappedClassNode -> {
             MethodNode clinit = wrappedClassNode.classNode.methods.stream().filter(mn -> mn.name.equals("<clinit>")).findFirst().orElse(null);
             if (clinit != null) {
-                boolean modified = false;
-                outer:
+                boolean deferred;
                 do {
                     Map<AbstractInsnNode, List<Frame>> analysis = MethodAnalyzer.analyze(wrappedClassNode, clinit).getFrames();
                     Map<Frame, AbstractInsnNode> reverseMapping = new HashMap<>();
                     analysis.entrySet().forEach(ent -> ent.getValue().forEach(frame -> reverseMapping.put(frame, ent.getKey())));
-                    modified = false;
-                    for (int index = 0; index < clinit.instructions.size(); index++) {
-                        AbstractInsnNode current = clinit.instructions.get(index);
+                    // Instructions rewritten in this pass, or belonging to a call left for the next pass. Calls
+                    // consuming them have to be analyzed again, as they would have seen the rewritten code.
+                    Set<AbstractInsnNode> touched = new HashSet<>();
+                    deferred = false;
+                    for (AbstractInsnNode current : clinit.instructions.toArray()) {
                         if (current instanceof MethodInsnNode) {
                             MethodInsnNode cast = (MethodInsnNode) current;
                             if (cast.owner.equals(decryptorClassNode.name)) {
                                 List<Frame> frames = analysis.get(cast);
                                 if (frames != null) {
                                     Map<LdcInsnNode, Frame> interestedFrames = new HashMap<>(); //To sort out dupes - should be fixme
+                                    boolean stale = false;
                                     for (Frame frame : frames) {
                                         MethodFrame methodFrame = (MethodFrame) frame;
                                         if (methodFrame.getArgs().size() != 1) {
                                             throw new IllegalArgumentException("What?");
                                         }
                                         Frame potentialLdcFrame = methodFrame.getArgs().get(0);
+                                        if (touched.contains(reverseMapping.get(potentialLdcFrame))) {
+                                            stale = true;
+                                        }
                                         if (potentialLdcFrame instanceof LdcFrame) {
                                             interestedFrames.put((LdcInsnNode) reverseMapping.get(potentialLdcFrame), potentialLdcFrame);
                                         }
                                     }
+                                    touched.add(cast);
+                                    touched.addAll(interestedFrames.keySet());
+                                    if (stale) {
+                                        deferred = true;
+                                        continue;
+                                    }
                                     for (Map.Entry<LdcInsnNode, Frame> ent : interestedFrames.entrySet()) {
                                         if (ent.getValue() instanceof LdcFrame) {
                                             LdcFrame ldc = (LdcFrame) ent.getValue();
@@ -235,13 +272,12 @@ public class StringEncryptionTransformer extends Transformer {
                                         }
                                     }
                                     clinit.instructions.remove(cast);
-                                    modified = true;
-                                    continue outer;
+                                    wrappedClassNode.markDirty();
                                 }
                             }
                         }
                     }
-                } while (modified);
+                } while (deferred);
                 {
                     try {
                         Context context = new Context(provider);
@@ -250,8 +286,7 @@ public class StringEncryptionTransformer extends Transformer {
                         MethodExecutor.execute(wrappedClassNode, clinit, new ArrayList<>(), null, context);
                     } catch (NoSuchHandlerException e) {
                     } catch (Throwable t) {
-                        System.out.println("Error while fully initializing " + wrappedClassNode.classNode.name);
-                        t.printStackTrace();
+                        deobfuscator.getEvents().warning(SOURCE, "Error while fully initializing " + wrappedClassNode.classNode.name, t);
                     }
                 }
             }
@@ -279,13 +314,14 @@ public class StringEncryptionTransformer extends Transformer {
                                         List<JavaValue> stack = new ArrayList<>();
                                         stack.add(new JavaShort((short) sipush1.operand));
                                         stack.add(new JavaShort((short) sipush2.operand));
-                                        Object o = MethodExecutor.execute(wrappedClassNode, decrypterNode, stack, null, context);
+                                        Object o = sandbox.execute(wrappedClassNode, decrypterNode, stack, context);
                                         InsnList replace = new InsnList();
                                         replace.add(new LdcInsnNode(o));
                                         methodNode.instructions.insert(m, replace);
                                         methodNode.instructions.remove(m);
                                         methodNode.instructions.remove(sipush2);
                                         methodNode.instructions.remove(sipush1);
+                                        wrappedClassNode.markDirty();
                                         {
                                             List<MethodNode> r = remove.get(classpath.get(m.owner).classNode);
                                             if (r == null) {
@@ -308,7 +344,7 @@ public class StringEncryptionTransformer extends Transformer {
             try {
                 new PeepholeOptimizer(classes, classpath).transform();
             } catch (Throwable t) {
-                t.printStackTrace();
+                deobfuscator.getEvents().warning(SOURCE, "Peephole optimization failed", t);
             }
         }
 
@@ -379,6 +415,7 @@ public class StringEncryptionTransformer extends Transformer {
                     }
                     decryptorNode.instructions.add(new InsnNode(Opcodes.ARETURN));
                     decryptorClassNode.methods.add(decryptorNode);
+                    classes.get(classNode.name).markDirty();
                 }
             }
         });
@@ -432,6 +469,7 @@ public class StringEncryptionTransformer extends Transformer {
                                         }
                                         delete.forEach(clinit.instructions::remove);
                                     }
+                                    wrappedClassNode.markDirty();
                                     modified = true;
                                 }
                             }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Thread safe store of the {@link ClassTree}s of a set of classes and everything they inherit from. Classes can be
+ * added one at a time, such as deferred classes which are only parsed once something looks them up. Renames are
+ * applied while writing, so the hierachy always keeps the original names.
+ * <p>
+ * Parents are looked up with the resolver given to the constructor, which returns null for unknown classes instead
+ * of throwing. Unknown parents are still linked, and reported to the caller.
+ */
+public class ClassHierachy {
+    private static final String OBJECT = "java/lang/Object";
+
+    private final Map<String, ClassTree> trees = new ConcurrentHashMap<>();
+    private final Set<String> loaded = ConcurrentHashMap.newKeySet();
+    private final Function<String, ClassNode> resolver;
+
+    public ClassHierachy(Function<String, ClassNode> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * @return the tree of the class, which is created empty if the class isn't known yet
+     */
+    public ClassTree get(String name) {
+        return trees.computeIfAbsent(name, key -> {
+            ClassTree tree = new ClassTree();
+            tree.thisClass = key;
+            return tree;
+        });
+    }
+
+    /**
+     * @return the tree of the class, or null if the class isn't known
+     */
+    public ClassTree getIfPresent(String name) {
+        return trees.get(name);
+    }
+
+    /**
+     * @return true if the parents of the class have been added
+     */
+    public boolean isLoaded(String name) {
+        return loaded.contains(name);
+    }
+
+    /**
+     * Adds the classes and everything they inherit from. Classes which were already added are skipped. Each layer
+     * of parents is added in parallel, so building the hierachy of a whole jar uses all processors.
+     *
+     * @return the parents which the resolver couldn't find
+     */
+    public Set<String> load(Collection<ClassNode> classes) {
+        Set<String> missing = ConcurrentHashMap.newKeySet();
+        Collection<ClassNode> layer = classes;
+        while (!layer.isEmpty()) {
+            Queue<ClassNode> next = new ConcurrentLinkedQueue<>();
+            (layer.size() > 1 ? layer.parallelStream() : layer.stream()).forEach(node -> {
+                for (String parent : add(node)) {
+                    if (loaded.contains(parent)) {
+                        continue;
+                    }
+                    ClassNode parentNode = resolver.apply(parent);
+                    if (parentNode == null) {
+                        missing.add(parent);
+                    } else {
+                        next.add(parentNode);
+                    }
+                }
+            });
+            layer = next;
+        }
+        return missing;
+    }
+
+    public void clear() {
+        trees.clear();
+        loaded.clear();
+    }
+
+    /**
+     * Links a class to its parents. Interfaces only get {@code java/lang/Object} as their parent.
+     *
+     * @return the parents which may not have been added yet, or nothing if the class was already added
+     */
+    private List<String> add(ClassNode node) {
+        if (!loaded.add(node.name) || node.name.equals(OBJECT)) {
+            return Collections.emptyList();
+        }
+        ClassTree tree = get(node.name);
+        if ((node.access & Opcodes.ACC_INTERFACE) != 0) {
+            synchronized (tree) {
+                tree.parentClasses.add(OBJECT);
+            }
+            return Collections.emptyList();
+        }
+        List<String> parents = new ArrayList<>(1 + node.interfaces.size());
+        if (node.superName != null) {
+            parents.add(node.superName);
+        }
+        parents.addAll(node.interfaces);
+        for (String parent : parents) {
+            ClassTree parentTree = get(parent);
+            synchronized (parentTree) {
+                parentTree.subClasses.add(node.name);
+            }
+            synchronized (tree) {
+                tree.parentClasses.add(parent);
+            }
+        }
+        return parents;
+    }
+}
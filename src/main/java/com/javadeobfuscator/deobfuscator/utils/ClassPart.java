@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Optional parts of a class which transformers can declare they need, so input classes are only read as
+ * completely as the configured transformers require.
+ */
+public enum ClassPart {
+    /**
+     * Method bodies
+     */
+    CODE,
+    /**
+     * Stack map frames. These are always recomputed when writing, so only transformers which analyze them need them
+     */
+    FRAMES,
+    /**
+     * Line number tables
+     */
+    LINE_NUMBERS,
+    /**
+     * Local variable names and generic signatures
+     */
+    LOCAL_VARIABLES,
+    /**
+     * Source file and source debug extension attributes
+     */
+    SOURCE,
+    /**
+     * Annotations on classes, fields, methods, parameters, types and instructions
+     */
+    ANNOTATIONS;
+
+    /**
+     * Everything except frames, which is what classes have always been read with.
+     */
+    public static Set<ClassPart> all() {
+        return EnumSet.complementOf(EnumSet.of(FRAMES));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import java.util.Set;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.AnnotationVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.FieldVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Label;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.MethodVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.TypePath;
+
+/**
+ * Drops debug information and annotations while a class is being read, before any tree nodes are allocated for
+ * them. Remembers whether anything was actually dropped, since such a class can no longer be copied from the input
+ * as-is.
+ */
+public class ClassPartFilter extends ClassVisitor {
+    private final boolean lineNumbers;
+    private final boolean localVariables;
+    private final boolean source;
+    private final boolean annotations;
+    private boolean stripped;
+
+    /**
+     * @param skipped the parts to drop. Code and frames are skipped with {@link
+     *                com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader} flags instead
+     */
+    public ClassPartFilter(ClassVisitor cv, Set<ClassPart> skipped) {
+        super(Opcodes.ASM5, cv);
+        this.lineNumbers = skipped.contains(ClassPart.LINE_NUMBERS);
+        this.localVariables = skipped.contains(ClassPart.LOCAL_VARIABLES);
+        this.source = skipped.contains(ClassPart.SOURCE);
+        this.annotations = skipped.contains(ClassPart.ANNOTATIONS);
+    }
+
+    /**
+     * @return true if the class contained anything which was dropped
+     */
+    public boolean isStripped() {
+        return stripped;
+    }
+
+    @Override
+    public void visitSource(String source, String debug) {
+        if (this.source) {
+            stripped = true;
+            return;
+        }
+        super.visitSource(source, debug);
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+        return annotations ? strip() : super.visitAnnotation(desc, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+        return annotations ? strip() : super.visitTypeAnnotation(typeRef, typePath, desc, visible);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+        FieldVisitor fv = super.visitField(access, name, desc, signature, value);
+        if (!annotations || fv == null) {
+            return fv;
+        }
+        return new FieldVisitor(Opcodes.ASM5, fv) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return strip();
+            }
+
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+                return strip();
+            }
+        };
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+        if (mv == null) {
+            return null;
+        }
+        return new MethodVisitor(Opcodes.ASM5, mv) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return annotations ? strip() : super.visitAnnotation(desc, visible);
+            }
+
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+                return annotations ? strip() : super.visitTypeAnnotation(typeRef, typePath, desc, visible);
+            }
+
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                return annotations ? strip() : super.visitParameterAnnotation(parameter, desc, visible);
+            }
+
+            @Override
+            public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+                return annotations ? strip() : super.visitInsnAnnotation(typeRef, typePath, desc, visible);
+            }
+
+            @Override
+            public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+                return annotations ? strip() : super.visitTryCatchAnnotation(typeRef, typePath, desc, visible);
+            }
+
+            @Override
+            public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end, int[] index, String desc, boolean visible) {
+                return annotations || localVariables ? strip() : super.visitLocalVariableAnnotation(typeRef, typePath, start, end, index, desc, visible);
+            }
+
+            @Override
+            public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index) {
+                if (localVariables) {
+                    stripped = true;
+                    return;
+                }
+                super.visitLocalVariable(name, desc, signature, start, end, index);
+            }
+
+            @Override
+            public void visitLineNumber(int line, Label start) {
+                if (lineNumbers) {
+                    stripped = true;
+                    return;
+                }
+                super.visitLineNumber(line, start);
+            }
+        };
+    }
+
+    private AnnotationVisitor strip() {
+        stripped = true;
+        return null;
+    }
+}
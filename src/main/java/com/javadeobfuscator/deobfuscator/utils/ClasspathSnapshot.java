@@ -0,0 +1,355 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Pre-indexed signatures of library classes, memory-mapped instead of parsed. A snapshot only holds what library
+ * classes are used for, which is less than {@link com.javadeobfuscator.deobfuscator.Deobfuscator#loadLibrary(File)}
+ * keeps from a jar. A class read back from it has:
+ * <ul>
+ * <li>its name, version, access flags, superclass and interfaces, and its constant pool size</li>
+ * <li>for every field, its access flags, name and descriptor</li>
+ * <li>for every method, its access flags, name, descriptor and declared exceptions</li>
+ * </ul>
+ * Everything else is null or empty: the generic signatures of the class, fields and methods, field constant values
+ * ({@link FieldNode#value}), the outer class and enclosing method, {@link ClassNode#innerClasses}, annotations and
+ * type annotations of every kind, annotation defaults, method parameters and unknown attributes. Code and debug
+ * info, such as the source file, are missing from a loaded library as well.
+ * <p>
+ * Opening a snapshot only maps the file. A {@link ClassNode} is built the first time its class is looked up, and
+ * then reused, so the map can be shared between runs like the result of
+ * {@link com.javadeobfuscator.deobfuscator.Deobfuscator#loadLibrary(File)}. Iterating the map builds every class.
+ * <p>
+ * Layout, all big endian: header (magic, version, class count, hash table size, string count), string offsets,
+ * an open addressing hash table of (name hash, record offset) pairs, class records, then the strings themselves
+ * as a u2 length followed by UTF-8 bytes.
+ */
+public class ClasspathSnapshot extends AbstractMap<String, WrappedClassNode> {
+    public static final String EXTENSION = ".snapshot";
+
+    private static final int MAGIC = 0x4a44534e;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int NONE = -1;
+
+    private final ByteBuffer buffer;
+    private final int classCount;
+    private final int tableSize;
+    private final int tableOffset;
+    private final String[] strings;
+    private final Map<String, WrappedClassNode> materialized = new ConcurrentHashMap<>();
+
+    private ClasspathSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a classpath snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported classpath snapshot version " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.classCount = buffer.getInt(8);
+        this.tableSize = buffer.getInt(12);
+        this.strings = new String[buffer.getInt(16)];
+        this.tableOffset = HEADER_SIZE + strings.length * 4;
+    }
+
+    public static ClasspathSnapshot open(File file) throws IOException {
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            return new ClasspathSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static boolean isSnapshot(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the signatures of the given classes to a snapshot file.
+     */
+    public static void write(Collection<WrappedClassNode> classes, File file) throws IOException {
+        Map<String, Integer> stringIndices = new HashMap<>();
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream stringOut = new DataOutputStream(stringBytes);
+        int[] stringOffsets = new int[16];
+
+        int tableSize = Integer.highestOneBit(Math.max(classes.size(), 1) * 2 - 1) << 1;
+        int[] table = new int[tableSize * 2];
+        for (int i = 1; i < table.length; i += 2) {
+            table[i] = NONE;
+        }
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        for (WrappedClassNode wrappedClassNode : classes) {
+            ClassNode node = wrappedClassNode.classNode;
+            int hash = node.name.hashCode();
+            int slot = spread(hash) & (tableSize - 1);
+            while (table[slot * 2 + 1] != NONE) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot * 2] = hash;
+            table[slot * 2 + 1] = records.size();
+
+            List<String> names = new ArrayList<>();
+            names.add(node.name);
+            names.add(node.superName);
+            names.addAll(node.interfaces);
+            node.fields.forEach(field -> {
+                names.add(field.name);
+                names.add(field.desc);
+            });
+            node.methods.forEach(method -> {
+                names.add(method.name);
+                names.add(method.desc);
+                names.addAll(method.exceptions);
+            });
+            for (String name : names) {
+                if (name != null && !stringIndices.containsKey(name)) {
+                    int index = stringIndices.size();
+                    if (index == stringOffsets.length) {
+                        stringOffsets = Arrays.copyOf(stringOffsets, index * 2);
+                    }
+                    stringOffsets[index] = stringOut.size();
+                    byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+                    stringOut.writeShort(utf8.length);
+                    stringOut.write(utf8);
+                    stringIndices.put(name, index);
+                }
+            }
+
+            records.writeInt(stringIndices.get(node.name));
+            records.writeInt(node.version);
+            records.writeInt(node.access);
+            records.writeInt(node.superName == null ? NONE : stringIndices.get(node.superName));
+            records.writeInt(wrappedClassNode.constantPoolSize);
+            records.writeShort(node.interfaces.size());
+            for (String interfaceName : node.interfaces) {
+                records.writeInt(stringIndices.get(interfaceName));
+            }
+            records.writeShort(node.fields.size());
+            for (FieldNode field : node.fields) {
+                records.writeInt(field.access);
+                records.writeInt(stringIndices.get(field.name));
+                records.writeInt(stringIndices.get(field.desc));
+            }
+            records.writeShort(node.methods.size());
+            for (MethodNode method : node.methods) {
+                records.writeInt(method.access);
+                records.writeInt(stringIndices.get(method.name));
+                records.writeInt(stringIndices.get(method.desc));
+                records.writeShort(method.exceptions.size());
+                for (String exception : method.exceptions) {
+                    records.writeInt(stringIndices.get(exception));
+                }
+            }
+        }
+
+        int stringCount = stringIndices.size();
+        int recordsOffset = HEADER_SIZE + stringCount * 4 + tableSize * 8;
+        int stringsOffset = recordsOffset + records.size();
+        try (OutputStream fileOut = new FileOutputStream(file)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(classes.size());
+            out.writeInt(tableSize);
+            out.writeInt(stringCount);
+            for (int i = 0; i < stringCount; i++) {
+                out.writeInt(stringsOffset + stringOffsets[i]);
+            }
+            for (int i = 0; i < table.length; i += 2) {
+                out.writeInt(table[i]);
+                out.writeInt(table[i + 1] == NONE ? NONE : recordsOffset + table[i + 1]);
+            }
+            recordBytes.writeTo(out);
+            stringBytes.writeTo(out);
+            out.flush();
+        }
+    }
+
+    @Override
+    public WrappedClassNode get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        WrappedClassNode node = materialized.get(key);
+        if (node == null) {
+            int record = find((String) key);
+            if (record == NONE) {
+                return null;
+            }
+            node = materialized.computeIfAbsent((String) key, name -> read(record));
+        }
+        return node;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && (materialized.containsKey(key) || find((String) key) != NONE);
+    }
+
+    @Override
+    public int size() {
+        return classCount;
+    }
+
+    @Override
+    public WrappedClassNode put(String key, WrappedClassNode value) {
+        throw new UnsupportedOperationException("Classpath snapshots are read-only");
+    }
+
+    @Override
+    public Set<Entry<String, WrappedClassNode>> entrySet() {
+        return new AbstractSet<Entry<String, WrappedClassNode>>() {
+            @Override
+            public Iterator<Entry<String, WrappedClassNode>> iterator() {
+                return new Iterator<Entry<String, WrappedClassNode>>() {
+                    private int slot = advance(0);
+
+                    private int advance(int from) {
+                        while (from < tableSize && buffer.getInt(tableOffset + from * 8 + 4) == NONE) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < tableSize;
+                    }
+
+                    @Override
+                    public Entry<String, WrappedClassNode> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        String name = string(buffer.getInt(buffer.getInt(tableOffset + slot * 8 + 4)));
+                        slot = advance(slot + 1);
+                        return new SimpleImmutableEntry<>(name, get(name));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return classCount;
+            }
+        };
+    }
+
+    private int find(String name) {
+        int hash = name.hashCode();
+        int slot = spread(hash) & (tableSize - 1);
+        while (true) {
+            int entry = tableOffset + slot * 8;
+            int record = buffer.getInt(entry + 4);
+            if (record == NONE) {
+                return NONE;
+            }
+            if (buffer.getInt(entry) == hash && string(buffer.getInt(record)).equals(name)) {
+                return record;
+            }
+            slot = (slot + 1) & (tableSize - 1);
+        }
+    }
+
+    private WrappedClassNode read(int record) {
+        ByteBuffer in = buffer.duplicate();
+        ((Buffer) in).position(record);
+        ClassNode node = new ClassNode();
+        node.isLibrary = true;
+        node.name = string(in.getInt());
+        node.version = in.getInt();
+        node.access = in.getInt();
+        int superName = in.getInt();
+        node.superName = superName == NONE ? null : string(superName);
+        int constantPoolSize = in.getInt();
+        for (int i = in.getShort() & 0xFFFF; i > 0; i--) {
+            node.interfaces.add(string(in.getInt()));
+        }
+        for (int i = in.getShort() & 0xFFFF; i > 0; i--) {
+            int access = in.getInt();
+            node.fields.add(new FieldNode(access, string(in.getInt()), string(in.getInt()), null, null));
+        }
+        for (int i = in.getShort() & 0xFFFF; i > 0; i--) {
+            int access = in.getInt();
+            String name = string(in.getInt());
+            String desc = string(in.getInt());
+            String[] exceptions = new String[in.getShort() & 0xFFFF];
+            for (int j = 0; j < exceptions.length; j++) {
+                exceptions[j] = string(in.getInt());
+            }
+            node.methods.add(new MethodNode(access, name, desc, null, exceptions));
+        }
+        return new WrappedClassNode(node, constantPoolSize);
+    }
+
+    private String string(int index) {
+        String value = strings[index];
+        if (value == null) {
+            ByteBuffer in = buffer.duplicate();
+            ((Buffer) in).position(buffer.getInt(HEADER_SIZE + index * 4));
+            byte[] utf8 = new byte[in.getShort() & 0xFFFF];
+            in.get(utf8);
+            strings[index] = value = new String(utf8, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
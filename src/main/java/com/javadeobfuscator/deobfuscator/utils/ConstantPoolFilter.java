@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Decides from the constant pool alone whether a class is worth parsing. A class matches if its constant pool
+ * contains any of the declared markers: an exact UTF8 constant (a descriptor, name or string), a method reference,
+ * or an invokedynamic call site. Scanning neither builds a tree nor decodes strings which no marker asks for.
+ */
+public class ConstantPoolFilter {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD = 9;
+    private static final int METHOD = 10;
+    private static final int INTERFACE_METHOD = 11;
+    private static final int NAME_AND_TYPE = 12;
+    private static final int METHOD_HANDLE = 15;
+    private static final int METHOD_TYPE = 16;
+    private static final int DYNAMIC = 17;
+    private static final int INVOKE_DYNAMIC = 18;
+    private static final int MODULE = 19;
+    private static final int PACKAGE = 20;
+
+    private final List<byte[]> utf8 = new ArrayList<>();
+    private final List<MethodMarker> methods = new ArrayList<>();
+    private boolean invokeDynamic;
+
+    public ConstantPoolFilter utf8(String value) {
+        utf8.add(value.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Matches method references; null parts match anything.
+     */
+    public ConstantPoolFilter methodRef(String owner, String name, String desc) {
+        return methodRef(owner, name, desc == null ? null : desc::equals);
+    }
+
+    public ConstantPoolFilter methodRef(String owner, String name, Predicate<String> desc) {
+        methods.add(new MethodMarker(owner, name, desc));
+        return this;
+    }
+
+    public ConstantPoolFilter invokeDynamic() {
+        invokeDynamic = true;
+        return this;
+    }
+
+    /**
+     * Combines the markers of both filters. A null filter stands for "every class", so the result is null too.
+     */
+    public static ConstantPoolFilter union(ConstantPoolFilter first, ConstantPoolFilter second) {
+        if (first == null || second == null) {
+            return null;
+        }
+        ConstantPoolFilter union = new ConstantPoolFilter();
+        union.utf8.addAll(first.utf8);
+        union.utf8.addAll(second.utf8);
+        union.methods.addAll(first.methods);
+        union.methods.addAll(second.methods);
+        union.invokeDynamic = first.invokeDynamic || second.invokeDynamic;
+        return union;
+    }
+
+    /**
+     * @return true if the class contains any marker, or if it can't be scanned
+     */
+    public boolean matches(byte[] classFile) {
+        try {
+            int count = readUnsignedShort(classFile, 8);
+            int[] offsets = new int[count];
+            int offset = 10;
+            boolean hasMethods = false;
+            for (int index = 1; index < count; index++) {
+                offsets[index] = offset;
+                int tag = classFile[offset];
+                switch (tag) {
+                    case UTF8:
+                        int length = readUnsignedShort(classFile, offset + 1);
+                        for (byte[] marker : utf8) {
+                            if (equals(classFile, offset + 3, length, marker)) {
+                                return true;
+                            }
+                        }
+                        offset += 3 + length;
+                        break;
+                    case INVOKE_DYNAMIC:
+                        if (invokeDynamic) {
+                            return true;
+                        }
+                        offset += 5;
+                        break;
+                    case METHOD:
+                    case INTERFACE_METHOD:
+                        hasMethods = true;
+                        offset += 5;
+                        break;
+                    case INTEGER:
+                    case FLOAT:
+                    case FIELD:
+                    case NAME_AND_TYPE:
+                    case DYNAMIC:
+                        offset += 5;
+                        break;
+                    case LONG:
+                    case DOUBLE:
+                        offset += 9;
+                        index++;
+                        break;
+                    case CLASS:
+                    case STRING:
+                    case METHOD_TYPE:
+                    case MODULE:
+                    case PACKAGE:
+                        offset += 3;
+                        break;
+                    case METHOD_HANDLE:
+                        offset += 4;
+                        break;
+                    default:
+                        return true;
+                }
+            }
+            if (hasMethods && !methods.isEmpty()) {
+                for (int index = 1; index < count; index++) {
+                    int start = offsets[index];
+                    if (start == 0 || (classFile[start] != METHOD && classFile[start] != INTERFACE_METHOD)) {
+                        continue;
+                    }
+                    int nameAndType = offsets[readUnsignedShort(classFile, start + 3)];
+                    String owner = readUtf8(classFile, offsets, offsets[readUnsignedShort(classFile, start + 1)] + 1);
+                    String name = readUtf8(classFile, offsets, nameAndType + 1);
+                    String desc = readUtf8(classFile, offsets, nameAndType + 3);
+                    for (MethodMarker marker : methods) {
+                        if (marker.matches(owner, name, desc)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the internal name of the class, read from the constant pool
+     */
+    public static String getClassName(byte[] classFile) {
+        int count = readUnsignedShort(classFile, 8);
+        int[] offsets = new int[count];
+        int offset = 10;
+        for (int index = 1; index < count; index++) {
+            offsets[index] = offset;
+            switch (classFile[offset]) {
+                case UTF8:
+                    offset += 3 + readUnsignedShort(classFile, offset + 1);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    offset += 9;
+                    index++;
+                    break;
+                case CLASS:
+                case STRING:
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    offset += 3;
+                    break;
+                case METHOD_HANDLE:
+                    offset += 4;
+                    break;
+                default:
+                    offset += 5;
+                    break;
+            }
+        }
+        int thisClass = readUnsignedShort(classFile, offset + 2);
+        return readUtf8(classFile, offsets, offsets[thisClass] + 1);
+    }
+
+    private static String readUtf8(byte[] classFile, int[] offsets, int indexOffset) {
+        int start = offsets[readUnsignedShort(classFile, indexOffset)];
+        return new String(classFile, start + 3, readUnsignedShort(classFile, start + 1), StandardCharsets.UTF_8);
+    }
+
+    private static boolean equals(byte[] classFile, int offset, int length, byte[] marker) {
+        if (length != marker.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (classFile[offset + i] != marker[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readUnsignedShort(byte[] classFile, int offset) {
+        return ((classFile[offset] & 0xFF) << 8) | (classFile[offset + 1] & 0xFF);
+    }
+
+    private static class MethodMarker {
+        private final String owner;
+        private final String name;
+        private final Predicate<String> desc;
+
+        MethodMarker(String owner, String name, Predicate<String> desc) {
+            this.owner = owner;
+            this.name = name;
+            this.desc = desc;
+        }
+
+        boolean matches(String owner, String name, String desc) {
+            return (this.owner == null || this.owner.equals(owner)) && (this.name == null || this.name.equals(name)) && (this.desc == null || this.desc.test(desc));
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Class map which, besides the classes put into it, contains classes which were only kept as raw bytes. Those are
+ * parsed the first time they are looked up, or reached while iterating the map.
+ * <p>
+ * Libraries added with {@link #addLibrary(Map)} are part of the map too, after the classes put into the map and the
+ * deferred ones. They are never copied, so large or lazily built libraries cost nothing until used.
+ * <p>
+ * Iterating the whole map parses every deferred class. Code which should only see the classes put into the map, such
+ * as transformers looking for classes to change, uses {@link #ownValues()} and {@link #ownKeySet()} instead.
+ */
+public class LazyClassMap extends AbstractMap<String, WrappedClassNode> {
+    private final Deferred deferred;
+    private final Map<String, WrappedClassNode> classes = new HashMap<>();
+    private final Set<String> removed = new HashSet<>();
+    private final List<Map<String, WrappedClassNode>> libraries = new ArrayList<>();
+
+    public LazyClassMap(Deferred deferred) {
+        this.deferred = deferred;
+    }
+
+    /**
+     * Adds a read-only library to fall back on. Libraries added later take precedence over earlier ones.
+     */
+    public void addLibrary(Map<String, WrappedClassNode> library) {
+        libraries.add(0, library);
+    }
+
+    @Override
+    public WrappedClassNode get(Object key) {
+        WrappedClassNode value = classes.get(key);
+        if (value == null && key instanceof String && !removed.contains(key)) {
+            value = deferred.materialize((String) key);
+            for (int i = 0; value == null && i < libraries.size(); i++) {
+                value = libraries.get(i).get(key);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return classes.containsKey(key) || (key instanceof String && !removed.contains(key) && isFallback((String) key));
+    }
+
+    @Override
+    public WrappedClassNode put(String key, WrappedClassNode value) {
+        removed.remove(key);
+        return classes.put(key, value);
+    }
+
+    @Override
+    public WrappedClassNode remove(Object key) {
+        WrappedClassNode value = get(key);
+        if (key instanceof String && isFallback((String) key)) {
+            removed.add((String) key);
+        }
+        classes.remove(key);
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        removed.addAll(names());
+        classes.clear();
+    }
+
+    /**
+     * A view of the names of every class in the map, which doesn't parse deferred classes. Each iteration lists the
+     * names anew, so the map can be changed while iterating.
+     */
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<String> names = names().iterator();
+                return new Iterator<String>() {
+                    private String last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return names.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return last = names.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        LazyClassMap.this.remove(last);
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return names().size();
+            }
+        };
+    }
+
+    /**
+     * A view of every class in the map, like {@link #keySet()}.
+     */
+    @Override
+    public Set<Entry<String, WrappedClassNode>> entrySet() {
+        return new AbstractSet<Entry<String, WrappedClassNode>>() {
+            @Override
+            public Iterator<Entry<String, WrappedClassNode>> iterator() {
+                Iterator<String> names = keySet().iterator();
+                return new Iterator<Entry<String, WrappedClassNode>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return names.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, WrappedClassNode> next() {
+                        String name = names.next();
+                        return new SimpleImmutableEntry<>(name, get(name));
+                    }
+
+                    @Override
+                    public void remove() {
+                        names.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names().size();
+            }
+        };
+    }
+
+    private Set<String> names() {
+        Set<String> names = new LinkedHashSet<>(classes.keySet());
+        for (String name : deferred.names()) {
+            if (!removed.contains(name)) {
+                names.add(name);
+            }
+        }
+        for (Map<String, WrappedClassNode> library : libraries) {
+            for (String name : library.keySet()) {
+                if (!removed.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the classes put into this map, without the deferred and library classes it falls back on
+     */
+    public Collection<WrappedClassNode> ownValues() {
+        return Collections.unmodifiableCollection(classes.values());
+    }
+
+    /**
+     * @return the names of the classes put into this map, without the deferred and library classes it falls back on
+     */
+    public Set<String> ownKeySet() {
+        return Collections.unmodifiableSet(classes.keySet());
+    }
+
+    private boolean isFallback(String name) {
+        if (deferred.contains(name)) {
+            return true;
+        }
+        for (Map<String, WrappedClassNode> library : libraries) {
+            if (library.containsKey(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the class is only known through the deferred classes, and wasn't removed from this map
+     */
+    public boolean isDeferred(String name) {
+        return !classes.containsKey(name) && !removed.contains(name) && deferred.contains(name);
+    }
+
+    /**
+     * Raw classes shared by one or more {@link LazyClassMap}s. Each class is parsed at most once, so every map sees
+     * the same {@link WrappedClassNode}.
+     */
+    public static class Deferred {
+        private final Map<String, byte[]> raw = new ConcurrentHashMap<>();
+        private final Map<String, String> entryNames = new ConcurrentHashMap<>();
+        private final Map<String, WrappedClassNode> materialized = new ConcurrentHashMap<>();
+        private final Function<byte[], WrappedClassNode> parser;
+        private Consumer<WrappedClassNode> listener = node -> {
+        };
+
+        public Deferred(Function<byte[], WrappedClassNode> parser) {
+            this.parser = parser;
+        }
+
+        public void add(String name, String entryName, byte[] bytes) {
+            raw.put(name, bytes);
+            entryNames.put(name, entryName);
+        }
+
+        /**
+         * Called once for every class parsed on demand.
+         */
+        public void setListener(Consumer<WrappedClassNode> listener) {
+            this.listener = listener;
+        }
+
+        public boolean contains(String name) {
+            return raw.containsKey(name);
+        }
+
+        public Set<String> names() {
+            return raw.keySet();
+        }
+
+        public String getEntryName(String name) {
+            return entryNames.get(name);
+        }
+
+        /**
+         * @return the class if it was parsed because somebody looked it up, or null if it is still raw
+         */
+        public WrappedClassNode getMaterialized(String name) {
+            return materialized.get(name);
+        }
+
+        public Collection<WrappedClassNode> materialized() {
+            return materialized.values();
+        }
+
+        WrappedClassNode materialize(String name) {
+            WrappedClassNode node = materialized.get(name);
+            if (node == null) {
+                byte[] bytes = raw.get(name);
+                if (bytes == null) {
+                    return null;
+                }
+                boolean[] created = new boolean[1];
+                node = materialized.computeIfAbsent(name, key -> {
+                    created[0] = true;
+                    WrappedClassNode parsed = parser.apply(bytes);
+                    parsed.entryName = entryNames.get(name);
+                    return parsed;
+                });
+                if (created[0]) {
+                    listener.accept(node);
+                }
+            }
+            return node;
+        }
+    }
+}
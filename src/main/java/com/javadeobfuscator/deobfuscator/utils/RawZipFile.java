@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only view of a zip file's central directory which gives access to the still-compressed data of each
+ * entry, so it can be copied into a {@link RawZipWriter} without inflating it. ZIP64 archives are not supported;
+ * {@link #open(File)} throws a {@link ZipException} for them.
+ */
+public class RawZipFile implements Closeable {
+    private static final int END_HEADER = 0x06054b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int END_HEADER_SIZE = 22;
+
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+
+    private RawZipFile(FileChannel channel, Map<String, Entry> entries) {
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    public static RawZipFile open(File file) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            return new RawZipFile(channel, readCentralDirectory(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    public List<Entry> entries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tail = (int) Math.min(size, END_HEADER_SIZE + 0xFFFF);
+        ByteBuffer end = read(channel, size - tail, tail);
+        int endOffset = -1;
+        for (int i = tail - END_HEADER_SIZE; i >= 0; i--) {
+            if (end.getInt(i) == END_HEADER) {
+                endOffset = i;
+                break;
+            }
+        }
+        if (endOffset == -1) {
+            throw new ZipException("End of central directory not found");
+        }
+        int count = end.getShort(endOffset + 10) & 0xFFFF;
+        long directorySize = end.getInt(endOffset + 12) & 0xFFFFFFFFL;
+        long directoryOffset = end.getInt(endOffset + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+            throw new ZipException("ZIP64 archives are not supported");
+        }
+
+        ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (directory.getInt(position) != CENTRAL_HEADER) {
+                throw new ZipException("Invalid central directory header");
+            }
+            int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            byte[] name = new byte[nameLength];
+            ((Buffer) directory).position(position + 46);
+            directory.get(name);
+            Entry entry = new Entry(new String(name, StandardCharsets.UTF_8),
+                    directory.getShort(position + 8) & 0xFFFF,
+                    directory.getShort(position + 10) & 0xFFFF,
+                    directory.getInt(position + 12),
+                    directory.getInt(position + 16),
+                    directory.getInt(position + 20) & 0xFFFFFFFFL,
+                    directory.getInt(position + 24) & 0xFFFFFFFFL,
+                    directory.getInt(position + 42) & 0xFFFFFFFFL);
+            entries.put(entry.name, entry);
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of file");
+            }
+        }
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    public static class Entry {
+        final String name;
+        final int flags;
+        final int method;
+        final int dosTime;
+        final int crc;
+        final long compressedSize;
+        final long size;
+        private final long headerOffset;
+        private long dataOffset = -1;
+
+        Entry(String name, int flags, int method, int dosTime, int crc, long compressedSize, long size, long headerOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.headerOffset = headerOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        long getDataOffset(FileChannel channel) throws IOException {
+            if (dataOffset == -1) {
+                ByteBuffer header = read(channel, headerOffset, 30);
+                if (header.getInt(0) != LOCAL_HEADER) {
+                    throw new ZipException("Invalid local header for " + name);
+                }
+                dataOffset = headerOffset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+            }
+            return dataOffset;
+        }
+    }
+}
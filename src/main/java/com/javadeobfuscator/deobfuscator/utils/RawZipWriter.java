@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Sam Sun <me@samczsun.com>
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+
+package com.javadeobfuscator.deobfuscator.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal zip writer which, unlike {@link java.util.zip.ZipOutputStream}, can take entries of a
+ * {@link RawZipFile} as they are: the compressed data and CRC are reused and the bytes are moved with
+ * {@link FileChannel#transferTo}, so unchanged entries are never inflated or deflated again.
+ */
+public class RawZipWriter implements Closeable {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_HEADER = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+
+    private final FileChannel channel;
+    private final List<Written> written = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final byte[] buffer = new byte[65536];
+
+    public RawZipWriter(File file) throws IOException {
+        this.channel = new FileOutputStream(file).getChannel();
+    }
+
+    /**
+     * Copies an entry without decompressing it, optionally under a different name.
+     */
+    public void copy(RawZipFile zip, RawZipFile.Entry entry, String name) throws IOException {
+        Written header = begin(name, entry.method, entry.flags & ~(DATA_DESCRIPTOR_FLAG | UTF8_FLAG), entry.dosTime);
+        header.crc = entry.crc;
+        header.compressedSize = entry.compressedSize;
+        header.size = entry.size;
+        writeLocalHeader(header);
+        long position = entry.getDataOffset(zip.channel());
+        long remaining = entry.compressedSize;
+        while (remaining > 0) {
+            long transferred = zip.channel().transferTo(position, remaining, channel);
+            if (transferred <= 0) {
+                throw new ZipException("Could not copy " + entry.name);
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    public void write(String name, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        Written header = begin(name, ZipEntry.DEFLATED, 0, dosTime(System.currentTimeMillis()));
+        header.crc = (int) crc.getValue();
+        header.compressedSize = compressed.size();
+        header.size = data.length;
+        writeLocalHeader(header);
+        writeFully(ByteBuffer.wrap(compressed.toByteArray()));
+    }
+
+    /**
+     * Deflates the stream while writing it, then fills in the local header.
+     */
+    public void write(String name, InputStream in) throws IOException {
+        Written header = begin(name, ZipEntry.DEFLATED, 0, dosTime(System.currentTimeMillis()));
+        writeLocalHeader(header);
+        long start = channel.position();
+        CRC32 crc = new CRC32();
+        byte[] input = new byte[8192];
+        long size = 0;
+        deflater.reset();
+        int read;
+        while ((read = in.read(input)) != -1) {
+            crc.update(input, 0, read);
+            size += read;
+            deflater.setInput(input, 0, read);
+            while (!deflater.needsInput()) {
+                writeFully(ByteBuffer.wrap(buffer, 0, deflater.deflate(buffer)));
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            writeFully(ByteBuffer.wrap(buffer, 0, deflater.deflate(buffer)));
+        }
+        header.crc = (int) crc.getValue();
+        header.compressedSize = channel.position() - start;
+        header.size = size;
+        ByteBuffer sizes = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        sizes.putInt(header.crc).putInt((int) header.compressedSize).putInt((int) header.size);
+        ((Buffer) sizes).flip();
+        while (sizes.hasRemaining()) {
+            channel.write(sizes, header.offset + 14 + sizes.position());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            long directoryOffset = channel.position();
+            for (Written entry : written) {
+                ByteBuffer central = ByteBuffer.allocate(46 + entry.name.length).order(ByteOrder.LITTLE_ENDIAN);
+                central.putInt(CENTRAL_HEADER).putShort((short) VERSION).putShort((short) VERSION);
+                central.putShort((short) entry.flags).putShort((short) entry.method).putInt(entry.dosTime);
+                central.putInt(entry.crc).putInt((int) entry.compressedSize).putInt((int) entry.size);
+                central.putShort((short) entry.name.length).putShort((short) 0).putShort((short) 0);
+                central.putShort((short) 0).putShort((short) 0).putInt(0).putInt((int) entry.offset);
+                central.put(entry.name);
+                ((Buffer) central).flip();
+                writeFully(central);
+            }
+            long directorySize = channel.position() - directoryOffset;
+            checkLimit(directoryOffset + directorySize);
+            ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(END_HEADER).putShort((short) 0).putShort((short) 0);
+            end.putShort((short) written.size()).putShort((short) written.size());
+            end.putInt((int) directorySize).putInt((int) directoryOffset).putShort((short) 0);
+            ((Buffer) end).flip();
+            writeFully(end);
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private Written begin(String name, int method, int flags, int dosTime) throws IOException {
+        if (!names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+        if (written.size() == 0xFFFF) {
+            throw new ZipException("Too many entries, ZIP64 is not supported");
+        }
+        Written entry = new Written();
+        entry.name = name.getBytes(StandardCharsets.UTF_8);
+        entry.method = method;
+        entry.flags = entry.name.length == name.length() ? flags : flags | UTF8_FLAG;
+        entry.dosTime = dosTime;
+        entry.offset = channel.position();
+        checkLimit(entry.offset);
+        written.add(entry);
+        return entry;
+    }
+
+    private void writeLocalHeader(Written entry) throws IOException {
+        ByteBuffer local = ByteBuffer.allocate(30 + entry.name.length).order(ByteOrder.LITTLE_ENDIAN);
+        local.putInt(LOCAL_HEADER).putShort((short) VERSION).putShort((short) entry.flags);
+        local.putShort((short) entry.method).putInt(entry.dosTime);
+        local.putInt(entry.crc).putInt((int) entry.compressedSize).putInt((int) entry.size);
+        local.putShort((short) entry.name.length).putShort((short) 0);
+        local.put(entry.name);
+        ((Buffer) local).flip();
+        writeFully(local);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void checkLimit(long offset) throws ZipException {
+        if (offset >= 0xFFFFFFFFL) {
+            throw new ZipException("Archive too large, ZIP64 is not supported");
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int dosTime(long time) {
+        java.util.Date date = new java.util.Date(time);
+        int year = date.getYear() + 1900;
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 | (date.getMonth() + 1) << 21 | date.getDate() << 16 | date.getHours() << 11 | date.getMinutes() << 5 | date.getSeconds() >> 1;
+    }
+
+    private static class Written {
+        private byte[] name;
+        private int method;
+        private int flags;
+        private int dosTime;
+        private int crc;
+        private long compressedSize;
+        private long size;
+        private long offset;
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.javadeobfuscator.deobfuscator.utils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -130,6 +131,13 @@ public class Utils {
         return targetMethod;
     }
 
+    public static byte[] toByteArray(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copy(in, out);
+        in.close();
+        return out.toByteArray();
+    }
+
     public static long copy(InputStream from, OutputStream to) throws IOException {
         byte[] buf = new byte[4096];
         long total = 0;
@@ -162,11 +170,12 @@ public class Utils {
         throw (T) t;
     }
 
-    private static final Printer printer = new Textifier();
-    private static final TraceMethodVisitor methodPrinter = new TraceMethodVisitor(printer);
+    private static final ThreadLocal<TraceMethodVisitor> methodPrinter = ThreadLocal.withInitial(() -> new TraceMethodVisitor(new Textifier()));
 
     public static String prettyprint(AbstractInsnNode insnNode) {
-        insnNode.accept(methodPrinter);
+        TraceMethodVisitor visitor = methodPrinter.get();
+        Printer printer = visitor.p;
+        insnNode.accept(visitor);
         StringWriter sw = new StringWriter();
         printer.print(new PrintWriter(sw));
         printer.getText().clear();
@@ -21,6 +21,13 @@ import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
 public class WrappedClassNode {
     public ClassNode classNode;
     public int constantPoolSize;
+
+    /**
+     * Name of the zip entry this class was read from, or null if it was created by a transformer
+     */
+    public String entryName;
+
+    private boolean dirty;
     
     public WrappedClassNode(ClassNode classNode, int constantPoolSize) {
         this.classNode = classNode;
@@ -30,4 +37,18 @@ public class WrappedClassNode {
     public ClassNode getClassNode() {
         return this.classNode;
     }
+
+    /**
+     * Records that a transformer changed the class, so it has to be rewritten instead of copied from the input.
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * @return true if no transformer changed the class, so the original bytes can be written out instead
+     */
+    public boolean isUnchanged() {
+        return !dirty && entryName != null;
+    }
 }
@@ -0,0 +1,160 @@
+package com.javadeobfuscator.deobfuscator;
+
+import com.javadeobfuscator.deobfuscator.events.DeobfuscatorEvent;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
+import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.transformers.Transformers;
+import com.javadeobfuscator.deobfuscator.utils.ClassPart;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs whole jobs and checks which classes are written out again.
+ */
+public class DeobfuscatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void untouchedClassesAreCopied() throws Throwable {
+        File input = JobFixture.ALPHA.write(folder.newFile("in.jar"));
+        File output = new File(folder.getRoot(), "out.jar");
+        new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(Transformers.Allatori.STRING_ENCRYPTION)
+                .withInput(input)
+                .withOutput(output)
+                .start();
+
+        assertEquals(JobFixture.ALPHA.getPlain(), JobFixture.ALPHA.decrypted(output));
+        assertArrayEquals(TestJars.bytes(StackKeyDecryptor.class), TestJars.read(output, "com/javadeobfuscator/deobfuscator/StackKeyDecryptor.class"));
+        assertFalse(Arrays.equals(TestJars.bytes(Alpha.class), TestJars.read(output, "com/javadeobfuscator/deobfuscator/Alpha.class")));
+    }
+
+    @Test
+    public void lineNumbersAreSkipped() throws Throwable {
+        ConstantPoolFilter lineNumbers = new ConstantPoolFilter().utf8("LineNumberTable");
+        byte[] decryptor = TestJars.bytes(StackKeyDecryptor.class);
+        assertTrue(lineNumbers.matches(decryptor));
+
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        File output = new File(folder.getRoot(), "out.jar");
+        new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(Transformers.Allatori.STRING_ENCRYPTION)
+                .withTransformer(Transformers.General.LINE_NUMBER)
+                .withInput(JobFixture.ALPHA.write(folder.newFile("in.jar")))
+                .withOutput(output)
+                .withListener(events -> events.stream().filter(event -> event.getType() == DeobfuscatorEvent.Type.INFO).forEach(event -> messages.add(event.getMessage())))
+                .start();
+
+        assertTrue(messages.toString(), messages.contains("Reading classes without " + EnumSet.of(ClassPart.FRAMES, ClassPart.LINE_NUMBERS)));
+        assertEquals(JobFixture.ALPHA.getPlain(), JobFixture.ALPHA.decrypted(output));
+        // Even though no transformer changed it, the decryptor was read without its line numbers
+        byte[] written = TestJars.read(output, "com/javadeobfuscator/deobfuscator/StackKeyDecryptor.class");
+        assertFalse(Arrays.equals(decryptor, written));
+        assertFalse(lineNumbers.matches(written));
+        assertFalse(lineNumbers.matches(TestJars.read(output, "com/javadeobfuscator/deobfuscator/Alpha.class")));
+    }
+
+    @Test
+    public void untrackedChangesAreWritten() throws Throwable {
+        File output = new File(folder.getRoot(), "out.jar");
+        new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(FieldAdder.class)
+                .withInput(JobFixture.ALPHA.write(folder.newFile("in.jar")))
+                .withOutput(output)
+                .start();
+
+        ConstantPoolFilter added = new ConstantPoolFilter().utf8(FieldAdder.NAME);
+        assertTrue(added.matches(TestJars.read(output, "com/javadeobfuscator/deobfuscator/StackKeyDecryptor.class")));
+        assertTrue(added.matches(TestJars.read(output, "com/javadeobfuscator/deobfuscator/Alpha.class")));
+    }
+
+    @Test
+    public void failedRunLeavesNoOutput() throws Throwable {
+        File output = new File(folder.getRoot(), "out.jar");
+        try {
+            new Deobfuscator()
+                    .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                    .withTransformer(Failing.class)
+                    .withInput(JobFixture.ALPHA.write(folder.newFile("in.jar")))
+                    .withOutput(output)
+                    .start();
+            fail("The transformer's exception was swallowed");
+        } catch (IllegalStateException expected) {
+        }
+        assertFalse(output.exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void codeCannotBeDiscarded() throws Throwable {
+        new Deobfuscator()
+                .withTransformer(CodeDiscarder.class)
+                .withInput(JobFixture.ALPHA.write(folder.newFile("in.jar")))
+                .withOutput(new File(folder.getRoot(), "out.jar"))
+                .start();
+    }
+
+    public static class CodeDiscarder extends Transformer {
+        public CodeDiscarder(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
+            super(classes, classpath);
+        }
+
+        @Override
+        public Set<ClassPart> getDiscardedParts() {
+            return EnumSet.of(ClassPart.CODE);
+        }
+
+        @Override
+        public void transform() {
+        }
+    }
+
+    public static class Failing extends Transformer {
+        public Failing(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
+            super(classes, classpath);
+        }
+
+        @Override
+        public void transform() {
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Changes every class without marking any of them
+     */
+    public static class FieldAdder extends Transformer {
+        private static final String NAME = "added";
+
+        public FieldAdder(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
+            super(classes, classpath);
+        }
+
+        @Override
+        public void transform() {
+            classNodes().forEach(wrappedClassNode -> wrappedClassNode.classNode.fields.add(new FieldNode(Opcodes.ACC_STATIC, NAME, "I", null, null)));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.javadeobfuscator.deobfuscator;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.AbstractInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.LdcInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Allatori-like string encryption for the tests which run whole jobs: the key is taken from the caller's frame, so a
+ * jar only decrypts correctly if the call stack it is interpreted with is its own.
+ */
+public enum JobFixture {
+    ALPHA(Alpha.class, "alpha job"),
+    BETA(Beta.class, "beta job");
+
+    private final Class<?> caller;
+    private final String plain;
+
+    JobFixture(Class<?> caller, String plain) {
+        this.caller = caller;
+        this.plain = plain;
+    }
+
+    public String getPlain() {
+        return plain;
+    }
+
+    /**
+     * @return what the caller returns when it is run for real
+     */
+    public String run() {
+        return this == ALPHA ? Alpha.greet() : Beta.greet();
+    }
+
+    /**
+     * Writes the caller and the decryptor to a jar
+     */
+    public File write(File file) throws IOException {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        classes.put(internalName(StackKeyDecryptor.class), TestJars.bytes(StackKeyDecryptor.class));
+        classes.put(internalName(caller), TestJars.bytes(caller));
+        return TestJars.write(file, classes);
+    }
+
+    /**
+     * @return the constant the caller returns in the given output jar, or null if it still calls the decryptor
+     */
+    public String decrypted(File output) throws IOException {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(TestJars.read(output, internalName(caller) + ".class")).accept(classNode, 0);
+        MethodNode greet = classNode.methods.stream().filter(mn -> mn.name.equals("greet")).findFirst().get();
+        String constant = null;
+        for (AbstractInsnNode insn = greet.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOpcode() == Opcodes.INVOKESTATIC) {
+                return null;
+            }
+            if (insn instanceof LdcInsnNode) {
+                constant = (String) ((LdcInsnNode) insn).cst;
+            }
+        }
+        return constant;
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+}
+
+class StackKeyDecryptor {
+    static String decrypt(String encrypted) {
+        StackTraceElement caller = new Throwable().getStackTrace()[1];
+        int key = caller.getClassName().hashCode() ^ caller.getMethodName().hashCode();
+        char[] chars = encrypted.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (chars[i] ^ (key >>> ((i & 3) << 3)) & 0x1F);
+        }
+        return new String(chars);
+    }
+}
+
+class Alpha {
+    static String greet() {
+        return StackKeyDecryptor.decrypt("go~sg#dtd");
+    }
+}
+
+class Beta {
+    static String greet() {
+        return StackKeyDecryptor.decrypt("tb\177~6md}");
+    }
+}
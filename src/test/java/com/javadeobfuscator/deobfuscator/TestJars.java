@@ -0,0 +1,65 @@
+package com.javadeobfuscator.deobfuscator;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassWriter;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.utils.Utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds small jars out of the compiled test fixtures, for tests which run the whole {@link Deobfuscator}.
+ */
+public class TestJars {
+    /**
+     * @return the compiled bytes of a class of the test tree
+     */
+    public static byte[] bytes(Class<?> clazz) throws IOException {
+        String name = clazz.getName();
+        try (InputStream in = clazz.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            return Utils.toByteArray(in);
+        }
+    }
+
+    /**
+     * Writes the given classes, keyed by internal name, to a jar
+     */
+    public static File write(File file, Map<String, byte[]> classes) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey() + ".class"));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes a library holding an empty {@code java/lang/Object}, which is all the hierachy needs for classes that
+     * only extend it. The runtime's own classes are too new to be read.
+     */
+    public static File objectLibrary(File file) throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "java/lang/Object", null, null, null);
+        writer.visitEnd();
+        return write(file, Collections.singletonMap("java/lang/Object", writer.toByteArray()));
+    }
+
+    /**
+     * @return the bytes of an entry of a jar, or null if it doesn't exist
+     */
+    public static byte[] read(File file, String entry) throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            ZipEntry zipEntry = zip.getEntry(entry);
+            return zipEntry == null ? null : Utils.toByteArray(zip.getInputStream(zipEntry));
+        }
+    }
+}
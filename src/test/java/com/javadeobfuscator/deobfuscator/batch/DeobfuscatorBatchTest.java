@@ -0,0 +1,49 @@
+package com.javadeobfuscator.deobfuscator.batch;
+
+import com.javadeobfuscator.deobfuscator.JobFixture;
+import com.javadeobfuscator.deobfuscator.TestJars;
+import com.javadeobfuscator.deobfuscator.transformers.Transformers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs jars through one batch at the same time and checks that every jar is decrypted with its own call stacks.
+ */
+public class DeobfuscatorBatchTest {
+    private static final int ROUNDS = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void concurrentJobsStayIsolated() throws Exception {
+        DeobfuscatorBatch batch = new DeobfuscatorBatch()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(Transformers.Allatori.STRING_ENCRYPTION)
+                .withWorkers(2);
+        List<JobFixture> jobs = new ArrayList<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (JobFixture job : JobFixture.values()) {
+                assertEquals(job.getPlain(), job.run());
+                batch.withJob(job.write(folder.newFile(job + "-" + i + ".jar")), new File(folder.getRoot(), job + "-" + i + "-out.jar"));
+                jobs.add(job);
+            }
+        }
+
+        List<BatchResult> results = batch.run();
+        assertEquals(jobs.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            assertTrue(result.toString(), result.isSuccess());
+            assertEquals(result.toString(), jobs.get(i).getPlain(), jobs.get(i).decrypted(result.getOutput()));
+        }
+    }
+}
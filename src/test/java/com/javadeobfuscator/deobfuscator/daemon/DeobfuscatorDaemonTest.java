@@ -0,0 +1,109 @@
+package com.javadeobfuscator.deobfuscator.daemon;
+
+import com.google.gson.Gson;
+import com.javadeobfuscator.deobfuscator.JobFixture;
+import com.javadeobfuscator.deobfuscator.TestJars;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Sends jobs to a running daemon from several clients at once, so they run concurrently on its workers and share
+ * its library cache.
+ */
+public class DeobfuscatorDaemonTest {
+    private static final int CLIENTS = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Gson gson = new Gson();
+    private DeobfuscatorDaemon daemon;
+    private Thread thread;
+
+    @Before
+    public void start() throws Exception {
+        daemon = new DeobfuscatorDaemon(0, 2, CLIENTS);
+        thread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "Daemon test");
+        thread.start();
+        for (int i = 0; i < 500 && daemon.getPort() == 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void stop() throws Exception {
+        daemon.shutdown();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Test
+    public void concurrentJobsStayIsolated() throws Exception {
+        File library = TestJars.objectLibrary(folder.newFile("object.jar"));
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<JobFixture> jobs = new ArrayList<>();
+            List<File> outputs = new ArrayList<>();
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                JobFixture job = JobFixture.values()[i % JobFixture.values().length];
+                Request request = new Request();
+                request.input = job.write(folder.newFile(job + "-" + i + ".jar")).getPath();
+                request.output = new File(folder.getRoot(), job + "-" + i + "-out.jar").getPath();
+                request.transformers = Collections.singletonList("allatori.StringEncryptionTransformer");
+                request.path = Collections.singletonList(library.getPath());
+                jobs.add(job);
+                outputs.add(new File(request.output));
+                responses.add(clients.submit(() -> send(request)));
+            }
+
+            for (int i = 0; i < CLIENTS; i++) {
+                Response response = responses.get(i).get(1, TimeUnit.MINUTES);
+                assertEquals(response.message, "ok", response.status);
+                assertEquals(jobs.get(i).getPlain(), jobs.get(i).decrypted(outputs.get(i)));
+            }
+            Response.Metrics metrics = daemon.metrics();
+            assertEquals(CLIENTS, metrics.completed);
+            assertEquals(1, metrics.libraries);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private Response send(Request request) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write(gson.toJson(request));
+            out.write('\n');
+            out.flush();
+            return gson.fromJson(in.readLine(), Response.class);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.javadeobfuscator.deobfuscator.events;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends events from one or more threads and checks when, in which order and by which thread they are delivered.
+ */
+public class EventDispatcherTest {
+    private static final String SOURCE = "[Test]";
+
+    @Test
+    public void flushDeliversInOrder() {
+        Recorder recorder = new Recorder();
+        EventDispatcher events = new EventDispatcher();
+        events.flush();
+        events.addListener(recorder);
+        for (int i = 0; i < 2000; i++) {
+            events.info(SOURCE, Integer.toString(i));
+        }
+        events.flush();
+        assertEquals(numbers(0, 2000), recorder.messages);
+
+        events.info(SOURCE, "after");
+        events.flush();
+        assertEquals("after", recorder.messages.get(2000));
+        events.close();
+    }
+
+    @Test
+    public void closeDeliversFromEveryThread() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        EventDispatcher events = new EventDispatcher();
+        events.addListener(recorder);
+        Thread[] senders = new Thread[4];
+        for (int i = 0; i < senders.length; i++) {
+            String prefix = i + ":";
+            senders[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    events.info(SOURCE, prefix + j);
+                }
+            });
+            senders[i].start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        events.close();
+
+        assertEquals(senders.length * 1000, recorder.messages.size());
+        for (int i = 0; i < senders.length; i++) {
+            String prefix = i + ":";
+            List<String> sent = new ArrayList<>();
+            for (String message : recorder.messages) {
+                if (message.startsWith(prefix)) {
+                    sent.add(message.substring(prefix.length()));
+                }
+            }
+            assertEquals(numbers(0, 1000), sent);
+        }
+        for (Thread thread : recorder.threads) {
+            assertEquals("Deobfuscator events", thread.getName());
+        }
+    }
+
+    @Test
+    public void sentAfterClose() {
+        Recorder recorder = new Recorder();
+        EventDispatcher events = new EventDispatcher();
+        events.addListener(recorder);
+        events.info(SOURCE, "before");
+        events.close();
+        assertEquals(Collections.singletonList("before"), recorder.messages);
+
+        // No flush, the sending thread delivers the event itself
+        events.info(SOURCE, "after");
+        assertEquals(Arrays.asList("before", "after"), recorder.messages);
+        assertEquals(Thread.currentThread(), recorder.threads.get(recorder.threads.size() - 1));
+        events.flush();
+        events.close();
+        assertEquals(2, recorder.messages.size());
+    }
+
+    @Test
+    public void closedBeforeSending() {
+        Recorder recorder = new Recorder();
+        EventDispatcher events = new EventDispatcher();
+        events.addListener(recorder);
+        events.close();
+        events.info(SOURCE, "first");
+        events.warning(SOURCE, "second");
+        assertEquals(Arrays.asList("first", "second"), recorder.messages);
+        assertTrue(recorder.threads.stream().allMatch(thread -> thread == Thread.currentThread()));
+    }
+
+    private static List<String> numbers(int from, int to) {
+        List<String> numbers = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            numbers.add(Integer.toString(i));
+        }
+        return numbers;
+    }
+
+    private static class Recorder implements DeobfuscatorListener {
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        private final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onEvents(List<DeobfuscatorEvent> events) {
+            threads.add(Thread.currentThread());
+            for (DeobfuscatorEvent event : events) {
+                messages.add(event.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+import com.javadeobfuscator.deobfuscator.executor.defined.JVMMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.sandbox.SandboxedExecutor;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.AbstractInsnNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.Utils;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the same decryptor from many threads against one shared provider and one initialized snapshot.
+ */
+public class ConcurrentExecutionTest {
+    private static final int THREADS = 8;
+    private static final int CALLS = 250;
+
+    private final Map<String, WrappedClassNode> classpath = new HashMap<>();
+    private final MappedFieldProvider fields = new MappedFieldProvider();
+    private final DelegatingProvider provider = new DelegatingProvider();
+    private WrappedClassNode fixture;
+    private MethodNode decrypt;
+
+    @Before
+    public void setup() throws Exception {
+        ClassNode classNode = new ClassNode();
+        try (InputStream in = DecryptorFixture.class.getResourceAsStream("DecryptorFixture.class")) {
+            ClassReader reader = new ClassReader(in);
+            reader.accept(classNode, ClassReader.SKIP_FRAMES);
+            fixture = new WrappedClassNode(classNode, reader.getItemCount());
+        }
+        classpath.put(classNode.name, fixture);
+        decrypt = classNode.methods.stream().filter(mn -> mn.name.equals("decrypt")).findFirst().get();
+
+        provider.register(fields);
+        provider.register(new JVMMethodProvider());
+        provider.register(new MappedMethodProvider(classpath));
+    }
+
+    @Test
+    public void decryptConcurrently() throws Exception {
+        StaticState initial = new StaticState();
+        Context init = newContext(initial);
+        init.initialize(fixture.classNode.name);
+        StaticState snapshot = initial.snapshot();
+
+        SandboxedExecutor sandbox = new SandboxedExecutor(classpath);
+        List<String> expectedText = new ArrayList<>();
+        for (AbstractInsnNode insn = decrypt.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            expectedText.add(Utils.prettyprint(insn));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<StaticState>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int id = thread;
+                futures.add(executor.submit((Callable<StaticState>) () -> {
+                    StaticState fork = snapshot.fork();
+                    for (int call = 0; call < CALLS; call++) {
+                        String plain = "thread " + id + " call " + call;
+                        String encrypted = DecryptorFixture.decrypt(plain);
+                        Context context = newContext(fork);
+                        Object decrypted;
+                        if (call % 2 == 0) {
+                            decrypted = MethodExecutor.execute(fixture, decrypt, Collections.singletonList(new JavaObject(encrypted, "java/lang/String")), null, context);
+                        } else {
+                            decrypted = sandbox.execute(fixture, decrypt, Collections.singletonList(new JavaObject(encrypted, "java/lang/String")), context);
+                        }
+                        assertEquals(plain, decrypted);
+                        assertEquals(1, context.size());
+                    }
+                    List<String> text = new ArrayList<>();
+                    for (AbstractInsnNode insn = decrypt.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                        text.add(Utils.prettyprint(insn));
+                    }
+                    assertEquals(expectedText, text);
+                    return fork;
+                }));
+            }
+            for (Future<StaticState> future : futures) {
+                StaticState fork = future.get(1, TimeUnit.MINUTES);
+                assertArrayEquals(new int[]{CALLS}, (int[]) fork.getField(fields.resolve(fixture.classNode.name, "calls", "[I", null)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertArrayEquals(new int[]{0}, (int[]) snapshot.fork().getField(fields.resolve(fixture.classNode.name, "calls", "[I", null)));
+        assertTrue(sandbox.getNativeCalls() > 0);
+    }
+
+    private Context newContext(StaticState statics) {
+        Context context = new Context(provider);
+        context.dictionary = classpath;
+        context.statics = statics;
+        context.push("test/Caller", "main", 0);
+        return context;
+    }
+}
@@ -0,0 +1,91 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.providers.Provider;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that interned call stacks are only shared by the contexts of one run.
+ */
+public class ContextTest {
+    @Test
+    public void popReturnsTheFrame() {
+        Context context = new Context(null);
+        context.push("test/Caller", "main", 3);
+        context.push("test/Callee", "run", 5);
+        assertEquals(2, context.size());
+
+        StackTraceElement popped = context.pop();
+        assertEquals("test.Callee", popped.getClassName());
+        assertEquals("run", popped.getMethodName());
+        assertEquals(5, popped.getLineNumber());
+        assertEquals(1, context.size());
+        assertEquals("test.Caller", context.pop().getClassName());
+        assertEquals(0, context.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void popOnEmptyStack() {
+        new Context(null).pop();
+    }
+
+    @Test
+    public void framesAreSharedWithinOneRun() {
+        StaticState statics = new StaticState().snapshot();
+        Context first = call(statics.fork());
+        Context second = call(statics.fork());
+        assertSame(first.at(0), second.at(0));
+        assertArrayEquals(first.getStackTrace(), second.getStackTrace());
+    }
+
+    @Test
+    public void framesAreNotSharedBetweenRuns() {
+        Context first = call(new StaticState());
+        Context second = call(new StaticState());
+        assertNotSame(first.at(0), second.at(0));
+        assertNotSame(first.at(1), second.at(1));
+        assertArrayEquals(first.getStackTrace(), second.getStackTrace());
+
+        assertNotSame(call((StaticState) null).at(0), call((StaticState) null).at(0));
+    }
+
+    @Test
+    public void framesAreSharedByOneProvider() {
+        Provider provider = new DelegatingProvider();
+        assertSame(call(provider).at(0), call(provider).at(0));
+        assertNotSame(call(provider).at(0), call(new DelegatingProvider()).at(0));
+    }
+
+    @Test
+    public void framesAreDroppedWithTheRun() throws InterruptedException {
+        WeakReference<StackTraceElement> frame = new WeakReference<>(call(new StaticState()).at(0));
+        for (int i = 0; i < 50 && frame.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(frame.get());
+    }
+
+    private static Context call(Provider provider) {
+        Context context = new Context(provider);
+        context.push("test/Caller", "main", 3);
+        context.push("test/Callee", "run", 5);
+        return context;
+    }
+
+    private static Context call(StaticState statics) {
+        Context context = new Context(null);
+        context.statics = statics;
+        context.push("test/Caller", "main", 3);
+        context.push("test/Callee", "run", 5);
+        return context;
+    }
+}
@@ -0,0 +1,26 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+/**
+ * Stringer-like decryptor used by the executor tests: a key table built by {@code <clinit>} and a static counter
+ * which every call mutates.
+ */
+public class DecryptorFixture {
+    private static final int[] KEYS;
+    private static int[] calls = new int[1];
+
+    static {
+        KEYS = new int[16];
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = (i * 31 + 7) & 0xFF;
+        }
+    }
+
+    public static String decrypt(String encrypted) {
+        calls[0]++;
+        char[] chars = encrypted.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (chars[i] ^ KEYS[i % KEYS.length]);
+        }
+        return new String(chars);
+    }
+}
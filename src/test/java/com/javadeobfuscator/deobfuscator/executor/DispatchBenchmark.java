@@ -0,0 +1,76 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+import com.javadeobfuscator.deobfuscator.analyzer.MethodAnalyzer;
+import com.javadeobfuscator.deobfuscator.executor.defined.JVMMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times the interpreter and the analyzer on {@link DecryptorFixture}. Run it directly for numbers, the arguments
+ * being the number of rounds and the calls per round. {@link DispatchCompilationTest} runs it to watch the JIT.
+ */
+public class DispatchBenchmark {
+    private static final String PLAIN = "the quick brown fox jumps over the lazy dog";
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        ClassNode classNode = new ClassNode();
+        WrappedClassNode fixture;
+        try (InputStream in = DecryptorFixture.class.getResourceAsStream("DecryptorFixture.class")) {
+            ClassReader reader = new ClassReader(in);
+            reader.accept(classNode, ClassReader.SKIP_FRAMES);
+            fixture = new WrappedClassNode(classNode, reader.getItemCount());
+        }
+        Map<String, WrappedClassNode> classpath = new HashMap<>();
+        classpath.put(classNode.name, fixture);
+        MethodNode decrypt = classNode.methods.stream().filter(mn -> mn.name.equals("decrypt")).findFirst().get();
+
+        DelegatingProvider provider = new DelegatingProvider();
+        provider.register(new MappedFieldProvider());
+        provider.register(new JVMMethodProvider());
+        provider.register(new MappedMethodProvider(classpath));
+        StaticState statics = new StaticState();
+        newContext(provider, classpath, statics).initialize(classNode.name);
+
+        String encrypted = DecryptorFixture.decrypt(PLAIN);
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            for (int call = 0; call < calls; call++) {
+                Object decrypted = MethodExecutor.execute(fixture, decrypt, Collections.singletonList(new JavaObject(encrypted, "java/lang/String")), null, newContext(provider, classpath, statics));
+                if (!PLAIN.equals(decrypted)) {
+                    throw new IllegalStateException("Decrypted " + decrypted);
+                }
+            }
+            long executed = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int call = 0; call < calls; call++) {
+                for (MethodNode method : classNode.methods) {
+                    MethodAnalyzer.analyze(classNode, method);
+                }
+            }
+            long analyzed = System.nanoTime() - start;
+            System.out.println("Round " + round + ": " + calls + " executions in " + executed / 1000000 + "ms, " + calls * classNode.methods.size() + " analyses in " + analyzed / 1000000 + "ms");
+        }
+    }
+
+    private static Context newContext(DelegatingProvider provider, Map<String, WrappedClassNode> classpath, StaticState statics) {
+        Context context = new Context(provider);
+        context.dictionary = classpath;
+        context.statics = statics;
+        context.push("test/Caller", "main", 0);
+        return context;
+    }
+}
@@ -0,0 +1,121 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+import com.javadeobfuscator.deobfuscator.analyzer.MethodAnalyzer;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that the dispatch loops of the interpreter and the analyzer stay small enough for HotSpot to compile, and
+ * that they are actually compiled while {@link DispatchBenchmark} runs.
+ */
+public class DispatchCompilationTest {
+    /**
+     * Methods with more bytecode than this are never compiled, unless -XX:-DontCompileHugeMethods is given
+     */
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final String LOOP_PARAMETER = "Lcom/javadeobfuscator/deobfuscator/org/objectweb/asm/tree/AbstractInsnNode;";
+
+    @Test
+    public void methodsFitCompiler() throws IOException {
+        for (Class<?> clazz : new Class<?>[]{MethodExecutor.class, MethodAnalyzer.class}) {
+            for (Map.Entry<String, Integer> method : codeLengths(clazz).entrySet()) {
+                assertTrue(clazz.getSimpleName() + "." + method.getKey() + " has " + method.getValue() + " bytes of code", method.getValue() < HUGE_METHOD_LIMIT);
+            }
+        }
+    }
+
+    @Test
+    public void dispatchLoopIsCompiled() throws Exception {
+        String vm = System.getProperty("java.vm.name", "");
+        assumeTrue(vm.contains("HotSpot") || vm.contains("OpenJDK"));
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-Xbatch", "-XX:+PrintCompilation", "-cp", System.getProperty("java.class.path"), DispatchBenchmark.class.getName(), "2", "2000")
+                .redirectErrorStream(true)
+                .start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+            }
+        }
+        assertEquals(String.join("\n", output), 0, process.waitFor());
+
+        assertCompiled(output, MethodExecutor.class);
+        assertCompiled(output, MethodAnalyzer.class);
+    }
+
+    private static void assertCompiled(List<String> output, Class<?> clazz) throws IOException {
+        Integer length = null;
+        for (Map.Entry<String, Integer> method : codeLengths(clazz).entrySet()) {
+            if (method.getKey().startsWith("execute(") && method.getKey().contains(LOOP_PARAMETER)) {
+                length = method.getValue();
+            }
+        }
+        assertNotNull("No dispatch loop in " + clazz.getSimpleName(), length);
+        String name = clazz.getName() + "::execute ";
+        String size = "(" + length + " bytes)";
+        for (String line : output) {
+            if (line.contains(name) && line.endsWith(size)) {
+                return;
+            }
+        }
+        StringBuilder message = new StringBuilder(clazz.getSimpleName() + ".execute " + size + " was never compiled");
+        for (String line : output) {
+            if (line.startsWith("Round")) {
+                message.append('\n').append(line);
+            }
+        }
+        throw new AssertionError(message.toString());
+    }
+
+    /**
+     * Reads the length of the code of every method straight from the class file, keyed by name and descriptor
+     */
+    private static Map<String, Integer> codeLengths(Class<?> clazz) throws IOException {
+        ClassReader reader;
+        try (InputStream in = clazz.getResourceAsStream(clazz.getSimpleName() + ".class")) {
+            reader = new ClassReader(in);
+        }
+        char[] buf = new char[reader.getMaxStringLength()];
+        int u = reader.header + 6;
+        u += 4 + 2 * reader.readUnsignedShort(u);
+        for (int fields = reader.readUnsignedShort(u - 2); fields > 0; fields--) {
+            u += 8;
+            for (int attributes = reader.readUnsignedShort(u - 2); attributes > 0; attributes--) {
+                u += 6 + reader.readInt(u + 2);
+            }
+        }
+        u += 2;
+        Map<String, Integer> lengths = new LinkedHashMap<>();
+        for (int methods = reader.readUnsignedShort(u - 2); methods > 0; methods--) {
+            String method = reader.readUTF8(u + 2, buf) + reader.readUTF8(u + 4, buf);
+            u += 8;
+            for (int attributes = reader.readUnsignedShort(u - 2); attributes > 0; attributes--) {
+                if (reader.readUTF8(u, buf).equals("Code")) {
+                    lengths.put(method, reader.readInt(u + 10));
+                }
+                u += 6 + reader.readInt(u + 2);
+            }
+        }
+        return lengths;
+    }
+}
@@ -0,0 +1,27 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+/**
+ * Static state used by {@link InitializationTest}: a field read through a subclass, and an initializer which throws.
+ */
+public class InitializationFixture {
+    public static int bump() {
+        StaticSub.shared++;
+        return StaticBase.shared;
+    }
+
+    public static int fail() {
+        return FailingInit.VALUE;
+    }
+}
+
+class StaticBase {
+    static int shared = 1;
+}
+
+class StaticSub extends StaticBase {
+}
+
+class FailingInit {
+    static int zero;
+    static int VALUE = 1 / zero;
+}
@@ -0,0 +1,97 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+import com.javadeobfuscator.deobfuscator.executor.defined.JVMMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks how {@link Context#initialize(String)} and {@link StaticState} treat class initialization and inherited
+ * static fields.
+ */
+public class InitializationTest {
+    private static final String PACKAGE = "com/javadeobfuscator/deobfuscator/executor/";
+
+    private final Map<String, WrappedClassNode> classpath = new HashMap<>();
+    private final MappedFieldProvider fields = new MappedFieldProvider();
+    private final DelegatingProvider provider = new DelegatingProvider();
+    private final StaticState statics = new StaticState();
+
+    @Before
+    public void setup() throws Exception {
+        for (String name : new String[]{"InitializationFixture", "StaticBase", "StaticSub", "FailingInit"}) {
+            ClassNode classNode = new ClassNode();
+            try (InputStream in = InitializationTest.class.getResourceAsStream(name + ".class")) {
+                ClassReader reader = new ClassReader(in);
+                reader.accept(classNode, ClassReader.SKIP_FRAMES);
+                classpath.put(classNode.name, new WrappedClassNode(classNode, reader.getItemCount()));
+            }
+        }
+        provider.register(fields);
+        provider.register(new JVMMethodProvider());
+        provider.register(new MappedMethodProvider(classpath));
+    }
+
+    @Test
+    public void inheritedStaticIsOneField() {
+        assertEquals(2, ((Number) execute("bump")).intValue());
+        assertEquals(2, statics.getField(fields.resolve(PACKAGE + "StaticBase", "shared", "I", null)));
+        assertFalse(statics.isInitialized(PACKAGE + "FailingInit"));
+    }
+
+    @Test
+    public void failedInitializerStaysFailed() {
+        try {
+            execute("fail");
+            fail("Expected the initializer to throw");
+        } catch (ArithmeticException expected) {
+        }
+        assertTrue(statics.hasFailed(PACKAGE + "FailingInit"));
+        try {
+            execute("fail");
+            fail("Expected the class to stay unusable");
+        } catch (NoClassDefFoundError expected) {
+        }
+    }
+
+    @Test
+    public void failureIsPartOfSnapshots() {
+        try {
+            newContext().initialize(PACKAGE + "FailingInit");
+            fail("Expected the initializer to throw");
+        } catch (ArithmeticException expected) {
+        }
+        StaticState fork = statics.snapshot().fork();
+        assertTrue(fork.hasFailed(PACKAGE + "FailingInit"));
+    }
+
+    private Object execute(String name) {
+        WrappedClassNode owner = classpath.get(PACKAGE + "InitializationFixture");
+        MethodNode method = owner.classNode.methods.stream().filter(mn -> mn.name.equals(name)).findFirst().get();
+        return MethodExecutor.execute(owner, method, new ArrayList<>(), null, newContext());
+    }
+
+    private Context newContext() {
+        Context context = new Context(provider);
+        context.dictionary = classpath;
+        context.statics = statics;
+        context.push("test/Caller", "main", 0);
+        return context;
+    }
+}
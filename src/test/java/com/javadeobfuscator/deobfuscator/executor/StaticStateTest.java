@@ -0,0 +1,85 @@
+package com.javadeobfuscator.deobfuscator.executor;
+
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that forks of one {@link StaticState} snapshot never see each other's changes.
+ */
+public class StaticStateTest {
+    private static final String OWNER = "test/Statics";
+    private static final String HOLDER = "test/Holder";
+
+    private final MappedFieldProvider fields = new MappedFieldProvider();
+    private MappedFieldProvider.FieldSlot value;
+    private MappedFieldProvider.FieldSlot holderField;
+    private MappedFieldProvider.FieldSlot aliasField;
+    private MappedFieldProvider.FieldSlot builderField;
+    private MappedFieldProvider.FieldSlot listField;
+    private StaticState snapshot;
+
+    @Before
+    public void setup() {
+        value = fields.resolve(HOLDER, "value", "I", null);
+        holderField = fields.resolve(OWNER, "holder", "L" + HOLDER + ";", null);
+        aliasField = fields.resolve(OWNER, "alias", "L" + HOLDER + ";", null);
+        builderField = fields.resolve(OWNER, "builder", "Ljava/lang/StringBuilder;", null);
+        listField = fields.resolve(OWNER, "list", "Ljava/util/List;", null);
+        JavaInstance holder = new JavaInstance(HOLDER);
+        value.set(new JavaObject(holder, HOLDER), 1);
+        List<Object> list = new ArrayList<>();
+        list.add(holder);
+
+        StaticState initial = new StaticState();
+        initial.setField(holderField, holder);
+        initial.setField(aliasField, holder);
+        initial.setField(builderField, new StringBuilder("a"));
+        initial.setField(listField, list);
+        snapshot = initial.snapshot();
+    }
+
+    @Test
+    public void instanceFieldsAreIsolated() {
+        StaticState first = snapshot.fork();
+        StaticState second = snapshot.fork();
+        value.set(holder(first), 42);
+
+        assertEquals(1, value.get(holder(second)));
+        assertEquals(1, value.get(holder(snapshot.fork())));
+        assertEquals(42, value.get(holder(first)));
+    }
+
+    @Test
+    public void aliasingIsPreserved() {
+        StaticState fork = snapshot.fork();
+        Object holder = fork.getField(holderField);
+        assertSame(holder, fork.getField(aliasField));
+        assertSame(holder, ((List<?>) fork.getField(listField)).get(0));
+        assertNotSame(holder, snapshot.fork().getField(holderField));
+    }
+
+    @Test
+    public void buildersAndCollectionsAreIsolated() {
+        StaticState first = snapshot.fork();
+        ((StringBuilder) first.getField(builderField)).append("b");
+        ((List<?>) first.getField(listField)).clear();
+
+        StaticState second = snapshot.fork();
+        assertEquals("a", second.getField(builderField).toString());
+        assertEquals(1, ((List<?>) second.getField(listField)).size());
+    }
+
+    private JavaObject holder(StaticState state) {
+        return new JavaObject(state.getField(holderField), HOLDER);
+    }
+}
@@ -0,0 +1,27 @@
+package com.javadeobfuscator.deobfuscator.executor.defined;
+
+/**
+ * Objects whose constructor the tests leave to a provider which doesn't create them.
+ */
+public class FieldFixture {
+    public static int twoBoxes() {
+        Box first = new Box();
+        Box second = new Box();
+        first.value = 1;
+        second.value = 2;
+        return first.value * 10 + second.value;
+    }
+
+    public static int inherited() {
+        SubBox box = new SubBox();
+        box.value = 3;
+        return ((Box) box).value;
+    }
+}
+
+class Box {
+    int value;
+}
+
+class SubBox extends Box {
+}
@@ -0,0 +1,102 @@
+package com.javadeobfuscator.deobfuscator.executor.defined;
+
+import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
+import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.providers.MethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every object gets its own instance fields, including objects no provider constructed.
+ */
+public class MappedFieldProviderTest {
+    private static final String PACKAGE = "com/javadeobfuscator/deobfuscator/executor/defined/";
+
+    private final Map<String, WrappedClassNode> classpath = new HashMap<>();
+    private final MappedFieldProvider fields = new MappedFieldProvider();
+    private final DelegatingProvider provider = new DelegatingProvider();
+
+    @Before
+    public void setup() throws Exception {
+        for (String name : new String[]{"FieldFixture", "Box", "SubBox"}) {
+            ClassNode classNode = new ClassNode();
+            try (InputStream in = MappedFieldProviderTest.class.getResourceAsStream(name + ".class")) {
+                ClassReader reader = new ClassReader(in);
+                reader.accept(classNode, ClassReader.SKIP_FRAMES);
+                classpath.put(classNode.name, new WrappedClassNode(classNode, reader.getItemCount()));
+            }
+        }
+        provider.register(fields);
+        provider.register(new MethodProvider() {
+            @Override
+            public boolean canInvokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
+                return methodName.equals("<init>");
+            }
+
+            @Override
+            public Object invokeMethod(String className, String methodName, String methodDesc, JavaValue targetObject, List<JavaValue> args, Context context) {
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void unconstructedObjectsDontAlias() {
+        JavaObject first = new JavaObject(PACKAGE + "Box");
+        JavaObject second = new JavaObject(PACKAGE + "Box");
+        MappedFieldProvider.FieldSlot value = fields.resolve(PACKAGE + "Box", "value", "I", null);
+        value.set(first, 1);
+        assertNull(value.get(second));
+        value.set(second, 2);
+
+        assertEquals(1, value.get(first));
+        assertEquals(2, value.get(second));
+        assertTrue(first.value() instanceof JavaInstance);
+        assertEquals(PACKAGE + "Box", ((JavaInstance) first.value()).getType());
+    }
+
+    @Test
+    public void interpretedObjectsDontAlias() {
+        assertEquals(12, ((Number) execute("twoBoxes")).intValue());
+    }
+
+    @Test
+    public void inheritedFieldIsOneSlot() {
+        assertEquals(3, ((Number) execute("inherited")).intValue());
+    }
+
+    @Test
+    public void resolvedPerDictionary() {
+        assertEquals(PACKAGE + "SubBox", fields.resolve(PACKAGE + "SubBox", "value", "I", null).getOwner());
+        Context context = new Context(provider);
+        context.dictionary = classpath;
+        assertEquals(PACKAGE + "Box", fields.resolve(PACKAGE + "SubBox", "value", "I", context).getOwner());
+    }
+
+    private Object execute(String name) {
+        WrappedClassNode owner = classpath.get(PACKAGE + "FieldFixture");
+        MethodNode method = owner.classNode.methods.stream().filter(mn -> mn.name.equals(name)).findFirst().get();
+        Context context = new Context(provider);
+        context.dictionary = classpath;
+        context.push("test/Caller", "main", 0);
+        return MethodExecutor.execute(owner, method, new ArrayList<>(), null, context);
+    }
+}
@@ -0,0 +1,89 @@
+package com.javadeobfuscator.deobfuscator.executor.defined;
+
+import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.MethodExecutor;
+import com.javadeobfuscator.deobfuscator.executor.exceptions.NoSuchMethodHandlerException;
+import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that virtual calls dispatch on the receiver, also once a call site's inline cache is warm, and that the
+ * call site is never left behind on the context.
+ */
+public class MappedMethodProviderTest {
+    private static final String PACKAGE = "com/javadeobfuscator/deobfuscator/executor/defined/";
+
+    private final Map<String, WrappedClassNode> classpath = new HashMap<>();
+    private final DelegatingProvider provider = new DelegatingProvider();
+
+    @Before
+    public void setup() throws Exception {
+        for (String name : new String[]{"MethodFixture", "Shape", "Square", "Triangle"}) {
+            ClassNode classNode = new ClassNode();
+            try (InputStream in = MappedMethodProviderTest.class.getResourceAsStream(name + ".class")) {
+                ClassReader reader = new ClassReader(in);
+                reader.accept(classNode, ClassReader.SKIP_FRAMES);
+                classpath.put(classNode.name, new WrappedClassNode(classNode, reader.getItemCount()));
+            }
+        }
+        provider.register(new MappedFieldProvider());
+        provider.register(new JVMMethodProvider());
+        provider.register(new MappedMethodProvider(classpath));
+    }
+
+    @Test
+    public void inheritedMethod() {
+        assertEquals(MethodFixture.inherited(), execute("inherited"));
+    }
+
+    @Test
+    public void polymorphicCallSite() {
+        assertEquals(14141, MethodFixture.sides());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(MethodFixture.sides(), execute("sides"));
+        }
+    }
+
+    @Test
+    public void invocationIsCleared() {
+        Context context = context();
+        assertEquals(3, MethodExecutor.<Integer>execute(classpath.get(PACKAGE + "MethodFixture"), method("length"), new ArrayList<>(), null, context).intValue());
+        assertNull(context.invocation);
+
+        try {
+            MethodExecutor.execute(classpath.get(PACKAGE + "MethodFixture"), method("unhandled"), new ArrayList<>(), null, context);
+            fail("Math.floorMod has no provider");
+        } catch (NoSuchMethodHandlerException expected) {
+        }
+        assertNull(context.invocation);
+    }
+
+    private int execute(String name) {
+        return ((Number) MethodExecutor.execute(classpath.get(PACKAGE + "MethodFixture"), method(name), new ArrayList<>(), null, context())).intValue();
+    }
+
+    private MethodNode method(String name) {
+        return classpath.get(PACKAGE + "MethodFixture").classNode.methods.stream().filter(mn -> mn.name.equals(name)).findFirst().get();
+    }
+
+    private Context context() {
+        Context context = new Context(provider);
+        context.dictionary = classpath;
+        context.push("test/Caller", "main", 0);
+        return context;
+    }
+}
@@ -0,0 +1,45 @@
+package com.javadeobfuscator.deobfuscator.executor.defined;
+
+/**
+ * Virtual calls for {@link MappedMethodProviderTest}: one call site which sees several receiver types, some of which
+ * only inherit the method.
+ */
+public class MethodFixture {
+    public static int sides() {
+        Shape[] shapes = {new Shape(), new Square(), new Triangle(), new Square(), new Triangle()};
+        int sum = 0;
+        for (Shape shape : shapes) {
+            sum = sum * 10 + shape.sides();
+        }
+        return sum;
+    }
+
+    public static int inherited() {
+        Triangle triangle = new Triangle();
+        return triangle.sides();
+    }
+
+    public static int length() {
+        return "abc".length();
+    }
+
+    public static int unhandled() {
+        return Math.floorMod(7, 3);
+    }
+}
+
+class Shape {
+    int sides() {
+        return 1;
+    }
+}
+
+class Square extends Shape {
+    @Override
+    int sides() {
+        return 4;
+    }
+}
+
+class Triangle extends Shape {
+}
@@ -0,0 +1,32 @@
+package com.javadeobfuscator.deobfuscator.executor.defined;
+
+/**
+ * Real methods which {@link ReflectiveProviderTest} calls through the {@link ReflectiveProvider}.
+ */
+public class ReflectiveFixture {
+    private final int base;
+
+    public ReflectiveFixture(int base) {
+        this.base = base;
+    }
+
+    public long add(long value) {
+        return base + value;
+    }
+
+    public static double widen(long first, float second, double third) {
+        return first + second + third;
+    }
+
+    public static int unbox(Integer boxed, int primitive, char character) {
+        return boxed * 100 + primitive * 10 + character;
+    }
+
+    public static Object box(Object value) {
+        return value;
+    }
+
+    public static String fail(String message) {
+        throw new IllegalStateException(message);
+    }
+}
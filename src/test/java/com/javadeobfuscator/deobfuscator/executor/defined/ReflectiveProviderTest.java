@@ -0,0 +1,86 @@
+package com.javadeobfuscator.deobfuscator.executor.defined;
+
+import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.exceptions.ExecutionException;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaByte;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaCharacter;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaFloat;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaInteger;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaLong;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaShort;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that arguments are adapted like {@link java.lang.reflect.Method#invoke} does, and that failing to adapt them
+ * is told apart from the target throwing.
+ */
+public class ReflectiveProviderTest {
+    private static final String FIXTURE = "com/javadeobfuscator/deobfuscator/executor/defined/ReflectiveFixture";
+
+    private final ReflectiveProvider provider = new ReflectiveProvider(Collections.singletonMap(FIXTURE, null));
+    private final Context context = new Context(provider);
+
+    @Test
+    public void primitiveWidening() {
+        assertEquals(7.5, invoke("widen", "(JFD)D", null, new JavaInteger(1), new JavaShort((short) 2), new JavaFloat(4.5f)));
+        assertEquals(5.0, invoke("widen", "(JFD)D", null, new JavaByte((byte) 1), new JavaCharacter('\u0001'), new JavaLong(3)));
+    }
+
+    @Test
+    public void boxing() {
+        assertEquals(123, invoke("unbox", "(Ljava/lang/Integer;IC)I", null, new JavaObject(1, "java/lang/Integer"), new JavaInteger(2), new JavaCharacter('\u0003')));
+        assertEquals(42, invoke("box", "(Ljava/lang/Object;)Ljava/lang/Object;", null, new JavaInteger(42)));
+    }
+
+    @Test
+    public void instanceMethod() {
+        JavaObject instance = new JavaObject(FIXTURE);
+        assertEquals(null, invoke("<init>", "(I)V", instance, new JavaShort((short) 40)));
+        assertTrue(instance.value() instanceof ReflectiveFixture);
+        assertEquals(42L, invoke("add", "(J)J", instance, new JavaInteger(2)));
+    }
+
+    @Test
+    public void adaptationFailures() {
+        assertAdaptationFails("widen", "(JFD)D", null, new JavaObject("1", "java/lang/String"), new JavaFloat(1f), new JavaFloat(1f));
+        assertAdaptationFails("unbox", "(Ljava/lang/Integer;IC)I", null, new JavaObject(1, "java/lang/Integer"), new JavaLong(2), new JavaCharacter('a'));
+        assertAdaptationFails("unbox", "(Ljava/lang/Integer;IC)I", null, new JavaObject("1", "java/lang/String"), new JavaInteger(2), new JavaCharacter('a'));
+        assertAdaptationFails("unbox", "(Ljava/lang/Integer;IC)I", null, new JavaObject(1, "java/lang/Integer"), new JavaObject(null, "java/lang/Integer"), new JavaCharacter('a'));
+        assertAdaptationFails("fail", "(Ljava/lang/String;)Ljava/lang/String;", null);
+        assertAdaptationFails("add", "(J)J", new JavaObject("not a fixture", "java/lang/String"), new JavaLong(1));
+        assertAdaptationFails("add", "(J)J", null, new JavaLong(1));
+    }
+
+    @Test
+    public void targetExceptionIsThrownAsIs() {
+        try {
+            invoke("fail", "(Ljava/lang/String;)Ljava/lang/String;", null, new JavaObject("thrown by the target", "java/lang/String"));
+            fail("The target didn't throw");
+        } catch (IllegalStateException expected) {
+            assertEquals("thrown by the target", expected.getMessage());
+        }
+    }
+
+    private Object invoke(String name, String desc, JavaValue target, JavaValue... args) {
+        List<JavaValue> arguments = Arrays.asList(args);
+        return provider.invokeMethod(FIXTURE, name, desc, target, arguments, context);
+    }
+
+    private void assertAdaptationFails(String name, String desc, JavaValue target, JavaValue... args) {
+        try {
+            invoke(name, desc, target, args);
+            fail("Adapted the arguments of " + name + desc);
+        } catch (ExecutionException expected) {
+        }
+    }
+}
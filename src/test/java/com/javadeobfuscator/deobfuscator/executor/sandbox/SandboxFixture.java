@@ -0,0 +1,33 @@
+package com.javadeobfuscator.deobfuscator.executor.sandbox;
+
+/**
+ * Methods which the sandbox runs natively, rejects before they had any effect, rejects after they had one, or which
+ * throw by themselves.
+ */
+public class SandboxFixture {
+    static int counter;
+    static Pair pair;
+
+    static class Pair {
+        int a;
+        int b;
+    }
+
+    public static String reverse(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    public static int sum(Pair p) {
+        return p.a + p.b;
+    }
+
+    public static int bump() {
+        counter++;
+        return pair.a;
+    }
+
+    public static int element(int index) {
+        int[] values = new int[2];
+        return values[index];
+    }
+}
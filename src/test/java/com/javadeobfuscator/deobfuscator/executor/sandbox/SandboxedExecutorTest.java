@@ -0,0 +1,125 @@
+package com.javadeobfuscator.deobfuscator.executor.sandbox;
+
+import com.javadeobfuscator.deobfuscator.executor.Context;
+import com.javadeobfuscator.deobfuscator.executor.StaticState;
+import com.javadeobfuscator.deobfuscator.executor.defined.JVMMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedFieldProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.MappedMethodProvider;
+import com.javadeobfuscator.deobfuscator.executor.defined.types.JavaInstance;
+import com.javadeobfuscator.deobfuscator.executor.exceptions.SandboxViolationException;
+import com.javadeobfuscator.deobfuscator.executor.providers.DelegatingProvider;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaInteger;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaObject;
+import com.javadeobfuscator.deobfuscator.executor.values.JavaValue;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks when {@link SandboxedExecutor} runs natively, when it falls back to the interpreter, and that it never
+ * replays a call which already had side effects.
+ */
+public class SandboxedExecutorTest {
+    private static final String OWNER = "com/javadeobfuscator/deobfuscator/executor/sandbox/SandboxFixture";
+    private static final String PAIR = OWNER + "$Pair";
+
+    private final Map<String, WrappedClassNode> classpath = new HashMap<>();
+    private final MappedFieldProvider fields = new MappedFieldProvider();
+    private final DelegatingProvider provider = new DelegatingProvider();
+    private final StaticState statics = new StaticState();
+    private SandboxedExecutor sandbox;
+
+    @Before
+    public void setup() throws Exception {
+        load("SandboxFixture.class");
+        load("SandboxFixture$Pair.class");
+        provider.register(fields);
+        provider.register(new JVMMethodProvider());
+        provider.register(new MappedMethodProvider(classpath));
+        sandbox = new SandboxedExecutor(classpath);
+    }
+
+    @Test
+    public void runsNatively() {
+        assertEquals("cba", execute("reverse", Collections.singletonList(new JavaObject("abc", "java/lang/String"))));
+        assertEquals(1, sandbox.getNativeCalls());
+        assertEquals(0, sandbox.getFallbacks());
+    }
+
+    @Test
+    public void replaysViolationWithoutSideEffects() {
+        JavaValue pair = newPair(3, 4);
+        assertEquals(7, ((Number) execute("sum", Collections.singletonList(pair))).intValue());
+        assertEquals(0, sandbox.getNativeCalls());
+        assertEquals(1, sandbox.getFallbacks());
+    }
+
+    @Test
+    public void doesNotReplayViolationAfterSideEffects() {
+        statics.setField(fields.resolve(OWNER, "pair", "L" + PAIR + ";", null), newPair(5, 0).value());
+        try {
+            execute("bump", Collections.emptyList());
+            fail("Expected a violation");
+        } catch (SandboxViolationException e) {
+            assertFalse(e.isReplayable());
+        }
+        assertEquals(1, statics.getField(fields.resolve(OWNER, "counter", "I", null)));
+        assertEquals(0, sandbox.getFallbacks());
+
+        assertEquals(5, ((Number) execute("bump", Collections.emptyList())).intValue());
+        assertEquals(2, statics.getField(fields.resolve(OWNER, "counter", "I", null)));
+        assertEquals(1, sandbox.getFallbacks());
+    }
+
+    @Test
+    public void propagatesGuestExceptions() {
+        assertEquals(0, ((Number) execute("element", Collections.singletonList(new JavaInteger(1)))).intValue());
+        try {
+            execute("element", Collections.singletonList(new JavaInteger(2)));
+            fail("Expected the guest exception");
+        } catch (ArrayIndexOutOfBoundsException expected) {
+        }
+        assertEquals(1, sandbox.getNativeCalls());
+        assertEquals(0, sandbox.getFallbacks());
+    }
+
+    private Object execute(String name, List<JavaValue> args) {
+        WrappedClassNode owner = classpath.get(OWNER);
+        MethodNode method = owner.classNode.methods.stream().filter(mn -> mn.name.equals(name)).findFirst().get();
+        Context context = new Context(provider);
+        context.dictionary = classpath;
+        context.statics = statics;
+        context.push("test/Caller", "main", 0);
+        return sandbox.execute(owner, method, args, context);
+    }
+
+    private JavaValue newPair(int a, int b) {
+        JavaObject pair = new JavaObject(new JavaInstance(PAIR), PAIR);
+        Context context = new Context(provider);
+        provider.setField(PAIR, "a", "I", pair, a, context);
+        provider.setField(PAIR, "b", "I", pair, b, context);
+        return pair;
+    }
+
+    private void load(String resource) throws Exception {
+        ClassNode classNode = new ClassNode();
+        try (InputStream in = SandboxFixture.class.getResourceAsStream(resource)) {
+            ClassReader reader = new ClassReader(in);
+            reader.accept(classNode, ClassReader.SKIP_FRAMES);
+            classpath.put(classNode.name, new WrappedClassNode(classNode, reader.getItemCount()));
+        }
+    }
+}
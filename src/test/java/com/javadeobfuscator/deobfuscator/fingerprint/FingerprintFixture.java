@@ -0,0 +1,125 @@
+package com.javadeobfuscator.deobfuscator.fingerprint;
+
+import java.lang.reflect.Method;
+
+/**
+ * Call sites shaped like the ones each obfuscator leaves behind, for {@link FingerprinterTest}. {@link Ordinary}
+ * only looks similar, and must not be detected.
+ */
+public class FingerprintFixture {
+    static String allatori() {
+        return AllatoriDecryptor.decrypt("encrypted");
+    }
+
+    static String stringer() {
+        return StringerDecryptor.decrypt("encrypted");
+    }
+
+    static String dasho() {
+        return DashODecryptor.decrypt("encrypted", 3);
+    }
+
+    static Method zelixReflection() {
+        return ZelixReflection.method(42L);
+    }
+
+    static Object stringerReflection() {
+        return StringerReflection.invoke(null);
+    }
+}
+
+class AllatoriDecryptor {
+    static String decrypt(String encrypted) {
+        char[] chars = encrypted.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] ^= 42;
+        }
+        return new String(chars);
+    }
+}
+
+class StringerDecryptor {
+    static Object[] cache;
+
+    static String decrypt(String encrypted) {
+        return encrypted;
+    }
+}
+
+class DashODecryptor {
+    static String decrypt(String encrypted, int key) {
+        char[] chars = encrypted.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] ^= key;
+        }
+        return new String(chars);
+    }
+}
+
+class ZelixReflection {
+    static Method method(long id) {
+        return null;
+    }
+}
+
+class StringerReflection {
+    static Object[] targets;
+    static Class<?>[] types;
+
+    static Object invoke(Object receiver) {
+        return receiver;
+    }
+}
+
+class ZelixStrings {
+    static String use() {
+        return get(1000, 2000);
+    }
+
+    static String get(int first, int second) {
+        return null;
+    }
+}
+
+class ZelixClinit {
+    static final String VALUE = z(z("encrypted"));
+
+    static char[] z(String encrypted) {
+        return encrypted.toCharArray();
+    }
+
+    static String z(char[] chars) {
+        return new String(chars);
+    }
+}
+
+class Ordinary {
+    static final String NAME = new String("ordinary".toCharArray());
+
+    static String describe() {
+        Runnable lambda = () -> {
+        };
+        lambda.run();
+        return trim(" text ") + repeat("ab", 3) + Other.pick(1, 2);
+    }
+
+    static String trim(String text) {
+        return text.trim();
+    }
+
+    static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
+
+class Other {
+    static Object[] cache;
+
+    static String pick(int first, int second) {
+        return first > second ? "first" : "second";
+    }
+}
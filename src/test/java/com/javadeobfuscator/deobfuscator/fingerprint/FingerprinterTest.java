@@ -0,0 +1,125 @@
+package com.javadeobfuscator.deobfuscator.fingerprint;
+
+import com.javadeobfuscator.deobfuscator.TestJars;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassWriter;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Handle;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.MethodVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.transformers.Transformer;
+import com.javadeobfuscator.deobfuscator.transformers.Transformers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Scans fixtures shaped like each obfuscator's call sites, and ordinary code which only looks similar.
+ */
+public class FingerprinterTest {
+    private static final Class<?>[] OBFUSCATED = {
+            FingerprintFixture.class, AllatoriDecryptor.class, StringerDecryptor.class, DashODecryptor.class,
+            ZelixReflection.class, StringerReflection.class, ZelixStrings.class, ZelixClinit.class
+    };
+    private static final Class<?>[] ORDINARY = {Ordinary.class, Other.class};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void obfuscatedCallSites() throws Exception {
+        Map<String, byte[]> classFiles = obfuscated();
+        classFiles.putAll(classFiles(ORDINARY));
+        Fingerprint fingerprint = new Fingerprinter().scan(parse(classFiles));
+
+        assertEquals(expected(), fingerprint.getScores());
+        assertEquals(Fingerprint.ORDER, fingerprint.getRecommendedTransformers());
+        assertEquals(classFiles.size(), fingerprint.getClassCount());
+    }
+
+    @Test
+    public void ordinaryCode() throws Exception {
+        Fingerprint fingerprint = new Fingerprinter().scan(parse(classFiles(ORDINARY)));
+
+        Map<Class<? extends Transformer>, Integer> nothing = new LinkedHashMap<>();
+        for (Class<? extends Transformer> transformer : Fingerprint.ORDER) {
+            nothing.put(transformer, 0);
+        }
+        assertEquals(nothing, fingerprint.getScores());
+        assertEquals(Collections.emptyList(), fingerprint.getRecommendedTransformers());
+        assertEquals(ORDINARY.length, fingerprint.getClassCount());
+    }
+
+    @Test
+    public void scanJar() throws Exception {
+        Map<String, byte[]> classFiles = obfuscated();
+        classFiles.put("broken", new byte[]{(byte) 0xCA, (byte) 0xFE});
+        File jar = TestJars.write(folder.newFile("obfuscated.jar"), classFiles);
+        Fingerprint fingerprint = new Fingerprinter().scan(jar);
+
+        assertEquals(expected(), fingerprint.getScores());
+        assertEquals(classFiles.size() - 1, fingerprint.getClassCount());
+    }
+
+    private static Map<Class<? extends Transformer>, Integer> expected() {
+        Map<Class<? extends Transformer>, Integer> expected = new LinkedHashMap<>();
+        expected.put(Transformers.Stringer.INVOKEDYNAMIC, 1);
+        expected.put(Transformers.Stringer.REFLECTION_OBFUSCATION, 1);
+        expected.put(Transformers.Stringer.STRING_ENCRYPTION, 1);
+        expected.put(Transformers.Zelix.REFLECTION_OBFUSCATION, 1);
+        // Both the (II) decryptor and the clinit's char[] round trip
+        expected.put(Transformers.Zelix.STRING_ENCRYPTION, 2);
+        expected.put(Transformers.Allatori.STRING_ENCRYPTION, 1);
+        expected.put(Transformers.DashO.STRING_ENCRYPTION, 1);
+        return expected;
+    }
+
+    private static Map<String, byte[]> obfuscated() throws Exception {
+        Map<String, byte[]> classFiles = classFiles(OBFUSCATED);
+        classFiles.put("test/StringerIndy", stringerIndy());
+        return classFiles;
+    }
+
+    private static Map<String, byte[]> classFiles(Class<?>[] classes) throws Exception {
+        Map<String, byte[]> classFiles = new HashMap<>();
+        for (Class<?> clazz : classes) {
+            classFiles.put(clazz.getName().replace('.', '/'), TestJars.bytes(clazz));
+        }
+        return classFiles;
+    }
+
+    /**
+     * Javac can't emit an invokedynamic with Stringer's bootstrap method, so this one is written by hand.
+     */
+    private static byte[] stringerIndy() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_SUPER, "test/StringerIndy", null, "java/lang/Object", null);
+        Handle bootstrap = new Handle(Opcodes.H_INVOKESTATIC, "test/StringerIndy", "bootstrap", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/Object;");
+        MethodVisitor mv = writer.visitMethod(Opcodes.ACC_STATIC, "run", "()V", null, null);
+        mv.visitCode();
+        mv.visitInvokeDynamicInsn("call", "()V", bootstrap, "encrypted");
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static Map<String, ClassNode> parse(Map<String, byte[]> classFiles) {
+        Map<String, ClassNode> classes = new HashMap<>();
+        for (byte[] classFile : classFiles.values()) {
+            ClassNode classNode = new ClassNode();
+            new ClassReader(classFile).accept(classNode, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            classes.put(classNode.name, classNode);
+        }
+        return classes;
+    }
+}
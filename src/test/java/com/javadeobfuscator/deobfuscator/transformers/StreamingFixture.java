@@ -0,0 +1,25 @@
+package com.javadeobfuscator.deobfuscator.transformers;
+
+/**
+ * Line numbers, a bridge method, and the synthetic accessor and field javac adds for an inner class.
+ */
+public class StreamingFixture extends StreamingBase {
+    private String value;
+
+    @Override
+    String get() {
+        return value;
+    }
+
+    class Inner {
+        String read() {
+            return value;
+        }
+    }
+}
+
+class StreamingBase {
+    Object get() {
+        return null;
+    }
+}
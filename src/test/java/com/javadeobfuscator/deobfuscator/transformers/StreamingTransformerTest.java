@@ -0,0 +1,152 @@
+package com.javadeobfuscator.deobfuscator.transformers;
+
+import com.javadeobfuscator.deobfuscator.Deobfuscator;
+import com.javadeobfuscator.deobfuscator.TestJars;
+import com.javadeobfuscator.deobfuscator.events.DeobfuscatorEvent;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassWriter;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Label;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.MethodVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.util.TraceClassVisitor;
+import com.javadeobfuscator.deobfuscator.utils.WrappedClassNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs each streaming transformer once streamed and once on trees, and checks both write the same classes.
+ */
+public class StreamingTransformerTest {
+    private static final String LEGACY = "test/Legacy";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lineNumbers() throws Throwable {
+        Map<String, byte[]> streamed = compare(Transformers.General.LINE_NUMBER);
+        for (Map.Entry<String, byte[]> entry : streamed.entrySet()) {
+            assertFalse(entry.getKey(), text(entry.getValue()).contains("LINENUMBER"));
+        }
+    }
+
+    @Test
+    public void syntheticBridges() throws Throwable {
+        Map<String, byte[]> streamed = compare(Transformers.General.SYNTHETIC_BRIDGE);
+        for (byte[] classFile : streamed.values()) {
+            // Classes older than Java 5 mark synthetic members with an attribute, which is read back as the flag
+            ClassNode classNode = new ClassNode();
+            new ClassReader(classFile).accept(classNode, 0);
+            int access = classNode.access;
+            for (MethodNode methodNode : classNode.methods) {
+                access |= methodNode.access;
+            }
+            for (FieldNode fieldNode : classNode.fields) {
+                access |= fieldNode.access;
+            }
+            assertEquals(classNode.name, 0, access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE));
+        }
+    }
+
+    /**
+     * @return the streamed classes, keyed by entry name
+     */
+    private Map<String, byte[]> compare(Class<? extends Transformer> transformer) throws Throwable {
+        Map<String, byte[]> classFiles = new HashMap<>();
+        for (Class<?> clazz : new Class<?>[]{StreamingFixture.class, StreamingFixture.Inner.class, StreamingBase.class}) {
+            classFiles.put(clazz.getName().replace('.', '/'), TestJars.bytes(clazz));
+        }
+        classFiles.put(LEGACY, legacy());
+        File input = TestJars.write(folder.newFile("in.jar"), classFiles);
+
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        File streamed = new File(folder.getRoot(), "streamed.jar");
+        new Deobfuscator()
+                .withTransformer(transformer)
+                .withInput(input)
+                .withOutput(streamed)
+                .withListener(events -> events.stream().filter(event -> event.getType() == DeobfuscatorEvent.Type.INFO).forEach(event -> messages.add(event.getMessage())))
+                .start();
+        assertTrue(messages.toString(), messages.contains("Streamed " + classFiles.size() + " classes, copied 0 unchanged entries"));
+
+        File tree = new File(folder.getRoot(), "tree.jar");
+        new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(transformer)
+                .withTransformer(TreeOnly.class)
+                .withInput(input)
+                .withOutput(tree)
+                .start();
+
+        Map<String, byte[]> result = new HashMap<>();
+        for (String name : classFiles.keySet()) {
+            String entry = name + ".class";
+            byte[] classFile = TestJars.read(streamed, entry);
+            assertEquals(entry, text(TestJars.read(tree, entry)), text(classFile));
+            result.put(entry, classFile);
+        }
+        return result;
+    }
+
+    private static String text(byte[] classFile) {
+        StringWriter text = new StringWriter();
+        // Trees are written with computed frames, streamed classes keep theirs
+        new ClassReader(classFile).accept(new TraceClassVisitor(new PrintWriter(text)), ClassReader.SKIP_FRAMES);
+        return text.toString();
+    }
+
+    /**
+     * A Java 1.4 class, with a synthetic method, a synthetic field and a bridge method
+     */
+    private static byte[] legacy() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_4, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, LEGACY, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, "field", "I", null, null).visitEnd();
+        method(writer, Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, "synthetic");
+        method(writer, Opcodes.ACC_STATIC | Opcodes.ACC_BRIDGE, "bridge");
+        method(writer, Opcodes.ACC_STATIC, "plain");
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void method(ClassWriter writer, int access, String name) {
+        MethodVisitor mv = writer.visitMethod(access, name, "()V", null, null);
+        mv.visitCode();
+        Label start = new Label();
+        mv.visitLabel(start);
+        mv.visitLineNumber(42, start);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Doesn't stream, so the run falls back to trees
+     */
+    public static class TreeOnly extends Transformer {
+        public TreeOnly(Map<String, WrappedClassNode> classes, Map<String, WrappedClassNode> classpath) {
+            super(classes, classpath);
+        }
+
+        @Override
+        public void transform() {
+        }
+    }
+}
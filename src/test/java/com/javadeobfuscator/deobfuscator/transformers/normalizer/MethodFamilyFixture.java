@@ -0,0 +1,42 @@
+package com.javadeobfuscator.deobfuscator.transformers.normalizer;
+
+/**
+ * Methods sharing names across and within hierachies. {@link Listener} is put on the classpath rather than the input,
+ * so it stands for a library.
+ */
+public class MethodFamilyFixture {
+    Object get() {
+        return null;
+    }
+
+    Object get(int index) {
+        return null;
+    }
+}
+
+class NarrowFamily extends MethodFamilyFixture {
+    // Covariant, so javac adds a bridge returning Object
+    @Override
+    String get() {
+        return "narrow";
+    }
+}
+
+interface Listener {
+    void changed(Object value);
+}
+
+class Recorder implements Listener {
+    @Override
+    public void changed(Object value) {
+    }
+}
+
+class Unrelated {
+    String get() {
+        return "unrelated";
+    }
+
+    void changed(Object value) {
+    }
+}
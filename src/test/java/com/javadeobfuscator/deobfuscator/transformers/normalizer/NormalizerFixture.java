@@ -0,0 +1,75 @@
+package com.javadeobfuscator.deobfuscator.transformers.normalizer;
+
+/**
+ * A small program whose classes call, extend and read each other, so every rename has to be applied consistently.
+ * The result is left in {@code args[0]}, as {@code main} is the only method which keeps its name.
+ */
+public class NormalizerFixture {
+    public static void main(String[] args) {
+        Shape[] shapes = {new Square(3), new Circle(2)};
+        StringBuilder result = new StringBuilder();
+        for (Shape shape : shapes) {
+            result.append(shape.describe()).append(';');
+        }
+        result.append(Base.created).append(';').append(Square.unit(4).size);
+        args[0] = result.toString();
+    }
+}
+
+interface Shape {
+    int area();
+
+    String describe();
+}
+
+abstract class Base implements Shape {
+    static int created;
+    protected final String name;
+
+    Base(String name) {
+        this.name = name;
+        created++;
+    }
+
+    @Override
+    public String describe() {
+        return name + " " + area();
+    }
+}
+
+class Square extends Base {
+    final int size;
+
+    Square(int size) {
+        super("square");
+        this.size = size;
+    }
+
+    static Square unit(int size) {
+        return new Square(size);
+    }
+
+    @Override
+    public int area() {
+        return size * size;
+    }
+}
+
+class Circle extends Base {
+    final int size;
+
+    Circle(int size) {
+        super("circle");
+        this.size = size;
+    }
+
+    @Override
+    public int area() {
+        return 3 * size * size;
+    }
+
+    @Override
+    public String describe() {
+        return "round " + super.describe();
+    }
+}
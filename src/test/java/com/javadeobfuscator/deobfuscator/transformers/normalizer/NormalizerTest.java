@@ -0,0 +1,146 @@
+package com.javadeobfuscator.deobfuscator.transformers.normalizer;
+
+import com.javadeobfuscator.deobfuscator.Deobfuscator;
+import com.javadeobfuscator.deobfuscator.TestJars;
+import com.javadeobfuscator.deobfuscator.events.DeobfuscatorEvent;
+import com.javadeobfuscator.deobfuscator.transformers.Transformers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the normalizers over small programs, and checks the renamed classes still load and run, and which methods are
+ * renamed alike.
+ */
+public class NormalizerTest {
+    private static final Class<?>[] FIXTURE = {
+            NormalizerFixture.class, Shape.class, Base.class, Square.class, Circle.class
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void renamedProgramLinks() throws Throwable {
+        List<String> warnings = Collections.synchronizedList(new ArrayList<>());
+        File output = new File(folder.getRoot(), "out.jar");
+        new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(Transformers.Normalizer.PACKAGE_NORMALIZER)
+                .withTransformer(Transformers.Normalizer.CLASS_NORMALIZER)
+                .withTransformer(Transformers.Normalizer.FIELD_NORMALIZER)
+                .withTransformer(Transformers.Normalizer.METHOD_NORMALIZER)
+                .withInput(TestJars.write(folder.newFile("in.jar"), classFiles(FIXTURE)))
+                .withOutput(output)
+                .withListener(events -> events.stream().filter(event -> event.getType() == DeobfuscatorEvent.Type.WARNING).forEach(event -> warnings.add(event.getMessage())))
+                .start();
+        assertEquals(Collections.emptyList(), warnings);
+
+        List<String> names = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(output)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                assertTrue(entry.getName(), entry.getName().matches("(package\\d+/)+Class\\d+\\.class"));
+                names.add(entry.getName().substring(0, entry.getName().length() - ".class".length()).replace('/', '.'));
+            }
+        }
+        assertEquals(FIXTURE.length, names.size());
+
+        String[] expected = new String[1];
+        NormalizerFixture.main(expected);
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, ClassLoader.getSystemClassLoader().getParent())) {
+            Method main = null;
+            for (String name : names) {
+                // Initializing links and verifies the class
+                Class<?> clazz = Class.forName(name, true, loader);
+                for (Field field : clazz.getDeclaredFields()) {
+                    assertTrue(field.toString(), field.getName().matches("Field\\d+"));
+                }
+                for (Method method : clazz.getDeclaredMethods()) {
+                    assertTrue(method.toString(), method.getName().equals("main") || method.getName().matches("Method\\d+"));
+                    if (method.getName().equals("main")) {
+                        assertNull(main);
+                        main = method;
+                    }
+                }
+            }
+            assertNotNull(main);
+            String[] actual = new String[1];
+            main.invoke(null, (Object) actual);
+            assertEquals(expected[0], actual[0]);
+        }
+    }
+
+    @Test
+    public void methodFamilies() throws Throwable {
+        boolean bridged = false;
+        for (Method method : NarrowFamily.class.getDeclaredMethods()) {
+            bridged |= method.isBridge() && method.getReturnType() == Object.class;
+        }
+        assertTrue(bridged);
+
+        Deobfuscator deobfuscator = new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withClasspath(TestJars.write(folder.newFile("listener.jar"), classFiles(Listener.class)))
+                .withTransformer(Transformers.Normalizer.METHOD_NORMALIZER)
+                .withInput(TestJars.write(folder.newFile("in.jar"), classFiles(MethodFamilyFixture.class, NarrowFamily.class, Recorder.class, Unrelated.class)))
+                .withOutput(new File(folder.getRoot(), "out.jar"));
+        deobfuscator.start();
+        CustomRemapper remapper = deobfuscator.getRemapper();
+
+        // The override and its bridge follow the overridden method
+        String get = renamed(remapper, MethodFamilyFixture.class, "get", "()Ljava/lang/Object;");
+        assertEquals(get, renamed(remapper, NarrowFamily.class, "get", "()Ljava/lang/String;"));
+        assertEquals(get, renamed(remapper, NarrowFamily.class, "get", "()Ljava/lang/Object;"));
+        String overload = renamed(remapper, MethodFamilyFixture.class, "get", "(I)Ljava/lang/Object;");
+        assertNotEquals(get, overload);
+
+        // Implementing a library method pins it, but not the methods of other hierachies with the same name
+        String recorder = internalName(Recorder.class);
+        assertFalse(remapper.methodMappingExists(recorder, "changed", "(Ljava/lang/Object;)V"));
+        assertEquals("changed", remapper.mapMethodName(recorder, "changed", "(Ljava/lang/Object;)V"));
+        String changed = renamed(remapper, Unrelated.class, "changed", "(Ljava/lang/Object;)V");
+        String unrelated = renamed(remapper, Unrelated.class, "get", "()Ljava/lang/String;");
+        assertEquals(4, new HashSet<>(Arrays.asList(get, overload, changed, unrelated)).size());
+    }
+
+    private static String renamed(CustomRemapper remapper, Class<?> owner, String name, String desc) {
+        String renamed = remapper.mapMethodName(internalName(owner), name, desc);
+        assertTrue(owner.getSimpleName() + "." + name + desc + " -> " + renamed, renamed.matches("Method\\d+"));
+        return renamed;
+    }
+
+    private static Map<String, byte[]> classFiles(Class<?>... classes) throws IOException {
+        Map<String, byte[]> classFiles = new HashMap<>();
+        for (Class<?> clazz : classes) {
+            classFiles.put(internalName(clazz), TestJars.bytes(clazz));
+        }
+        return classFiles;
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+}
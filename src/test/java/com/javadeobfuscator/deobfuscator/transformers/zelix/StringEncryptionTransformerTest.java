@@ -0,0 +1,125 @@
+package com.javadeobfuscator.deobfuscator.transformers.zelix;
+
+import com.javadeobfuscator.deobfuscator.Deobfuscator;
+import com.javadeobfuscator.deobfuscator.TestJars;
+import com.javadeobfuscator.deobfuscator.events.DeobfuscatorEvent;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassReader;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassWriter;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.MethodVisitor;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.transformers.Transformers;
+import com.javadeobfuscator.deobfuscator.utils.ConstantPoolFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decrypts a static initializer whose decryptor calls are nested and share constants, and leaves plain classes unparsed.
+ */
+public class StringEncryptionTransformerTest {
+    private static final String NAME = ZelixStringFixture.class.getName().replace('.', '/');
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void nestedAndSharedCalls() throws Throwable {
+        File output = new File(folder.getRoot(), "out.jar");
+        new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(Transformers.Zelix.STRING_ENCRYPTION)
+                .withInput(TestJars.write(folder.newFile("in.jar"), Collections.singletonMap(NAME, fixture())))
+                .withOutput(output)
+                .start();
+
+        byte[] written = TestJars.read(output, NAME + ".class");
+        assertFalse(new ConstantPoolFilter().utf8("Decryptor").matches(written));
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, ClassLoader.getSystemClassLoader().getParent())) {
+            Class<?> clazz = Class.forName(ZelixStringFixture.class.getName(), true, loader);
+            // Nested calls are decrypted innermost first, each seeing the result of the one before
+            assertEquals(decrypt("nested", 2), clazz.getDeclaredField("nested").get(null));
+            // Each call decrypts the shared constant as the previous call left it, so both read it decrypted twice
+            assertEquals(decrypt("shared", 2), clazz.getDeclaredField("first").get(null));
+            assertEquals(decrypt("shared", 2), clazz.getDeclaredField("second").get(null));
+            assertEquals(decrypt("single", 1), clazz.getDeclaredField("single").get(null));
+        }
+    }
+
+    @Test
+    public void plainClassesAreDeferred() throws Throwable {
+        Map<String, byte[]> classFiles = new HashMap<>();
+        classFiles.put(NAME, fixture());
+        classFiles.put(ZelixPlain.class.getName().replace('.', '/'), TestJars.bytes(ZelixPlain.class));
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        File output = new File(folder.getRoot(), "out.jar");
+        new Deobfuscator()
+                .withClasspath(TestJars.objectLibrary(folder.newFile("object.jar")))
+                .withTransformer(Transformers.Zelix.STRING_ENCRYPTION)
+                .withInput(TestJars.write(folder.newFile("in.jar"), classFiles))
+                .withOutput(output)
+                .withListener(events -> events.stream().filter(event -> event.getType() == DeobfuscatorEvent.Type.INFO).forEach(event -> messages.add(event.getMessage())))
+                .start();
+
+        assertTrue(messages.toString(), messages.contains("Deferred parsing 1 classes which no transformer is interested in"));
+        assertFalse(new ConstantPoolFilter().utf8("Decryptor").matches(TestJars.read(output, NAME + ".class")));
+    }
+
+    private static String decrypt(String constant, int times) {
+        for (int i = 0; i < times; i++) {
+            constant = ZelixStringFixture.z(ZelixStringFixture.z(constant));
+        }
+        return constant;
+    }
+
+    /**
+     * Adds the static initializer, which passes "nested" through the decryptor twice, decrypts "shared" for two fields
+     * from one constant, and "single" once.
+     */
+    private static byte[] fixture() throws Exception {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        new ClassReader(TestJars.bytes(ZelixStringFixture.class)).accept(new ClassVisitor(Opcodes.ASM5, writer) {
+            @Override
+            public void visitEnd() {
+                MethodVisitor mv = super.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+                mv.visitCode();
+                mv.visitLdcInsn("nested");
+                decrypt(mv);
+                decrypt(mv);
+                mv.visitFieldInsn(Opcodes.PUTSTATIC, NAME, "nested", "Ljava/lang/String;");
+                mv.visitLdcInsn("shared");
+                mv.visitInsn(Opcodes.DUP);
+                decrypt(mv);
+                mv.visitFieldInsn(Opcodes.PUTSTATIC, NAME, "first", "Ljava/lang/String;");
+                decrypt(mv);
+                mv.visitFieldInsn(Opcodes.PUTSTATIC, NAME, "second", "Ljava/lang/String;");
+                mv.visitLdcInsn("single");
+                decrypt(mv);
+                mv.visitFieldInsn(Opcodes.PUTSTATIC, NAME, "single", "Ljava/lang/String;");
+                mv.visitInsn(Opcodes.RETURN);
+                mv.visitMaxs(0, 0);
+                mv.visitEnd();
+                super.visitEnd();
+            }
+        }, 0);
+        return writer.toByteArray();
+    }
+
+    private static void decrypt(MethodVisitor mv) {
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, NAME, "z", "(Ljava/lang/String;)[C", false);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, NAME, "z", "([C)Ljava/lang/String;", false);
+    }
+}
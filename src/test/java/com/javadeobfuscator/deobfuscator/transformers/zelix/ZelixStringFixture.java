@@ -0,0 +1,29 @@
+package com.javadeobfuscator.deobfuscator.transformers.zelix;
+
+/**
+ * A class with decryptor methods shaped like Zelix's, which the static initializer passes each constant through. The
+ * static initializer itself is written by the test, as javac won't share one constant between two calls.
+ */
+public class ZelixStringFixture {
+    public static String nested;
+    public static String first;
+    public static String second;
+    public static String single;
+
+    static char[] z(String encrypted) {
+        return encrypted.toCharArray();
+    }
+
+    static String z(char[] chars) {
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (chars[i] + 1);
+        }
+        return new String(chars).intern();
+    }
+}
+
+class ZelixPlain {
+    String plain() {
+        return "plain";
+    }
+}
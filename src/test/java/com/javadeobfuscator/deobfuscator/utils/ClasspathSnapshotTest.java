@@ -0,0 +1,105 @@
+package com.javadeobfuscator.deobfuscator.utils;
+
+import com.google.common.collect.MapMaker;
+import com.javadeobfuscator.deobfuscator.Deobfuscator;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.FieldNode;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.MethodNode;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes a snapshot of a real library jar and checks it against the same jar loaded directly.
+ */
+public class ClasspathSnapshotTest {
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, WrappedClassNode> library;
+    private static File file;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        File jar = new File(MapMaker.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        library = Deobfuscator.loadLibrary(jar);
+        file = new File(folder.getRoot(), "library" + ClasspathSnapshot.EXTENSION);
+        ClasspathSnapshot.write(library.values(), file);
+    }
+
+    @Test
+    public void lookup() throws Exception {
+        assertTrue(ClasspathSnapshot.isSnapshot(file));
+        Map<String, WrappedClassNode> snapshot = Deobfuscator.loadLibrary(file);
+        assertTrue(snapshot instanceof ClasspathSnapshot);
+        assertEquals(library.size(), snapshot.size());
+        for (Map.Entry<String, WrappedClassNode> entry : library.entrySet()) {
+            assertTrue(entry.getKey(), snapshot.containsKey(entry.getKey()));
+            WrappedClassNode read = snapshot.get(entry.getKey());
+            assertSignatures(entry.getValue(), read);
+            assertSame(read, snapshot.get(entry.getKey()));
+        }
+        assertNull(snapshot.get("java/lang/Object"));
+        assertFalse(snapshot.containsKey("java/lang/Object"));
+        assertNull(snapshot.get(42));
+    }
+
+    @Test
+    public void iterate() throws Exception {
+        Map<String, WrappedClassNode> snapshot = ClasspathSnapshot.open(file);
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<String, WrappedClassNode> entry : snapshot.entrySet()) {
+            assertTrue(entry.getKey(), seen.add(entry.getKey()));
+            assertEquals(entry.getKey(), entry.getValue().classNode.name);
+            assertSignatures(library.get(entry.getKey()), entry.getValue());
+        }
+        assertEquals(library.keySet(), seen);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnly() throws Exception {
+        ClasspathSnapshot.open(file).put("a/B", library.values().iterator().next());
+    }
+
+    private static void assertSignatures(WrappedClassNode expected, WrappedClassNode actual) {
+        ClassNode expectedNode = expected.classNode;
+        ClassNode actualNode = actual.classNode;
+        String name = expectedNode.name;
+        assertEquals(name, expectedNode.name, actualNode.name);
+        assertTrue(name, actualNode.isLibrary);
+        assertEquals(name, expected.constantPoolSize, actual.constantPoolSize);
+        assertEquals(name, expectedNode.version, actualNode.version);
+        assertEquals(name, expectedNode.access, actualNode.access);
+        assertEquals(name, expectedNode.superName, actualNode.superName);
+        assertEquals(name, expectedNode.interfaces, actualNode.interfaces);
+        assertEquals(name, expectedNode.fields.size(), actualNode.fields.size());
+        for (int i = 0; i < expectedNode.fields.size(); i++) {
+            FieldNode expectedField = expectedNode.fields.get(i);
+            FieldNode actualField = actualNode.fields.get(i);
+            assertEquals(name, expectedField.access, actualField.access);
+            assertEquals(name, expectedField.name, actualField.name);
+            assertEquals(name, expectedField.desc, actualField.desc);
+        }
+        assertEquals(name, expectedNode.methods.size(), actualNode.methods.size());
+        for (int i = 0; i < expectedNode.methods.size(); i++) {
+            MethodNode expectedMethod = expectedNode.methods.get(i);
+            MethodNode actualMethod = actualNode.methods.get(i);
+            assertEquals(name, expectedMethod.access, actualMethod.access);
+            assertEquals(name, expectedMethod.name, actualMethod.name);
+            assertEquals(name, expectedMethod.desc, actualMethod.desc);
+            assertEquals(name, expectedMethod.exceptions, actualMethod.exceptions);
+        }
+    }
+}
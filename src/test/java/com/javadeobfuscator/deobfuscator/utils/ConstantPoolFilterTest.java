@@ -0,0 +1,86 @@
+package com.javadeobfuscator.deobfuscator.utils;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.ClassWriter;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Handle;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Opcodes;
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.Type;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scans constant pools written by ASM, with the markers placed after the entries which are easy to skip wrongly.
+ */
+public class ConstantPoolFilterTest {
+    private static final String DECRYPT_DESC = "(Ljava/lang/String;)Ljava/lang/String;";
+
+    @Test
+    public void twoSlotConstants() {
+        ClassWriter writer = start();
+        writer.newConst(0x0101010101010101L);
+        writer.newConst(1.0d);
+        writer.newConst(Long.MIN_VALUE);
+        writer.newUTF8("marker");
+        writer.newMethod("test/Owner", "decrypt", DECRYPT_DESC, false);
+        byte[] classFile = writer.toByteArray();
+
+        assertTrue(new ConstantPoolFilter().utf8("marker").matches(classFile));
+        assertTrue(new ConstantPoolFilter().methodRef("test/Owner", "decrypt", DECRYPT_DESC).matches(classFile));
+        assertTrue(new ConstantPoolFilter().methodRef(null, "decrypt", desc -> desc.endsWith(")Ljava/lang/String;")).matches(classFile));
+        assertFalse(new ConstantPoolFilter().utf8("absent").matches(classFile));
+        assertFalse(new ConstantPoolFilter().methodRef("test/Other", "decrypt", (String) null).matches(classFile));
+        assertFalse(new ConstantPoolFilter().methodRef("test/Owner", "decrypt", "()V").matches(classFile));
+        assertEquals("test/Pool", ConstantPoolFilter.getClassName(classFile));
+    }
+
+    @Test
+    public void handlesAndCallSites() {
+        Handle bootstrap = new Handle(Opcodes.H_INVOKESTATIC, "test/Bootstrap", "bootstrap", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;");
+        ClassWriter writer = start();
+        writer.newMethodType("(I)V");
+        writer.newHandle(Opcodes.H_GETSTATIC, "test/Owner", "field", "I");
+        writer.newInvokeDynamic("call", "()V", bootstrap, Type.getMethodType("()V"), 42L);
+        writer.newUTF8("marker");
+        writer.newMethod("test/Owner", "decrypt", DECRYPT_DESC, true);
+        byte[] classFile = writer.toByteArray();
+
+        assertTrue(new ConstantPoolFilter().invokeDynamic().matches(classFile));
+        assertTrue(new ConstantPoolFilter().utf8("marker").matches(classFile));
+        assertTrue(new ConstantPoolFilter().methodRef("test/Owner", "decrypt", DECRYPT_DESC).matches(classFile));
+        assertFalse(new ConstantPoolFilter().utf8("absent").matches(classFile));
+        assertEquals("test/Pool", ConstantPoolFilter.getClassName(classFile));
+
+        ClassWriter plain = start();
+        plain.newMethodType("(I)V");
+        plain.newHandle(Opcodes.H_INVOKEVIRTUAL, "test/Owner", "run", "()V");
+        assertFalse(new ConstantPoolFilter().invokeDynamic().matches(plain.toByteArray()));
+    }
+
+    @Test
+    public void malformedClassesMatch() {
+        ClassWriter writer = start();
+        writer.newUTF8("marker");
+        byte[] classFile = writer.toByteArray();
+        ConstantPoolFilter filter = new ConstantPoolFilter().utf8("absent");
+        assertFalse(filter.matches(classFile));
+
+        assertTrue(filter.matches(new byte[0]));
+        assertTrue(filter.matches(Arrays.copyOf(classFile, 20)));
+        byte[] unknownTag = classFile.clone();
+        unknownTag[10] = 2;
+        assertTrue(filter.matches(unknownTag));
+        byte[] tooLong = classFile.clone();
+        tooLong[8] = (byte) 0xFF;
+        assertTrue(filter.matches(tooLong));
+    }
+
+    private static ClassWriter start() {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "test/Pool", null, "java/lang/Object", null);
+        return writer;
+    }
+}
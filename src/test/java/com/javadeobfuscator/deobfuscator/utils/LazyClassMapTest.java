@@ -0,0 +1,72 @@
+package com.javadeobfuscator.deobfuscator.utils;
+
+import com.javadeobfuscator.deobfuscator.org.objectweb.asm.tree.ClassNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every view of the map covers the deferred and library classes it resolves, and that only iterating
+ * the values parses deferred classes.
+ */
+public class LazyClassMapTest {
+    private final Map<String, Integer> parsed = new HashMap<>();
+    private LazyClassMap classes;
+
+    @Before
+    public void setup() {
+        LazyClassMap.Deferred deferred = new LazyClassMap.Deferred(bytes -> {
+            String name = new String(bytes);
+            parsed.merge(name, 1, Integer::sum);
+            return node(name);
+        });
+        deferred.add("test/Deferred", "test/Deferred.class", "test/Deferred".getBytes());
+        classes = new LazyClassMap(deferred);
+        classes.put("test/Own", node("test/Own"));
+        classes.addLibrary(Collections.singletonMap("test/Library", node("test/Library")));
+    }
+
+    @Test
+    public void viewsMatchLookups() {
+        assertEquals(new HashSet<>(Arrays.asList("test/Own", "test/Deferred", "test/Library")), classes.keySet());
+        assertEquals(3, classes.size());
+        assertTrue(classes.containsKey("test/Deferred"));
+        assertTrue(parsed.isEmpty());
+
+        assertEquals(3, classes.values().size());
+        classes.values().forEach(wrappedClassNode -> assertTrue(classes.containsKey(wrappedClassNode.classNode.name)));
+        assertEquals(Collections.singletonMap("test/Deferred", 1), parsed);
+        assertEquals(Collections.singleton("test/Own"), classes.ownKeySet());
+        assertEquals(1, classes.ownValues().size());
+    }
+
+    @Test
+    public void removedClassesLeaveEveryView() {
+        classes.remove("test/Deferred");
+        classes.keySet().remove("test/Library");
+        assertNull(classes.get("test/Deferred"));
+        assertFalse(classes.containsKey("test/Library"));
+        assertEquals(Collections.singleton("test/Own"), classes.keySet());
+        assertFalse(classes.isDeferred("test/Deferred"));
+
+        classes.put("test/Deferred", node("test/Deferred"));
+        assertEquals(2, classes.size());
+        assertTrue(classes.ownKeySet().contains("test/Deferred"));
+    }
+
+    private static WrappedClassNode node(String name) {
+        ClassNode classNode = new ClassNode();
+        classNode.name = name;
+        return new WrappedClassNode(classNode, 0);
+    }
+}
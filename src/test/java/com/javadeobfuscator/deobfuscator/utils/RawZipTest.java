@@ -0,0 +1,159 @@
+package com.javadeobfuscator.deobfuscator.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Copies entries through {@link RawZipFile} and {@link RawZipWriter}, and reads the result back with the JDK.
+ */
+public class RawZipTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        byte[] text = repeat("deflated entry ", 200);
+        byte[] stored = repeat("stored entry ", 10);
+        File input = folder.newFile("in.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(input))) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.write(text);
+            out.closeEntry();
+
+            ZipEntry entry = new ZipEntry("stored.bin");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(stored.length);
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(stored);
+            out.closeEntry();
+
+            out.putNextEntry(new ZipEntry("résumé.txt"));
+            out.write(text);
+            out.closeEntry();
+        }
+
+        File output = folder.newFile("out.jar");
+        byte[] written = repeat("written entry ", 50);
+        try (RawZipFile raw = RawZipFile.open(input); RawZipWriter writer = new RawZipWriter(output)) {
+            for (RawZipFile.Entry entry : raw.entries()) {
+                writer.copy(raw, entry, entry.getName());
+            }
+            writer.copy(raw, raw.getEntry("stored.bin"), "renamed.bin");
+            writer.write("bytes.bin", written);
+            writer.write("stream.bin", new ByteArrayInputStream(written));
+        }
+
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        expected.put("META-INF/MANIFEST.MF", text);
+        expected.put("stored.bin", stored);
+        expected.put("résumé.txt", text);
+        expected.put("renamed.bin", stored);
+        expected.put("bytes.bin", written);
+        expected.put("stream.bin", written);
+        try (ZipFile in = new ZipFile(input); ZipFile out = new ZipFile(output)) {
+            assertEquals(expected.size(), out.size());
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                ZipEntry copied = out.getEntry(entry.getKey());
+                assertArrayEquals(entry.getKey(), entry.getValue(), Utils.toByteArray(out.getInputStream(copied)));
+                ZipEntry original = in.getEntry(entry.getKey());
+                if (original != null) {
+                    assertEquals(entry.getKey(), original.getMethod(), copied.getMethod());
+                    assertEquals(entry.getKey(), original.getCompressedSize(), copied.getCompressedSize());
+                    assertEquals(entry.getKey(), original.getCrc(), copied.getCrc());
+                }
+            }
+            assertEquals(ZipEntry.STORED, out.getEntry("renamed.bin").getMethod());
+        }
+
+        // The local headers must agree with the central directory, as streaming readers only see the former
+        try (ZipInputStream in = new ZipInputStream(new FileInputStream(output))) {
+            int count = 0;
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    data.write(buffer, 0, read);
+                }
+                assertArrayEquals(entry.getName(), expected.get(entry.getName()), data.toByteArray());
+                count++;
+            }
+            assertEquals(expected.size(), count);
+        }
+    }
+
+    @Test
+    public void zip64IsRejected() throws IOException {
+        File input = folder.newFile("zip64.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(input)))) {
+            out.setMethod(ZipEntry.STORED);
+            for (int i = 0; i < 0xFFFF; i++) {
+                ZipEntry entry = new ZipEntry(Integer.toString(i, 36));
+                entry.setSize(0);
+                entry.setCrc(0);
+                out.putNextEntry(entry);
+                out.closeEntry();
+            }
+        }
+        try (RawZipFile raw = RawZipFile.open(input)) {
+            fail("Opened a ZIP64 archive with " + raw.entries().size() + " entries");
+        } catch (ZipException expected) {
+            assertEquals("ZIP64 archives are not supported", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void tooManyEntries() throws IOException {
+        File output = folder.newFile("out.jar");
+        RawZipWriter writer = new RawZipWriter(output);
+        try {
+            for (int i = 0; i < 0xFFFF; i++) {
+                writer.write(Integer.toString(i, 36), new byte[0]);
+            }
+            try {
+                writer.write("one too many", new byte[0]);
+                fail("Wrote more entries than fit without ZIP64");
+            } catch (ZipException expected) {
+            }
+        } finally {
+            writer.close();
+        }
+        try (ZipFile out = new ZipFile(output)) {
+            assertEquals(0xFFFF, out.size());
+            assertNull(out.getEntry("one too many"));
+        }
+    }
+
+    private static byte[] repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text).append(i);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}